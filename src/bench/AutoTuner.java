@@ -0,0 +1,277 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import mergesort.engine.Thresholds;
+import mergesort.input.Distribution;
+import mergesort.tuning.CostModel;
+import mergesort.tuning.TuningProfile;
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.impl.Arguments;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.ArgumentParserException;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+/**
+ * Cerca le soglie ({@link Thresholds}) e il numero di worker migliori per gli algoritmi paralleli su questa macchina, e li salva
+ * nel profilo ({@link TuningProfile}) usato dagli algoritmi creati senza un cutoff esplicito.
+ *
+ * Per ogni algoritmo e dimensione rappresentativa sono misurate tutte le combinazioni di cutoff e numero di worker
+ * (come in {@link SortBenchmark}), ed è scelta quella con la mediana dei tempi minore. Con questi valori sono poi provati,
+ * uno alla volta, i cutoff del merge parallelo (solo per l'algoritmo parallelo) e dell'insertion sort. Ogni dimensione misurata
+ * diventa una fascia del profilo, che arriva fino alla media geometrica con la dimensione successiva
+ * (l'ultima fascia comprende tutte le dimensioni maggiori).
+ *
+ * Infine calibra il modello dei tempi ({@link CostModel}) dell'algoritmo sequenziale e di quelli misurati, con i parametri
+ * appena scelti, su input casuali e ordinati di varie dimensioni: è il modello usato da {@link mergesort.MergeSortAuto}
+ * per scegliere l'algoritmo.
+ *
+ * Uso: AutoTuner [--engine SP P] [--size n ...] [--cutoff c ...] [--merge-cutoff c ...] [--insertion-cutoff c ...]
+ *                [--max-parallelism p] [--model-size n ...]
+ *                [--warmup N] [--iterations N] [--forks N] [--output file]
+ */
+public class AutoTuner
+{
+    public static void main(String[] args)
+    {
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        ArgumentParser parser = ArgumentParsers.newFor("AutoTuner").build()
+                .description("Misura cutoff e numero di worker migliori per ogni algoritmo e dimensione, e li salva nel profilo della macchina");
+
+        parser.addArgument("--engine")
+                .dest("engine")
+                .type(Arguments.caseInsensitiveEnumType(SortBenchmark.Engine.class))
+                .nargs("+")
+                .setDefault(Arrays.asList(SortBenchmark.Engine.SP, SortBenchmark.Engine.P))
+                .help("Algoritmi da misurare, fra 'sp' e 'p' (Default: sp p)");
+        parser.addArgument("--size")
+                .dest("size")
+                .type(Integer.class)
+                .nargs("+")
+                .setDefault(Arrays.asList(10000, 100000, 1000000))
+                .help("Dimensioni rappresentative dell'input, una per fascia (Default: 10000 100000 1000000)");
+        parser.addArgument("--cutoff")
+                .dest("cutoff")
+                .type(Integer.class)
+                .nargs("+")
+                .setDefault(Arrays.asList(16, 32, 64, 128, 256, 512, 1024, 2048, 4096, 8192))
+                .help("Cutoff da provare (Default: le potenze di 2 da 16 a 8192)");
+        parser.addArgument("--merge-cutoff")
+                .dest("merge_cutoff")
+                .type(Integer.class)
+                .nargs("+")
+                .setDefault(Arrays.asList(Thresholds.AUTO, 8192, 32768, 131072))
+                .help("Cutoff del merge parallelo da provare per l'algoritmo parallelo, 0 per il default calcolato in base a n (Default: 0 8192 32768 131072)");
+        parser.addArgument("--insertion-cutoff")
+                .dest("insertion_cutoff")
+                .type(Integer.class)
+                .nargs("+")
+                .setDefault(Arrays.asList(8, 16, 32, 64))
+                .help("Cutoff dell'insertion sort da provare (Default: 8 16 32 64)");
+        parser.addArgument("--max-parallelism")
+                .dest("max_parallelism")
+                .type(Integer.class)
+                .setDefault(cores)
+                .help("Numero massimo di worker: sono provate le potenze di 2 fino a questo valore e il valore stesso (Default: numero di processori)");
+        parser.addArgument("--model-size")
+                .dest("model_size")
+                .type(Integer.class)
+                .nargs("+")
+                .setDefault(Arrays.asList(1000, 10000, 100000, 1000000))
+                .help("Dimensioni su cui calibrare il modello dei tempi, almeno 3 diverse (Default: 1000 10000 100000 1000000)");
+        parser.addArgument("--warmup")
+                .dest("warmup")
+                .type(Integer.class)
+                .setDefault(3)
+                .help("Iterazioni di riscaldamento per fork (Default: 3)");
+        parser.addArgument("--iterations")
+                .dest("iterations")
+                .type(Integer.class)
+                .setDefault(5)
+                .help("Iterazioni misurate per fork (Default: 5)");
+        parser.addArgument("--forks")
+                .dest("forks")
+                .type(Integer.class)
+                .setDefault(1)
+                .help("JVM separate per ogni combinazione, 0 per misurare nella JVM corrente (Default: 1)");
+        parser.addArgument("--output")
+                .dest("output")
+                .type(String.class)
+                .setDefault(TuningProfile.defaultPath().toString())
+                .help("File del profilo (Default: " + TuningProfile.defaultPath() + ")");
+
+        try
+        {
+            Namespace ns = parser.parseArgs(args);
+            List<SortBenchmark.Engine> engines = ns.getList("engine");
+            List<Integer> sizes = new ArrayList<>(ns.<Integer>getList("size"));
+            List<Integer> cutoffs = ns.getList("cutoff");
+            int max_parallelism = ns.getInt("max_parallelism");
+            int warmup = ns.getInt("warmup");
+            int iterations = ns.getInt("iterations");
+            List<Integer> merge_cutoffs = ns.getList("merge_cutoff");
+            List<Integer> insertion_cutoffs = ns.getList("insertion_cutoff");
+            List<Integer> model_sizes = ns.getList("model_size");
+            sizes.sort(null);
+
+            for(SortBenchmark.Engine engine : engines)
+                if(engine != SortBenchmark.Engine.SP && engine != SortBenchmark.Engine.P)
+                    throw new ArgumentParserException("Si possono misurare solo gli algoritmi 'sp' e 'p'", parser);
+            if(sizes.get(0) < 1 || cutoffs.stream().anyMatch(c -> c < 1) || max_parallelism < 1 || warmup < 0 || iterations < 1)
+                throw new ArgumentParserException("Deve essere: size>=1, cutoff>=1, max-parallelism>=1, warmup>=0 e iterations>=1", parser);
+            if(merge_cutoffs.stream().anyMatch(c -> c < 0) || insertion_cutoffs.stream().anyMatch(c -> c < 1))
+                throw new ArgumentParserException("Deve essere: merge-cutoff>=0 e insertion-cutoff>=1", parser);
+            if(model_sizes.stream().anyMatch(n -> n < 2) || model_sizes.stream().distinct().count() < 3)
+                throw new ArgumentParserException("Servono almeno 3 dimensioni diverse, maggiori di 1, per il modello dei tempi", parser);
+
+            TuningProfile profile = new TuningProfile(cores);
+            for(SortBenchmark.Engine engine : engines)
+                profile.put(engine.name(), tune(engine, sizes, cutoffs, merge_cutoffs, insertion_cutoffs, max_parallelism,
+                        warmup, iterations, ns.getInt("forks")));
+
+            List<SortBenchmark.Engine> modelled = new ArrayList<>();
+            modelled.add(SortBenchmark.Engine.S);
+            modelled.addAll(engines);
+            for(SortBenchmark.Engine engine : modelled)
+                profile.putModel(engine.name(), calibrate(engine, profile, model_sizes, warmup, iterations, ns.getInt("forks")));
+
+            Path output = Paths.get(ns.getString("output"));
+            profile.save(output);
+
+            for(SortBenchmark.Engine engine : engines)
+            {
+                System.out.println(engine + ":");
+                for(TuningProfile.Band band : profile.getBands(engine.name()))
+                    System.out.println("  " + band);
+            }
+            for(SortBenchmark.Engine engine : modelled)
+                System.out.println("Modello " + engine + ": " + profile.getModel(engine.name()));
+            System.out.println("Il profilo è stato salvato nel seguente file: " + output.toAbsolutePath());
+        }
+        catch(ArgumentParserException e)
+        {
+            parser.handleError(e);
+        }
+        catch(IOException | InterruptedException e)
+        {
+            System.err.println("Errore durante la misura: " + e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Misura un algoritmo per ogni dimensione, cutoff e numero di worker, poi per ogni cutoff del merge e dell'insertion sort,
+     * e ritorna la combinazione migliore per ogni fascia.
+     */
+    private static List<TuningProfile.Band> tune(SortBenchmark.Engine engine, List<Integer> sizes, List<Integer> cutoffs, List<Integer> merge_cutoffs,
+            List<Integer> insertion_cutoffs, int max_parallelism, int warmup, int iterations, int forks) throws IOException, InterruptedException
+    {
+        List<TuningProfile.Band> bands = new ArrayList<>();
+        for(int i = 0; i < sizes.size(); i++)
+        {
+            int size = sizes.get(i);
+            double best = Double.MAX_VALUE;
+            SortBenchmark.Config best_config = null;
+
+            for(int cutoff : cutoffs)
+            {
+                // I cutoff maggiori di n equivalgono tutti all'ordinamento sequenziale: basta misurarne uno
+                if(cutoff > size && cutoffs.stream().anyMatch(c -> c >= size && c < cutoff))
+                    continue;
+
+                for(int p : ScalingBenchmark.parallelismLevels(max_parallelism))
+                {
+                    SortBenchmark.Config c = new SortBenchmark.Config(engine, size, Math.min(cutoff, size), p, Distribution.UNIFORM);
+                    double median = time(c, warmup, iterations, forks);
+                    if(median < best)
+                    {
+                        best = median;
+                        best_config = c;
+                    }
+                }
+            }
+
+            // Con cutoff e worker migliori provo le altre soglie, una alla volta
+            if(best_config.usesMergeCutoff())
+            {
+                for(int merge_cutoff : merge_cutoffs)
+                {
+                    SortBenchmark.Config c = new SortBenchmark.Config(engine, size, best_config.cutoff, merge_cutoff, best_config.insertion_cutoff,
+                            best_config.parallelism, Distribution.UNIFORM);
+                    double median = time(c, warmup, iterations, forks);
+                    if(median < best)
+                    {
+                        best = median;
+                        best_config = c;
+                    }
+                }
+            }
+            for(int insertion_cutoff : insertion_cutoffs)
+            {
+                // Le foglie non sono mai più grandi del cutoff
+                if(insertion_cutoff > best_config.cutoff && best_config.cutoff > 1)
+                    continue;
+
+                SortBenchmark.Config c = new SortBenchmark.Config(engine, size, best_config.cutoff, best_config.merge_cutoff, insertion_cutoff,
+                        best_config.parallelism, Distribution.UNIFORM);
+                double median = time(c, warmup, iterations, forks);
+                if(median < best)
+                {
+                    best = median;
+                    best_config = c;
+                }
+            }
+
+            // La fascia arriva fino alla media geometrica con la dimensione successiva
+            int max_n = i < sizes.size() - 1 ? (int) Math.sqrt((double) size * sizes.get(i + 1)) : Integer.MAX_VALUE;
+            bands.add(new TuningProfile.Band(max_n, best_config.cutoff, best_config.merge_cutoff, best_config.insertion_cutoff, best_config.parallelism));
+        }
+        return bands;
+    }
+
+    /**
+     * Misura la combinazione data e ne ritorna la mediana dei tempi.
+     */
+    private static double time(SortBenchmark.Config c, int warmup, int iterations, int forks) throws IOException, InterruptedException
+    {
+        double median = SortBenchmark.median(SortBenchmark.measure(c, warmup, iterations, forks).times);
+        System.err.printf(Locale.ROOT, "# %s: %.3f ms%n", c, median / 1e6);
+        return median;
+    }
+
+    /**
+     * Misura un algoritmo, con i parametri del profilo, su input casuali e ordinati delle dimensioni date, e ne calcola il modello dei tempi.
+     */
+    private static CostModel calibrate(SortBenchmark.Engine engine, TuningProfile profile, List<Integer> sizes,
+            int warmup, int iterations, int forks) throws IOException, InterruptedException
+    {
+        int[] n = sizes.stream().mapToInt(Integer::intValue).toArray();
+        double[] random = new double[n.length];
+        double[] sorted = new double[n.length];
+        for(int i = 0; i < n.length; i++)
+        {
+            TuningProfile.Band band = profile.lookup(engine.name(), n[i]);
+            if(band == null)
+                band = new TuningProfile.Band(n[i], 1, 1);
+            int cutoff = Math.min(band.getCutoff(), n[i]);
+
+            SortBenchmark.Config c = new SortBenchmark.Config(engine, n[i], cutoff, band.getMergeCutoff(), band.getInsertionCutoff(),
+                    band.getParallelism(), Distribution.UNIFORM);
+            random[i] = SortBenchmark.median(SortBenchmark.measure(c, warmup, iterations, forks).times);
+            System.err.printf(Locale.ROOT, "# modello %s: %.3f ms%n", c, random[i] / 1e6);
+
+            c = new SortBenchmark.Config(engine, n[i], cutoff, band.getMergeCutoff(), band.getInsertionCutoff(),
+                    band.getParallelism(), Distribution.SORTED);
+            sorted[i] = SortBenchmark.median(SortBenchmark.measure(c, warmup, iterations, forks).times);
+            System.err.printf(Locale.ROOT, "# modello %s: %.3f ms%n", c, sorted[i] / 1e6);
+        }
+        return new CostModel(CostModel.fit(n, random), CostModel.fit(n, sorted));
+    }
+}
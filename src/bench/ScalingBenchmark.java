@@ -0,0 +1,271 @@
+package bench;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import mergesort.input.Distribution;
+import mergesort.management.SortEngineMetrics;
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.impl.Arguments;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.ArgumentParserException;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+/**
+ * Misura la scalabilità degli algoritmi paralleli al variare del numero di worker del ForkJoinPool
+ * (1, 2, 4, ... fino al numero di processori, che è sempre compreso).
+ *
+ * - Scalabilità forte: n fisso. Speedup S(p) = T(1) / T(p), efficienza E(p) = S(p) / p.
+ * - Scalabilità debole: n proporzionale a p. Speedup scalato S(p) = p * T(1) / T(p), efficienza E(p) = T(1) / T(p).
+ *
+ * Per entrambe è riportata la frazione seriale stimata di Karp-Flatt, e(p) = (1/S(p) - 1/p) / (1 - 1/p):
+ * se cresce con p il limite è un overhead che aumenta con i worker (es. il costo delle fork e dei merge paralleli),
+ * se resta costante è la parte sequenziale dell'algoritmo (es. il merge finale sequenziale di SP).
+ *
+ * Ogni misura è la mediana delle iterazioni, eseguite dopo il riscaldamento come in {@link SortBenchmark}.
+ * Il risultato è scritto in formato CSV o JSON.
+ *
+ * Uso: ScalingBenchmark [--engine SP P] [--mode strong weak] [--size n] [--cutoff c] [--max-parallelism p]
+ *                       [--warmup N] [--iterations N] [--forks N] [--format csv|json] [--output file]
+ */
+public class ScalingBenchmark
+{
+    /**
+     * Tipo di scalabilità misurata.
+     */
+    public enum Mode
+    {
+        STRONG, WEAK
+    }
+
+    /**
+     * Formato del risultato.
+     */
+    public enum Format
+    {
+        CSV, JSON
+    }
+
+    /**
+     * Misura di una configurazione, con le metriche rispetto a quella con un solo worker.
+     */
+    private static class Result
+    {
+        Mode mode;
+        SortBenchmark.Engine engine;
+        int parallelism;
+        int size;
+        int cutoff;
+        double median, mean, error;
+        double speedup, efficiency, karp_flatt;
+        double bytes_per_element, gc_count, gc_millis;
+    }
+
+    public static void main(String[] args)
+    {
+        // Le allocazioni di ogni ordinamento sono riportate per ogni misura
+        SortEngineMetrics.get().setAllocationMeteringEnabled(true);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        ArgumentParser parser = ArgumentParsers.newFor("ScalingBenchmark").build()
+                .description("Scalabilità forte e debole degli algoritmi paralleli al variare del numero di worker");
+
+        parser.addArgument("--engine")
+                .dest("engine")
+                .type(Arguments.caseInsensitiveEnumType(SortBenchmark.Engine.class))
+                .nargs("+")
+                .setDefault(Arrays.asList(SortBenchmark.Engine.SP, SortBenchmark.Engine.P))
+                .help("Algoritmi da misurare (Default: sp p)");
+        parser.addArgument("--mode")
+                .dest("mode")
+                .type(Arguments.caseInsensitiveEnumType(Mode.class))
+                .nargs("+")
+                .setDefault(Arrays.asList(Mode.values()))
+                .help("Scalabilità da misurare, fra 'strong' (n fisso) e 'weak' (n proporzionale ai worker) (Default: entrambe)");
+        parser.addArgument("--size")
+                .dest("size")
+                .type(Integer.class)
+                .setDefault(1000000)
+                .help("Elementi dell'input: totali per la scalabilità forte, per worker per quella debole (Default: 1000000)");
+        parser.addArgument("--cutoff")
+                .dest("cutoff")
+                .type(Integer.class)
+                .setDefault(2000)
+                .help("Cutoff sequenziale (Default: 2000)");
+        parser.addArgument("--max-parallelism")
+                .dest("max_parallelism")
+                .type(Integer.class)
+                .setDefault(cores)
+                .help("Numero massimo di worker (Default: numero di processori)");
+        parser.addArgument("--dist")
+                .dest("dist")
+                .type(Arguments.caseInsensitiveEnumType(Distribution.class))
+                .setDefault(Distribution.UNIFORM)
+                .help("Distribuzione dell'input (Default: uniform)");
+        parser.addArgument("--warmup")
+                .dest("warmup")
+                .type(Integer.class)
+                .setDefault(3)
+                .help("Iterazioni di riscaldamento per fork (Default: 3)");
+        parser.addArgument("--iterations")
+                .dest("iterations")
+                .type(Integer.class)
+                .setDefault(5)
+                .help("Iterazioni misurate per fork (Default: 5)");
+        parser.addArgument("--forks")
+                .dest("forks")
+                .type(Integer.class)
+                .setDefault(1)
+                .help("JVM separate per ogni configurazione, 0 per misurare nella JVM corrente (Default: 1)");
+        parser.addArgument("--format")
+                .dest("format")
+                .type(Arguments.caseInsensitiveEnumType(Format.class))
+                .setDefault(Format.CSV)
+                .help("Formato del risultato, fra 'csv' e 'json' (Default: csv)");
+        parser.addArgument("--output")
+                .dest("output")
+                .type(String.class)
+                .setDefault("")
+                .help("File su cui scrivere il risultato (Default: standard output)");
+
+        try
+        {
+            Namespace ns = parser.parseArgs(args);
+            int size = ns.getInt("size");
+            int cutoff = ns.getInt("cutoff");
+            int max_parallelism = ns.getInt("max_parallelism");
+            int warmup = ns.getInt("warmup");
+            int iterations = ns.getInt("iterations");
+            if(size < 1 || cutoff < 1 || max_parallelism < 1 || warmup < 0 || iterations < 1)
+                throw new ArgumentParserException("Deve essere: size>=1, cutoff>=1, max-parallelism>=1, warmup>=0 e iterations>=1", parser);
+
+            List<Result> results = new ArrayList<>();
+            for(Mode mode : ns.<Mode>getList("mode"))
+                for(SortBenchmark.Engine engine : ns.<SortBenchmark.Engine>getList("engine"))
+                    results.addAll(scale(mode, engine, size, cutoff, max_parallelism, (Distribution) ns.get("dist"),
+                            warmup, iterations, ns.getInt("forks")));
+
+            String output = ns.getString("output");
+            try(PrintWriter out = output.isEmpty()
+                    ? new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                    : new PrintWriter(Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8)))
+            {
+                if(ns.get("format") == Format.JSON)
+                    writeJson(results, out);
+                else
+                    writeCsv(results, out);
+            }
+        }
+        catch(ArgumentParserException e)
+        {
+            parser.handleError(e);
+        }
+        catch(IOException | InterruptedException e)
+        {
+            System.err.println("Errore durante la misura: " + e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Ritorna i numeri di worker da misurare: le potenze di 2 fino al massimo dato, e il massimo stesso.
+     *
+     * @param max numero massimo di worker
+     * @return int[]
+     */
+    static int[] parallelismLevels(int max)
+    {
+        List<Integer> levels = new ArrayList<>();
+        for(int p = 1; p < max; p *= 2)
+            levels.add(p);
+        levels.add(max);
+        return levels.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Misura un algoritmo per ogni numero di worker, calcolando le metriche rispetto alla misura con un solo worker.
+     */
+    private static List<Result> scale(Mode mode, SortBenchmark.Engine engine, int size, int cutoff, int max_parallelism,
+            Distribution dist, int warmup, int iterations, int forks) throws IOException, InterruptedException
+    {
+        List<Result> results = new ArrayList<>();
+        double base = 0;
+        for(int p : parallelismLevels(max_parallelism))
+        {
+            int n = mode == Mode.WEAK ? (int) Math.min(Integer.MAX_VALUE - 8, (long) size * p) : size;
+            SortBenchmark.Config c = new SortBenchmark.Config(engine, n, Math.min(cutoff, n), p, dist);
+            System.err.printf(Locale.ROOT, "# %s: %s%n", mode, c);
+
+            SortBenchmark.Samples samples = SortBenchmark.measure(c, warmup, iterations, forks);
+
+            Result r = new Result();
+            r.mode = mode;
+            r.engine = engine;
+            r.parallelism = p;
+            r.size = n;
+            r.cutoff = c.cutoff;
+            r.median = SortBenchmark.median(samples.times);
+            r.mean = SortBenchmark.mean(samples.times);
+            r.error = SortBenchmark.error(samples.times);
+            r.bytes_per_element = samples.bytesPerElement(n);
+            r.gc_count = SortBenchmark.mean(samples.gc_counts);
+            r.gc_millis = SortBenchmark.mean(samples.gc_millis);
+
+            if(p == 1)
+                base = r.median;
+            r.efficiency = mode == Mode.WEAK ? base / r.median : base / r.median / p;
+            r.speedup = r.efficiency * p;
+            r.karp_flatt = p > 1 ? (1 / r.speedup - 1.0 / p) / (1 - 1.0 / p) : Double.NaN;
+
+            results.add(r);
+        }
+        return results;
+    }
+
+    private static void writeCsv(List<Result> results, PrintWriter out)
+    {
+        out.println("mode,engine,parallelism,n,cutoff,median_ms,mean_ms,error_ms,speedup,efficiency,karp_flatt,bytes_per_element,gc_count_per_op,gc_ms_per_op");
+        for(Result r : results)
+            out.println(String.format(Locale.ROOT, "%s,%s,%d,%d,%d,%.4f,%.4f,%s,%.4f,%.4f,%s,%s,%.4f,%.4f",
+                    r.mode.name().toLowerCase(Locale.ROOT), r.engine, r.parallelism, r.size, r.cutoff,
+                    r.median / 1e6, r.mean / 1e6, number(r.error / 1e6), r.speedup, r.efficiency, number(r.karp_flatt),
+                    number(r.bytes_per_element), r.gc_count, r.gc_millis));
+    }
+
+    private static void writeJson(List<Result> results, PrintWriter out)
+    {
+        out.println("[");
+        for(int i = 0; i < results.size(); i++)
+        {
+            Result r = results.get(i);
+            out.print(String.format(Locale.ROOT,
+                    "  {\"mode\": \"%s\", \"engine\": \"%s\", \"parallelism\": %d, \"n\": %d, \"cutoff\": %d, "
+                    + "\"median_ms\": %.4f, \"mean_ms\": %.4f, \"error_ms\": %s, \"speedup\": %.4f, \"efficiency\": %.4f, \"karp_flatt\": %s, "
+                    + "\"bytes_per_element\": %s, \"gc_count_per_op\": %.4f, \"gc_ms_per_op\": %.4f}",
+                    r.mode.name().toLowerCase(Locale.ROOT), r.engine, r.parallelism, r.size, r.cutoff,
+                    r.median / 1e6, r.mean / 1e6, json(r.error / 1e6), r.speedup, r.efficiency, json(r.karp_flatt),
+                    json(r.bytes_per_element), r.gc_count, r.gc_millis));
+            out.println(i < results.size() - 1 ? "," : "");
+        }
+        out.println("]");
+    }
+
+    private static String number(double v)
+    {
+        return Double.isNaN(v) ? "" : String.format(Locale.ROOT, "%.4f", v);
+    }
+
+    private static String json(double v)
+    {
+        return Double.isNaN(v) ? "null" : String.format(Locale.ROOT, "%.4f", v);
+    }
+}
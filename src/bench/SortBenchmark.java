@@ -0,0 +1,613 @@
+package bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+import mergesort.MergeSort;
+import mergesort.MergeSortAuto;
+import mergesort.MergeSortParallel;
+import mergesort.MergeSortSemiParallel;
+import mergesort.MergeSortSequential;
+import mergesort.engine.Thresholds;
+import mergesort.input.Distribution;
+import mergesort.input.InputGenerator;
+import mergesort.management.AllocationMeter;
+import mergesort.management.SortEngineMetrics;
+import mergesort.verify.SortVerifier;
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.impl.Arguments;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.ArgumentParserException;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+/**
+ * Suite di benchmark di tutti gli algoritmi, sul modello di JMH.
+ *
+ * Ogni combinazione di algoritmo, dimensione, cutoff, parallelismo e distribuzione dell'input è misurata in una JVM
+ * separata (fork), così che la compilazione JIT di un algoritmo non influenzi le misure degli altri. In ogni fork
+ * sono eseguite prima le iterazioni di riscaldamento e poi quelle misurate: ogni iterazione ordina una copia nuova
+ * dello stesso input (la copia è fatta fuori dall'intervallo misurato) e il risultato è consumato, così che il
+ * compilatore non possa eliminare il lavoro. Il risultato di ogni combinazione è la media dei tempi di tutte le
+ * iterazioni misurate di tutti i fork, con l'intervallo di confidenza al 99.9%.
+ *
+ * Il riferimento è {@link Arrays#parallelSort(int[])}, eseguito in un ForkJoinPool con lo stesso parallelismo.
+ *
+ * Per ogni combinazione sono riportati anche i byte allocati da tutti i thread per elemento ordinato (B/elem), e il numero
+ * e la durata delle garbage collection (GC/op, GCms/op) in media per iterazione.
+ *
+ * Uso: SortBenchmark [--engine ...] [--size ...] [--cutoff ...] [--merge-cutoff ...] [--insertion-cutoff ...] [--parallelism ...] [--dist ...]
+ *                    [--warmup N] [--iterations N] [--forks N]
+ */
+public class SortBenchmark
+{
+    /**
+     * Algoritmi misurati.
+     */
+    public enum Engine
+    {
+        S, SP, SP_DEBUG, P, P_DEBUG, AUTO, BASELINE
+    }
+
+    // Livello di confidenza dell'intervallo riportato (come JMH)
+    private static final double CONFIDENCE = 0.999;
+
+    // Quantili della distribuzione t di Student al livello CONFIDENCE per 1, 2, ..., STUDENT_TABLE_MAX_DF gradi di libertà
+    private static final double[] STUDENT_TABLE = {
+        636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587,
+        4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850,
+        3.819, 3.792, 3.768, 3.745, 3.725, 3.707, 3.690, 3.674, 3.659, 3.646
+    };
+    private static final int STUDENT_TABLE_MAX_DF = 30;
+
+    // Prefissi delle righe con cui un fork comunica i tempi misurati, e i byte allocati e le garbage collection di ogni iterazione
+    private static final String SAMPLES_PREFIX = "#SAMPLES";
+    private static final String ALLOCATION_PREFIX = "#ALLOCATION";
+
+    // Seme dell'input, uguale per tutti i fork
+    private static final long SEED = 42;
+
+    // Il risultato di ogni ordinamento è consumato qui, così che non possa essere eliminato
+    private static volatile int sink;
+
+    public static void main(String[] args)
+    {
+        // Le allocazioni di ogni ordinamento sono riportate per ogni misura (anche nei fork, che eseguono questo metodo)
+        SortEngineMetrics.get().setAllocationMeteringEnabled(true);
+
+        ArgumentParser parser = ArgumentParsers.newFor("SortBenchmark").build()
+                .description("Benchmark degli algoritmi di ordinamento, con riscaldamento, fork separati e intervalli di confidenza");
+
+        parser.addArgument("--engine")
+                .dest("engine")
+                .type(Arguments.caseInsensitiveEnumType(Engine.class))
+                .nargs("+")
+                .setDefault(Arrays.asList(Engine.values()))
+                .help("Algoritmi da misurare (Default: tutti)");
+        parser.addArgument("--size")
+                .dest("size")
+                .type(Integer.class)
+                .nargs("+")
+                .setDefault(Arrays.asList(100000, 1000000))
+                .help("Numero di elementi dell'input (Default: 100000 1000000)");
+        parser.addArgument("--cutoff")
+                .dest("cutoff")
+                .type(Integer.class)
+                .nargs("+")
+                .setDefault(Arrays.asList(200, 2000))
+                .help("Cutoff sequenziale degli algoritmi paralleli (Default: 200 2000)");
+        parser.addArgument("--merge-cutoff")
+                .dest("merge_cutoff")
+                .type(Integer.class)
+                .nargs("+")
+                .setDefault(Arrays.asList(Thresholds.AUTO))
+                .help("Cutoff del merge parallelo dell'algoritmo parallelo, 0 per il default calcolato in base a n (Default: 0)");
+        parser.addArgument("--insertion-cutoff")
+                .dest("insertion_cutoff")
+                .type(Integer.class)
+                .nargs("+")
+                .setDefault(Arrays.asList(Thresholds.DEFAULT_INSERTION_CUTOFF))
+                .help("Cutoff dell'insertion sort degli algoritmi paralleli (Default: " + Thresholds.DEFAULT_INSERTION_CUTOFF + ")");
+        parser.addArgument("--parallelism")
+                .dest("parallelism")
+                .type(Integer.class)
+                .nargs("+")
+                .setDefault(Arrays.asList(Runtime.getRuntime().availableProcessors()))
+                .help("Numero di worker del ForkJoinPool (Default: numero di processori)");
+        parser.addArgument("--dist")
+                .dest("dist")
+                .type(Arguments.caseInsensitiveEnumType(Distribution.class))
+                .nargs("+")
+                .setDefault(Arrays.asList(Distribution.UNIFORM))
+                .help("Distribuzione dell'input (Default: uniform)");
+        parser.addArgument("--warmup")
+                .dest("warmup")
+                .type(Integer.class)
+                .setDefault(5)
+                .help("Iterazioni di riscaldamento per fork (Default: 5)");
+        parser.addArgument("--iterations")
+                .dest("iterations")
+                .type(Integer.class)
+                .setDefault(10)
+                .help("Iterazioni misurate per fork (Default: 10)");
+        parser.addArgument("--forks")
+                .dest("forks")
+                .type(Integer.class)
+                .setDefault(1)
+                .help("JVM separate per ogni combinazione, 0 per misurare nella JVM corrente (Default: 1)");
+        parser.addArgument("--child")
+                .dest("child")
+                .action(Arguments.storeTrue())
+                .setDefault(false)
+                .help(Arguments.SUPPRESS);
+
+        try
+        {
+            Namespace ns = parser.parseArgs(args);
+            int warmup = ns.getInt("warmup");
+            int iterations = ns.getInt("iterations");
+            if(warmup < 0 || iterations < 1)
+                throw new ArgumentParserException("Deve essere: warmup>=0 e iterations>=1", parser);
+
+            if(ns.getBoolean("child"))
+            {
+                Config c = new Config((Engine) ns.getList("engine").get(0), ns.<Integer>getList("size").get(0), ns.<Integer>getList("cutoff").get(0),
+                        ns.<Integer>getList("merge_cutoff").get(0), ns.<Integer>getList("insertion_cutoff").get(0),
+                        ns.<Integer>getList("parallelism").get(0), (Distribution) ns.getList("dist").get(0));
+                Samples samples = run(c, warmup, iterations);
+                StringBuilder sb = new StringBuilder(SAMPLES_PREFIX);
+                for(long t : samples.times)
+                    sb.append(' ').append(t);
+                System.out.println(sb);
+                sb = new StringBuilder(ALLOCATION_PREFIX);
+                for(int i = 0; i < samples.times.length; i++)
+                    sb.append(' ').append(samples.bytes[i]).append(':').append(samples.gc_counts[i]).append(':').append(samples.gc_millis[i]);
+                System.out.println(sb);
+                return;
+            }
+
+            List<Config> configs = configs(ns.getList("engine"), ns.getList("size"), ns.getList("cutoff"), ns.getList("merge_cutoff"),
+                    ns.getList("insertion_cutoff"), ns.getList("parallelism"), ns.getList("dist"));
+            int forks = ns.getInt("forks");
+
+            List<String> rows = new ArrayList<>();
+            int done = 0;
+            for(Config c : configs)
+            {
+                System.err.printf(Locale.ROOT, "# Combinazione %d/%d: %s%n", ++done, configs.size(), c);
+
+                rows.add(c.row(measure(c, warmup, iterations, forks)));
+            }
+
+            System.out.println();
+            System.out.println(Config.HEADER);
+            for(String row : rows)
+                System.out.println(row);
+        }
+        catch(ArgumentParserException e)
+        {
+            parser.handleError(e);
+        }
+        catch(IOException | InterruptedException e)
+        {
+            System.err.println("Errore durante l'esecuzione di un fork: " + e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Combinazione di parametri misurata.
+     */
+    static class Config
+    {
+        static final String HEADER = String.format(Locale.ROOT, "%-10s %-14s %10s %7s %7s %4s %4s %5s %12s   %10s  %-5s  %8s %6s %8s",
+                "Benchmark", "Dist", "n", "cutoff", "merge", "ins", "par", "Cnt", "Score", "Error", "Units", "B/elem", "GC/op", "GCms/op");
+
+        final Engine engine;
+        final int size;
+        final int cutoff;
+        final int merge_cutoff;
+        final int insertion_cutoff;
+        final int parallelism;
+        final Distribution dist;
+
+        Config(Engine engine, int size, int cutoff, int parallelism, Distribution dist)
+        {
+            this(engine, size, cutoff, Thresholds.AUTO, Thresholds.DEFAULT_INSERTION_CUTOFF, parallelism, dist);
+        }
+
+        Config(Engine engine, int size, int cutoff, int merge_cutoff, int insertion_cutoff, int parallelism, Distribution dist)
+        {
+            this.engine = engine;
+            this.size = size;
+            this.cutoff = cutoff;
+            this.merge_cutoff = merge_cutoff;
+            this.insertion_cutoff = insertion_cutoff;
+            this.parallelism = parallelism;
+            this.dist = dist;
+        }
+
+        /**
+         * @return riga della tabella dei risultati per le misure date
+         */
+        String row(Samples samples)
+        {
+            double bytes = samples.bytesPerElement(size);
+            return String.format(Locale.ROOT, "%-10s %-14s %10d %7s %7s %4s %4s %5d %12.3f ± %10.3f  ms/op  %8s %6.2f %8.2f",
+                    engine, dist, size, usesCutoff() ? String.valueOf(cutoff) : "-", mergeCutoffLabel(),
+                    usesCutoff() ? String.valueOf(insertion_cutoff) : "-", usesPool() ? String.valueOf(parallelism) : "-",
+                    samples.times.length, mean(samples.times) / 1e6, error(samples.times) / 1e6,
+                    Double.isNaN(bytes) ? "-" : String.format(Locale.ROOT, "%.1f", bytes), mean(samples.gc_counts), mean(samples.gc_millis));
+        }
+
+        boolean usesCutoff()
+        {
+            return engine != Engine.S && engine != Engine.AUTO && engine != Engine.BASELINE;
+        }
+
+        boolean usesMergeCutoff()
+        {
+            return engine == Engine.P || engine == Engine.P_DEBUG;
+        }
+
+        private String mergeCutoffLabel()
+        {
+            if(!usesMergeCutoff())
+                return "-";
+            return merge_cutoff == Thresholds.AUTO ? "auto" : String.valueOf(merge_cutoff);
+        }
+
+        boolean usesPool()
+        {
+            return engine != Engine.S && engine != Engine.AUTO;
+        }
+
+        List<String> args(int warmup, int iterations)
+        {
+            return Arrays.asList("--child", "--engine", engine.name(), "--size", String.valueOf(size), "--cutoff", String.valueOf(cutoff),
+                    "--merge-cutoff", String.valueOf(merge_cutoff), "--insertion-cutoff", String.valueOf(insertion_cutoff),
+                    "--parallelism", String.valueOf(parallelism), "--dist", dist.name(),
+                    "--warmup", String.valueOf(warmup), "--iterations", String.valueOf(iterations));
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format(Locale.ROOT, "%s, n = %d, cutoff = %s, cutoff merge = %s, cutoff insertion sort = %s, parallelismo = %s, %s",
+                    engine, size, usesCutoff() ? cutoff : "-", mergeCutoffLabel(), usesCutoff() ? insertion_cutoff : "-", usesPool() ? parallelism : "-", dist);
+        }
+    }
+
+    /**
+     * Misure delle iterazioni di una combinazione: tempo, byte allocati da tutti i thread (-1 se la misura non è supportata
+     * dalla JVM), numero e durata delle garbage collection di ogni iterazione.
+     */
+    static class Samples
+    {
+        final long[] times;
+        final long[] bytes;
+        final long[] gc_counts;
+        final long[] gc_millis;
+
+        Samples(int iterations)
+        {
+            this(new long[iterations], new long[iterations], new long[iterations], new long[iterations]);
+        }
+
+        private Samples(long[] times, long[] bytes, long[] gc_counts, long[] gc_millis)
+        {
+            this.times = times;
+            this.bytes = bytes;
+            this.gc_counts = gc_counts;
+            this.gc_millis = gc_millis;
+        }
+
+        /**
+         * @return misure di this seguite da quelle di other
+         */
+        Samples append(Samples other)
+        {
+            return new Samples(concat(times, other.times), concat(bytes, other.bytes), concat(gc_counts, other.gc_counts), concat(gc_millis, other.gc_millis));
+        }
+
+        /**
+         * @param n numero di elementi ordinati per iterazione
+         * @return byte allocati in media per elemento (NaN se la misura non è supportata)
+         */
+        double bytesPerElement(int n)
+        {
+            for(long b : bytes)
+                if(b < 0)
+                    return Double.NaN;
+            return mean(bytes) / Math.max(1, n);
+        }
+
+        private static long[] concat(long[] a, long[] b)
+        {
+            long[] c = Arrays.copyOf(a, a.length + b.length);
+            System.arraycopy(b, 0, c, a.length, b.length);
+            return c;
+        }
+    }
+
+    /**
+     * Ritorna tutte le combinazioni dei parametri dati, senza ripetere quelle che differiscono solo
+     * per parametri non usati dall'algoritmo (es. il cutoff per l'algoritmo sequenziale).
+     */
+    private static List<Config> configs(List<Engine> engines, List<Integer> sizes, List<Integer> cutoffs, List<Integer> merge_cutoffs,
+            List<Integer> insertion_cutoffs, List<Integer> parallelisms, List<Distribution> dists)
+    {
+        List<Config> configs = new ArrayList<>();
+        for(Engine engine : engines)
+            for(Distribution dist : dists)
+                for(int size : sizes)
+                    for(int cutoff : cutoffs)
+                        for(int merge_cutoff : merge_cutoffs)
+                            for(int insertion_cutoff : insertion_cutoffs)
+                                for(int parallelism : parallelisms)
+                                {
+                                    Config c = new Config(engine, size, Math.min(cutoff, size), merge_cutoff, insertion_cutoff, parallelism, dist);
+                                    boolean repeated = (!c.usesCutoff() && (cutoff != cutoffs.get(0) || insertion_cutoff != insertion_cutoffs.get(0)))
+                                            || (!c.usesMergeCutoff() && merge_cutoff != merge_cutoffs.get(0))
+                                            || (!c.usesPool() && parallelism != parallelisms.get(0));
+                                    if(!repeated)
+                                        configs.add(c);
+                                }
+        return configs;
+    }
+
+    /**
+     * Misura la combinazione data, nella JVM corrente o nel numero di fork dato.
+     *
+     * @param c combinazione da misurare
+     * @param warmup iterazioni di riscaldamento per fork
+     * @param iterations iterazioni misurate per fork
+     * @param forks numero di JVM separate (0 per misurare nella JVM corrente)
+     * @return le misure delle iterazioni misurate di tutti i fork
+     * @throws IOException se un fork non riporta i tempi
+     * @throws InterruptedException se l'attesa di un fork è interrotta
+     */
+    static Samples measure(Config c, int warmup, int iterations, int forks) throws IOException, InterruptedException
+    {
+        if(forks <= 0)
+            return run(c, warmup, iterations);
+
+        Samples samples = new Samples(0);
+        for(int f = 0; f < forks; f++)
+            samples = samples.append(fork(c, warmup, iterations));
+        return samples;
+    }
+
+    /**
+     * @param samples tempi misurati
+     * @return media dei tempi
+     */
+    static double mean(long[] samples)
+    {
+        double mean = 0;
+        for(long t : samples)
+            mean += t;
+        return mean / samples.length;
+    }
+
+    /**
+     * @param samples tempi misurati
+     * @return metà dell'intervallo di confidenza della media (NaN con meno di due tempi)
+     */
+    static double error(long[] samples)
+    {
+        if(samples.length < 2)
+            return Double.NaN;
+
+        double mean = mean(samples);
+        double var = 0;
+        for(long t : samples)
+            var += (t - mean) * (t - mean);
+        return studentQuantile(samples.length - 1) * Math.sqrt(var / (samples.length - 1) / samples.length);
+    }
+
+    /**
+     * @param samples tempi misurati
+     * @return mediana dei tempi
+     */
+    static double median(long[] samples)
+    {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        int m = sorted.length / 2;
+        return (sorted.length % 2 == 1) ? sorted[m] : (sorted[m - 1] + sorted[m]) / 2.0;
+    }
+
+    /**
+     * Misura la combinazione data in una nuova JVM, con gli stessi argomenti e classpath della JVM corrente.
+     */
+    private static Samples fork(Config c, int warmup, int iterations) throws IOException, InterruptedException
+    {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(SortBenchmark.class.getName());
+        command.addAll(c.args(warmup, iterations));
+
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        long[] times = null;
+        String[] allocation = null;
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)))
+        {
+            String line;
+            while((line = reader.readLine()) != null)
+            {
+                if(line.startsWith(SAMPLES_PREFIX))
+                    times = Arrays.stream(line.substring(SAMPLES_PREFIX.length()).trim().split(" ")).mapToLong(Long::parseLong).toArray();
+                else if(line.startsWith(ALLOCATION_PREFIX))
+                    allocation = line.substring(ALLOCATION_PREFIX.length()).trim().split(" ");
+                else
+                    System.err.println(line);
+            }
+        }
+
+        int exit = process.waitFor();
+        if(exit != 0 || times == null || allocation == null || allocation.length != times.length)
+            throw new IOException("il fork è terminato con codice " + exit + " senza riportare i tempi");
+
+        Samples samples = new Samples(times.length);
+        for(int i = 0; i < times.length; i++)
+        {
+            String[] parts = allocation[i].split(":");
+            samples.times[i] = times[i];
+            samples.bytes[i] = Long.parseLong(parts[0]);
+            samples.gc_counts[i] = Long.parseLong(parts[1]);
+            samples.gc_millis[i] = Long.parseLong(parts[2]);
+        }
+        return samples;
+    }
+
+    /**
+     * Esegue le iterazioni di riscaldamento e quelle misurate della combinazione data nella JVM corrente.
+     *
+     * @return le misure delle iterazioni misurate
+     */
+    private static Samples run(Config c, int warmup, int iterations)
+    {
+        int[] input = InputGenerator.generate(c.dist, c.size, SEED);
+        SortVerifier.Fingerprint input_fingerprint = SortVerifier.fingerprint(input);
+        int[] work = new int[input.length];
+
+        ForkJoinPool pool = c.engine == Engine.BASELINE ? new ForkJoinPool(c.parallelism, AllocationMeter.workerFactory(), null, false) : null;
+        MergeSort sorter = sorter(c);
+
+        Samples samples = new Samples(iterations);
+        try
+        {
+            for(int i = 0; i < warmup + iterations; i++)
+            {
+                System.arraycopy(input, 0, work, 0, input.length);
+
+                // Gli algoritmi misurano le allocazioni del proprio ordinamento; il riferimento è misurato allo stesso modo, con il suo pool
+                AllocationMeter.Interval allocation = null;
+                if(pool != null)
+                {
+                    allocation = AllocationMeter.start();
+                    allocation.attach(pool);
+                }
+                long start = System.nanoTime();
+                int[] result = sort(c, sorter, pool, work);
+                long time = System.nanoTime() - start;
+                AllocationMeter.Usage usage = allocation != null ? allocation.stop() : SortEngineMetrics.get().getLastSortUsage();
+
+                sink ^= result[0] ^ result[result.length - 1] ^ result.length;
+
+                // Verifico il risultato solo alla prima iterazione, fuori dall'intervallo misurato
+                if(i == 0)
+                {
+                    SortVerifier.Result verification = SortVerifier.verify(input_fingerprint, result);
+                    if(!verification.isCorrect())
+                        throw new IllegalStateException(c.engine + " non ha ordinato correttamente l'input: " + verification);
+                }
+
+                boolean measured = i >= warmup;
+                if(measured)
+                {
+                    samples.times[i - warmup] = time;
+                    samples.bytes[i - warmup] = usage.getAllocatedBytes();
+                    samples.gc_counts[i - warmup] = usage.getGcCount();
+                    samples.gc_millis[i - warmup] = usage.getGcTimeMillis();
+                }
+                System.err.printf(Locale.ROOT, "%s %d: %.3f ms/op%n", measured ? "Iterazione" : "Riscaldamento", measured ? i - warmup + 1 : i + 1, time / 1e6);
+            }
+        }
+        finally
+        {
+            if(pool != null)
+                pool.shutdown();
+        }
+
+        return samples;
+    }
+
+    private static MergeSort sorter(Config c)
+    {
+        switch(c.engine)
+        {
+            case S:
+                return new MergeSortSequential();
+            case SP:
+            case SP_DEBUG:
+                return new MergeSortSemiParallel(c.cutoff, c.insertion_cutoff, c.parallelism);
+            case P:
+            case P_DEBUG:
+                return new MergeSortParallel(c.cutoff, c.merge_cutoff, c.insertion_cutoff, c.parallelism);
+            case AUTO:
+                return new MergeSortAuto();
+            case BASELINE:
+            default:
+                return null;
+        }
+    }
+
+    private static int[] sort(Config c, MergeSort sorter, ForkJoinPool pool, int[] work)
+    {
+        if(c.engine == Engine.BASELINE)
+        {
+            // Eseguito da un worker del pool, Arrays.parallelSort divide il lavoro fra i worker dello stesso pool
+            pool.submit(() -> Arrays.parallelSort(work)).join();
+            return work;
+        }
+
+        boolean debug = c.engine == Engine.SP_DEBUG || c.engine == Engine.P_DEBUG;
+        return sorter.sort(work, debug).getResult();
+    }
+
+    /**
+     * Quantile bilaterale della distribuzione t di Student per il livello {@link #CONFIDENCE}: valori tabulati
+     * fino a {@value #STUDENT_TABLE_MAX_DF} gradi di libertà, oltre i quali l'espansione di Cornish-Fisher attorno
+     * al quantile normale ha un errore inferiore allo 0.01% (con pochi gradi di libertà lo sottostima invece
+     * sensibilmente: -12% con 3 gradi, -5% con 4).
+     *
+     * @param df gradi di libertà (>= 1)
+     * @return double
+     */
+    static double studentQuantile(int df)
+    {
+        if(df <= STUDENT_TABLE_MAX_DF)
+            return STUDENT_TABLE[df - 1];
+
+        double z = normalQuantile(1 - (1 - CONFIDENCE) / 2);
+        double z3 = z * z * z, z5 = z3 * z * z, z7 = z5 * z * z;
+        double v = df;
+        return z + (z3 + z) / (4 * v)
+                + (5 * z5 + 16 * z3 + 3 * z) / (96 * v * v)
+                + (3 * z7 + 19 * z5 + 17 * z3 - 15 * z) / (384 * v * v * v);
+    }
+
+    /**
+     * Quantile della distribuzione normale standard per p >= 0.5 (approssimazione razionale di Acklam, errore relativo < 1.2e-9).
+     */
+    private static double normalQuantile(double p)
+    {
+        double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02, 1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+        double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02, 6.680131188771972e+01, -1.328068155288572e+01};
+        double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00, -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+        double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00, 3.754408661907416e+00};
+
+        if(p > 0.97575)
+        {
+            double q = Math.sqrt(-2 * Math.log(1 - p));
+            return -(((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5]) / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+}
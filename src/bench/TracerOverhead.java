@@ -0,0 +1,213 @@
+package bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import mergesort.MergeSortStage;
+import mergesort.engine.ParallelSortEngine;
+import mergesort.engine.SemiParallelSortEngine;
+import mergesort.trace.DagSortTracer;
+import mergesort.trace.NoOpSortTracer;
+import mergesort.trace.SortTracer;
+
+/**
+ * Misura il costo del tracciamento degli algoritmi, e verifica che il tracer nullo ({@link SortTracer#noop()}) non ne abbia.
+ * 
+ * Ogni tracer è misurato in una JVM separata, in cui è usato solo quello: così le chiamate al tracer sono compilate
+ * dal JIT nello stesso stato monomorfico dell'uso reale. La JVM del tracer nullo è eseguita con -XX:+PrintInlining:
+ * il tracer nullo è gratuito se in tutti i punti di chiamata compilati da C2 le chiamate a {@link NoOpSortTracer}
+ * risultano "inline (hot)", cioè sostituite dal loro corpo vuoto, e non restano chiamate virtuali a {@link SortTracer}.
+ * In caso contrario sono elencati i punti di chiamata non eliminati, e il programma termina con codice 1.
+ * Il tempo con il tracer del DAG ({@link DagSortTracer}) è confrontato con quello del tracer nullo.
+ * 
+ * Uso: TracerOverhead [n] [cutoff] [ripetizioni]
+ */
+public class TracerOverhead
+{
+    // Argomento con cui una JVM separata misura un solo tracer
+    private static final String VARIANT_OPTION = "--variant";
+    
+    // Prefisso della riga con cui una JVM separata comunica le mediane misurate
+    private static final String MEDIANS_PREFIX = "#MEDIANS";
+    
+    private static final String NOOP = "noop";
+    private static final String DAG = "dag";
+    
+    // Opzioni della JVM che stampano le decisioni di inlining del JIT
+    private static final List<String> INLINING_OPTIONS = Arrays.asList("-XX:+UnlockDiagnosticVMOptions", "-XX:+PrintInlining");
+    
+    // Riga di -XX:+PrintInlining relativa a una chiamata al tracer: "@ bci  classe::metodo (n bytes)   esito"
+    private static final Pattern TRACER_CALL = Pattern.compile("@ (\\d+)\\s+(\\S*SortTracer::\\w+) \\(\\d+ bytes\\)\\s+(.*)");
+    
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        if(args.length > 0 && args[0].equals(VARIANT_OPTION))
+        {
+            double[] medians = measure(args[1], Integer.parseInt(args[2]), Integer.parseInt(args[3]), Integer.parseInt(args[4]));
+            System.out.println(MEDIANS_PREFIX + " " + medians[0] + " " + medians[1]);
+            return;
+        }
+        
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int cutoff = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int reps = args.length > 2 ? Integer.parseInt(args[2]) : 15;
+        
+        System.out.println("n = " + n + " ; cutoff = " + cutoff + " ; ripetizioni = " + reps);
+        Set<String> inlined = new TreeSet<>();
+        Set<String> not_inlined = new TreeSet<>();
+        double[] noop = fork(NOOP, n, cutoff, reps, inlined, not_inlined);
+        System.out.println("P  noop : " + noop[0] + " ms");
+        System.out.println("SP noop : " + noop[1] + " ms");
+        
+        // Il DAG occupa molta memoria, quindi lo misuro solo su input piccoli
+        if(n <= 100000)
+        {
+            double[] dag = fork(DAG, n, cutoff, reps, null, null);
+            System.out.println("P  dag  : " + dag[0] + " ms (" + overhead(dag[0], noop[0]) + " rispetto a noop)");
+            System.out.println("SP dag  : " + dag[1] + " ms (" + overhead(dag[1], noop[1]) + " rispetto a noop)");
+        }
+        
+        System.out.println("Chiamate al tracer nullo eliminate da C2: " + inlined.size() + " punti di chiamata");
+        if(inlined.isEmpty() || !not_inlined.isEmpty())
+        {
+            for(String call : not_inlined)
+                System.out.println("Chiamata non eliminata: " + call);
+            if(inlined.isEmpty() && not_inlined.isEmpty())
+                System.out.println("Nessuna chiamata al tracer compilata da C2: aumentare n o le ripetizioni");
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Misura il tracer dato nella JVM corrente.
+     * 
+     * @return le mediane dei tempi in millisecondi di P e SP
+     */
+    private static double[] measure(String variant, int n, int cutoff, int reps)
+    {
+        int[] input = new Random(42).ints(n).toArray();
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        
+        // Gli algoritmi sono creati una sola volta, così da riusare lo stesso ForkJoinPool fra le ripetizioni
+        Consumer<int[]> p, sp;
+        switch(variant)
+        {
+            case NOOP:
+                p = new ParallelSortEngine<>(cutoff, parallelism, SortTracer.noop())::sort;
+                sp = new SemiParallelSortEngine<>(cutoff, parallelism, SortTracer.noop())::sort;
+                break;
+            case DAG:
+                p = new ParallelSortEngine<MergeSortStage>(cutoff, parallelism, new DagSortTracer())::sort;
+                sp = new SemiParallelSortEngine<MergeSortStage>(cutoff, parallelism, new DagSortTracer())::sort;
+                break;
+            default:
+                throw new IllegalArgumentException("Variante sconosciuta: " + variant);
+        }
+        
+        // Riscaldamento, per misurare il codice già compilato dal JIT
+        median(input, reps, p);
+        median(input, reps, sp);
+        
+        return new double[] {median(input, reps, p), median(input, reps, sp)};
+    }
+    
+    /**
+     * Misura il tracer dato in una nuova JVM, con gli stessi argomenti e classpath della JVM corrente.
+     * Se inlined non è null la JVM stampa le decisioni di inlining, e i punti di chiamata al tracer sono divisi
+     * fra quelli eliminati da C2 (inlined) e quelli rimasti (not_inlined).
+     */
+    private static double[] fork(String variant, int n, int cutoff, int reps, Set<String> inlined, Set<String> not_inlined) throws IOException, InterruptedException
+    {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        if(inlined != null)
+            command.addAll(INLINING_OPTIONS);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(TracerOverhead.class.getName());
+        command.addAll(Arrays.asList(VARIANT_OPTION, variant, String.valueOf(n), String.valueOf(cutoff), String.valueOf(reps)));
+        
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        double[] medians = null;
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)))
+        {
+            String line;
+            while((line = reader.readLine()) != null)
+            {
+                if(line.startsWith(MEDIANS_PREFIX))
+                {
+                    medians = Arrays.stream(line.substring(MEDIANS_PREFIX.length()).trim().split(" ")).mapToDouble(Double::parseDouble).toArray();
+                    continue;
+                }
+                if(inlined == null)
+                {
+                    System.err.println(line);
+                    continue;
+                }
+                
+                // Le altre righe sono le decisioni di inlining: conto solo quelle di C2 ("hot") e i fallimenti
+                Matcher m = TRACER_CALL.matcher(line.trim());
+                if(!m.matches())
+                    continue;
+                String call = m.group(2) + " @ " + m.group(1);
+                String outcome = m.group(3).trim();
+                if(outcome.equals("inline (hot)") && m.group(2).contains("NoOpSortTracer"))
+                    inlined.add(call);
+                else if(!outcome.equals("inline"))
+                    not_inlined.add(call + ": " + outcome);
+            }
+        }
+        
+        int exit = process.waitFor();
+        if(exit != 0 || medians == null || medians.length != 2)
+            throw new IOException("la JVM del tracer " + variant + " è terminata con codice " + exit + " senza riportare i tempi");
+        
+        return medians;
+    }
+    
+    /**
+     * @return differenza percentuale del tempo misurato rispetto al riferimento
+     */
+    private static String overhead(double time, double reference)
+    {
+        return String.format(Locale.ROOT, "%+.1f%%", (time / reference - 1) * 100);
+    }
+    
+    /**
+     * Esegue l'ordinamento dato più volte (ogni volta su una copia dell'input) e ritorna la mediana dei tempi.
+     * 
+     * @param input array da ordinare (non viene modificato)
+     * @param reps numero di ripetizioni
+     * @param sorter ordinamento da misurare
+     * @return la mediana dei tempi in millisecondi
+     */
+    private static double median(int[] input, int reps, Consumer<int[]> sorter)
+    {
+        long[] times = new long[reps];
+        for(int i = 0; i < reps; i++)
+        {
+            int[] copy = input.clone();
+            long start = System.nanoTime();
+            sorter.accept(copy);
+            times[i] = System.nanoTime() - start;
+        }
+        
+        Arrays.sort(times);
+        return times[reps / 2] / 1e6;
+    }
+}
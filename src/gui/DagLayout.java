@@ -0,0 +1,571 @@
+package gui;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.jgrapht.graph.DefaultDirectedGraph;
+
+import mergesort.MergeSortStage;
+import mergesort.MergeSortStage.StageType;
+import mergesort.NoLabelDefaultEdge;
+
+/**
+ * Calcola la disposizione dei nodi di un DAG di esecuzione, indipendentemente da come verrà disegnato.
+ *
+ * Il DAG di un MergeSort è visto come un albero di {@link Block}: ogni blocco è formato da uno stage di divisione
+ * e dallo stage di merge che ne unisce i risultati. La parte superiore del DAG (divisioni) è disposta dall'alto verso il basso,
+ * quella inferiore (merge) specularmente dal basso verso l'alto.
+ * Un blocco può essere compresso: i suoi sotto-blocchi sono allora sostituiti da un unico nodo riassuntivo.
+ * La larghezza di ogni sotto-albero dipende solo dalle etichette dei nodi visibili, quindi la dimensione
+ * della disposizione è proporzionale al numero di nodi mostrati e non all'altezza dell'albero.
+ */
+public class DagLayout
+{
+    /**
+     * Coppia divisione/merge del DAG, con i blocchi delle due metà dell'array.
+     */
+    public static class Block
+    {
+        private final MergeSortStage divide;
+        private MergeSortStage merge;
+        private final List<Block> children = new ArrayList<>(2);
+        private final int depth;
+        private int stages;
+        private boolean critical_inside;
+
+        private Block(MergeSortStage divide, int depth)
+        {
+            this.divide = divide;
+            this.depth = depth;
+        }
+
+        /**
+         * @return lo stage di divisione (o lo stage iniziale) del blocco
+         */
+        public MergeSortStage getDivide()
+        {
+            return divide;
+        }
+
+        /**
+         * @return lo stage di merge del blocco, o null se il blocco è una foglia (ordinata direttamente)
+         */
+        public MergeSortStage getMerge()
+        {
+            return merge;
+        }
+
+        /**
+         * @return i blocchi figli, ordinati per taskID
+         */
+        public List<Block> getChildren()
+        {
+            return Collections.unmodifiableList(children);
+        }
+
+        /**
+         * @return profondità del blocco (0 per il blocco iniziale)
+         */
+        public int getDepth()
+        {
+            return depth;
+        }
+
+        /**
+         * @return true se il blocco non ha sotto-blocchi
+         */
+        public boolean isLeaf()
+        {
+            return children.isEmpty();
+        }
+
+        /**
+         * @return lo stage che contiene il risultato del blocco (il merge, o la divisione stessa per le foglie)
+         */
+        MergeSortStage result()
+        {
+            return merge != null ? merge : divide;
+        }
+    }
+
+    /**
+     * Tipo di un nodo della disposizione.
+     */
+    public enum Kind
+    {
+        /** Stage del DAG */
+        STAGE,
+        /** Nodo riassuntivo di un blocco compresso */
+        SUMMARY
+    }
+
+    /**
+     * Nodo posizionato: uno stage del DAG o il riassunto dei sotto-blocchi di un blocco compresso.
+     */
+    public static class Node
+    {
+        private final Kind kind;
+        private final MergeSortStage stage;
+        private final Block block;
+        private final String[] lines;
+        private final boolean critical;
+        private double x, y, width, height;
+
+        private Node(Kind kind, MergeSortStage stage, Block block, String[] lines, boolean critical)
+        {
+            this.kind = kind;
+            this.stage = stage;
+            this.block = block;
+            this.lines = lines;
+            this.critical = critical;
+        }
+
+        public Kind getKind()
+        {
+            return kind;
+        }
+
+        /**
+         * @return lo stage mostrato dal nodo, o null per i nodi riassuntivi
+         */
+        public MergeSortStage getStage()
+        {
+            return stage;
+        }
+
+        /**
+         * @return il blocco di cui lo stage è la divisione o il merge, o il blocco compresso riassunto dal nodo
+         */
+        public Block getBlock()
+        {
+            return block;
+        }
+
+        /**
+         * @return le righe dell'etichetta del nodo (gli array sono troncati)
+         */
+        public String[] getLines()
+        {
+            return lines.clone();
+        }
+
+        /**
+         * @return true se il nodo è (o riassume) uno stage del cammino critico
+         */
+        public boolean isCritical()
+        {
+            return critical;
+        }
+
+        /**
+         * @return ascissa del bordo sinistro
+         */
+        public double getX()
+        {
+            return x;
+        }
+
+        /**
+         * @return ordinata del bordo superiore
+         */
+        public double getY()
+        {
+            return y;
+        }
+
+        public double getWidth()
+        {
+            return width;
+        }
+
+        public double getHeight()
+        {
+            return height;
+        }
+
+        /**
+         * Etichetta del nodo in formato HTML (usata da JGraph).
+         */
+        @Override
+        public String toString()
+        {
+            return "<html><center>" + String.join("<br>", lines) + "</center></html>";
+        }
+    }
+
+    /**
+     * Risultato di {@link DagLayout#compute}: nodi visibili con le loro posizioni, archi tra di essi e dimensioni totali.
+     */
+    public static class Result
+    {
+        private final List<Node> nodes = new ArrayList<>();
+        private final List<Node[]> edges = new ArrayList<>();
+        private double width;
+        private double height;
+
+        public List<Node> getNodes()
+        {
+            return Collections.unmodifiableList(nodes);
+        }
+
+        /**
+         * @return gli archi, come coppie {sorgente, destinazione}
+         */
+        public List<Node[]> getEdges()
+        {
+            return Collections.unmodifiableList(edges);
+        }
+
+        public double getWidth()
+        {
+            return width;
+        }
+
+        public double getHeight()
+        {
+            return height;
+        }
+    }
+
+    // Altezza dei livelli dell'albero
+    public static final double LEVEL_HEIGHT = 100;
+
+    // Spazio orizzontale fra due sotto-alberi e margine esterno
+    private static final double GAP = 10;
+
+    // Gli array fino a MAX_LABEL_ELEMENTS elementi sono mostrati per intero, gli altri troncati a circa MAX_LABEL_CHARS caratteri
+    public static final int MAX_LABEL_ELEMENTS = 16;
+    public static final int MAX_LABEL_CHARS = 40;
+
+    private final Block root;
+    private final int height;
+    private final int[] blocks_per_depth;
+    private final Set<MergeSortStage> critical_path;
+    private final double char_width;
+    private final double line_height;
+
+    /**
+     * Costruisce l'albero dei blocchi del DAG dato.
+     *
+     * @param dag il DAG da disporre
+     * @param critical_path stage da evidenziare (confrontati per identità)
+     * @param char_width larghezza di un carattere delle etichette
+     * @param line_height altezza di una riga delle etichette
+     */
+    public DagLayout(DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag, Collection<MergeSortStage> critical_path, double char_width, double line_height)
+    {
+        this.critical_path = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.critical_path.addAll(critical_path);
+        this.char_width = char_width;
+        this.line_height = line_height;
+
+        // Il nodo iniziale è l'unico senza archi entranti (se l'array è stato ordinato direttamente è il nodo finale)
+        MergeSortStage start = dag.vertexSet().stream()
+                .filter(v -> dag.inDegreeOf(v) == 0)
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Il DAG non ha un nodo iniziale"));
+
+        this.root = buildBlock(dag, start, 0);
+
+        List<Integer> counts = new ArrayList<>();
+        countBlocks(root, counts);
+        this.height = counts.size();
+        this.blocks_per_depth = counts.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Costruisce ricorsivamente il blocco che inizia dalla divisione data.
+     */
+    private Block buildBlock(DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag, MergeSortStage divide, int depth)
+    {
+        Block b = new Block(divide, depth);
+        b.stages = 1;
+
+        // I sotto-blocchi iniziano dalle divisioni figlie, ordinate per taskID
+        dag.outgoingEdgesOf(divide).stream()
+                .map(dag::getEdgeTarget)
+                .filter(v -> v.getStageType() == StageType.Divide)
+                .sorted(Comparator.comparingInt(MergeSortStage::getTaskID))
+                .forEach(v -> b.children.add(buildBlock(dag, v, depth + 1)));
+
+        if(!b.children.isEmpty())
+        {
+            // Il merge del blocco è il successore del risultato dei sotto-blocchi
+            MergeSortStage result = b.children.get(0).result();
+            b.merge = dag.outgoingEdgesOf(result).stream()
+                    .map(dag::getEdgeTarget)
+                    .filter(v -> v.getStageType() == StageType.Merge || v.getStageType() == StageType.End)
+                    .findFirst()
+                    .orElse(null);
+            if(b.merge != null)
+                b.stages++;
+        }
+
+        for(Block c : b.children)
+        {
+            b.stages += c.stages;
+            b.critical_inside |= c.critical_inside || critical_path.contains(c.divide) || (c.merge != null && critical_path.contains(c.merge));
+        }
+
+        return b;
+    }
+
+    private static void countBlocks(Block b, List<Integer> counts)
+    {
+        if(counts.size() <= b.depth)
+            counts.add(0);
+        counts.set(b.depth, counts.get(b.depth) + 1);
+        for(Block c : b.children)
+            countBlocks(c, counts);
+    }
+
+    /**
+     * @return il blocco iniziale
+     */
+    public Block getRoot()
+    {
+        return root;
+    }
+
+    /**
+     * Ritorna i blocchi dalla radice fino al blocco che contiene lo stage dato (come divisione o come merge).
+     *
+     * @param stage stage da cercare
+     * @return i blocchi del percorso, radice compresa, o una lista vuota se lo stage non appartiene al DAG
+     */
+    public List<Block> pathTo(MergeSortStage stage)
+    {
+        List<Block> path = new ArrayList<>();
+        if(root != null && findPath(root, stage, path))
+            Collections.reverse(path);
+        return path;
+    }
+
+    private static boolean findPath(Block b, MergeSortStage stage, List<Block> path)
+    {
+        boolean found = b.divide == stage || b.merge == stage;
+        for(int i = 0; !found && i < b.children.size(); i++)
+            found = findPath(b.children.get(i), stage, path);
+
+        if(found)
+            path.add(b);
+        return found;
+    }
+
+    /**
+     * @return numero di livelli di blocchi
+     */
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Ritorna la massima profondità di espansione che mostra al più il numero di blocchi dato.
+     *
+     * @param max_blocks numero massimo di blocchi visibili
+     * @return profondità (almeno 1)
+     */
+    public int depthForBudget(int max_blocks)
+    {
+        int total = 0;
+        for(int d = 0; d < height; d++)
+        {
+            total += blocks_per_depth[d];
+            if(total > max_blocks)
+                return Math.max(1, d);
+        }
+        return height;
+    }
+
+    /**
+     * Dispone i nodi visibili.
+     *
+     * @param expanded indica quali blocchi mostrare espansi (i blocchi compressi mostrano un nodo riassuntivo al posto dei sotto-blocchi)
+     * @return nodi, archi e dimensioni della disposizione
+     */
+    public Result compute(Predicate<Block> expanded)
+    {
+        Result r = new Result();
+        Map<Block, Node[]> nodes = new IdentityHashMap<>();
+
+        // Creo i nodi visibili e misuro i sotto-alberi
+        int center = createNodes(root, expanded, r, nodes);
+        Map<Block, Double> spans = new IdentityHashMap<>();
+        double width = span(root, expanded, nodes, spans);
+
+        // Posiziono i nodi
+        place(root, expanded, nodes, spans, GAP, center);
+        r.width = width + 2 * GAP;
+        r.height = (2 * center + 1) * LEVEL_HEIGHT + GAP;
+
+        return r;
+    }
+
+    /**
+     * Crea i nodi visibili del blocco e dei suoi sotto-blocchi.
+     * Per ogni blocco sono creati i nodi {divisione, merge, riassunto} (merge e riassunto possono mancare).
+     *
+     * @return profondità massima raggiunta dai nodi della parte superiore
+     */
+    private int createNodes(Block b, Predicate<Block> expanded, Result r, Map<Block, Node[]> nodes)
+    {
+        Node divide = stageNode(b.divide, b);
+        Node merge = b.merge != null ? stageNode(b.merge, b) : null;
+        Node summary = null;
+        r.nodes.add(divide);
+        if(merge != null)
+            r.nodes.add(merge);
+
+        int center = b.depth;
+        if(!b.isLeaf() && expanded.test(b))
+        {
+            for(Block c : b.children)
+            {
+                center = Math.max(center, createNodes(c, expanded, r, nodes));
+                Node[] cn = nodes.get(c);
+                r.edges.add(new Node[] { divide, cn[0] });
+                if(merge != null)
+                    r.edges.add(new Node[] { cn[1] != null ? cn[1] : cn[0], merge });
+            }
+        }
+        else if(!b.isLeaf())
+        {
+            summary = summaryNode(b);
+            r.nodes.add(summary);
+            r.edges.add(new Node[] { divide, summary });
+            if(merge != null)
+                r.edges.add(new Node[] { summary, merge });
+            center = b.depth + 1;
+        }
+
+        nodes.put(b, new Node[] { divide, merge, summary });
+        return center;
+    }
+
+    /**
+     * Calcola la larghezza del sotto-albero del blocco (la massima fra i suoi nodi e la somma dei sotto-alberi figli).
+     */
+    private double span(Block b, Predicate<Block> expanded, Map<Block, Node[]> nodes, Map<Block, Double> spans)
+    {
+        Node[] n = nodes.get(b);
+        double own = 0;
+        for(Node x : n)
+            if(x != null)
+                own = Math.max(own, x.width);
+
+        double children = 0;
+        if(n[2] == null && !b.isLeaf())
+        {
+            for(Block c : b.children)
+                children += span(c, expanded, nodes, spans);
+            children += GAP * (b.children.size() - 1);
+        }
+
+        double s = Math.max(own, children);
+        spans.put(b, s);
+        return s;
+    }
+
+    /**
+     * Posiziona i nodi del blocco nello spazio orizzontale che parte da 'left'.
+     * I sotto-blocchi sono disposti da destra verso sinistra in ordine di taskID (il primo è la metà destra dell'array).
+     */
+    private void place(Block b, Predicate<Block> expanded, Map<Block, Node[]> nodes, Map<Block, Double> spans, double left, int center)
+    {
+        Node[] n = nodes.get(b);
+        double span = spans.get(b);
+        double cx = left + span / 2;
+
+        setPosition(n[0], cx, b.depth * LEVEL_HEIGHT + GAP);
+        if(n[1] != null)
+            setPosition(n[1], cx, (2 * center - b.depth) * LEVEL_HEIGHT + GAP);
+        if(n[2] != null)
+            setPosition(n[2], cx, (b.depth + 1) * LEVEL_HEIGHT + GAP);
+
+        if(n[2] == null && !b.isLeaf())
+        {
+            double children = GAP * (b.children.size() - 1);
+            for(Block c : b.children)
+                children += spans.get(c);
+
+            // Centro i sotto-alberi sotto al nodo corrente
+            double x = cx + children / 2;
+            for(Block c : b.children)
+            {
+                x -= spans.get(c);
+                place(c, expanded, nodes, spans, x, center);
+                x -= GAP;
+            }
+        }
+    }
+
+    private static void setPosition(Node n, double cx, double y)
+    {
+        n.x = cx - n.width / 2;
+        n.y = y;
+    }
+
+    private Node stageNode(MergeSortStage v, Block b)
+    {
+        String forks = v.getSubForksString();
+        String[] lines = forks.isEmpty()
+                ? new String[] { String.valueOf(v.getTaskID()), arrayLabel(v) }
+                : new String[] { String.valueOf(v.getTaskID()), forks, arrayLabel(v) };
+
+        Node n = new Node(Kind.STAGE, v, b, lines, critical_path.contains(v));
+        measure(n);
+        return n;
+    }
+
+    private Node summaryNode(Block b)
+    {
+        int hidden = b.stages - (b.merge != null ? 2 : 1);
+        int elements = b.divide.getResultLength();
+        String[] lines = { "+" + hidden + " stage", "n = " + elements, "(clic per espandere)" };
+
+        Node n = new Node(Kind.SUMMARY, null, b, lines, b.critical_inside);
+        measure(n);
+        return n;
+    }
+
+    private void measure(Node n)
+    {
+        int longest = 0;
+        for(String line : n.lines)
+            longest = Math.max(longest, line.length());
+
+        // Aggiungo un carattere e una riga per assicurarmi che tutto il testo stia nella cella
+        n.width = char_width * (longest + 1);
+        n.height = line_height * (n.lines.length + 1);
+    }
+
+    /**
+     * Ritorna l'array dello stage in forma di stringa.
+     * Gli array con più di {@link #MAX_LABEL_ELEMENTS} elementi sono troncati a circa {@link #MAX_LABEL_CHARS} caratteri.
+     *
+     * @param v lo stage
+     * @return String
+     */
+    public static String arrayLabel(MergeSortStage v)
+    {
+        int length = v.getResultLength();
+        if(length <= MAX_LABEL_ELEMENTS)
+            return v.getResultString();
+
+        int[] array = v.getResult();
+        StringBuilder sb = new StringBuilder("[");
+        int shown = 0;
+        while(shown < length && sb.length() < MAX_LABEL_CHARS)
+            sb.append(array[shown++]).append(", ");
+
+        return sb.append("... +").append(length - shown).append("]").toString();
+    }
+}
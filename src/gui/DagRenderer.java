@@ -0,0 +1,394 @@
+package gui;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import javax.imageio.ImageIO;
+
+import org.jgrapht.graph.DefaultDirectedGraph;
+
+import mergesort.MergeSortStage;
+import mergesort.NoLabelDefaultEdge;
+import mergesort.analysis.WorkSpanAnalysis;
+
+/**
+ * Disegna un DAG di esecuzione su file (SVG o PNG) senza bisogno di un display,
+ * usando la stessa disposizione di {@link GraphVisualizer} ({@link DagLayout}).
+ *
+ * Gli stage sono colorati in base alla durata o al worker che li ha elaborati, e il cammino critico è evidenziato.
+ * L'SVG è scritto un nodo alla volta, quindi anche i DAG più grandi non richiedono memoria aggiuntiva;
+ * il PNG viene ridotto se supera {@link #MAX_PNG_SIDE} pixel di lato.
+ */
+public class DagRenderer
+{
+    /**
+     * Criterio di colorazione degli stage.
+     */
+    public enum ColorMode
+    {
+        DURATION, WORKER
+    }
+
+    // Font delle etichette (a spaziatura fissa, così la larghezza del testo è la stessa in SVG e PNG)
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 11);
+    private static final FontRenderContext FRC = new FontRenderContext(new AffineTransform(), true, false);
+
+    // Colori fissi
+    private static final Color BG_COLOR = Color.decode("#FAFBFF");
+    private static final Color BORDER_COLOR = Color.decode("#505050");
+    private static final Color EDGE_COLOR = Color.decode("#909090");
+    private static final Color SUMMARY_COLOR = Color.decode("#E0E0E0");
+    private static final Color UNKNOWN_COLOR = Color.decode("#F0F0F0");
+    private static final Color CRITICAL_PATH_COLOR = Color.RED;
+
+    // Rampa dei colori per la durata (dalla più breve alla più lunga)
+    private static final Color SHORT_COLOR = Color.decode("#FFF5C0");
+    private static final Color LONG_COLOR = Color.decode("#C0392B");
+
+    // Numero massimo di blocchi espansi nel disegno (quelli più profondi sono riassunti)
+    private static final int MAX_RENDER_BLOCKS = 512;
+
+    // Lato massimo del PNG in pixel
+    public static final int MAX_PNG_SIDE = 16384;
+
+    // Spazio per la legenda in alto
+    private static final double LEGEND_HEIGHT = 30;
+
+    private final DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag;
+    private final ColorMode color_mode;
+    private final DagLayout.Result result;
+    private final double line_height;
+    private final double ascent;
+
+    // Durate minima e massima (positive) per la colorazione
+    private long min_duration = Long.MAX_VALUE;
+    private long max_duration = 0;
+
+    /**
+     * Calcola la disposizione del DAG dato.
+     *
+     * @param dag il DAG da disegnare
+     * @param color_mode criterio di colorazione degli stage
+     */
+    public DagRenderer(DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag, ColorMode color_mode)
+    {
+        this.dag = dag;
+        this.color_mode = color_mode;
+
+        WorkSpanAnalysis analysis = new WorkSpanAnalysis(dag);
+        List<MergeSortStage> critical_path = analysis.getSpan() > 0 ? analysis.getCriticalPath() : Collections.emptyList();
+
+        Rectangle2D txtDim = FONT.getStringBounds("0", FRC);
+        this.line_height = txtDim.getHeight();
+        this.ascent = -txtDim.getY();
+
+        DagLayout layout = new DagLayout(dag, critical_path, txtDim.getWidth(), line_height);
+        int depth = layout.depthForBudget(MAX_RENDER_BLOCKS);
+        this.result = layout.compute(b -> b.getDepth() < depth);
+
+        for(MergeSortStage v : dag.vertexSet())
+        {
+            long d = v.getDuration();
+            if(d > 0)
+            {
+                min_duration = Math.min(min_duration, d);
+                max_duration = Math.max(max_duration, d);
+            }
+        }
+    }
+
+    /**
+     * Disegna il DAG dato nel file indicato, in formato PNG se il nome termina con ".png", altrimenti SVG.
+     *
+     * @param dag il DAG da disegnare
+     * @param file file di destinazione
+     * @param color_mode criterio di colorazione degli stage
+     * @throws IOException in caso di errore di scrittura
+     */
+    public static void render(DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag, File file, ColorMode color_mode) throws IOException
+    {
+        DagRenderer renderer = new DagRenderer(dag, color_mode);
+        if(file.getName().toLowerCase(Locale.ROOT).endsWith(".png"))
+            renderer.writePng(file);
+        else
+            renderer.writeSvg(file);
+    }
+
+    /**
+     * Scrive il disegno in formato SVG.
+     *
+     * @param file file di destinazione
+     * @throws IOException in caso di errore di scrittura
+     */
+    public void writeSvg(File file) throws IOException
+    {
+        try(Writer out = new BufferedWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8), 1 << 16))
+        {
+            writeSvg(out);
+        }
+    }
+
+    /**
+     * Scrive il disegno in formato SVG sul writer dato (che non viene chiuso).
+     *
+     * @param out writer di destinazione
+     * @throws IOException in caso di errore di scrittura
+     */
+    public void writeSvg(Writer out) throws IOException
+    {
+        double w = result.getWidth();
+        double h = result.getHeight() + LEGEND_HEIGHT;
+
+        out.write(String.format(Locale.ROOT,
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"%.0f\" height=\"%.0f\" viewBox=\"0 0 %.0f %.0f\" "
+                + "font-family=\"monospace\" font-size=\"%d\">\n", w, h, w, h, FONT.getSize()));
+        out.write(String.format(Locale.ROOT, "<rect width=\"100%%\" height=\"100%%\" fill=\"%s\"/>\n", hex(BG_COLOR)));
+        out.write(String.format(Locale.ROOT, "<text x=\"10\" y=\"%.1f\">%s</text>\n", LEGEND_HEIGHT / 2 + ascent / 2, escape(legend())));
+        out.write(String.format(Locale.ROOT, "<g transform=\"translate(0,%.0f)\">\n", LEGEND_HEIGHT));
+
+        // Archi
+        out.write(String.format(Locale.ROOT,
+                "<defs><marker id=\"arrow\" markerWidth=\"6\" markerHeight=\"6\" refX=\"6\" refY=\"3\" orient=\"auto\">"
+                + "<path d=\"M0 0L6 3L0 6z\" fill=\"%s\"/></marker></defs>\n", hex(EDGE_COLOR)));
+        out.write(String.format(Locale.ROOT, "<g stroke=\"%s\" fill=\"none\" marker-end=\"url(#arrow)\">\n", hex(EDGE_COLOR)));
+        for(DagLayout.Node[] e : result.getEdges())
+        {
+            double[] p = edgePoints(e[0], e[1]);
+            out.write(String.format(Locale.ROOT, "<path d=\"M%.1f %.1fL%.1f %.1f\"/>\n", p[0], p[1], p[2], p[3]));
+        }
+        out.write("</g>\n");
+
+        // Nodi
+        for(DagLayout.Node n : result.getNodes())
+        {
+            Color border = n.isCritical() ? CRITICAL_PATH_COLOR : BORDER_COLOR;
+            out.write(String.format(Locale.ROOT,
+                    "<g><title>%s</title><rect x=\"%.1f\" y=\"%.1f\" width=\"%.1f\" height=\"%.1f\" rx=\"4\" fill=\"%s\" stroke=\"%s\" stroke-width=\"%d\"/>",
+                    escape(tooltip(n)), n.getX(), n.getY(), n.getWidth(), n.getHeight(), hex(fill(n)), hex(border), n.isCritical() ? 3 : 1));
+
+            String[] lines = n.getLines();
+            double y = textTop(n, lines.length) + ascent;
+            for(String line : lines)
+            {
+                out.write(String.format(Locale.ROOT, "<text x=\"%.1f\" y=\"%.1f\" text-anchor=\"middle\">%s</text>",
+                        n.getX() + n.getWidth() / 2, y, escape(line)));
+                y += line_height;
+            }
+            out.write("</g>\n");
+        }
+
+        out.write("</g>\n</svg>\n");
+        out.flush();
+    }
+
+    /**
+     * Scrive il disegno in formato PNG (ridotto se necessario a {@link #MAX_PNG_SIDE} pixel di lato).
+     *
+     * @param file file di destinazione
+     * @throws IOException in caso di errore di scrittura
+     */
+    public void writePng(File file) throws IOException
+    {
+        double w = result.getWidth();
+        double h = result.getHeight() + LEGEND_HEIGHT;
+        double scale = Math.min(1, MAX_PNG_SIDE / Math.max(w, h));
+
+        BufferedImage image = new BufferedImage((int) Math.ceil(w * scale), (int) Math.ceil(h * scale), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try
+        {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.scale(scale, scale);
+            paint(g, w, h);
+        }
+        finally
+        {
+            g.dispose();
+        }
+
+        if(!ImageIO.write(image, "png", file))
+            throw new IOException("Nessun encoder PNG disponibile");
+    }
+
+    /**
+     * Disegna il DAG sul Graphics2D dato.
+     */
+    private void paint(Graphics2D g, double w, double h)
+    {
+        g.setColor(BG_COLOR);
+        g.fill(new Rectangle2D.Double(0, 0, w, h));
+        g.setFont(FONT);
+        FontMetrics fm = g.getFontMetrics();
+
+        g.setColor(Color.BLACK);
+        g.drawString(legend(), 10f, (float) (LEGEND_HEIGHT / 2 + ascent / 2));
+        g.translate(0, LEGEND_HEIGHT);
+
+        // Archi
+        g.setColor(EDGE_COLOR);
+        g.setStroke(new BasicStroke(1));
+        for(DagLayout.Node[] e : result.getEdges())
+        {
+            double[] p = edgePoints(e[0], e[1]);
+            g.draw(new Line2D.Double(p[0], p[1], p[2], p[3]));
+            g.fill(arrowHead(p));
+        }
+
+        // Nodi
+        for(DagLayout.Node n : result.getNodes())
+        {
+            RoundRectangle2D box = new RoundRectangle2D.Double(n.getX(), n.getY(), n.getWidth(), n.getHeight(), 8, 8);
+            g.setColor(fill(n));
+            g.fill(box);
+            g.setColor(n.isCritical() ? CRITICAL_PATH_COLOR : BORDER_COLOR);
+            g.setStroke(new BasicStroke(n.isCritical() ? 3 : 1));
+            g.draw(box);
+
+            g.setColor(Color.BLACK);
+            String[] lines = n.getLines();
+            double y = textTop(n, lines.length) + ascent;
+            for(String line : lines)
+            {
+                g.drawString(line, (float) (n.getX() + (n.getWidth() - fm.stringWidth(line)) / 2), (float) y);
+                y += line_height;
+            }
+        }
+    }
+
+    /**
+     * Ritorna gli estremi di un arco: dal centro del lato inferiore della sorgente al centro del lato superiore della destinazione.
+     */
+    private static double[] edgePoints(DagLayout.Node from, DagLayout.Node to)
+    {
+        return new double[]
+        {
+            from.getX() + from.getWidth() / 2, from.getY() + from.getHeight(),
+            to.getX() + to.getWidth() / 2, to.getY()
+        };
+    }
+
+    private static Path2D arrowHead(double[] p)
+    {
+        double angle = Math.atan2(p[3] - p[1], p[2] - p[0]);
+        double size = 6;
+        Path2D head = new Path2D.Double();
+        head.moveTo(p[2], p[3]);
+        head.lineTo(p[2] - size * Math.cos(angle - Math.PI / 8), p[3] - size * Math.sin(angle - Math.PI / 8));
+        head.lineTo(p[2] - size * Math.cos(angle + Math.PI / 8), p[3] - size * Math.sin(angle + Math.PI / 8));
+        head.closePath();
+        return head;
+    }
+
+    /**
+     * Ordinata da cui iniziare a scrivere le righe dell'etichetta, centrate verticalmente nel nodo.
+     */
+    private double textTop(DagLayout.Node n, int lines)
+    {
+        return n.getY() + (n.getHeight() - lines * line_height) / 2;
+    }
+
+    /**
+     * Ritorna il colore di riempimento del nodo in base al criterio scelto.
+     */
+    private Color fill(DagLayout.Node n)
+    {
+        MergeSortStage v = n.getStage();
+        if(v == null)
+            return SUMMARY_COLOR;
+
+        switch(color_mode)
+        {
+            case WORKER:
+                return workerColor(v.getWorker());
+            case DURATION:
+            default:
+                return durationColor(v.getDuration());
+        }
+    }
+
+    /**
+     * Colore della durata data, su scala logaritmica fra la durata minima e massima del DAG.
+     */
+    private Color durationColor(long duration)
+    {
+        if(duration <= 0 || max_duration <= 0)
+            return UNKNOWN_COLOR;
+
+        double t = max_duration == min_duration ? 1
+                : (Math.log(duration) - Math.log(min_duration)) / (Math.log(max_duration) - Math.log(min_duration));
+
+        return new Color(
+                (int) Math.round(SHORT_COLOR.getRed() + t * (LONG_COLOR.getRed() - SHORT_COLOR.getRed())),
+                (int) Math.round(SHORT_COLOR.getGreen() + t * (LONG_COLOR.getGreen() - SHORT_COLOR.getGreen())),
+                (int) Math.round(SHORT_COLOR.getBlue() + t * (LONG_COLOR.getBlue() - SHORT_COLOR.getBlue())));
+    }
+
+    /**
+     * Colore del worker dato (tinte distribuite con la sezione aurea, così worker vicini hanno colori distinti).
+     *
+     * @param worker indice del worker (-1 se sconosciuto)
+     * @return Color
+     */
+    static Color workerColor(int worker)
+    {
+        if(worker < 0)
+            return UNKNOWN_COLOR;
+
+        float hue = (float) ((worker * 0.618033988749895) % 1.0);
+        return Color.getHSBColor(hue, 0.35f, 1f);
+    }
+
+    private String legend()
+    {
+        String colors = color_mode == ColorMode.WORKER
+                ? "colore = worker"
+                : (max_duration > 0
+                        ? String.format(Locale.ROOT, "colore = durata (da %.3f ms a %.3f ms, scala logaritmica)", min_duration / 1e6, max_duration / 1e6)
+                        : "colore = durata (non disponibile)");
+
+        return String.format(Locale.ROOT, "%d stage (mostrati %d), %s, bordo rosso = cammino critico",
+                dag.vertexSet().size(), result.getNodes().size(), colors);
+    }
+
+    private static String tooltip(DagLayout.Node n)
+    {
+        MergeSortStage v = n.getStage();
+        if(v == null)
+            return String.join(" ", n.getLines());
+
+        return String.format(Locale.ROOT, "task %d %s n=%d durata=%.3f ms attesa=%.3f ms worker=%d",
+                v.getTaskID(), v.getStageType(), v.getResultLength(), v.getDuration() / 1e6, v.getQueueDelay() / 1e6, v.getWorker());
+    }
+
+    private static String hex(Color c)
+    {
+        return String.format("#%02X%02X%02X", c.getRed(), c.getGreen(), c.getBlue());
+    }
+
+    private static String escape(String s)
+    {
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
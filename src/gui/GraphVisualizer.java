@@ -1,17 +1,29 @@
 package gui;
 
+import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.Toolkit;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
 import java.awt.font.FontRenderContext;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.JApplet;
 import javax.swing.JFrame;
+import javax.swing.JLabel;
 import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 
 import org.jgraph.JGraph;
 import org.jgraph.graph.AttributeMap;
@@ -20,16 +32,24 @@ import org.jgraph.graph.GraphConstants;
 
 import org.jgrapht.ext.JGraphModelAdapter;
 import org.jgrapht.graph.DefaultDirectedGraph;
-import org.jgrapht.graph.DefaultListenableGraph; 
 
 import mergesort.MergeSortStage;
-import mergesort.MergeSortStage.StageType;
 import mergesort.NoLabelDefaultEdge;
+import mergesort.analysis.DagDiff;
+import mergesort.analysis.WorkSpanAnalysis;
 
 /**
  * Classe che permette la visualizzazione del grafo.
  * La libreria JGraphT non supporta FX, e visto che non si necessitava un uso complesso dell'interfaccia,
  * non è stato utilizzato uno Swing su FX ma è stata utilizzata direttamente la Swing.
+ *
+ * Per i DAG con migliaia di nodi la visualizzazione è a livelli di dettaglio: sono mostrati espansi solo i blocchi
+ * fino ad una profondità che dipende dallo zoom (Ctrl + rotella), mentre i sotto-blocchi più profondi sono riassunti
+ * in un unico nodo. Un clic su un nodo riassuntivo lo espande, un clic su una divisione o un merge comprime il blocco.
+ * La disposizione è calcolata in un'unica passata fuori dall'EDT ({@link DagLayout}).
+ *
+ * Se creato da un {@link DagDiff}, mostra il DAG della seconda esecuzione colorando ogni stage in base alla differenza
+ * di tempo rispetto alla stessa posizione della prima: verde se più veloce, rosso se più lento, azzurro se assente nella prima.
  */
 @SuppressWarnings("serial")
 public class GraphVisualizer extends JApplet
@@ -37,240 +57,427 @@ public class GraphVisualizer extends JApplet
     // Parametri GUI
 	private static final Color DEFAULT_BG_COLOR = Color.decode("#FAFBFF");
     private static final FontRenderContext FRC 	= new FontRenderContext(new AffineTransform(), true, true);
-    private Dimension WINDOW_SIZE;
-    
-    // Altezza dei livelli dell'albero
-    private static final double LEVEL_HEIGHT  = 100;
-    
+
+    // Colore del bordo dei nodi del cammino critico
+    private static final Color CRITICAL_PATH_COLOR = Color.RED;
+
+    // Colore di sfondo dei nodi riassuntivi
+    private static final Color SUMMARY_COLOR = Color.decode("#E0E0E0");
+
+    // Colori del confronto fra due esecuzioni, e rapporto fra i tempi a cui corrisponde il colore pieno
+    private static final Color DIFF_FASTER_COLOR = Color.decode("#52BE80");
+    private static final Color DIFF_SLOWER_COLOR = Color.decode("#E74C3C");
+    private static final Color DIFF_NEUTRAL_COLOR = Color.WHITE;
+    private static final Color DIFF_NEW_COLOR = Color.decode("#AED6F1");
+    private static final double DIFF_FULL_RATIO = 4;
+
+    // Numero massimo di blocchi mostrati espansi inizialmente (con zoom 1)
+    private static final int MAX_VISIBLE_BLOCKS = 32;
+
+    // Fattore di zoom per ogni scatto della rotella, e limiti dello zoom
+    private static final double ZOOM_STEP = 1.25;
+    private static final double MIN_SCALE = 1.0 / 64;
+    private static final double MAX_SCALE = 4;
+
+    // Dimensione massima iniziale della finestra
+    private static final Dimension MAX_WINDOW_SIZE = new Dimension(1280, 900);
+
+    private final DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag;
+
+    // Confronto da mostrare (null se si mostra un solo DAG)
+    private final DagDiff diff;
+
+    // Disposizione del DAG (calcolata fuori dall'EDT)
+    private DagLayout layout;
+
+    // Profondità di espansione con zoom 1, e blocchi espansi o compressi esplicitamente con un clic
+    private int base_depth;
+    private final Set<DagLayout.Block> expanded = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<DagLayout.Block> collapsed = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private double scale = 1;
+
+    // Stage da mostrare e selezionare (richiesto da un'altra vista)
+    private MergeSortStage focus;
+    private volatile DagLayout.Result last_result;
+    private SwingWorker<JGraphModelAdapter<DagLayout.Node, NoLabelDefaultEdge>, Void> worker;
+
     // Oggetti DAG
-    private JGraphModelAdapter<MergeSortStage, NoLabelDefaultEdge> jgAdapter;
     private JGraph jgraph;
-    
+    private JFrame frame;
+    private final JLabel status = new JLabel("Calcolo della disposizione in corso...");
+
     public GraphVisualizer(DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag)
     {
-    	// Trovo i nodi iniziali e finali
-        MergeSortStage startVertex = findVertexByType(dag, StageType.Start).iterator().next();
-        MergeSortStage endVertex = findVertexByType(dag, StageType.End).iterator().next();
-        
-        // Trovo l'altezza dell'albero
-        int treeHeight = dagHeight(dag, startVertex);
-    	
-    	// Sceglie il WINDOW_BORDER in base al numero dei nodi
-    	int n_vertex = dag.vertexSet().size();
-    	double WINDOW_BORDER; 
-    	if(n_vertex <= 10)
-    	{
-    		// Max length array input = 4
-    		WINDOW_BORDER = 40;
-    	}
-    	else if(n_vertex <= 22)
-    	{
-    		// Max length array input = 8
-    		WINDOW_BORDER = 10;
-    	}
-    	else
-    	{
-    		// Max length array input >= 16
-    		// n_vertex >= 46
-    		WINDOW_BORDER = 5;
-    	}
-    	
-        // Calcolo la dimensione della finestra
-        double w = WINDOW_BORDER * Math.pow(2, treeHeight);
-        double h = LEVEL_HEIGHT * treeHeight;
-        WINDOW_SIZE = new Dimension((int)w, (int)h);
-        
-        // Inizializza l'oggetto grafico del DAG
-        jgAdapter = new JGraphModelAdapter<>(new DefaultListenableGraph<>(dag));
-        jgraph = new JGraph(jgAdapter);
-        jgAdapter.setDefaultEdgeAttributes(null);
-        
-        // Disegno la parte superiore del DAG
-        paintDagTop(dag, startVertex, w/2, 10, w/4);
-        
-        // Disegno la parte inferiore del DAG
-        paintDagBottom(dag, endVertex, w/2, h - LEVEL_HEIGHT, w/4);
-        
+    	this(dag, null);
+    }
+
+    /**
+     * Mostra il DAG della seconda esecuzione del confronto dato, colorato in base alle differenze con la prima.
+     *
+     * @param diff confronto fra due esecuzioni
+     */
+    public GraphVisualizer(DagDiff diff)
+    {
+    	this(diff.getAfter(), diff);
+    }
+
+    private GraphVisualizer(DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag, DagDiff diff)
+    {
+    	this.dag = dag;
+    	this.diff = diff;
+
         // Inizializza e mostra la GUI
-        this.init();
+        SwingUtilities.invokeLater(this::init);
     }
-    
+
     @Override
     public void init()
     {
-    	// Aggiusta le dimensioni del visualizzatore e della finestra
-    	jgraph.setPreferredSize(WINDOW_SIZE);
-        resize(WINDOW_SIZE);
-        
+    	jgraph = new JGraph();
+    	jgraph.setEditable(false);
+    	jgraph.setMoveable(false);
+    	jgraph.setConnectable(false);
+    	jgraph.setDisconnectable(false);
+    	jgraph.setAntiAliased(true);
+
         // Setta il colore di background
         try
         {
         	String colorStr = getParameter("bgcolor");
         	if( colorStr != null )
         		jgraph.setBackground(Color.decode(colorStr));
-        	
+
         }
         catch( Exception e )
         {
         	jgraph.setBackground(DEFAULT_BG_COLOR);
         }
-        
+
+        // Clic: espande i nodi riassuntivi e comprime i blocchi espansi
+        jgraph.addMouseListener(new MouseAdapter()
+        {
+        	@Override
+        	public void mouseClicked(MouseEvent e)
+        	{
+        		Object cell = jgraph.getFirstCellForLocation(e.getX(), e.getY());
+        		if(cell instanceof DefaultGraphCell && ((DefaultGraphCell) cell).getUserObject() instanceof DagLayout.Node)
+        			toggle((DagLayout.Node) ((DefaultGraphCell) cell).getUserObject());
+        	}
+        });
+
+        // Ctrl + rotella: zoom
+        jgraph.addMouseWheelListener(e ->
+        {
+        	if(e.isControlDown())
+        		zoom(e);
+        	else
+        		jgraph.getParent().getParent().dispatchEvent(SwingUtilities.convertMouseEvent(jgraph, e, jgraph.getParent().getParent()));
+        });
+
         // Crea la finestra, inserisce il visualizzatore con srollbar, e applica le impostazioni
-        JFrame frame = new JFrame();
+        frame = new JFrame();
         JScrollPane dagScrollPane = new JScrollPane(jgraph, JScrollPane.VERTICAL_SCROLLBAR_ALWAYS, JScrollPane.HORIZONTAL_SCROLLBAR_ALWAYS);
-        frame.getContentPane().add(dagScrollPane);
-        frame.setTitle("DAG");
+        dagScrollPane.getVerticalScrollBar().setUnitIncrement(16);
+        dagScrollPane.getHorizontalScrollBar().setUnitIncrement(16);
+        frame.getContentPane().add(dagScrollPane, BorderLayout.CENTER);
+        frame.getContentPane().add(status, BorderLayout.SOUTH);
+        frame.setTitle(diff == null ? "DAG" : "DAG (confronto)");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        frame.pack();
-        
+        frame.setSize(MAX_WINDOW_SIZE);
+
         // Rende la finestra visibile
         frame.setVisible(true);
+
+        relayout();
     }
 
     /**
-     * Posiziona il nodo dato alle cooordinate indicate.
-     * 
-     * @param vertex vertice da posizionare
-     * @param x ascissa della posizione
-     * @param y ordinata della posizione
+     * Mostra e seleziona il nodo dello stage dato, espandendo i blocchi che lo contengono.
+     *
+     * @param stage stage del DAG
      */
-    @SuppressWarnings("unchecked")
-	private void positionVertexAt(MergeSortStage vertex, double x, double y)
+    public void showStage(MergeSortStage stage)
     {
-        // Prendo gli attuali dati relativi alla cella
-    	DefaultGraphCell cell = jgAdapter.getVertexCell(vertex);
-        AttributeMap attributes = cell.getAttributes();
-        
-        // Cerco la linea più lunga della label
-    	String lineForks = vertex.getSubForksString();
-        String lineArray = vertex.getResultString();
-        String longestLine = lineForks.length()>lineArray.length() ? lineForks : lineArray;
-        
-        // Calcolo l'altezza e la larghezza della cella (aggiungo "XXXX" alla fine per assicurarmi che tutto il testo stia nella cella)
-        Rectangle2D txtDim = GraphConstants.getFont(attributes).getStringBounds("0", FRC);
-        double w = txtDim.getWidth() * (longestLine.length() + 1);
-        double h = txtDim.getHeight() * (vertex.toString().split("<br>").length + 1);
-        
-        // Modifico le misure della cella (tolgo alla 'x' metà di 'w', per compensare l'aumento di larghezza della calla)
-        Rectangle2D bounds = new Rectangle2D.Double(x - w/2, y, w, h);
-        GraphConstants.setBounds(attributes, bounds);
+    	SwingUtilities.invokeLater(() ->
+    	{
+    		focus = stage;
+    		if(layout != null)
+    			expandTo(stage);
+    	});
+    }
 
-        // Applico le modifiche al DAG
-        AttributeMap cellAttr = new AttributeMap();
-        cellAttr.put(cell, attributes);
-        jgAdapter.edit(cellAttr, null, null, null);
+    /**
+     * Espande tutti i blocchi che contengono lo stage dato, e ricalcola la disposizione.
+     *
+     * @param stage stage da rendere visibile
+     */
+    private void expandTo(MergeSortStage stage)
+    {
+    	List<DagLayout.Block> path = layout.pathTo(stage);
+    	for(int i = 0; i < path.size() - 1; i++)
+    	{
+    		collapsed.remove(path.get(i));
+    		expanded.add(path.get(i));
+    	}
+
+    	relayout();
     }
-    
+
     /**
-     * Decide le posizioni dei vertici per la parte superiore del DAG, 
-     * scorrendolo dall'alto verso il basso.
-     * 
-     * @param dag il dag da disegnare
-     * @param v nodo attualmente in esame
-     * @param x ascissa nodo attualmente in esame
-     * @param y ordinata nodo attualmente in esame
-     * @param stepX differenza sull'asse delle ascisse da applicare ai nodi figli
+     * Espande il blocco riassunto dal nodo dato, o comprime il blocco dello stage dato.
+     *
+     * @param node nodo cliccato
      */
-    private void paintDagTop(
-    		DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag, 
-    		MergeSortStage v, 
-    		double x, 
-    		double y, 
-    		double stepX
-    		)
+    private void toggle(DagLayout.Node node)
     {
-    	// Termina se arriva all'altra metà del DAG
-    	if(!(v.getStageType().equals(StageType.Start) || v.getStageType().equals(StageType.Divide)))
-            return;
-        
-    	// Posiziona il nodo corrente
-    	positionVertexAt(v, x, y);
-    	
-    	// Prendi la lista (ordinata per taskID) dei nodi figli
-    	List<MergeSortStage> children = dag.outgoingEdgesOf(v).stream()
-    			.map(e -> dag.getEdgeTarget(e))
-    			.sorted((v1, v2) -> Integer.compare(v1.getTaskID(), v2.getTaskID()))
-    			.collect(Collectors.toList());
-        
-    	// Scorre ricorsivamente il DAG, scegliendo le posizioni dei nodi figli
-    	if(children.size() >= 1)
-    		paintDagTop(dag, children.get(0), x+stepX, y+LEVEL_HEIGHT, stepX/2);
-    	if(children.size() >= 2)
-    		paintDagTop(dag, children.get(1), x-stepX, y+LEVEL_HEIGHT, stepX/2);
+    	DagLayout.Block block = node.getBlock();
+    	if(block == null || block.isLeaf())
+    		return;
+
+    	if(node.getKind() == DagLayout.Kind.SUMMARY)
+    	{
+    		collapsed.remove(block);
+    		expanded.add(block);
+    	}
+    	else
+    	{
+    		expanded.remove(block);
+    		collapsed.add(block);
+    	}
+
+    	relayout();
     }
-    
+
     /**
-     * Decide le posizioni dei vertici per la parte inferiore del DAG, 
-     * scorrendolo dal basso verso l'alto.
-     * 
-     * @param dag il dag da disegnare
-     * @param v nodo attualmente in esame
-     * @param x ascissa nodo attualmente in esame
-     * @param y ordinata nodo attualmente in esame
-     * @param stepX differenza sull'asse delle ascisse da applicare ai nodi padri
+     * Applica lo zoom indicato dalla rotella, ricalcolando la disposizione se cambia la profondità di espansione.
+     *
+     * @param e evento della rotella
      */
-    private void paintDagBottom(
-    		DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag, 
-    		MergeSortStage v, 
-    		double x, 
-    		double y, 
-    		double stepX
-    		)
+    private void zoom(MouseWheelEvent e)
     {
-    	// Termina se arriva all'altra metà del DAG
-    	if(!(v.getStageType().equals(StageType.End) || v.getStageType().equals(StageType.Merge)))
-            return;
-        
-    	// Posiziona il nodo corrente
-    	positionVertexAt(v, x, y);
-    	
-    	// Prendi la lista (ordinata per taskID) dei nodi padri
-    	List<MergeSortStage> children = dag.incomingEdgesOf(v).stream()
-    			.map(e -> dag.getEdgeSource(e))
-    			.sorted((v1, v2) -> Integer.compare(v1.getTaskID(), v2.getTaskID()))
-    			.collect(Collectors.toList());
-    	
-    	// Scorre ricorsivamente il DAG, scegliendo le posizioni dei nodi padri
-    	if(children.size() >= 1)
-    		paintDagBottom(dag, children.get(0), x+stepX, y-LEVEL_HEIGHT, stepX/2);
-    	if(children.size() >= 2)
-    		paintDagBottom(dag, children.get(1), x-stepX, y-LEVEL_HEIGHT, stepX/2);
+    	int old_depth = depthAt(scale);
+    	scale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale * Math.pow(ZOOM_STEP, -e.getWheelRotation())));
+    	jgraph.setScale(scale);
+
+    	if(layout != null && depthAt(scale) != old_depth)
+    		relayout();
+    	else
+    		updateStatus();
     }
-    
+
     /**
-     * Ritorna tutti i nodi del DAG che hano il tipo indicato.
-     * 
-     * @param dag il dag in cui cercare
-     * @param type il tipo da cercare
-     * @return tutti i nodi del DAG che hano il tipo indicato
+     * Ritorna la profondità fino a cui i blocchi sono espansi con lo zoom dato
+     * (ogni raddoppio dello zoom mostra un livello in più).
+     *
+     * @param scale zoom
+     * @return int
      */
-    private Set<MergeSortStage> findVertexByType(DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag, StageType type)
+    private int depthAt(double scale)
     {
-    	return dag.vertexSet().stream().filter(p -> p.getStageType().equals(type)).collect(Collectors.toSet());
+    	int delta = (int) Math.floor(Math.log(scale) / Math.log(2));
+    	return Math.max(1, base_depth + delta);
     }
-    
+
     /**
-     * Calcola l'altezza del DAG (calcolata a partire dal nodo fornito).
-     * 
-     * @param dag il dag di cui calcolare l'altezza
-     * @param vertex il nodo da cui partire
-     * @return l'altezza del DAG (calcolata a partire dal nodo fornito)
+     * Ricalcola la disposizione (e il modello di JGraph) fuori dall'EDT, e la mostra al termine.
      */
-    private int dagHeight(DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag, MergeSortStage vertex)
+    private void relayout()
     {
-    	// Termina direttamente se arrivato al nodo finale
-    	if(vertex.getStageType().equals(StageType.End))
-    		return 1;
-    	
-    	// Scorre ricorsivamente il DAG
-    	int t, height = 1;
-    	for(NoLabelDefaultEdge e : dag.outgoingEdgesOf(vertex))
-        {
-    		t = dagHeight(dag, dag.getEdgeTarget(e)) + 1;
-    		if( t > height )
-    			height = t;
-        }
-    	
-    	return height;
+    	if(worker != null)
+    		worker.cancel(false);
+
+    	status.setText("Calcolo della disposizione in corso...");
+    	Set<DagLayout.Block> exp = Collections.newSetFromMap(new IdentityHashMap<>());
+    	Set<DagLayout.Block> col = Collections.newSetFromMap(new IdentityHashMap<>());
+    	exp.addAll(expanded);
+    	col.addAll(collapsed);
+    	boolean first = layout == null;
+    	double at_scale = scale;
+
+    	worker = new SwingWorker<JGraphModelAdapter<DagLayout.Node, NoLabelDefaultEdge>, Void>()
+    	{
+    		@Override
+    		protected JGraphModelAdapter<DagLayout.Node, NoLabelDefaultEdge> doInBackground()
+    		{
+    			if(first)
+    				createLayout();
+
+    			int depth = depthAt(at_scale);
+    			DagLayout.Result result = layout.compute(b -> !col.contains(b) && (exp.contains(b) || b.getDepth() < depth));
+    			last_result = result;
+    			return createModel(result);
+    		}
+
+    		@Override
+    		protected void done()
+    		{
+    			if(isCancelled())
+    				return;
+
+    			try
+    			{
+    				JGraphModelAdapter<DagLayout.Node, NoLabelDefaultEdge> adapter = get();
+    				jgraph.setModel(adapter);
+    				jgraph.setScale(scale);
+    				updateStatus();
+
+    				// Se uno stage è stato richiesto prima della prima disposizione, la ricalcolo per mostrarlo
+    				if(first && focus != null)
+    				{
+    					expandTo(focus);
+    					return;
+    				}
+    				if(focus != null)
+    				{
+    					select(adapter, focus);
+    					focus = null;
+    				}
+
+    				// Alla prima visualizzazione adatto la finestra al disegno
+    				if(first)
+    					frame.setSize(windowSize(last_result.getWidth() + 40, last_result.getHeight() + 80));
+    			}
+    			catch(InterruptedException | ExecutionException e)
+    			{
+    				status.setText("Errore durante il calcolo della disposizione: " + e.getCause());
+    				e.printStackTrace();
+    			}
+    		}
+    	};
+    	worker.execute();
+    }
+
+    /**
+     * Seleziona il nodo dello stage dato, se visibile, e scorre la vista fino a mostrarlo.
+     */
+    private void select(JGraphModelAdapter<DagLayout.Node, NoLabelDefaultEdge> adapter, MergeSortStage stage)
+    {
+    	for(DagLayout.Node n : last_result.getNodes())
+    	{
+    		if(n.getKind() == DagLayout.Kind.STAGE && n.getStage() == stage)
+    		{
+    			DefaultGraphCell cell = adapter.getVertexCell(n);
+    			jgraph.setSelectionCell(cell);
+    			jgraph.scrollCellToVisible(cell);
+    			return;
+    		}
+    	}
+    }
+
+    /**
+     * Calcola il cammino critico e l'albero dei blocchi (una volta sola).
+     */
+    private void createLayout()
+    {
+        // Trovo il cammino critico (solo se il DAG contiene i tempi di esecuzione)
+        WorkSpanAnalysis analysis = new WorkSpanAnalysis(dag);
+        List<MergeSortStage> critical_path = analysis.getSpan() > 0 ? analysis.getCriticalPath() : Collections.emptyList();
+
+        // Misuro i caratteri con il font delle celle
+        Rectangle2D txtDim = GraphConstants.DEFAULTFONT.getStringBounds("0", FRC);
+
+        DagLayout l = new DagLayout(dag, critical_path, txtDim.getWidth(), txtDim.getHeight());
+        base_depth = l.depthForBudget(MAX_VISIBLE_BLOCKS);
+        layout = l;
+    }
+
+    /**
+     * Crea il modello di JGraph per la disposizione data, applicando le posizioni di tutte le celle con un'unica modifica.
+     *
+     * @param result disposizione dei nodi visibili
+     * @return il modello da mostrare
+     */
+    @SuppressWarnings("unchecked")
+    private JGraphModelAdapter<DagLayout.Node, NoLabelDefaultEdge> createModel(DagLayout.Result result)
+    {
+    	DefaultDirectedGraph<DagLayout.Node, NoLabelDefaultEdge> view = new DefaultDirectedGraph<>(NoLabelDefaultEdge.class);
+    	for(DagLayout.Node n : result.getNodes())
+    		view.addVertex(n);
+    	for(DagLayout.Node[] e : result.getEdges())
+    		view.addEdge(e[0], e[1]);
+
+    	JGraphModelAdapter<DagLayout.Node, NoLabelDefaultEdge> adapter = new JGraphModelAdapter<>(view);
+    	adapter.setDefaultEdgeAttributes(null);
+
+    	Map<Object, Object> nested = new HashMap<>();
+    	for(DagLayout.Node n : result.getNodes())
+    	{
+    		DefaultGraphCell cell = adapter.getVertexCell(n);
+    		AttributeMap attributes = cell.getAttributes();
+
+    		GraphConstants.setBounds(attributes, new Rectangle2D.Double(n.getX(), n.getY(), n.getWidth(), n.getHeight()));
+
+    		if(n.getKind() == DagLayout.Kind.SUMMARY)
+    			GraphConstants.setBackground(attributes, SUMMARY_COLOR);
+    		else if(diff != null)
+    			GraphConstants.setBackground(attributes, diffColor(n.getStage()));
+
+            // Evidenzio i nodi del cammino critico
+    		if(n.isCritical())
+    		{
+    			GraphConstants.setBorderColor(attributes, CRITICAL_PATH_COLOR);
+    			GraphConstants.setLineWidth(attributes, 3);
+    		}
+
+    		nested.put(cell, attributes);
+    	}
+
+        // Applico le modifiche al DAG
+    	adapter.edit(nested, null, null, null);
+
+    	return adapter;
+    }
+
+    /**
+     * Ritorna il colore di uno stage nel confronto: dal bianco al verde (o al rosso) man mano che lo stage
+     * è più veloce (o più lento) dello stesso stage della prima esecuzione, fino a {@link #DIFF_FULL_RATIO} volte.
+     *
+     * @param stage stage della seconda esecuzione
+     * @return colore di sfondo
+     */
+    private Color diffColor(MergeSortStage stage)
+    {
+    	DagDiff.NodeDiff node = diff.getNode(stage);
+    	if(node == null || !node.isMatched())
+    		return DIFF_NEW_COLOR;
+
+    	MergeSortStage before = (stage == node.getAfterDivide()) ? node.getBeforeDivide() : node.getBeforeMerge();
+    	if(before == null)
+    		return DIFF_NEW_COLOR;
+
+    	double ratio = (Math.max(0, stage.getDuration()) + 1.0) / (Math.max(0, before.getDuration()) + 1.0);
+    	double t = Math.min(1, Math.abs(Math.log(ratio)) / Math.log(DIFF_FULL_RATIO));
+    	Color target = ratio < 1 ? DIFF_FASTER_COLOR : DIFF_SLOWER_COLOR;
+
+    	return new Color(
+    			(int) Math.round(DIFF_NEUTRAL_COLOR.getRed() + t * (target.getRed() - DIFF_NEUTRAL_COLOR.getRed())),
+    			(int) Math.round(DIFF_NEUTRAL_COLOR.getGreen() + t * (target.getGreen() - DIFF_NEUTRAL_COLOR.getGreen())),
+    			(int) Math.round(DIFF_NEUTRAL_COLOR.getBlue() + t * (target.getBlue() - DIFF_NEUTRAL_COLOR.getBlue())));
+    }
+
+    private void updateStatus()
+    {
+    	if(last_result == null)
+    		return;
+
+    	status.setText(String.format("Stage: %d (mostrati %d)   Zoom: %.0f%%   Profondità espansa: %d/%d   %s(Ctrl + rotella per lo zoom, clic per espandere o comprimere)",
+    			dag.vertexSet().size(), last_result.getNodes().size(), scale * 100, depthAt(scale), layout.getHeight() - 1,
+    			diff == null ? "" : "Confronto: verde più veloce, rosso più lento, azzurro nuovo   "));
+    }
+
+    /**
+     * Ritorna la dimensione della finestra adatta a mostrare un disegno della dimensione data.
+     *
+     * @param width larghezza del disegno
+     * @param height altezza del disegno
+     * @return dimensione limitata allo schermo
+     */
+    static Dimension windowSize(double width, double height)
+    {
+    	Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
+    	return new Dimension(
+    			(int) Math.min(width, Math.min(MAX_WINDOW_SIZE.width, screen.width)),
+    			(int) Math.min(height, Math.min(MAX_WINDOW_SIZE.height, screen.height)));
     }
 }
@@ -0,0 +1,321 @@
+package gui;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import mergesort.trace.LiveEvent;
+
+/**
+ * Stato dell'esecuzione di un ordinamento ricostruito dagli eventi di {@link mergesort.trace.LiveSortTracer}.
+ *
+ * Ogni evento porta con sé la posizione, la lunghezza e la profondità del sotto-array del suo stage, quindi il modello
+ * resta consistente anche se alcuni eventi sono stati scartati: uno stage di cui manca la creazione viene creato
+ * al primo evento ricevuto. Gli accessi devono essere sincronizzati sull'oggetto del modello.
+ */
+public class LiveDagModel
+{
+    /**
+     * Fase in cui si trova uno stage.
+     */
+    public enum State
+    {
+        /** Creato, in attesa di essere eseguito (es. in coda nel ForkJoinPool) */
+        CREATED,
+        /** In fase di divisione */
+        RUNNING,
+        /** Ordinamento diretto sotto il cutoff */
+        LEAF,
+        /** Divisione terminata, in attesa dei sotto-task */
+        WAITING,
+        /** Merge in corso */
+        MERGING,
+        /** Terminato */
+        DONE
+    }
+
+    /**
+     * Stage dell'esecuzione con i suoi tempi (System.nanoTime, 0 se non ancora avvenuti o non ricevuti).
+     */
+    public static class Stage
+    {
+        private final int id;
+        private int parent = -1;
+        private final int offset;
+        private final int length;
+        private final int depth;
+        private boolean forked;
+        private boolean leaf;
+        private State state = State.CREATED;
+        private int worker = -1;
+        private int merge_worker = -1;
+        private long created_ns, begin_ns, leave_ns, leaf_begin_ns, leaf_end_ns, merge_begin_ns, end_ns;
+        private long last_change_ns;
+
+        private Stage(int id, int offset, int length, int depth)
+        {
+            this.id = id;
+            this.offset = offset;
+            this.length = length;
+            this.depth = depth;
+        }
+
+        public int getId()
+        {
+            return id;
+        }
+
+        public int getParent()
+        {
+            return parent;
+        }
+
+        public int getOffset()
+        {
+            return offset;
+        }
+
+        public int getLength()
+        {
+            return length;
+        }
+
+        public int getDepth()
+        {
+            return depth;
+        }
+
+        public boolean isForked()
+        {
+            return forked;
+        }
+
+        /**
+         * @return true se lo stage è stato ordinato direttamente (valido dopo la fine della divisione)
+         */
+        public boolean isLeaf()
+        {
+            return leaf;
+        }
+
+        public State getState()
+        {
+            return state;
+        }
+
+        public int getWorker()
+        {
+            return worker;
+        }
+
+        public int getMergeWorker()
+        {
+            return merge_worker;
+        }
+
+        public long getCreatedNanos()
+        {
+            return created_ns;
+        }
+
+        public long getBeginNanos()
+        {
+            return begin_ns;
+        }
+
+        public long getLeaveNanos()
+        {
+            return leave_ns;
+        }
+
+        public long getLeafBeginNanos()
+        {
+            return leaf_begin_ns;
+        }
+
+        public long getLeafEndNanos()
+        {
+            return leaf_end_ns;
+        }
+
+        public long getMergeBeginNanos()
+        {
+            return merge_begin_ns;
+        }
+
+        public long getEndNanos()
+        {
+            return end_ns;
+        }
+
+        /**
+         * @return istante dell'ultimo cambio di fase
+         */
+        public long getLastChangeNanos()
+        {
+            return last_change_ns;
+        }
+    }
+
+    private final Map<Integer, Stage> stages = new HashMap<>();
+    private int max_depth;
+    private int total_length;
+    private long start_ns;
+    private long end_ns;
+    private long events;
+
+    /**
+     * Applica un evento al modello.
+     *
+     * @param e evento ricevuto
+     */
+    public void apply(LiveEvent e)
+    {
+        events++;
+        Stage s = stages.get(e.id);
+        if(s == null)
+        {
+            s = new Stage(e.id, e.offset, e.length, e.depth);
+            stages.put(e.id, s);
+            max_depth = Math.max(max_depth, e.depth);
+            if(e.depth == 0)
+                total_length = e.length;
+        }
+        s.last_change_ns = e.nanos;
+
+        switch(e.kind)
+        {
+            case START:
+                start_ns = e.nanos;
+                s.created_ns = e.nanos;
+                break;
+            case DIVIDE:
+                s.parent = e.parent;
+                s.forked = e.forked;
+                s.created_ns = e.nanos;
+                break;
+            case ENTER:
+                s.state = State.RUNNING;
+                s.worker = e.worker;
+                s.begin_ns = e.nanos;
+                break;
+            case LEAF_BEGIN:
+                s.state = State.LEAF;
+                s.leaf_begin_ns = e.nanos;
+                break;
+            case LEAF_END:
+                s.leaf_end_ns = e.nanos;
+                break;
+            case LEAVE:
+                // Le foglie terminano qui, gli altri stage attendono i sotto-task
+                s.leave_ns = e.nanos;
+                s.leaf = e.leaf;
+                s.state = e.leaf ? State.DONE : State.WAITING;
+                if(s.state == State.DONE)
+                    s.end_ns = e.nanos;
+                break;
+            case MERGE_BEGIN:
+                s.state = State.MERGING;
+                s.merge_worker = e.worker;
+                s.merge_begin_ns = e.nanos;
+                break;
+            case MERGE:
+                s.state = State.DONE;
+                s.end_ns = e.nanos;
+                break;
+            case END:
+                s.state = State.DONE;
+                end_ns = e.nanos;
+                break;
+        }
+    }
+
+    /**
+     * Applica tutti gli eventi dati.
+     *
+     * @param events eventi ricevuti
+     */
+    public void applyAll(Collection<LiveEvent> events)
+    {
+        for(LiveEvent e : events)
+            apply(e);
+    }
+
+    /**
+     * @return gli stage ricevuti finora
+     */
+    public Collection<Stage> getStages()
+    {
+        return Collections.unmodifiableCollection(stages.values());
+    }
+
+    /**
+     * @param id identificativo dello stage
+     * @return lo stage, o null se non è stato ricevuto
+     */
+    public Stage getStage(int id)
+    {
+        return stages.get(id);
+    }
+
+    /**
+     * @return gli stage ordinati per profondità e posizione
+     */
+    public List<Stage> getStagesByDepth()
+    {
+        List<Stage> list = new ArrayList<>(stages.values());
+        list.sort((a, b) -> a.depth != b.depth ? Integer.compare(a.depth, b.depth) : Integer.compare(a.offset, b.offset));
+        return list;
+    }
+
+    /**
+     * @return profondità massima degli stage ricevuti
+     */
+    public int getMaxDepth()
+    {
+        return max_depth;
+    }
+
+    /**
+     * @return lunghezza dell'array ordinato (0 se l'evento iniziale non è stato ricevuto)
+     */
+    public int getTotalLength()
+    {
+        return total_length;
+    }
+
+    /**
+     * @return istante di inizio dell'ordinamento (0 se non ricevuto)
+     */
+    public long getStartNanos()
+    {
+        return start_ns;
+    }
+
+    /**
+     * @return istante di fine dell'ordinamento (0 se non ancora terminato)
+     */
+    public long getEndNanos()
+    {
+        return end_ns;
+    }
+
+    /**
+     * @return true se è stato ricevuto l'evento di fine
+     */
+    public boolean isFinished()
+    {
+        return end_ns != 0;
+    }
+
+    /**
+     * @return numero di eventi applicati
+     */
+    public long getEventCount()
+    {
+        return events;
+    }
+}
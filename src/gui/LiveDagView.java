@@ -0,0 +1,242 @@
+package gui;
+
+import java.awt.BasicStroke;
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+import mergesort.trace.LiveEvent;
+import mergesort.trace.LiveEventQueue;
+
+/**
+ * Mostra l'esecuzione di un ordinamento mentre è in corso.
+ *
+ * Un thread dedicato preleva a intervalli regolari ({@link #FRAME_MS}) gli eventi dalla {@link LiveEventQueue},
+ * li applica in blocco al {@link LiveDagModel} e chiede il ridisegno della finestra. Se gli eventi arrivano più
+ * velocemente di quanto vengano consumati, la coda scarta quelli in eccesso: la visualizzazione perde dettaglio
+ * ma l'ordinamento non attende mai l'interfaccia grafica.
+ *
+ * Ogni riga della finestra è un livello della ricorsione, e ogni stage occupa la porzione dell'array che elabora,
+ * colorata in base alla fase in cui si trova. Gli stage attivi da più di {@link #STALL_MS} ms sono bordati di rosso.
+ */
+public class LiveDagView
+{
+    // Intervallo fra due aggiornamenti della finestra, e massimo numero di eventi applicati per aggiornamento
+    public static final int FRAME_MS = 100;
+    private static final int MAX_EVENTS_PER_FRAME = 50000;
+
+    // Durata oltre la quale uno stage attivo è considerato bloccato
+    public static final long STALL_MS = 1000;
+
+    // Altezza massima di una riga
+    private static final int MAX_ROW_HEIGHT = 40;
+
+    // Colori delle fasi
+    private static final Color CREATED_COLOR = Color.decode("#D8D8D8");
+    private static final Color RUNNING_COLOR = Color.decode("#5DADE2");
+    private static final Color LEAF_COLOR = Color.decode("#F5B041");
+    private static final Color WAITING_COLOR = Color.decode("#D6EAF8");
+    private static final Color MERGING_COLOR = Color.decode("#58D68D");
+    private static final Color DONE_COLOR = Color.decode("#1E8449");
+    private static final Color STALL_COLOR = Color.RED;
+    private static final Color HIGHLIGHT_COLOR = Color.BLACK;
+    private static final Color BG_COLOR = Color.decode("#FAFBFF");
+
+    private final LiveEventQueue queue;
+    private final LiveDagModel model = new LiveDagModel();
+    private final JPanel panel;
+    private final JLabel status = new JLabel("In attesa dell'inizio dell'ordinamento...");
+    private volatile int highlighted = -1;
+
+    /**
+     * Apre la finestra e avvia il thread che consuma gli eventi della coda data.
+     *
+     * @param queue coda su cui l'ordinamento pubblica gli eventi
+     */
+    public LiveDagView(LiveEventQueue queue)
+    {
+        this.queue = queue;
+        this.panel = new JPanel()
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void paintComponent(Graphics g)
+            {
+                super.paintComponent(g);
+                paintModel((Graphics2D) g, getWidth(), getHeight());
+            }
+        };
+        panel.setBackground(BG_COLOR);
+        panel.setPreferredSize(new Dimension(1200, 600));
+
+        SwingUtilities.invokeLater(() ->
+        {
+            JFrame frame = new JFrame("DAG (dal vivo)");
+            frame.getContentPane().add(panel, BorderLayout.CENTER);
+            frame.getContentPane().add(status, BorderLayout.SOUTH);
+            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            frame.pack();
+            frame.setVisible(true);
+        });
+
+        Thread viewer = new Thread(this::consume, "live-dag-viewer");
+        viewer.setDaemon(true);
+        viewer.start();
+    }
+
+    /**
+     * Ritorna il modello aggiornato dal thread di visualizzazione (gli accessi vanno sincronizzati sul modello).
+     *
+     * @return {@link LiveDagModel}
+     */
+    public LiveDagModel getModel()
+    {
+        return model;
+    }
+
+    /**
+     * Evidenzia lo stage dato (es. selezionato in un'altra vista).
+     *
+     * @param id identificativo dello stage, o -1 per nessuno
+     */
+    public void setHighlighted(int id)
+    {
+        highlighted = id;
+        panel.repaint();
+    }
+
+    /**
+     * Ciclo del thread di visualizzazione: preleva gli eventi a blocchi e aggiorna la finestra.
+     */
+    private void consume()
+    {
+        List<LiveEvent> batch = new ArrayList<>();
+        try
+        {
+            while(true)
+            {
+                Thread.sleep(FRAME_MS);
+
+                batch.clear();
+                queue.drainTo(batch, MAX_EVENTS_PER_FRAME);
+                boolean finished;
+                synchronized(model)
+                {
+                    model.applyAll(batch);
+                    finished = model.isFinished();
+                }
+
+                String text = statusText(queue.size() > 0);
+                SwingUtilities.invokeLater(() -> status.setText(text));
+                panel.repaint();
+
+                if(finished && queue.size() == 0)
+                    return;
+            }
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String statusText(boolean behind)
+    {
+        synchronized(model)
+        {
+            long now = model.isFinished() ? model.getEndNanos() : System.nanoTime();
+            double elapsed = model.getStartNanos() == 0 ? 0 : (now - model.getStartNanos()) / 1e6;
+            long done = model.getStages().stream().filter(s -> s.getState() == LiveDagModel.State.DONE).count();
+
+            return String.format(Locale.ROOT, "%s   Tempo: %.1f ms   Stage: %d (terminati %d)   Eventi: %d (scartati %d)%s",
+                    model.isFinished() ? "Completato" : "In corso",
+                    elapsed, model.getStages().size(), done,
+                    model.getEventCount(), queue.getDropped(),
+                    behind ? "   [visualizzazione in ritardo]" : "");
+        }
+    }
+
+    /**
+     * Disegna lo stato attuale: una riga per livello, ogni stage nella porzione di array che elabora.
+     */
+    private void paintModel(Graphics2D g, int width, int height)
+    {
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+
+        synchronized(model)
+        {
+            int n = model.getTotalLength();
+            if(n == 0)
+                return;
+
+            int rows = model.getMaxDepth() + 1;
+            double row_height = Math.min(MAX_ROW_HEIGHT, (double) height / rows);
+            double scale = (double) width / n;
+            long now = System.nanoTime();
+
+            for(LiveDagModel.Stage s : model.getStages())
+            {
+                Rectangle2D r = new Rectangle2D.Double(s.getOffset() * scale, s.getDepth() * row_height,
+                        Math.max(1, s.getLength() * scale), Math.max(1, row_height - 1));
+
+                g.setColor(stateColor(s.getState()));
+                g.fill(r);
+
+                // Evidenzio gli stage attivi da troppo tempo
+                if(!model.isFinished() && isActive(s.getState()) && now - s.getLastChangeNanos() > STALL_MS * 1000000L)
+                {
+                    g.setColor(STALL_COLOR);
+                    g.setStroke(new BasicStroke(2));
+                    g.draw(r);
+                }
+                else if(r.getWidth() > 4)
+                {
+                    g.setColor(BG_COLOR);
+                    g.setStroke(new BasicStroke(1));
+                    g.draw(r);
+                }
+            }
+
+            LiveDagModel.Stage h = model.getStage(highlighted);
+            if(h != null)
+            {
+                g.setColor(HIGHLIGHT_COLOR);
+                g.setStroke(new BasicStroke(2));
+                g.draw(new Rectangle2D.Double(h.getOffset() * scale, h.getDepth() * row_height,
+                        Math.max(1, h.getLength() * scale), Math.max(1, row_height - 1)));
+            }
+        }
+    }
+
+    private static boolean isActive(LiveDagModel.State state)
+    {
+        return state == LiveDagModel.State.RUNNING || state == LiveDagModel.State.LEAF || state == LiveDagModel.State.MERGING;
+    }
+
+    static Color stateColor(LiveDagModel.State state)
+    {
+        switch(state)
+        {
+            case RUNNING:   return RUNNING_COLOR;
+            case LEAF:      return LEAF_COLOR;
+            case WAITING:   return WAITING_COLOR;
+            case MERGING:   return MERGING_COLOR;
+            case DONE:      return DONE_COLOR;
+            case CREATED:
+            default:        return CREATED_COLOR;
+        }
+    }
+}
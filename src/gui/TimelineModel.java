@@ -0,0 +1,388 @@
+package gui;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.jgrapht.graph.DefaultDirectedGraph;
+
+import mergesort.MergeSortStage;
+import mergesort.MergeSortStage.StageType;
+import mergesort.NoLabelDefaultEdge;
+
+/**
+ * Attività dei worker di un ordinamento nel tempo, indipendente dalla sorgente e da come verrà disegnata.
+ *
+ * Ogni divisione, ordinamento diretto (foglia) o merge è una {@link Bar} sulla riga del worker che l'ha eseguito,
+ * con i tempi relativi all'inizio della prima barra. Ogni barra conserva il nodo da cui è stata ricavata
+ * (un {@link MergeSortStage} per i DAG salvati, uno {@link LiveDagModel.Stage} per le esecuzioni dal vivo).
+ * Oltre alle barre il modello calcola il tempo di attività di ogni worker e l'inizio della coda seriale,
+ * cioè dell'ultimo intervallo in cui al più un worker è attivo.
+ */
+public class TimelineModel
+{
+    /**
+     * Tipo di attività di una barra.
+     */
+    public enum Kind
+    {
+        DIVIDE,
+        LEAF,
+        MERGE
+    }
+
+    /**
+     * Attività di un worker.
+     */
+    public static class Bar
+    {
+        private final Kind kind;
+        private final int worker;
+        private final long begin;
+        private final long end;
+        private final int task_id;
+        private final int length;
+        private final boolean stolen;
+        private final boolean running;
+        private final Object node;
+
+        private Bar(Kind kind, int worker, long begin, long end, int task_id, int length, boolean stolen, boolean running, Object node)
+        {
+            this.kind = kind;
+            this.worker = worker;
+            this.begin = begin;
+            this.end = Math.max(begin, end);
+            this.task_id = task_id;
+            this.length = length;
+            this.stolen = stolen;
+            this.running = running;
+            this.node = node;
+        }
+
+        public Kind getKind()
+        {
+            return kind;
+        }
+
+        /**
+         * @return indice del worker, o -1 se l'attività non è stata eseguita da un worker del ForkJoinPool
+         */
+        public int getWorker()
+        {
+            return worker;
+        }
+
+        /**
+         * @return inizio in nanosecondi dall'inizio del modello
+         */
+        public long getBegin()
+        {
+            return begin;
+        }
+
+        /**
+         * @return fine in nanosecondi dall'inizio del modello
+         */
+        public long getEnd()
+        {
+            return end;
+        }
+
+        public long getDuration()
+        {
+            return end - begin;
+        }
+
+        public int getTaskID()
+        {
+            return task_id;
+        }
+
+        /**
+         * @return lunghezza del sotto-array elaborato
+         */
+        public int getLength()
+        {
+            return length;
+        }
+
+        /**
+         * @return true se il task è stato generato da una fork ed eseguito da un worker diverso da quello del padre
+         */
+        public boolean isStolen()
+        {
+            return stolen;
+        }
+
+        /**
+         * @return true se l'attività non è ancora terminata (solo per le esecuzioni dal vivo)
+         */
+        public boolean isRunning()
+        {
+            return running;
+        }
+
+        /**
+         * @return il nodo del DAG da cui è stata ricavata la barra
+         */
+        public Object getNode()
+        {
+            return node;
+        }
+    }
+
+    private final List<Bar> bars;
+    private final int[] workers;
+    private final Map<Integer, Integer> rows = new HashMap<>();
+    private final Map<Integer, Long> busy = new HashMap<>();
+    private final long span;
+    private final long tail_begin;
+
+    private TimelineModel(List<Bar> bars)
+    {
+        bars.sort(Comparator.comparingLong(Bar::getBegin));
+        this.bars = Collections.unmodifiableList(bars);
+
+        // Righe dei worker, in ordine di indice (il thread esterno al pool per primo)
+        TreeMap<Integer, List<Bar>> by_worker = new TreeMap<>();
+        long last = 0;
+        for(Bar b : bars)
+        {
+            by_worker.computeIfAbsent(b.worker, w -> new ArrayList<>()).add(b);
+            last = Math.max(last, b.end);
+        }
+        this.span = last;
+
+        this.workers = new int[by_worker.size()];
+        int row = 0;
+        for(Map.Entry<Integer, List<Bar>> e : by_worker.entrySet())
+        {
+            workers[row] = e.getKey();
+            rows.put(e.getKey(), row++);
+            busy.put(e.getKey(), busyTime(e.getValue()));
+        }
+
+        this.tail_begin = serialTailBegin(bars);
+    }
+
+    /**
+     * Tempo di attività di un worker: unione degli intervalli delle sue barre
+     * (durante un merge o una join il worker può eseguire altri task, quindi le barre possono essere annidate).
+     */
+    private static long busyTime(List<Bar> sorted)
+    {
+        long total = 0;
+        long from = -1, to = -1;
+        for(Bar b : sorted)
+        {
+            if(b.begin > to)
+            {
+                total += to - from;
+                from = b.begin;
+                to = b.end;
+            }
+            else
+                to = Math.max(to, b.end);
+        }
+        return total + (to - from);
+    }
+
+    /**
+     * Ritorna l'inizio dell'ultimo intervallo in cui al più un worker è attivo.
+     */
+    private static long serialTailBegin(List<Bar> bars)
+    {
+        // Per ogni worker considero solo l'unione delle sue barre, così le barre annidate non contano come parallelismo
+        List<long[]> changes = new ArrayList<>();
+        Map<Integer, long[]> open = new HashMap<>();
+        for(Bar b : bars)
+        {
+            long[] cur = open.get(b.worker);
+            if(cur == null || b.begin > cur[1])
+            {
+                if(cur != null)
+                {
+                    changes.add(new long[] {cur[0], 1});
+                    changes.add(new long[] {cur[1], -1});
+                }
+                open.put(b.worker, new long[] {b.begin, b.end});
+            }
+            else
+                cur[1] = Math.max(cur[1], b.end);
+        }
+        for(long[] cur : open.values())
+        {
+            changes.add(new long[] {cur[0], 1});
+            changes.add(new long[] {cur[1], -1});
+        }
+
+        // A parità di istante le fini precedono gli inizi
+        changes.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+
+        long tail = 0;
+        int active = 0;
+        for(long[] c : changes)
+        {
+            int before = active;
+            active += (int) c[1];
+            if(before >= 2 && active < 2)
+                tail = c[0];
+        }
+        return tail;
+    }
+
+    /**
+     * Crea il modello da un DAG con i tempi di esecuzione (DAG prodotto da un ordinamento in debug o caricato da file).
+     * Gli stage senza tempi (es. DAG salvati da versioni precedenti) sono ignorati.
+     *
+     * @param dag DAG dell'esecuzione
+     * @return {@link TimelineModel}
+     */
+    public static TimelineModel fromDag(DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag)
+    {
+        long origin = Long.MAX_VALUE;
+        for(MergeSortStage v : dag.vertexSet())
+            if(hasTiming(v))
+                origin = Math.min(origin, v.getBeginNanos());
+
+        List<Bar> bars = new ArrayList<>();
+        for(MergeSortStage v : dag.vertexSet())
+        {
+            if(!hasTiming(v))
+                continue;
+
+            Kind kind;
+            boolean stolen = false;
+            if(v.getStageType() == StageType.Merge || v.getStageType() == StageType.End)
+                kind = Kind.MERGE;
+            else
+            {
+                // Una divisione i cui successori non sono divisioni è stata ordinata direttamente
+                kind = Kind.LEAF;
+                for(NoLabelDefaultEdge e : dag.outgoingEdgesOf(v))
+                    if(dag.getEdgeTarget(e).getStageType() == StageType.Divide)
+                        kind = Kind.DIVIDE;
+
+                for(NoLabelDefaultEdge e : dag.incomingEdgesOf(v))
+                {
+                    MergeSortStage parent = dag.getEdgeSource(e);
+                    stolen |= parent.getTaskID() != v.getTaskID() && parent.getWorker() != v.getWorker();
+                }
+            }
+
+            bars.add(new Bar(kind, v.getWorker(), v.getBeginNanos() - origin, v.getEndNanos() - origin,
+                    v.getTaskID(), v.getResultLength(), stolen, false, v));
+        }
+
+        return new TimelineModel(bars);
+    }
+
+    private static boolean hasTiming(MergeSortStage v)
+    {
+        return v.getBeginNanos() != 0 || v.getEndNanos() != 0;
+    }
+
+    /**
+     * Crea il modello dallo stato di un'esecuzione dal vivo (gli accessi al modello devono essere sincronizzati dal chiamante).
+     * Le attività in corso terminano all'istante dato.
+     *
+     * @param live stato dell'esecuzione
+     * @param now istante attuale (System.nanoTime)
+     * @return {@link TimelineModel}
+     */
+    public static TimelineModel fromLive(LiveDagModel live, long now)
+    {
+        long origin = live.getStartNanos();
+        for(LiveDagModel.Stage s : live.getStages())
+            if(s.getBeginNanos() != 0 && (origin == 0 || s.getBeginNanos() < origin))
+                origin = s.getBeginNanos();
+
+        List<Bar> bars = new ArrayList<>();
+        for(LiveDagModel.Stage s : live.getStages())
+        {
+            if(s.getBeginNanos() == 0)
+                continue;
+
+            // Divisione, o ordinamento diretto per le foglie
+            LiveDagModel.Stage parent = s.isForked() ? live.getStage(s.getParent()) : null;
+            boolean stolen = parent != null && parent.getWorker() != s.getWorker();
+            boolean dividing = s.getLeaveNanos() == 0;
+            boolean leaf = dividing ? s.getLeafBeginNanos() != 0 : s.isLeaf();
+            bars.add(new Bar(leaf ? Kind.LEAF : Kind.DIVIDE, s.getWorker(), s.getBeginNanos() - origin,
+                    (dividing ? now : s.getLeaveNanos()) - origin, s.getId(), s.getLength(), stolen, dividing, s));
+
+            // Merge
+            if(s.getMergeBeginNanos() != 0)
+            {
+                boolean merging = s.getEndNanos() == 0 && s.getState() != LiveDagModel.State.DONE;
+                long end = s.getEndNanos() != 0 ? s.getEndNanos() : (merging ? now : live.getEndNanos());
+                bars.add(new Bar(Kind.MERGE, s.getMergeWorker(), s.getMergeBeginNanos() - origin, end - origin,
+                        s.getId(), s.getLength(), false, merging, s));
+            }
+        }
+
+        return new TimelineModel(bars);
+    }
+
+    /**
+     * @return tutte le barre, ordinate per inizio
+     */
+    public List<Bar> getBars()
+    {
+        return bars;
+    }
+
+    /**
+     * @return gli indici dei worker, nell'ordine delle righe
+     */
+    public int[] getWorkers()
+    {
+        return workers.clone();
+    }
+
+    /**
+     * @param worker indice del worker
+     * @return la riga del worker
+     */
+    public int getRow(int worker)
+    {
+        return rows.get(worker);
+    }
+
+    /**
+     * @param worker indice del worker
+     * @return tempo (in nanosecondi) in cui il worker ha eseguito almeno un'attività
+     */
+    public long getBusyTime(int worker)
+    {
+        return busy.getOrDefault(worker, 0L);
+    }
+
+    /**
+     * @return durata complessiva (in nanosecondi) dalla prima all'ultima attività
+     */
+    public long getSpan()
+    {
+        return span;
+    }
+
+    /**
+     * @return inizio (in nanosecondi) dell'ultimo intervallo in cui al più un worker è attivo
+     */
+    public long getSerialTailBegin()
+    {
+        return tail_begin;
+    }
+
+    /**
+     * @return true se il modello non contiene attività
+     */
+    public boolean isEmpty()
+    {
+        return bars.isEmpty();
+    }
+}
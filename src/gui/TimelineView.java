@@ -0,0 +1,537 @@
+package gui;
+
+import java.awt.BasicStroke;
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+import javax.swing.JComponent;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JScrollPane;
+import javax.swing.JViewport;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import org.jgrapht.graph.DefaultDirectedGraph;
+
+import mergesort.MergeSortStage;
+import mergesort.NoLabelDefaultEdge;
+
+/**
+ * Diagramma di Gantt dell'esecuzione: una riga per ogni worker del ForkJoinPool e una barra per ogni divisione,
+ * ordinamento diretto o merge, posizionata in base ai suoi tempi di inizio e fine e colorata in base al tipo.
+ *
+ * Gli spazi vuoti di una riga sono i periodi di inattività del worker, i task rubati (eseguiti da un worker diverso
+ * da quello che li ha generati) sono segnati da un triangolo nero e la coda seriale finale, in cui al più un worker
+ * è attivo, è evidenziata in rosso. Un clic su una barra ne mostra i dettagli e la notifica all'eventuale
+ * ascoltatore ({@link #setNodeListener(Consumer)}), che può così mostrare il nodo corrispondente nel DAG.
+ *
+ * Il diagramma può essere creato da un DAG con i tempi di esecuzione (salvato su file o prodotto in debug)
+ * o da un'esecuzione dal vivo ({@link LiveDagView}), nel qual caso si aggiorna fino alla fine dell'ordinamento.
+ */
+public class TimelineView
+{
+    // Dimensioni delle righe, dell'asse dei tempi e dell'intestazione delle righe
+    private static final int ROW_HEIGHT = 22;
+    private static final int AXIS_HEIGHT = 22;
+    private static final int HEADER_WIDTH = 110;
+    private static final int MARGIN = 20;
+
+    // Distanza minima in pixel fra due tacche dell'asse dei tempi
+    private static final int MIN_TICK_SPACING = 80;
+
+    // Fattore di zoom per ogni scatto della rotella, e zoom massimo (pixel per nanosecondo)
+    private static final double ZOOM_STEP = 1.25;
+    private static final double MAX_SCALE = 1;
+
+    // Dimensione iniziale della finestra
+    private static final Dimension WINDOW_SIZE = new Dimension(1280, 500);
+
+    // Colori
+    private static final Color DIVIDE_COLOR = Color.decode("#5DADE2");
+    private static final Color LEAF_COLOR = Color.decode("#F5B041");
+    private static final Color MERGE_COLOR = Color.decode("#58D68D");
+    private static final Color STEAL_COLOR = Color.BLACK;
+    private static final Color SELECTED_COLOR = Color.BLACK;
+    private static final Color TAIL_COLOR = new Color(255, 0, 0, 40);
+    private static final Color ROW_COLOR = Color.decode("#F0F2F8");
+    private static final Color BG_COLOR = Color.decode("#FAFBFF");
+    private static final Color AXIS_COLOR = Color.GRAY;
+
+    private static final Font FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 11);
+
+    private TimelineModel model;
+    private List<List<TimelineModel.Bar>> by_row = new ArrayList<>();
+
+    // Pixel per nanosecondo; finché l'utente non cambia lo zoom il diagramma è adattato alla larghezza della finestra
+    private double scale;
+    private boolean fit = true;
+
+    private TimelineModel.Bar selected;
+    private Consumer<Object> node_listener;
+
+    private final JComponent chart;
+    private final JComponent axis;
+    private final JComponent header;
+    private final JLabel status = new JLabel(" ");
+    private JScrollPane scroll;
+
+    /**
+     * Mostra il diagramma di un DAG con i tempi di esecuzione.
+     *
+     * @param dag DAG dell'esecuzione
+     */
+    public TimelineView(DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag)
+    {
+        this();
+        TimelineModel m = TimelineModel.fromDag(dag);
+        SwingUtilities.invokeLater(() ->
+        {
+            init("Timeline");
+            setModel(m);
+            if(m.isEmpty())
+                status.setText("Il DAG non contiene i tempi di esecuzione.");
+        });
+    }
+
+    /**
+     * Mostra il diagramma di un'esecuzione dal vivo, aggiornandolo ad ogni aggiornamento della visualizzazione data.
+     * Un clic su una barra evidenzia lo stage corrispondente nella visualizzazione dal vivo.
+     *
+     * @param live visualizzazione dell'esecuzione
+     */
+    public TimelineView(LiveDagView live)
+    {
+        this();
+        node_listener = node -> live.setHighlighted(((LiveDagModel.Stage) node).getId());
+        SwingUtilities.invokeLater(() ->
+        {
+            init("Timeline (dal vivo)");
+
+            Timer timer = new Timer(LiveDagView.FRAME_MS, null);
+            timer.addActionListener(e ->
+            {
+                LiveDagModel m = live.getModel();
+                TimelineModel tm;
+                boolean finished;
+                synchronized(m)
+                {
+                    finished = m.isFinished();
+                    tm = TimelineModel.fromLive(m, finished ? m.getEndNanos() : System.nanoTime());
+                }
+                setModel(tm);
+                if(finished)
+                    timer.stop();
+            });
+            timer.start();
+        });
+    }
+
+    private TimelineView()
+    {
+        chart = new JComponent()
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void paintComponent(Graphics g)
+            {
+                paintChart((Graphics2D) g);
+            }
+
+            @Override
+            public String getToolTipText(MouseEvent e)
+            {
+                TimelineModel.Bar b = barAt(e.getPoint());
+                return b == null ? null : "<html>" + describe(b).replace("   ", "<br>") + "</html>";
+            }
+        };
+        chart.setToolTipText("");
+
+        axis = new JComponent()
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void paintComponent(Graphics g)
+            {
+                paintAxis((Graphics2D) g);
+            }
+        };
+
+        header = new JComponent()
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void paintComponent(Graphics g)
+            {
+                paintHeader((Graphics2D) g);
+            }
+        };
+    }
+
+    /**
+     * Crea la finestra (sull'EDT).
+     */
+    private void init(String title)
+    {
+        chart.addMouseListener(new MouseAdapter()
+        {
+            @Override
+            public void mouseClicked(MouseEvent e)
+            {
+                select(barAt(e.getPoint()));
+            }
+        });
+
+        // Ctrl + rotella: zoom orizzontale attorno al puntatore
+        chart.addMouseWheelListener(e ->
+        {
+            if(e.isControlDown())
+                zoom(e);
+            else
+                scroll.dispatchEvent(SwingUtilities.convertMouseEvent(chart, e, scroll));
+        });
+
+        scroll = new JScrollPane(chart, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED, JScrollPane.HORIZONTAL_SCROLLBAR_ALWAYS);
+        scroll.setColumnHeaderView(axis);
+        scroll.setRowHeaderView(header);
+        scroll.getViewport().setBackground(BG_COLOR);
+        scroll.getHorizontalScrollBar().setUnitIncrement(16);
+        scroll.getVerticalScrollBar().setUnitIncrement(ROW_HEIGHT);
+
+        // Finché lo zoom è adattato alla finestra, lo ricalcolo quando la finestra cambia dimensione
+        scroll.getViewport().addChangeListener(e ->
+        {
+            if(fit && model != null && Math.abs(fitScale() - scale) > scale * 1e-3)
+                updateSize();
+        });
+
+        JFrame frame = new JFrame(title);
+        frame.getContentPane().add(scroll, BorderLayout.CENTER);
+        frame.getContentPane().add(status, BorderLayout.SOUTH);
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.setSize(GraphVisualizer.windowSize(WINDOW_SIZE.width, WINDOW_SIZE.height));
+        frame.setVisible(true);
+    }
+
+    /**
+     * Imposta l'ascoltatore notificato con il nodo del DAG della barra cliccata
+     * (un {@link MergeSortStage} o uno {@link LiveDagModel.Stage}, a seconda della sorgente).
+     *
+     * @param listener ascoltatore, o null per nessuno
+     */
+    public void setNodeListener(Consumer<Object> listener)
+    {
+        SwingUtilities.invokeLater(() -> node_listener = listener);
+    }
+
+    /**
+     * Mostra il modello dato (sull'EDT).
+     */
+    private void setModel(TimelineModel m)
+    {
+        model = m;
+        by_row = new ArrayList<>();
+        for(int i = 0; i < m.getWorkers().length; i++)
+            by_row.add(new ArrayList<>());
+        for(TimelineModel.Bar b : m.getBars())
+            by_row.get(m.getRow(b.getWorker())).add(b);
+
+        // Mantengo la selezione sulla barra dello stesso nodo
+        if(selected != null)
+        {
+            TimelineModel.Bar old = selected;
+            selected = null;
+            for(TimelineModel.Bar b : m.getBars())
+                if(b.getNode() == old.getNode() && b.getKind() == old.getKind())
+                    selected = b;
+        }
+
+        updateSize();
+        updateStatus();
+    }
+
+    private double fitScale()
+    {
+        int width = scroll.getViewport().getExtentSize().width - MARGIN;
+        return Math.min(MAX_SCALE, width / (double) Math.max(1, model.getSpan()));
+    }
+
+    private void updateSize()
+    {
+        if(fit)
+            scale = fitScale();
+
+        int width = (int) Math.ceil(model.getSpan() * scale) + MARGIN;
+        int height = model.getWorkers().length * ROW_HEIGHT;
+        chart.setPreferredSize(new Dimension(width, height));
+        axis.setPreferredSize(new Dimension(width, AXIS_HEIGHT));
+        header.setPreferredSize(new Dimension(HEADER_WIDTH, height));
+        chart.revalidate();
+        axis.revalidate();
+        header.revalidate();
+        chart.repaint();
+        axis.repaint();
+        header.repaint();
+    }
+
+    /**
+     * Applica lo zoom indicato dalla rotella, mantenendo fisso l'istante sotto il puntatore.
+     */
+    private void zoom(MouseWheelEvent e)
+    {
+        if(model == null)
+            return;
+
+        JViewport viewport = scroll.getViewport();
+        double time = e.getX() / scale;
+        int offset = e.getX() - viewport.getViewPosition().x;
+
+        double min_scale = Math.min(fitScale(), MAX_SCALE);
+        scale = Math.max(min_scale, Math.min(MAX_SCALE, scale * Math.pow(ZOOM_STEP, -e.getWheelRotation())));
+        fit = scale <= min_scale;
+        updateSize();
+
+        // Riposiziono la vista dopo che le nuove dimensioni sono state applicate
+        chart.validate();
+        scroll.validate();
+        int x = Math.max(0, (int) Math.round(time * scale) - offset);
+        viewport.setViewPosition(new Point(x, viewport.getViewPosition().y));
+    }
+
+    private void select(TimelineModel.Bar b)
+    {
+        selected = b;
+        chart.repaint();
+        updateStatus();
+
+        if(b != null && node_listener != null)
+            node_listener.accept(b.getNode());
+    }
+
+    /**
+     * Ritorna la barra disegnata nel punto dato (l'ultima disegnata, se più barre si sovrappongono).
+     */
+    private TimelineModel.Bar barAt(Point p)
+    {
+        if(model == null)
+            return null;
+
+        int row = p.y / ROW_HEIGHT;
+        if(row < 0 || row >= by_row.size())
+            return null;
+
+        // Tolleranza di due pixel per le barre molto brevi
+        double tolerance = 2 / scale;
+        double t = p.x / scale;
+        List<TimelineModel.Bar> bars = by_row.get(row);
+        for(int i = bars.size() - 1; i >= 0; i--)
+        {
+            TimelineModel.Bar b = bars.get(i);
+            if(b.getBegin() - tolerance <= t && t <= b.getEnd() + tolerance)
+                return b;
+        }
+        return null;
+    }
+
+    private void paintChart(Graphics2D g)
+    {
+        g.setColor(BG_COLOR);
+        g.fillRect(0, 0, chart.getWidth(), chart.getHeight());
+        if(model == null)
+            return;
+
+        Rectangle clip = g.getClipBounds();
+        if(clip == null)
+            clip = new Rectangle(0, 0, chart.getWidth(), chart.getHeight());
+
+        // Righe dei worker
+        int rows = by_row.size();
+        g.setColor(ROW_COLOR);
+        for(int r = 0; r < rows; r += 2)
+            g.fillRect(clip.x, r * ROW_HEIGHT, clip.width, ROW_HEIGHT);
+
+        // Coda seriale
+        if(rows > 1 && model.getSerialTailBegin() < model.getSpan())
+        {
+            double x = model.getSerialTailBegin() * scale;
+            g.setColor(TAIL_COLOR);
+            g.fill(new Rectangle2D.Double(x, 0, (model.getSpan() * scale) - x, rows * ROW_HEIGHT));
+        }
+
+        // Barre, nell'ordine di inizio (le attività annidate sono disegnate sopra)
+        for(int r = 0; r < rows; r++)
+        {
+            int y = r * ROW_HEIGHT;
+            if(y + ROW_HEIGHT < clip.y || y > clip.y + clip.height)
+                continue;
+
+            for(TimelineModel.Bar b : by_row.get(r))
+            {
+                double x1 = b.getBegin() * scale;
+                double x2 = b.getEnd() * scale;
+                if(x1 > clip.x + clip.width)
+                    break;
+                if(x2 < clip.x)
+                    continue;
+
+                Rectangle2D rect = new Rectangle2D.Double(x1, y + 2, Math.max(1, x2 - x1), ROW_HEIGHT - 4);
+                g.setColor(kindColor(b.getKind()));
+                g.fill(rect);
+
+                if(b.isRunning() || rect.getWidth() > 4)
+                {
+                    g.setColor(b.isRunning() ? Color.DARK_GRAY : BG_COLOR);
+                    g.setStroke(new BasicStroke(1));
+                    g.draw(rect);
+                }
+
+                if(b.isStolen())
+                {
+                    Path2D mark = new Path2D.Double();
+                    mark.moveTo(x1, y + 2);
+                    mark.lineTo(x1 + 6, y + 2);
+                    mark.lineTo(x1, y + 8);
+                    mark.closePath();
+                    g.setColor(STEAL_COLOR);
+                    g.fill(mark);
+                }
+            }
+        }
+
+        if(selected != null)
+        {
+            int y = model.getRow(selected.getWorker()) * ROW_HEIGHT;
+            g.setColor(SELECTED_COLOR);
+            g.setStroke(new BasicStroke(2));
+            g.draw(new Rectangle2D.Double(selected.getBegin() * scale - 1, y + 1,
+                    Math.max(1, selected.getDuration() * scale) + 2, ROW_HEIGHT - 2));
+        }
+    }
+
+    private void paintAxis(Graphics2D g)
+    {
+        g.setColor(BG_COLOR);
+        g.fillRect(0, 0, axis.getWidth(), axis.getHeight());
+        if(model == null)
+            return;
+
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setFont(FONT);
+        Rectangle clip = g.getClipBounds();
+        if(clip == null)
+            clip = new Rectangle(0, 0, axis.getWidth(), axis.getHeight());
+
+        // Passo delle tacche: 1, 2 o 5 per una potenza di 10 nanosecondi
+        double step = Math.pow(10, Math.floor(Math.log10(MIN_TICK_SPACING / scale)));
+        if(step * scale < MIN_TICK_SPACING)
+            step *= 2;
+        if(step * scale < MIN_TICK_SPACING)
+            step *= 2.5;
+        int decimals = (int) Math.max(0, Math.ceil(-Math.log10(step / 1e6)));
+
+        g.setColor(AXIS_COLOR);
+        g.drawLine(clip.x, AXIS_HEIGHT - 1, clip.x + clip.width, AXIS_HEIGHT - 1);
+        long first = (long) Math.floor(clip.x / scale / step);
+        for(long i = first; i * step * scale <= clip.x + clip.width; i++)
+        {
+            int x = (int) Math.round(i * step * scale);
+            g.drawLine(x, AXIS_HEIGHT - 6, x, AXIS_HEIGHT - 1);
+            g.drawString(String.format(Locale.ROOT, "%." + decimals + "f ms", i * step / 1e6), x + 2, AXIS_HEIGHT - 8);
+        }
+    }
+
+    private void paintHeader(Graphics2D g)
+    {
+        g.setColor(BG_COLOR);
+        g.fillRect(0, 0, header.getWidth(), header.getHeight());
+        if(model == null)
+            return;
+
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setFont(FONT);
+        int[] workers = model.getWorkers();
+        for(int r = 0; r < workers.length; r++)
+        {
+            if(r % 2 == 0)
+            {
+                g.setColor(ROW_COLOR);
+                g.fillRect(0, r * ROW_HEIGHT, header.getWidth(), ROW_HEIGHT);
+            }
+
+            String name = workers[r] < 0 ? "Esterno" : "Worker " + workers[r];
+            double busy = 100.0 * model.getBusyTime(workers[r]) / Math.max(1, model.getSpan());
+            g.setColor(Color.BLACK);
+            g.drawString(String.format(Locale.ROOT, "%s (%.0f%%)", name, busy), 4, r * ROW_HEIGHT + ROW_HEIGHT - 7);
+        }
+    }
+
+    private void updateStatus()
+    {
+        if(selected != null)
+        {
+            status.setText(describe(selected));
+            return;
+        }
+        if(model == null || model.isEmpty())
+            return;
+
+        int[] workers = model.getWorkers();
+        long busy = 0;
+        for(int w : workers)
+            busy += model.getBusyTime(w);
+        long steals = model.getBars().stream().filter(TimelineModel.Bar::isStolen).count();
+        long tail = model.getSpan() - model.getSerialTailBegin();
+
+        status.setText(String.format(Locale.ROOT,
+                "Worker: %d   Durata: %.3f ms   Attività media: %.1f%%   Task rubati: %d   Coda seriale: %.3f ms (%.1f%%)   "
+                + "(divisione: blu, foglia: arancione, merge: verde; Ctrl + rotella per lo zoom, clic su una barra per il nodo)",
+                workers.length, model.getSpan() / 1e6, 100.0 * busy / Math.max(1, model.getSpan() * workers.length),
+                steals, tail / 1e6, 100.0 * tail / Math.max(1, model.getSpan())));
+    }
+
+    private static String describe(TimelineModel.Bar b)
+    {
+        String kind;
+        switch(b.getKind())
+        {
+            case DIVIDE:    kind = "Divisione"; break;
+            case LEAF:      kind = "Foglia";    break;
+            case MERGE:
+            default:        kind = "Merge";     break;
+        }
+
+        return String.format(Locale.ROOT, "%s   Task: %d   Elementi: %d   Worker: %d   Inizio: %.3f ms   Durata: %.3f ms%s%s",
+                kind, b.getTaskID(), b.getLength(), b.getWorker(), b.getBegin() / 1e6, b.getDuration() / 1e6,
+                b.isStolen() ? "   Rubato" : "", b.isRunning() ? "   In corso" : "");
+    }
+
+    static Color kindColor(TimelineModel.Kind kind)
+    {
+        switch(kind)
+        {
+            case DIVIDE:    return DIVIDE_COLOR;
+            case LEAF:      return LEAF_COLOR;
+            case MERGE:
+            default:        return MERGE_COLOR;
+        }
+    }
+}
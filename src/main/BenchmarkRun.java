@@ -0,0 +1,217 @@
+package main;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Locale;
+
+import mergesort.MergeSort;
+import mergesort.management.AllocationMeter;
+import mergesort.management.SortEngineMetrics;
+import mergesort.verify.SortVerifier;
+
+/**
+ * Misura statistica di un ordinamento per l'opzione '--bench' di {@link Main}.
+ *
+ * Dopo le iterazioni di riscaldamento, ogni iterazione misurata ordina una copia nuova dello stesso input
+ * (la copia è fatta fuori dall'intervallo misurato) e ne registra il tempo, con System.nanoTime,
+ * e i byte allocati, letti dalle metriche dell'ordinamento ({@link SortEngineMetrics}).
+ * Il resoconto riporta minimo, mediana, 90° e 99° percentile e massimo dei tempi, il throughput
+ * (elementi al secondo, calcolato sulla mediana) e l'allocazione media per ordinamento.
+ */
+public class BenchmarkRun
+{
+    /**
+     * Formato del resoconto.
+     */
+    public enum Format
+    {
+        TEXT, JSON, CSV
+    }
+
+    private final String name;
+    private final int[] input;
+    private final int cutoff;
+    private final boolean debug;
+    private final int warmup;
+    private final long[] times;
+    private final long[] bytes;
+    private final long[] gc_counts;
+    private final long[] gc_millis;
+    private boolean correct = true;
+
+    /**
+     * @param name nome dell'algoritmo (S, SP, P)
+     * @param input array da ordinare (non viene modificato)
+     * @param cutoff cutoff sequenziale (solo per il resoconto)
+     * @param debug true per ordinare in debug mode
+     * @param warmup numero di iterazioni di riscaldamento
+     * @param iterations numero di iterazioni misurate
+     */
+    public BenchmarkRun(String name, int[] input, int cutoff, boolean debug, int warmup, int iterations)
+    {
+        this.name = name;
+        this.input = input;
+        this.cutoff = cutoff;
+        this.debug = debug;
+        this.warmup = warmup;
+        this.times = new long[iterations];
+        this.bytes = new long[iterations];
+        this.gc_counts = new long[iterations];
+        this.gc_millis = new long[iterations];
+    }
+
+    /**
+     * Esegue tutte le iterazioni con l'algoritmo dato.
+     *
+     * @param sorter algoritmo da misurare
+     * @return this
+     */
+    public BenchmarkRun run(MergeSort sorter)
+    {
+        SortVerifier.Fingerprint input_fingerprint = SortVerifier.fingerprint(input);
+        int[] work = new int[input.length];
+        for(int i = 0; i < warmup + times.length; i++)
+        {
+            System.arraycopy(input, 0, work, 0, input.length);
+
+            long start = System.nanoTime();
+            int[] result = sorter.sort(work, debug).getResult();
+            long time = System.nanoTime() - start;
+
+            // Verifico il risultato solo alla prima iterazione, fuori dall'intervallo misurato
+            if(i == 0)
+                correct = SortVerifier.verify(input_fingerprint, result).isCorrect();
+
+            if(i >= warmup)
+            {
+                times[i - warmup] = time;
+                AllocationMeter.Usage usage = SortEngineMetrics.get().getLastSortUsage();
+                bytes[i - warmup] = Math.max(0, usage.getAllocatedBytes());
+                gc_counts[i - warmup] = usage.getGcCount();
+                gc_millis[i - warmup] = usage.getGcTimeMillis();
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Ritorna il percentile dato dei tempi misurati (metodo nearest-rank).
+     *
+     * @param p percentile, fra 0 e 100
+     * @return tempo in nanosecondi
+     */
+    public long percentile(double p)
+    {
+        long[] sorted = times.clone();
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(p / 100 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    /**
+     * @return elementi ordinati al secondo, calcolati sulla mediana dei tempi
+     */
+    public double getThroughput()
+    {
+        return input.length / (percentile(50) / 1e9);
+    }
+
+    /**
+     * @return byte allocati in media da un ordinamento (-1 se la misura non è supportata dalla JVM)
+     */
+    public long getAllocatedBytes()
+    {
+        if(!AllocationMeter.isSupported())
+            return -1;
+
+        long total = 0;
+        for(long b : bytes)
+            total += b;
+        return total / bytes.length;
+    }
+
+    /**
+     * @return byte allocati in media da un ordinamento per elemento ordinato (-1 se la misura non è supportata dalla JVM)
+     */
+    public double getAllocatedBytesPerElement()
+    {
+        long allocated = getAllocatedBytes();
+        return allocated < 0 ? -1 : (double) allocated / Math.max(1, input.length);
+    }
+
+    /**
+     * @return numero di garbage collection durante le iterazioni misurate
+     */
+    public long getGcCount()
+    {
+        return Arrays.stream(gc_counts).sum();
+    }
+
+    /**
+     * @return durata delle garbage collection durante le iterazioni misurate, in millisecondi
+     */
+    public long getGcTimeMillis()
+    {
+        return Arrays.stream(gc_millis).sum();
+    }
+
+    /**
+     * @return true se il risultato della prima iterazione era ordinato
+     */
+    public boolean isCorrect()
+    {
+        return correct;
+    }
+
+    /**
+     * Stampa il resoconto nel formato dato.
+     *
+     * @param out destinazione
+     * @param format formato
+     */
+    public void print(PrintStream out, Format format)
+    {
+        switch(format)
+        {
+            case JSON:
+                StringBuilder samples = new StringBuilder();
+                for(long t : times)
+                    samples.append(samples.length() > 0 ? ", " : "").append(t);
+
+                out.println(String.format(Locale.ROOT, "{\"engine\": \"%s\", \"n\": %d, \"cutoff\": %d, \"debug\": %b, \"warmup\": %d, \"iterations\": %d, "
+                        + "\"correct\": %b, \"min_ns\": %d, \"median_ns\": %d, \"p90_ns\": %d, \"p99_ns\": %d, \"max_ns\": %d, "
+                        + "\"throughput_elements_per_s\": %.1f, \"allocated_bytes_per_sort\": %d, \"allocated_bytes_per_element\": %.2f, "
+                        + "\"gc_count\": %d, \"gc_time_ms\": %d, \"samples_ns\": [%s]}",
+                        name, input.length, cutoff, debug, warmup, times.length, correct,
+                        percentile(0), percentile(50), percentile(90), percentile(99), percentile(100),
+                        getThroughput(), getAllocatedBytes(), getAllocatedBytesPerElement(), getGcCount(), getGcTimeMillis(), samples));
+                break;
+
+            case CSV:
+                out.println("engine,n,cutoff,debug,warmup,iterations,correct,min_ns,median_ns,p90_ns,p99_ns,max_ns,throughput_elements_per_s,"
+                        + "allocated_bytes_per_sort,allocated_bytes_per_element,gc_count,gc_time_ms");
+                out.println(String.format(Locale.ROOT, "%s,%d,%d,%b,%d,%d,%b,%d,%d,%d,%d,%d,%.1f,%d,%.2f,%d,%d",
+                        name, input.length, cutoff, debug, warmup, times.length, correct,
+                        percentile(0), percentile(50), percentile(90), percentile(99), percentile(100),
+                        getThroughput(), getAllocatedBytes(), getAllocatedBytesPerElement(), getGcCount(), getGcTimeMillis()));
+                break;
+
+            case TEXT:
+            default:
+                out.println(String.format(Locale.ROOT, "Benchmark %s: n = %d, cutoff = %d, debug = %s, %d iterazioni di riscaldamento e %d misurate",
+                        name, input.length, cutoff, debug ? "si" : "no", warmup, times.length));
+                out.println(correct ? "Risultato: array ordinato correttamente" : "Risultato: array NON ordinato correttamente");
+                out.println("Tempo minimo    : " + Main.formatNanos(percentile(0)));
+                out.println("Tempo mediano   : " + Main.formatNanos(percentile(50)));
+                out.println("90° percentile  : " + Main.formatNanos(percentile(90)));
+                out.println("99° percentile  : " + Main.formatNanos(percentile(99)));
+                out.println("Tempo massimo   : " + Main.formatNanos(percentile(100)));
+                out.println(String.format(Locale.ROOT, "Throughput      : %.0f elementi/s", getThroughput()));
+                long allocated = getAllocatedBytes();
+                out.println("Allocazione     : " + (allocated < 0 ? "non disponibile"
+                        : String.format(Locale.ROOT, "%.2f MB per ordinamento (%.1f byte per elemento)", allocated / 1048576.0, getAllocatedBytesPerElement())));
+                out.println(String.format(Locale.ROOT, "GC              : %d garbage collection (%d ms) in %d iterazioni", getGcCount(), getGcTimeMillis(), times.length));
+                break;
+        }
+    }
+}
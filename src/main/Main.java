@@ -1,35 +1,42 @@
 package main;
 
+import java.awt.GraphicsEnvironment;
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Random;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.jgrapht.graph.DefaultDirectedGraph;
 
-import org.jgrapht.io.ComponentAttributeProvider;
-import org.jgrapht.io.ComponentNameProvider;
-import org.jgrapht.io.DefaultAttribute;
-import org.jgrapht.io.EdgeProvider;
-import org.jgrapht.io.GraphMLExporter;
-import org.jgrapht.io.GraphMLExporter.AttributeCategory;
-import org.jgrapht.io.GraphMLImporter;
-import org.jgrapht.io.IntegerComponentNameProvider;
-import org.jgrapht.io.VertexProvider;
-import org.jgrapht.io.Attribute;
-import org.jgrapht.io.AttributeType;
-
+import gui.DagRenderer;
 import gui.GraphVisualizer;
+import gui.LiveDagView;
+import gui.TimelineView;
+import mergesort.MergeSort;
+import mergesort.MergeSortAuto;
 import mergesort.MergeSortParallel;
 import mergesort.MergeSortSemiParallel;
 import mergesort.MergeSortSequential;
 import mergesort.MergeSortStage;
 import mergesort.NoLabelDefaultEdge;
+import mergesort.analysis.DagDiff;
+import mergesort.engine.Thresholds;
+import mergesort.input.Distribution;
+import mergesort.input.InputGenerator;
+import mergesort.analysis.StageTimings;
+import mergesort.analysis.WorkSpanAnalysis;
+import mergesort.io.BinaryDagReader;
+import mergesort.io.BinaryDagWriter;
+import mergesort.io.ChromeTraceWriter;
+import mergesort.io.GraphMLStreamReader;
+import mergesort.io.GraphMLStreamWriter;
+import mergesort.management.SortEngineMetrics;
+import mergesort.trace.LiveEventQueue;
+import mergesort.tuning.TuningProfile;
+import mergesort.verify.SortVerifier;
 import net.sourceforge.argparse4j.ArgumentParsers;
 import net.sourceforge.argparse4j.impl.Arguments;
 import net.sourceforge.argparse4j.inf.ArgumentParser;
@@ -40,60 +47,40 @@ public class Main
 {
     public enum SortType 
     {
-       S, SP, P
+       S, SP, P, AUTO
+    }
+    
+    public enum DagFormat 
+    {
+       GRAPHML, BINARY
     }
     
     private final static DateTimeFormatter file_time_formatter = DateTimeFormatter.ofPattern("yyyy_MM_dd_HH_mm_ss");
-    private final static DateTimeFormatter export_formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
+    
+    // Capacità della coda degli eventi di '--livedag', e profondità massima degli stage pubblicati
+    private final static int LIVE_QUEUE_CAPACITY = 1 << 16;
+    private final static int LIVE_MAX_DEPTH = 12;
+    
+    // Numero massimo di elementi degli array mantenuti in memoria con '--lazy' (circa 16 MB)
+    private final static long LAZY_CACHE_ELEMENTS = 4L << 20;
     
     private final static String DESCRIPTION_AND_CREDITS = "Analizzatore delle prestazioni del mergesort.\nAutori: Daniele Giudice, Gabriele Cavallaro";
     
     /*
      * Dati da riga di comando:
      * n		-> dimensione array
-     * decr  	-> flag per generare array decrescente di n numeri (se non c'è il flag, genera n numeri casuali)
+     * dist  	-> distribuzione degli n numeri generati (default casuali uniformi), 'decr' è un alias di '--dist reversed'
+     * seed  	-> seme del generatore, per ripetere un'esecuzione con lo stesso input (default casuale)
      * mode  	-> tipo di mergesort di sort da usare (seriale, semiparallelo, parallelo), se non settato errore
-     * cutoff 	-> costante di cutoff da usare, intero >= 1 (defualt 1)
+     * cutoff 	-> costante di cutoff da usare, intero >= 1 (default dal profilo della macchina, o calcolato in base a n)
      * debug 	-> flag che se presente attiva il debug (di default è spento)
      */
     
-    /**
-     * Restituisce un array generato casualmente della lunghezza indicata, non ordinato
-     * Asserisce che n sia maggiore di 0
-     * 
-     * @param n, numero degli elementi
-     * @return array di int non ordinato
-     */
-	public static int[] genRandomIntArray(int n)
-	{
-	    assert n > 0;
-	    
-		return new Random().ints(n, -2147483648, 2147483647).toArray();
-	}
-	
-	/**
-     * Restituisce l'array dei numeri da n a 1 ordinati in modo decrescente.
-     * Asserisce che n sia maggiore di 0.
-     * 
-     * @param n, numero degli elementi
-     * @return array di int ordinato in modo decrescente
-     */
-	public static int[] genInverseRangeArray(int n)
-	{
-	    assert n > 0;
-	    
-	    int[] rtn_array = new int[n];
-	    int i, k = n;
-	    for(i = 0 ; i < n ; i++)
-	    {
-	    	rtn_array[i] = k;
-	    	k--;
-	    }   
-		return rtn_array;
-	}
-	
 	public static void main(String[] args)
 	{
+	    // Le allocazioni di ogni ordinamento sono sempre riportate
+	    SortEngineMetrics.get().setAllocationMeteringEnabled(true);
+	    
 	    try
 	    {
     		// Definisco argparser
@@ -116,17 +103,38 @@ public class Main
 		        .dest("mode")
 		        .type(Arguments.caseInsensitiveEnumType(SortType.class))
 		        .setDefault(SortType.S)
-		        .help("Tipo di algoritmo, fra 's' (seriale), 'sp' (semiparallelo), e 'p' (parallelo) (Default: sequenziale)");
+		        .help("Tipo di algoritmo, fra 's' (seriale), 'sp' (semiparallelo), 'p' (parallelo) e 'auto' (scelto, insieme a cutoff e numero di worker, "
+		        		+ "in base a n, ai processori, all'ordinamento dell'input e al profilo della macchina; ignora '--cutoff') (Default: sequenziale)");
     		parser.addArgument("--decr")
 		        .dest("decr")
 		        .action(Arguments.storeTrue())
 		        .setDefault(false)
-		        .help("Genera gli n elementi in ordine decrescente (Default: casuale)");
+		        .help("Genera gli n elementi in ordine decrescente, come '--dist reversed' (Default: casuale)");
+    		parser.addArgument("--dist")
+		        .dest("dist")
+		        .type(Arguments.caseInsensitiveEnumType(Distribution.class))
+		        .setDefault(Distribution.UNIFORM)
+		        .help("Distribuzione degli n elementi, fra 'uniform', 'sorted', 'reversed', 'nearly_sorted' (1% di coppie scambiate), "
+		        		+ "'few_unique' (" + InputGenerator.DEFAULT_UNIQUE_VALUES + " valori), 'zipf', 'organ_pipe', 'sawtooth' e 'all_equal' (Default: uniform)");
+    		parser.addArgument("--seed")
+		        .dest("seed")
+		        .type(Long.class)
+		        .help("Seme del generatore dell'input: lo stesso seme genera sempre lo stesso input (Default: casuale)");
     		parser.addArgument("--cutoff")
 		        .dest("cutoff")
 		        .type(Integer.class)
-		        .setDefault(1)
-		        .help("Cutoff sequenziale, intero tale che 1<=cutoff<=n (Default: 1)");
+		        .help("Cutoff sequenziale dell'ordinamento, intero tale che 1<=cutoff<=n (Default: cutoff e numero di worker del profilo della macchina "
+		        		+ "generato da bench.AutoTuner, o circa 8 task per worker e almeno " + Thresholds.MIN_SORT_CUTOFF + " elementi se non c'è)");
+    		parser.addArgument("--merge-cutoff")
+		        .dest("merge_cutoff")
+		        .type(Integer.class)
+		        .help("Con '--mode p', dimensione sotto la quale un merge è eseguito sequenzialmente invece che diviso in parallelo, intero >= 1 "
+		        		+ "(Default: dal profilo della macchina, o circa 4 parti per worker e almeno " + Thresholds.MIN_PARALLEL_MERGE + " elementi)");
+    		parser.addArgument("--insertion-cutoff")
+		        .dest("insertion_cutoff")
+		        .type(Integer.class)
+		        .help("Dimensione fino alla quale i sotto-array sotto il cutoff sono ordinati con insertion sort invece che con un mergesort sequenziale, "
+		        		+ "intero >= 1 (Default: dal profilo della macchina, o " + Thresholds.DEFAULT_INSERTION_CUTOFF + ")");
     		parser.addArgument("--debug")
 		        .dest("debug")
 		        .action(Arguments.storeTrue())
@@ -145,12 +153,95 @@ public class Main
                 .help("Salva su file il dag in formato xml al termine della computazione. "
                 		+ "L'opzione è ignorata se non c'e' l'opzione '--debug' o se ci sono le opzioni '--n 1' o '--mode s'.");
     		
+    		parser.addArgument("--dagformat")
+		        .dest("dagformat")
+		        .type(Arguments.caseInsensitiveEnumType(DagFormat.class))
+		        .setDefault(DagFormat.GRAPHML)
+		        .help("Formato del file salvato da '--savedag', fra 'graphml' (xml) e 'binary' (compatto e veloce da caricare) (Default: graphml)");
+    		parser.addArgument("--dagnoarrays")
+                .dest("dagnoarrays")
+                .action(Arguments.storeTrue())
+                .setDefault(false)
+                .help("Non salva gli array dei nodi nel file del DAG (solo per '--dagformat binary')");
+    		parser.addArgument("--savetrace")
+                .dest("savetrace")
+                .action(Arguments.storeTrue())
+                .setDefault(false)
+                .help("Salva su file la timeline di esecuzione in formato Chrome Trace Event (apribile con Perfetto) al termine della computazione. "
+                		+ "L'opzione è ignorata se non c'e' l'opzione '--debug' o se ci sono le opzioni '--n 1' o '--mode s'.");
+    		
+    		parser.addArgument("--renderdag")
+                .dest("renderdag")
+                .type(String.class)
+                .setDefault("")
+                .help("Disegna il DAG nel file indicato, in formato PNG se il nome termina con '.png' altrimenti SVG, senza bisogno di un display. "
+                		+ "Con '--opendag' disegna il DAG aperto invece di mostrarlo nella GUI, altrimenti quello della computazione "
+                		+ "(ignorata se non c'e' l'opzione '--debug' o se ci sono le opzioni '--n 1' o '--mode s').");
+    		parser.addArgument("--rendercolor")
+                .dest("rendercolor")
+                .type(Arguments.caseInsensitiveEnumType(DagRenderer.ColorMode.class))
+                .setDefault(DagRenderer.ColorMode.DURATION)
+                .help("Colorazione degli stage in '--renderdag', fra 'duration' e 'worker' (Default: duration)");
+    		
+    		parser.addArgument("--livedag")
+                .dest("livedag")
+                .action(Arguments.storeTrue())
+                .setDefault(false)
+                .help("Mostra l'esecuzione mentre è in corso (non disponibile con '--mode s'). "
+                		+ "Se la finestra non riesce a stare al passo, gli eventi in eccesso sono scartati senza rallentare l'ordinamento.");
+    		
+    		parser.addArgument("--timeline")
+                .dest("timeline")
+                .action(Arguments.storeTrue())
+                .setDefault(false)
+                .help("Mostra il diagramma temporale dell'esecuzione, con una riga per ogni worker. "
+                		+ "Si aggiorna durante l'esecuzione con '--livedag', altrimenti è mostrato al termine della computazione "
+                		+ "(ignorata se non c'e' l'opzione '--debug' o se ci sono le opzioni '--n 1' o '--mode s') "
+                		+ "o per il DAG aperto con '--opendag'.");
+    		
     		// Argomenti per la visualizzazione del DAG
     		parser.addArgument("--opendag")
                 .dest("opendag")
                 .type(String.class)
                 .setDefault("")
-                .help("Apre un DAG da un file indicato e lo mostra nella GUI (le altre opzioni saranno ignorate)");
+                .help("Apre un DAG da un file indicato (in formato graphml o binario) e lo mostra nella GUI (le altre opzioni saranno ignorate)");
+    		parser.addArgument("--diffdag")
+                .dest("diffdag")
+                .type(String.class)
+                .nargs(2)
+                .metavar("PRIMA", "DOPO")
+                .help("Confronta i DAG salvati in due file (es. con cutoff o numero di worker diversi), allineando i nodi in base alla loro "
+                		+ "posizione nell'albero delle divisioni: stampa le differenze per livello e per nodo e lo spostamento del cammino critico, "
+                		+ "e mostra il secondo DAG colorato in base alle differenze (le altre opzioni saranno ignorate)");
+    		parser.addArgument("--lazy")
+                .dest("lazy")
+                .action(Arguments.storeTrue())
+                .setDefault(false)
+                .help("Con '--opendag' carica subito solo la struttura del DAG, e legge gli array dei nodi solo quando vengono mostrati (solo per i file binari)");
+    		
+    		// Argomenti per la misura statistica
+    		parser.addArgument("--bench")
+                .dest("bench")
+                .action(Arguments.storeTrue())
+                .setDefault(false)
+                .help("Misura l'ordinamento ripetendolo su copie nuove dello stesso input, dopo alcune iterazioni di riscaldamento, "
+                		+ "e stampa minimo, mediana, 90° e 99° percentile e massimo dei tempi, il throughput e i byte allocati per ordinamento "
+                		+ "(le opzioni di visualizzazione e salvataggio del DAG saranno ignorate)");
+    		parser.addArgument("--warmup")
+                .dest("warmup")
+                .type(Integer.class)
+                .setDefault(5)
+                .help("Con '--bench', numero di iterazioni di riscaldamento, tale che warmup>=0 (Default: 5)");
+    		parser.addArgument("--iterations")
+                .dest("iterations")
+                .type(Integer.class)
+                .setDefault(20)
+                .help("Con '--bench', numero di iterazioni misurate, tale che iterations>=1 (Default: 20)");
+    		parser.addArgument("--format")
+                .dest("format")
+                .type(Arguments.caseInsensitiveEnumType(BenchmarkRun.Format.class))
+                .setDefault(BenchmarkRun.Format.TEXT)
+                .help("Con '--bench', formato del resoconto, fra 'text', 'json' e 'csv' (Default: text)");
             
             try
             {
@@ -171,12 +262,23 @@ public class Main
                 	throw new ArgumentParserException("Deve essere: n>=1", parser) ;
                 
                 // Parsing: Cutoff sequenziale
-                int cutoff = args_parsed.getInt("cutoff").intValue();
+                Integer cutoff_arg = args_parsed.getInt("cutoff");
+                boolean tuned = cutoff_arg == null;
+                int cutoff = tuned ? 1 : cutoff_arg.intValue();
                 if (cutoff < 1 || cutoff > n)
                 	throw new ArgumentParserException("Deve essere: 1<=cutoff<=n", parser) ;
                 
-                // Parsing: Ordinare o no in modo decrescente
+                // Parsing: Cutoff del merge parallelo e dell'insertion sort
+                Integer merge_cutoff_arg = args_parsed.getInt("merge_cutoff");
+                Integer insertion_cutoff_arg = args_parsed.getInt("insertion_cutoff");
+                if ((merge_cutoff_arg != null && merge_cutoff_arg < 1) || (insertion_cutoff_arg != null && insertion_cutoff_arg < 1))
+                	throw new ArgumentParserException("Deve essere: merge-cutoff>=1 e insertion-cutoff>=1", parser) ;
+                
+                // Parsing: Distribuzione dell'input ('--decr' equivale a '--dist reversed') e seme del generatore
                 boolean decr = args_parsed.getBoolean("decr").booleanValue();
+                Distribution dist = decr ? Distribution.REVERSED : (Distribution) args_parsed.get("dist");
+                Long seed_arg = args_parsed.getLong("seed");
+                long seed = seed_arg != null ? seed_arg.longValue() : System.nanoTime();
                 
                 // Parsing: Attivare o no il debug
                 boolean debug = args_parsed.getBoolean("debug").booleanValue();
@@ -190,87 +292,223 @@ public class Main
                 // Parsing: Salvare o no il grafo alla fine
                 boolean savedag = args_parsed.getBoolean("savedag").booleanValue();
                 
+                // Parsing: Formato del file del DAG
+                DagFormat dagformat = (DagFormat) args_parsed.get("dagformat");
+                boolean dagnoarrays = args_parsed.getBoolean("dagnoarrays").booleanValue();
+                
+                // Parsing: Salvare o no la timeline alla fine
+                boolean savetrace = args_parsed.getBoolean("savetrace").booleanValue();
+                
+                // Parsing: Mostrare o no l'esecuzione mentre è in corso
+                boolean livedag = args_parsed.getBoolean("livedag").booleanValue();
+                
+                // Parsing: Mostrare o no il diagramma temporale (dal vivo con '--livedag')
+                boolean timeline = args_parsed.getBoolean("timeline").booleanValue();
+                boolean live_timeline = timeline && livedag;
+                if(live_timeline)
+                	timeline = false;
+                
+                // Parsing: Disegnare o no il grafo su file alla fine
+                String renderdag = args_parsed.getString("renderdag");
+                DagRenderer.ColorMode rendercolor = (DagRenderer.ColorMode) args_parsed.get("rendercolor");
+                
                 // Parsing: Path file di DAG da aprire
                 String opendag = args_parsed.getString("opendag");
+                boolean lazy = args_parsed.getBoolean("lazy").booleanValue();
+                
+                // Parsing: Path file dei DAG da confrontare
+                List<String> diffdag = args_parsed.getList("diffdag");
+                
+                // Parsing: Misura statistica
+                boolean bench = args_parsed.getBoolean("bench").booleanValue();
+                int warmup = args_parsed.getInt("warmup").intValue();
+                int iterations = args_parsed.getInt("iterations").intValue();
+                BenchmarkRun.Format format = (BenchmarkRun.Format) args_parsed.get("format");
+                if (warmup < 0 || iterations < 1)
+                	throw new ArgumentParserException("Deve essere: warmup>=0 e iterations>=1", parser) ;
+                if(bench)
+                	livedag = false;
+                
+                // Genero array
+                int[] input_array = InputGenerator.generate(dist, n, seed);
+                
+                // Con '--mode auto' l'algoritmo è scelto in base all'input
+                MergeSortAuto.Choice auto_choice = null;
+                if(mode.equals(SortType.AUTO))
+                {
+                	auto_choice = MergeSortAuto.choose(input_array);
+                	cutoff = auto_choice.getCutoff();
+                }
+                boolean sequential = mode.equals(SortType.S) || (auto_choice != null && auto_choice.getEngine().equals("S"));
                 
                 /*
                  * Disattiva la creazione del DAG se vi è una di queste condizioni:
                  * - il debug è spento
-                 * - la modalità è sequenziale
+                 * - la modalità è sequenziale (o è stato scelto l'algoritmo sequenziale)
                  * - l'array è di un solo elemento
                  */
-                if(!debug || mode.equals(SortType.S) || n==1)
+                if(!debug || sequential || n==1)
                 {
                 	viewdag = false;
                 	savedag = false;
+                	savetrace = false;
+                	if(opendag.equals(""))
+                	{
+                		renderdag = "";
+                		timeline = false;
+                	}
                 }
                 
-                // Genero array
-                int[] input_array;
-                if (decr)
-                	input_array = genInverseRangeArray(n);
-                else
-                	input_array = genRandomIntArray(n);
-                
                 // Uso parametri
                 
+                if(diffdag != null)
+                {
+                    DagDiff diff = new DagDiff(loadDag(new File(diffdag.get(0)), lazy), loadDag(new File(diffdag.get(1)), lazy));
+                    System.out.print(diff);
+                    if(!GraphicsEnvironment.isHeadless())
+                    	new GraphVisualizer(diff);
+                    return;
+                }
+                
                 if(!opendag.equals(""))
                 {
-                    File file_to_read = new File(opendag);
-                    DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag = 
-                    		new DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge>(NoLabelDefaultEdge.class);
-                    createImporter().importGraph(dag, file_to_read);
-                    new GraphVisualizer(dag);
+                    DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag = loadDag(new File(opendag), lazy);
+                    if(!renderdag.equals(""))
+                    	renderDag(dag, renderdag, rendercolor);
+                    else
+                    	showDag(dag, timeline);
                     return;
                 }
                 
                 // Lancio la computazione (segnando il tempo di inizio e fine)
-                System.out.println("Esecuzione in corso...");
+                if(!bench)
+                {
+                	if(auto_choice != null)
+                		System.out.println("Algoritmo scelto: " + auto_choice);
+                	System.out.println("Esecuzione in corso...");
+                }
                 
-                MergeSortStage result = null;
-                LocalDateTime start_time = LocalDateTime.now();
+                // Apro la finestra dal vivo prima di iniziare (l'algoritmo sequenziale non pubblica eventi)
+                LiveEventQueue live_queue = null;
+                if(livedag)
+                {
+                	if(sequential)
+                		System.err.println("La visualizzazione dal vivo non è disponibile con l'algoritmo sequenziale.");
+                	else
+                	{
+                		live_queue = new LiveEventQueue(LIVE_QUEUE_CAPACITY);
+                		LiveDagView live_view = new LiveDagView(live_queue);
+                		if(live_timeline)
+                			new TimelineView(live_view);
+                	}
+                }
+                
+                // Le soglie non indicate sono prese dal profilo della macchina, o calcolate in base a n
+                TuningProfile.Band settings = TuningProfile.settings(mode.name(), n);
+                if(tuned && !sequential && auto_choice == null)
+                	cutoff = settings.getCutoff();
+                int merge_cutoff = merge_cutoff_arg != null ? merge_cutoff_arg.intValue() : settings.getMergeCutoff();
+                int insertion_cutoff = insertion_cutoff_arg != null ? insertion_cutoff_arg.intValue() : settings.getInsertionCutoff();
+                int parallelism = tuned ? settings.getParallelism() : Runtime.getRuntime().availableProcessors();
+                
+                MergeSort sorter = null;
                 switch(mode)
                 {
                 	case S:
-                		result = new MergeSortSequential().sort(input_array, debug);
+                		sorter = new MergeSortSequential();
                 		break;
                 	case SP:
-                		result = new MergeSortSemiParallel(cutoff).sort(input_array, debug);
+                		MergeSortSemiParallel semi_parallel = new MergeSortSemiParallel(cutoff, insertion_cutoff, parallelism);
+                		semi_parallel.setLiveQueue(live_queue, LIVE_MAX_DEPTH);
+                		sorter = semi_parallel;
                 		break;
                 	case P:
-                		result = new MergeSortParallel(cutoff).sort(input_array, debug);
+                		MergeSortParallel parallel = new MergeSortParallel(cutoff, merge_cutoff, insertion_cutoff, parallelism);
+                		parallel.setLiveQueue(live_queue, LIVE_MAX_DEPTH);
+                		sorter = parallel;
+                		break;
+                	case AUTO:
+                		MergeSortAuto auto = new MergeSortAuto();
+                		auto.setLiveQueue(live_queue, LIVE_MAX_DEPTH);
+                		sorter = auto;
                 		break;
                 }
-                LocalDateTime end_time = LocalDateTime.now();
                 
-                // Stampo l'eesito del controllo
-                if(checkArray(result.getResult()))
-                	System.out.println("Operazione completata (array ordinato correttamente)!");
-                else
-                	System.out.println("Operazione completata (array non ordinato correttamente)!");
+                if(bench)
+                {
+                	BenchmarkRun run = new BenchmarkRun(mode.name(), input_array, cutoff, debug, warmup, iterations).run(sorter);
+                	run.print(System.out, format);
+                	if(!run.isCorrect())
+                		System.exit(1);
+                	return;
+                }
+                
+                // Impronta dell'input, calcolata prima dell'ordinamento (che può modificare l'array)
+                SortVerifier.Fingerprint input_fingerprint = SortVerifier.fingerprint(input_array);
+                
+                // Pulizia forzata prima dell'ordinamento (fuori dal tempo misurato), uguale per tutti gli algoritmi
+                System.gc();
+                
+                long start_time = System.nanoTime();
+                MergeSortStage result = sorter.sort(input_array, debug);
+                long end_time = System.nanoTime();
                 
-                // Stampo il numero di fork effettuate (se non sono in sequenziale)
-                if(debug && !mode.equals(SortType.S))
-                	System.out.println("Numero di fork: " + MergeSortStage.getTotalForks());
+                // Stampo l'esito del controllo
+                SortVerifier.Result verification = SortVerifier.verify(input_fingerprint, result.getResult());
+                System.out.println("Operazione completata (" + verification + ")!");
+                
+                // Stampo i contatori delle operazioni effettuate
+                System.out.println(sorter.getStatistics());
                 
                 // Stampo il tempo impiegato
-                System.out.println("Tempo impiegato: " + subtractTime(start_time, end_time));
+                System.out.println("Tempo impiegato: " + formatNanos(end_time - start_time));
+                
+                // Stampo la memoria allocata e le garbage collection durante l'ordinamento
+                System.out.println("Memoria: " + SortEngineMetrics.get().getLastSortUsage().toString(n));
+                
+                // Stampo i tempi degli stage (se non sono in sequenziale)
+                if(debug && !sequential)
+                {
+                	System.out.print(new StageTimings(MergeSortStage.getDAG().vertexSet()));
+                	System.out.print(new WorkSpanAnalysis(MergeSortStage.getDAG()));
+                }
                 
                 if(savedag)
                 {
-                    File file_to_save = 
-                    		new File(Paths.get(".").toAbsolutePath().normalize().toString()+"\\Dag_"+file_time_formatter.format(LocalDateTime.now())+".xml");
-                    createExporter().exportGraph(MergeSortStage.getDAG(), file_to_save);
+                    String file_name = "Dag_"+file_time_formatter.format(LocalDateTime.now());
+                    File file_to_save;
+                    if(dagformat == DagFormat.BINARY)
+                    {
+                        file_to_save = new File(Paths.get(".").toAbsolutePath().normalize().toFile(), file_name+".msdag");
+                        BinaryDagWriter.write(MergeSortStage.getDAG(), file_to_save, !dagnoarrays);
+                    }
+                    else
+                    {
+                        file_to_save = new File(Paths.get(".").toAbsolutePath().normalize().toFile(), file_name+".xml");
+                        GraphMLStreamWriter.write(MergeSortStage.getDAG(), file_to_save);
+                    }
                     System.out.println("Il Dag è stato salvato nel seguente file: " + file_to_save.getAbsoluteFile());
                 }
                 
+                if(savetrace)
+                {
+                    File file_to_save = new File(Paths.get(".").toAbsolutePath().normalize().toFile(), "Trace_"+file_time_formatter.format(LocalDateTime.now())+".json");
+                    new ChromeTraceWriter(MergeSortStage.getDAG()).write(file_to_save);
+                    System.out.println("La timeline è stata salvata nel seguente file: " + file_to_save.getAbsoluteFile());
+                }
+                
+                if(!renderdag.equals(""))
+                	renderDag(MergeSortStage.getDAG(), renderdag, rendercolor);
+                
                 if(viewdag)
                 {
                     if(debug)
-                        new GraphVisualizer(MergeSortStage.getDAG());
+                        showDag(MergeSortStage.getDAG(), timeline);
                     else
                         System.err.print("Non posso mostrare il DAG di esecuzione se l'algoritmo non viene eseguito in debug mode!");
-                }   
+                }
+                else if(timeline)
+                	new TimelineView(MergeSortStage.getDAG());
             }
             catch (ArgumentParserException e)
             {
@@ -288,136 +526,83 @@ public class Main
             ae.printStackTrace();
 	    }
 	}
-	
-	/**
-	 * Crea un oggeto per esportare i grafi
-	 * @return
-	 */
-    public static GraphMLExporter<MergeSortStage, NoLabelDefaultEdge> createExporter()
-    {
-        //identificatore univoco per i nodi
-        ComponentNameProvider<MergeSortStage> vertexIdProvider = v -> String.valueOf(v.hashCode());
-    
-        ComponentNameProvider<MergeSortStage> vertexLabelProvider = null;
-     
-        //attributi da salvare durante l'esportazione 1/2
-        ComponentAttributeProvider<MergeSortStage> vertexAttributeProvider = v -> 
-        {
-            Map<String, Attribute> m = new HashMap<>();
-            m.put("id", DefaultAttribute.createAttribute(v.getTaskID()));
-            m.put("stage_type", DefaultAttribute.createAttribute(v.getStageType().toString()));
-            m.put("array", DefaultAttribute.createAttribute(Arrays.toString(v.getResult())));
-            m.put("at_time", DefaultAttribute.createAttribute(export_formatter.format(v.getTime())));
-            m.put("n_forks", DefaultAttribute.createAttribute(v.getSubForks()));
-            return m;
-        };  
-    
-        ComponentNameProvider<NoLabelDefaultEdge> edgeIdProvider = new IntegerComponentNameProvider<>();
-    
-        ComponentNameProvider<NoLabelDefaultEdge> edgeLabelProvider = null;
-    
-        // attributi dei nodi
-        ComponentAttributeProvider<NoLabelDefaultEdge> edgeAttributeProvider = e -> {
-            Map<String, Attribute> m = new HashMap<>();
-            return m;
-        };
-    
-        GraphMLExporter<MergeSortStage, NoLabelDefaultEdge> exporter = new GraphMLExporter<>
-        (
-            vertexIdProvider, 
-            vertexLabelProvider, 
-            vertexAttributeProvider, 
-            edgeIdProvider,
-            edgeLabelProvider, 
-            edgeAttributeProvider
-        );
-    
-        //attributi da salvare durante l'esportazione 2/2
-        exporter.registerAttribute("id", AttributeCategory.NODE, AttributeType.INT);
-        exporter.registerAttribute("stage_type", AttributeCategory.NODE, AttributeType.STRING);
-        exporter.registerAttribute("array", AttributeCategory.NODE, AttributeType.STRING);
-        exporter.registerAttribute("at_time", AttributeCategory.NODE, AttributeType.STRING);
-        exporter.registerAttribute("n_forks", AttributeCategory.NODE, AttributeType.INT);
-    
-        return exporter;
-    } 
-    
+
     /**
-     * Crea un oggeto per importare  i grafi
-     * @return
+     * Carica un DAG da un file in formato graphml o binario.
+     * 
+     * @param file_to_read file da leggere
+     * @param lazy true per leggere gli array dei nodi solo quando servono (solo per i file binari)
+     * @return il DAG letto
+     * @throws IOException in caso di errore di lettura o di file non valido
      */
-    public static GraphMLImporter<MergeSortStage, NoLabelDefaultEdge> createImporter()
+    private static DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> loadDag(File file_to_read, boolean lazy) throws IOException
     {
-        //impostazioni con cui ricreare i nodi
-        VertexProvider<MergeSortStage> vertexProvider = (id, attributes) -> {
-            MergeSortStage v = new MergeSortStage
-            (
-             Integer.valueOf(attributes.get("id").toString()),
-             attributes.get("stage_type").toString(),
-             Arrays.stream(attributes.get("array").toString().substring(1, attributes.get("array").toString().length()-1).split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray(),
-             LocalDateTime.parse(attributes.get("at_time").toString(), export_formatter),
-             Integer.valueOf(attributes.get("n_forks").toString())
-            );
-            return v;
-        };
-
-        //impostazioni con cui ricreare gli archi
-        EdgeProvider<MergeSortStage, NoLabelDefaultEdge> edgeProvider = (from, to, label, attributes) -> new NoLabelDefaultEdge();
+        DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag = 
+        		new DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge>(NoLabelDefaultEdge.class);
+        if(BinaryDagReader.isBinaryDag(file_to_read))
+        {
+        	if(lazy)
+        		new BinaryDagReader(file_to_read).readLazy(dag, LAZY_CACHE_ELEMENTS);
+        	else
+        		new BinaryDagReader(file_to_read).read(dag);
+        }
+        else
+        {
+        	if(lazy)
+        		System.err.println("Il caricamento pigro è disponibile solo per i file binari (vedi '--dagformat binary'), il DAG verrà caricato per intero.");
 
-        /*
-         * Create the graph importer with a vertex and an edge provider.
-         */
-        GraphMLImporter<MergeSortStage, NoLabelDefaultEdge> importer =
-            new GraphMLImporter<>(vertexProvider, edgeProvider);
+        	try(GraphMLStreamReader reader = new GraphMLStreamReader(file_to_read))
+        	{
+        		reader.read(dag);
+        	}
+        }
+        return dag;
+    }
 
-        return importer;
+    /**
+     * Mostra il DAG nella GUI e, se richiesto, il suo diagramma temporale:
+     * un clic su una barra del diagramma mostra il nodo corrispondente nel DAG.
+     *
+     * @param dag il DAG da mostrare
+     * @param timeline true per mostrare anche il diagramma temporale
+     */
+    private static void showDag(DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag, boolean timeline)
+    {
+    	GraphVisualizer visualizer = new GraphVisualizer(dag);
+    	if(timeline)
+    		new TimelineView(dag).setNodeListener(node -> visualizer.showStage((MergeSortStage) node));
     }
-    
+
     /**
-     * Controlla se l'array di interi passato è ordinato in modo crescente.
+     * Disegna il DAG nel file dato (il percorso è relativo alla cartella corrente).
      * 
-     * @param array array da verificare
-     * @return true se l'array è ordinato in modo crescente, false altrimenti
+     * @param dag il DAG da disegnare
+     * @param file_name nome del file (PNG se termina con '.png', altrimenti SVG)
+     * @param color_mode criterio di colorazione degli stage
+     * @throws IOException in caso di errore di scrittura
      */
-    public static boolean checkArray(int[] array)
+    private static void renderDag(DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag, String file_name, DagRenderer.ColorMode color_mode) throws IOException
     {
-    	if(array.length<2)
-    		return true;
-    	
-    	for (int i = 1; i < array.length; i++)
-    	{
-    		if (array[i-1] > array[i])
-    			return false;
-    	}
-    	
-    	return true;
+        File file_to_save = Paths.get(".").toAbsolutePath().normalize().resolve(file_name).toFile();
+        DagRenderer.render(dag, file_to_save, color_mode);
+        System.out.println("Il Dag è stato disegnato nel seguente file: " + file_to_save.getAbsoluteFile());
     }
     
     /**
-     * Ritorna sotto forma di stringa la differenza di tempo fra due {@link LocalDateTime}, nel seguente formato
-     * HH:mm:ss.SSS
+     * Ritorna sotto forma di stringa una durata espressa in nanosecondi, nel seguente formato
+     * HH:mm:ss.SSSSSS
      * 
-     * @param start_time, tempo di inizio
-     * @param end_time, tempo di fine
+     * @param nanos, durata in nanosecondi
      * @return
      */
-    public static String subtractTime(LocalDateTime start_time, LocalDateTime end_time)
+    public static String formatNanos(long nanos)
     {
-        LocalDateTime fromTemp = LocalDateTime.from(start_time);
-
-        long hours = fromTemp.until(end_time, ChronoUnit.HOURS);
-        fromTemp = fromTemp.plusHours(hours);
-
-        long minutes = fromTemp.until(end_time, ChronoUnit.MINUTES);
-        fromTemp = fromTemp.plusMinutes(minutes);
-
-        long seconds = fromTemp.until(end_time, ChronoUnit.SECONDS);
-        fromTemp = fromTemp.plusSeconds(seconds);
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
         
-        long millis = fromTemp.until(end_time, ChronoUnit.MILLIS);
+        long hours = TimeUnit.MICROSECONDS.toHours(micros);
+        long minutes = TimeUnit.MICROSECONDS.toMinutes(micros) % 60;
+        long seconds = TimeUnit.MICROSECONDS.toSeconds(micros) % 60;
         
-        return String.format("%02d", hours)+":"+String.format("%02d",minutes)+":"+String.format("%02d",seconds)+"."+String.format("%03d",millis);
+        return String.format("%02d:%02d:%02d.%06d", hours, minutes, seconds, micros % 1000000);
     }
 }
-
-
@@ -0,0 +1,400 @@
+package main;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Tempi di riferimento dei test di {@link Tester}, e confronto statistico di un'esecuzione nuova con essi.
+ *
+ * Per ogni test sono salvati tutti i tempi misurati (uno per tentativo), non solo la media: il confronto usa il test
+ * di Mann-Whitney unilaterale fra i tempi nuovi e quelli di riferimento moltiplicati per (1 + tolleranza).
+ * Un test è segnalato come regressione se i tempi nuovi sono significativamente maggiori (p < alpha),
+ * cioè se il rallentamento supera la tolleranza in modo non spiegabile con la variabilità delle misure.
+ * Il test non assume una distribuzione dei tempi, che di solito è asimmetrica (code lunghe per GC e JIT).
+ *
+ * Il file è in formato properties, con le chiavi 'cores', 'java.version' e per ogni test 'case.N.description'
+ * e 'case.N.samples' (tempi in nanosecondi separati da virgole).
+ */
+public class RegressionBaseline
+{
+    // Dimensione massima dei due campioni per cui è calcolata la distribuzione esatta di U (oltre è usata l'approssimazione normale)
+    private static final int EXACT_MAX_SAMPLES = 30;
+
+    /**
+     * Tempi misurati di un test.
+     */
+    public static class Case
+    {
+        private final int id;
+        private final String description;
+        private final long[] samples;
+
+        public Case(int id, String description, long[] samples)
+        {
+            this.id = id;
+            this.description = description;
+            this.samples = samples.clone();
+        }
+
+        public int getId()
+        {
+            return id;
+        }
+
+        public String getDescription()
+        {
+            return description;
+        }
+
+        public long[] getSamples()
+        {
+            return samples.clone();
+        }
+
+        /**
+         * @return mediana dei tempi in nanosecondi
+         */
+        public double median()
+        {
+            long[] sorted = samples.clone();
+            Arrays.sort(sorted);
+            int m = sorted.length / 2;
+            return sorted.length % 2 == 1 ? sorted[m] : (sorted[m - 1] + sorted[m]) / 2.0;
+        }
+    }
+
+    /**
+     * Esito del confronto di un test.
+     */
+    public enum Verdict
+    {
+        /** Nessun rallentamento significativo oltre la tolleranza */
+        OK,
+        /** Rallentamento significativo oltre la tolleranza */
+        REGRESSION,
+        /** Non confrontato: test troppo breve per essere misurato in modo affidabile */
+        TOO_SHORT,
+        /** Non confrontato: test assente nel riferimento o con una descrizione diversa */
+        MISSING
+    }
+
+    /**
+     * Confronto dei tempi di un test con quelli di riferimento.
+     */
+    public static class Comparison
+    {
+        private final Case current;
+        private final Case baseline;
+        private final double p_value;
+        private final Verdict verdict;
+
+        private Comparison(Case current, Case baseline, double p_value, Verdict verdict)
+        {
+            this.current = current;
+            this.baseline = baseline;
+            this.p_value = p_value;
+            this.verdict = verdict;
+        }
+
+        public Case getCurrent()
+        {
+            return current;
+        }
+
+        /**
+         * @return tempi di riferimento (null se il test non è nel riferimento)
+         */
+        public Case getBaseline()
+        {
+            return baseline;
+        }
+
+        /**
+         * @return rapporto fra la mediana dei tempi nuovi e quella dei tempi di riferimento (NaN senza riferimento)
+         */
+        public double getRatio()
+        {
+            return baseline != null ? current.median() / baseline.median() : Double.NaN;
+        }
+
+        /**
+         * @return p-value del test di Mann-Whitney (NaN se il test non è stato confrontato)
+         */
+        public double getPValue()
+        {
+            return p_value;
+        }
+
+        public Verdict getVerdict()
+        {
+            return verdict;
+        }
+    }
+
+    private final int cores;
+    private final String java_version;
+    private final Map<Integer, Case> cases = new TreeMap<>();
+
+    /**
+     * Crea un insieme di tempi vuoto per la macchina corrente.
+     */
+    public RegressionBaseline()
+    {
+        this(Runtime.getRuntime().availableProcessors(), System.getProperty("java.version"));
+    }
+
+    private RegressionBaseline(int cores, String java_version)
+    {
+        this.cores = cores;
+        this.java_version = java_version;
+    }
+
+    /**
+     * Aggiunge i tempi di un test (sostituendo quelli presenti con lo stesso numero).
+     *
+     * @param test_case tempi del test
+     */
+    public void put(Case test_case)
+    {
+        cases.put(test_case.getId(), test_case);
+    }
+
+    public Collection<Case> getCases()
+    {
+        return cases.values();
+    }
+
+    public int getCores()
+    {
+        return cores;
+    }
+
+    public String getJavaVersion()
+    {
+        return java_version;
+    }
+
+    // FILE
+
+    /**
+     * Legge i tempi di riferimento dal file dato.
+     *
+     * @param path file dei tempi
+     * @return {@link RegressionBaseline}
+     * @throws IOException se il file non può essere letto o non è valido
+     */
+    public static RegressionBaseline load(Path path) throws IOException
+    {
+        Properties props = new Properties();
+        try(Reader in = Files.newBufferedReader(path, StandardCharsets.UTF_8))
+        {
+            props.load(in);
+        }
+
+        try
+        {
+            RegressionBaseline baseline = new RegressionBaseline(Integer.parseInt(props.getProperty("cores", "0")), props.getProperty("java.version", ""));
+            for(String key : props.stringPropertyNames())
+            {
+                if(!key.startsWith("case.") || !key.endsWith(".samples"))
+                    continue;
+
+                int id = Integer.parseInt(key.substring("case.".length(), key.length() - ".samples".length()));
+                long[] samples = Arrays.stream(props.getProperty(key).split(",")).map(String::trim).mapToLong(Long::parseLong).toArray();
+                baseline.put(new Case(id, props.getProperty("case." + id + ".description", ""), samples));
+            }
+            return baseline;
+        }
+        catch(NumberFormatException e)
+        {
+            throw new IOException("File dei tempi di riferimento non valido: " + path, e);
+        }
+    }
+
+    /**
+     * Salva i tempi nel file dato, creando le cartelle se necessario.
+     *
+     * @param path file dei tempi
+     * @throws IOException se il file non può essere scritto
+     */
+    public void save(Path path) throws IOException
+    {
+        Properties props = new Properties();
+        props.setProperty("cores", String.valueOf(cores));
+        props.setProperty("java.version", java_version);
+        for(Case c : cases.values())
+        {
+            props.setProperty("case." + c.getId() + ".description", c.getDescription());
+            StringBuilder samples = new StringBuilder();
+            for(long sample : c.samples)
+                samples.append(samples.length() > 0 ? "," : "").append(sample);
+            props.setProperty("case." + c.getId() + ".samples", samples.toString());
+        }
+
+        if(path.toAbsolutePath().getParent() != null)
+            Files.createDirectories(path.toAbsolutePath().getParent());
+        try(Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8))
+        {
+            props.store(out, "Tempi di riferimento generati da main.Tester");
+        }
+    }
+
+    // CONFRONTO
+
+    /**
+     * Confronta i tempi dati con quelli di riferimento.
+     *
+     * @param current tempi dell'esecuzione nuova
+     * @param tolerance rallentamento tollerato (es. 0.1 per il 10%)
+     * @param alpha livello di significatività del test
+     * @param min_nanos mediana minima dei tempi di riferimento per confrontare un test (i test più brevi sono dominati dal rumore)
+     * @return un confronto per ogni test di current
+     */
+    public List<Comparison> compare(RegressionBaseline current, double tolerance, double alpha, long min_nanos)
+    {
+        List<Comparison> comparisons = new ArrayList<>();
+        for(Case c : current.getCases())
+        {
+            Case base = cases.get(c.getId());
+            if(base == null || !base.getDescription().equals(c.getDescription()))
+            {
+                comparisons.add(new Comparison(c, null, Double.NaN, Verdict.MISSING));
+                continue;
+            }
+            if(base.median() < min_nanos)
+            {
+                comparisons.add(new Comparison(c, base, Double.NaN, Verdict.TOO_SHORT));
+                continue;
+            }
+
+            double p = mannWhitneyGreater(c.samples, base.samples, 1 + tolerance);
+            comparisons.add(new Comparison(c, base, p, p < alpha ? Verdict.REGRESSION : Verdict.OK));
+        }
+        return comparisons;
+    }
+
+    /**
+     * Stampa il confronto in una tabella.
+     *
+     * @param out stream di destinazione
+     * @param comparisons confronti da stampare
+     */
+    public static void print(PrintStream out, List<Comparison> comparisons)
+    {
+        out.printf(Locale.ROOT, "%4s  %14s  %14s  %7s  %9s  %s%n", "test", "rif. (ms)", "ora (ms)", "ratio", "p", "esito");
+        for(Comparison c : comparisons)
+        {
+            String base = c.getBaseline() != null ? String.format(Locale.ROOT, "%14.3f", c.getBaseline().median() / 1e6) : String.format("%14s", "-");
+            String p = Double.isNaN(c.getPValue()) ? String.format("%9s", "-") : String.format(Locale.ROOT, "%9.2g", c.getPValue());
+            String ratio = Double.isNaN(c.getRatio()) ? String.format("%7s", "-") : String.format(Locale.ROOT, "%7.2f", c.getRatio());
+            out.printf(Locale.ROOT, "%4d  %s  %14.3f  %s  %s  %s%n", c.getCurrent().getId(), base, c.getCurrent().median() / 1e6, ratio, p, c.getVerdict());
+        }
+    }
+
+    /**
+     * Test di Mann-Whitney unilaterale: p-value dell'ipotesi che i valori di x siano maggiori dei valori di y moltiplicati per scale.
+     *
+     * La statistica U conta le coppie (x_i, y_j * scale) con x_i maggiore (le parità contano 1/2). Il p-value è la probabilità
+     * di un U almeno così grande se i due campioni avessero la stessa distribuzione: è calcolato esattamente per campioni
+     * di al più {@value #EXACT_MAX_SAMPLES} elementi, e con l'approssimazione normale (con correzione di continuità) oltre.
+     *
+     * @param x campione nuovo
+     * @param y campione di riferimento
+     * @param scale fattore applicato a y
+     * @return p-value fra 0 e 1
+     */
+    static double mannWhitneyGreater(long[] x, long[] y, double scale)
+    {
+        int m = x.length, n = y.length;
+        if(m == 0 || n == 0)
+            return 1;
+
+        // 2U, intero anche con le parità
+        long twice_u = 0;
+        for(long xi : x)
+        {
+            for(long yj : y)
+            {
+                double ys = yj * scale;
+                if(xi > ys)
+                    twice_u += 2;
+                else if(xi == ys)
+                    twice_u += 1;
+            }
+        }
+
+        if(m <= EXACT_MAX_SAMPLES && n <= EXACT_MAX_SAMPLES)
+        {
+            // Le parità sono arrotondate per difetto: il p-value è conservativo
+            int u = (int) (twice_u / 2);
+            double[] distribution = exactDistribution(m, n);
+            double p = 0;
+            for(int k = u; k < distribution.length; k++)
+                p += distribution[k];
+            return Math.min(1, p);
+        }
+
+        double mean = m * (double) n / 2;
+        double sd = Math.sqrt(m * (double) n * (m + n + 1) / 12);
+        double z = (twice_u / 2.0 - mean - 0.5) / sd;
+        return 1 - normalCdf(z);
+    }
+
+    /**
+     * Distribuzione esatta di U per due campioni di m ed n elementi senza parità: l'elemento k è P(U = k).
+     * Il numero di disposizioni con U = k è c(m, n, k) = c(m - 1, n, k - n) + c(m, n - 1, k), a seconda che
+     * il valore più grande appartenga al primo o al secondo campione.
+     */
+    private static double[] exactDistribution(int m, int n)
+    {
+        int max_u = m * n;
+        // counts[j][k] = c(i, j, k) per l'i corrente
+        double[][] counts = new double[n + 1][];
+        for(int j = 0; j <= n; j++)
+        {
+            counts[j] = new double[max_u + 1];
+            counts[j][0] = 1;
+        }
+        for(int i = 1; i <= m; i++)
+        {
+            double[][] next = new double[n + 1][max_u + 1];
+            next[0][0] = 1;
+            for(int j = 1; j <= n; j++)
+                for(int k = 0; k <= i * j; k++)
+                    next[j][k] = (k >= j ? counts[j][k - j] : 0) + next[j - 1][k];
+            counts = next;
+        }
+
+        double total = 0;
+        for(double c : counts[n])
+            total += c;
+        double[] distribution = new double[max_u + 1];
+        for(int k = 0; k <= max_u; k++)
+            distribution[k] = counts[n][k] / total;
+        return distribution;
+    }
+
+    /**
+     * Funzione di ripartizione della normale standard (approssimazione di Abramowitz e Stegun 26.2.17, errore < 7.5e-8).
+     */
+    private static double normalCdf(double z)
+    {
+        double t = 1 / (1 + 0.2316419 * Math.abs(z));
+        double d = Math.exp(-z * z / 2) / Math.sqrt(2 * Math.PI);
+        double tail = d * t * (0.319381530 + t * (-0.356563782 + t * (1.781477937 + t * (-1.821255978 + t * 1.330274429))));
+        return z >= 0 ? 1 - tail : tail;
+    }
+}
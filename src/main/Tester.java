@@ -1,20 +1,30 @@
 package main;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
-import java.util.Random;
 
 import mergesort.MergeSort;
 import mergesort.MergeSortParallel;
 import mergesort.MergeSortSemiParallel;
 import mergesort.MergeSortSequential;
 import mergesort.MergeSortStage;
+import mergesort.engine.Thresholds;
+import mergesort.input.Distribution;
+import mergesort.input.InputGenerator;
+import mergesort.management.AllocationMeter;
+import mergesort.management.SortEngineMetrics;
+import mergesort.verify.SortVerifier;
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.ArgumentParserException;
+import net.sourceforge.argparse4j.inf.Namespace;
 
 // Classe per testare il corretto funzionamento delle Classi: MergeSortSequential
 
@@ -22,6 +32,11 @@ public class Tester
 {
     final static DateTimeFormatter time_formatter = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
 
+    // Tentativi misurati di ogni test: senza tempi di riferimento servono solo a ripetere la verifica,
+    // per il confronto con il test di Mann-Whitney ne servono di più (con 3 e 3 tempi il p-value minimo è 0.05)
+    final static int DEFAULT_TRIES = 3;
+    final static int DEFAULT_REGRESSION_TRIES = 10;
+
     public enum SortType
     {
        S, SP, P
@@ -44,14 +59,31 @@ public class Tester
     	private boolean usable;
     	private LocalDateTime start_time;
     	private LocalDateTime end_time;
+    	private long start_nanos;
+    	private long end_nanos;
+    	private final int tries;
+    	private final int warmup;
+    	private final RegressionBaseline timings;
 
     	/**
     	 * Inizializza l'oggetto tester stampando una stringa per segnalare l'inizio dei tests
     	 */
     	public TestModel()
+    	{
+    		this(DEFAULT_TRIES, 0);
+    	}
+
+    	/**
+    	 * @param tries numero di tentativi misurati di ogni test (>= 1)
+    	 * @param warmup numero di tentativi di riscaldamento di ogni test, verificati ma non misurati (>= 0)
+    	 */
+    	public TestModel(int tries, int warmup)
     	{
     		System.out.println("START TESTER");
 
+    		this.tries = tries;
+    		this.warmup = warmup;
+    		this.timings = new RegressionBaseline();
     		this.test_counter = 0;
     		this.fails = new ArrayList<>();
     		this.global_result = true;
@@ -72,6 +104,24 @@ public class Tester
             this.usable = false;
     	}
 
+    	/**
+    	 * @return true se tutti i test eseguiti hanno avuto successo
+    	 */
+    	public boolean isPassed()
+    	{
+    		return this.global_result;
+    	}
+
+    	/**
+    	 * Ritorna i tempi misurati dei test che hanno avuto successo, un {@link RegressionBaseline.Case} per test.
+    	 *
+    	 * @return {@link RegressionBaseline}
+    	 */
+    	public RegressionBaseline getTimings()
+    	{
+    		return this.timings;
+    	}
+
     	// Utils
 
     	/**
@@ -110,44 +160,47 @@ public class Tester
     		}
     	}
 
-        /**
-         * Ritorna sotto forma di stringa la differenza di tempo fra due {@link LocalDateTime}, nel seguente formato
-         * HH:mm:ss.SSS
-         *
-         * @param start_time, tempo di inizio
-         * @param end_time, tempo di fine
-         * @return
-         */
-        public static String subtractTime(LocalDateTime start_time, LocalDateTime end_time)
-        {
-            LocalDateTime fromTemp = LocalDateTime.from(start_time);
-
-            long hours = fromTemp.until(end_time, ChronoUnit.HOURS);
-            fromTemp = fromTemp.plusHours(hours);
-
-            long minutes = fromTemp.until(end_time, ChronoUnit.MINUTES);
-            fromTemp = fromTemp.plusMinutes(minutes);
-
-            long seconds = fromTemp.until(end_time, ChronoUnit.SECONDS);
-            fromTemp = fromTemp.plusSeconds(seconds);
-
-            long millis = fromTemp.until(end_time, ChronoUnit.MILLIS);
-
-            return String.format("%02d", hours)+":"+String.format("%02d",minutes)+":"+String.format("%02d",seconds)+"."+String.format("%03d",millis);
-        }
-
     	//metodo principale Tester
 
     	public void runTest(int elem_n, SortType type, boolean decr, int cutoff, boolean debug)
+    	{
+    		runTest(elem_n, type, decr, cutoff, Thresholds.AUTO, Thresholds.DEFAULT_INSERTION_CUTOFF, debug);
+    	}
+
+    	/**
+    	 * Esegue un test con soglie indipendenti per l'ordinamento, il merge parallelo (solo per P) e l'insertion sort.
+    	 *
+    	 * @param merge_cutoff cutoff del merge parallelo ({@link Thresholds#AUTO} per il default calcolato in base a n)
+    	 * @param insertion_cutoff cutoff dell'insertion sort
+    	 */
+    	public void runTest(int elem_n, SortType type, boolean decr, int cutoff, int merge_cutoff, int insertion_cutoff, boolean debug)
+    	{
+    		runTest(elem_n, type, decr ? Distribution.REVERSED : Distribution.UNIFORM, cutoff, merge_cutoff, insertion_cutoff, debug);
+    	}
+
+    	/**
+    	 * Esegue un test su input della distribuzione data. Il seme di ogni tentativo dipende solo dal numero del test
+    	 * e del tentativo, così che un test fallito possa essere ripetuto con lo stesso input.
+    	 *
+    	 * @param dist distribuzione dei valori dell'input
+    	 * @param merge_cutoff cutoff del merge parallelo ({@link Thresholds#AUTO} per il default calcolato in base a n)
+    	 * @param insertion_cutoff cutoff dell'insertion sort
+    	 */
+    	public void runTest(int elem_n, SortType type, Distribution dist, int cutoff, int merge_cutoff, int insertion_cutoff, boolean debug)
     	{
     		if(!this.usable)
     			return;
 
     		// Variabili di lavoro, pre-inizializzazione
             MergeSort ms = null;
+            int parallelism = Runtime.getRuntime().availableProcessors();
 
     		//creo descrizione del test richiesto
     		String test_descr = "array of "+elem_n+" elements with "+(cutoff>1?cutoff+" of":"no")+" cutoff and "+(debug?"in":"not in")+" debug mode";
+    		if(dist != Distribution.UNIFORM)
+    			test_descr += " ("+dist.name().toLowerCase()+" input)";
+    		if(merge_cutoff != Thresholds.AUTO || insertion_cutoff != Thresholds.DEFAULT_INSERTION_CUTOFF)
+    			test_descr += " (merge cutoff "+(merge_cutoff == Thresholds.AUTO ? "auto" : merge_cutoff)+", insertion cutoff "+insertion_cutoff+")";
 
             switch(type)
             {
@@ -156,16 +209,16 @@ public class Tester
                     test_descr="MERGESORT SEQUENTIAL{S}   -> "+test_descr;
                     break;
                 case SP:
-                    ms = new MergeSortSemiParallel(cutoff);
+                    ms = new MergeSortSemiParallel(cutoff, insertion_cutoff, parallelism);
                     test_descr="MERGESORT SEMIPARALLEL{SP} -> "+test_descr;
                     break;
                 case P:
-                    ms = new MergeSortParallel(cutoff);
+                    ms = new MergeSortParallel(cutoff, merge_cutoff, insertion_cutoff, parallelism);
                     test_descr="MERGESORT PARALLEL{P}     -> "+test_descr;
                     break;
             }
 
-    		if(elem_n<1 || cutoff<1 || cutoff>elem_n)
+    		if(elem_n<1 || cutoff<1 || cutoff>elem_n || merge_cutoff<0 || insertion_cutoff<1)
         	{
         		System.out.println((this.test_counter+1)+") Invalid test -> elem_n = "+elem_n+" ; cutoff = "+cutoff+" ; debug = "+debug);
         		this.update(test_descr);
@@ -178,56 +231,68 @@ public class Tester
             // Variabili di lavoro
             MergeSortStage msr = null;
             int[] unsorted_array = null;
-            int[] sorted_array = null;
-
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException ee) {}
+            SortVerifier.Result verification = null;
 
             //inizio i test
             System.out.println((this.test_counter+1)+") "+test_descr);
 
             String spacer = String.join("", Collections.nCopies(((this.test_counter+1)+") ").length(), " "));
 
+            long[] samples = new long[this.tries];
+
             try
             {
-                for(int try_counter=1; try_counter<4; try_counter++)
+                for(int try_counter=1-this.warmup; try_counter<=this.tries; try_counter++)
                 {
-                    System.out.println(spacer+"- Try: "+try_counter+" / 3");
+                    if(try_counter<1)
+                    	System.out.println(spacer+"- Warmup: "+(try_counter+this.warmup)+" / "+this.warmup);
+                    else
+                    	System.out.println(spacer+"- Try: "+try_counter+" / "+this.tries);
 
-                    start_time = LocalDateTime.now();
+                    // Genero l'input (fuori dal tempo misurato)
+                    long seed = (long) (this.test_counter+1) * 1000 + try_counter;
+                    unsorted_array = InputGenerator.generate(dist, elem_n, seed);
+                    SortVerifier.Fingerprint input_fingerprint = SortVerifier.fingerprint(unsorted_array);
 
-                    // Genero array casuale
-            		unsorted_array = decr ? genInverseRangeArray(elem_n) : genRandomIntArray(elem_n);
+                    // Pulizia forzata fra ordinamenti consecutivi (fuori dal tempo misurato), uguale per tutti gli algoritmi
+                    System.gc();
 
+                    start_time = LocalDateTime.now();
+                    start_nanos = System.nanoTime();
 
                 	// Eseguo il MergeSort
                     msr = ms.sort(unsorted_array, debug);
 
-                    // Confronto gli arrays
-                    sorted_array = checkAndSort(msr.getResult());
-                    if(sorted_array!=null)
-                    	throw new IllegalStateException();
-
+                    end_nanos = System.nanoTime();
                     end_time = LocalDateTime.now();
 
+                    // Verifico che il risultato sia ordinato e sia una permutazione dell'input
+                    verification = SortVerifier.verify(input_fingerprint, msr.getResult());
+                    if(!verification.isCorrect())
+                    	throw new IllegalStateException();
+
                     System.out.println(spacer+"  "+"SUCCESSFUL!");
                     System.out.println(spacer+"  "+"Start sorting at : "+time_formatter.format(start_time));
                 	System.out.println(spacer+"  "+"End   sorting at : "+time_formatter.format(end_time));
-                    System.out.println(spacer+"  "+"Time Elapsed     : "+subtractTime(start_time, end_time));
+                    System.out.println(spacer+"  "+"Time Elapsed     : "+Main.formatNanos(end_nanos - start_nanos));
+                    AllocationMeter.Usage usage = SortEngineMetrics.get().getLastSortUsage();
+                    System.out.println(spacer+"  "+"Allocated        : "+(usage.getAllocatedBytes()<0 ? "n/a"
+                    		: String.format(Locale.ROOT, "%.2f MB (%.1f B/element)", usage.getAllocatedBytes()/1048576.0, usage.bytesPerElement(elem_n))));
+                    System.out.println(spacer+"  "+"GC               : "+usage.getGcCount()+" collections ("+usage.getGcTimeMillis()+" ms)");
+
+                    if(try_counter>=1)
+                    	samples[try_counter-1] = end_nanos - start_nanos;
                 }
 
+                this.timings.put(new RegressionBaseline.Case(this.test_counter+1, test_descr, samples));
                 this.update(null);
             }
             catch(IllegalStateException ise)
             {
                 System.err.println(spacer+"  "+"FAIL!");
-                System.err.println(spacer+"  "+"Sorting error: ");
-                System.err.println(spacer+"  "+"Expected: "+arraytoString(sorted_array));
-                System.err.println(spacer+"  "+"Result  : "+arraytoString(msr.getResult()));
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException ee) {}
+                System.err.println(spacer+"  "+"Sorting error: "+verification);
+                if(msr.getResult().length <= 100)
+                	System.err.println(spacer+"  "+"Result  : "+arraytoString(msr.getResult()));
                 this.update(test_descr);
             }
             catch(Exception e)
@@ -235,9 +300,6 @@ public class Tester
                 System.err.println(spacer+"  "+"FAIL!");
                 System.err.println(spacer+"  "+"Error: ");
                 e.printStackTrace();
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException ee) {}
                 this.update(test_descr);
             }
     	}
@@ -245,8 +307,89 @@ public class Tester
 
     public static void main(String[] args)
     {
+    	// Le allocazioni di ogni ordinamento sono sempre riportate
+    	SortEngineMetrics.get().setAllocationMeteringEnabled(true);
+    	
+    	ArgumentParser parser = ArgumentParsers.newFor("Tester").build()
+    			.description("Esegue i test di correttezza di tutti gli algoritmi. Con '--save-baseline' salva i tempi di ogni test, "
+    					+ "con '--baseline' li confronta con quelli salvati e segnala i rallentamenti (codice di uscita 1 se un test fallisce, "
+    					+ "2 se ci sono rallentamenti)");
+    	parser.addArgument("--tries")
+    			.dest("tries")
+    			.type(Integer.class)
+    			.help("Tentativi misurati di ogni test (Default: " + DEFAULT_TRIES + ", " + DEFAULT_REGRESSION_TRIES
+    					+ " con '--baseline' o '--save-baseline')");
+    	parser.addArgument("--warmup")
+    			.dest("warmup")
+    			.type(Integer.class)
+    			.help("Tentativi di riscaldamento di ogni test, non misurati (Default: 0, 1 con '--baseline' o '--save-baseline')");
+    	parser.addArgument("--save-baseline")
+    			.dest("save_baseline")
+    			.type(String.class)
+    			.help("Salva i tempi di ogni test nel file indicato, come riferimento per '--baseline'");
+    	parser.addArgument("--baseline")
+    			.dest("baseline")
+    			.type(String.class)
+    			.help("Confronta i tempi di ogni test con quelli salvati nel file indicato");
+    	parser.addArgument("--tolerance")
+    			.dest("tolerance")
+    			.type(Double.class)
+    			.setDefault(0.1)
+    			.help("Con '--baseline', rallentamento tollerato, es. 0.1 per il 10% (Default: 0.1)");
+    	parser.addArgument("--alpha")
+    			.dest("alpha")
+    			.type(Double.class)
+    			.setDefault(0.01)
+    			.help("Con '--baseline', livello di significatività del test di Mann-Whitney (Default: 0.01)");
+    	parser.addArgument("--min-time")
+    			.dest("min_time")
+    			.type(Double.class)
+    			.setDefault(1.0)
+    			.help("Con '--baseline', tempo mediano di riferimento minimo in millisecondi dei test confrontati: "
+    					+ "i tempi dei test più brevi sono dominati dal rumore (Default: 1)");
+
+    	Namespace ns;
+    	try
+    	{
+    		ns = parser.parseArgs(args);
+    	}
+    	catch(ArgumentParserException e)
+    	{
+    		parser.handleError(e);
+    		System.exit(1);
+    		return;
+    	}
+
+    	String save_baseline = ns.getString("save_baseline");
+    	String baseline_file = ns.getString("baseline");
+    	boolean regression = save_baseline != null || baseline_file != null;
+    	int tries = ns.getInt("tries") != null ? ns.getInt("tries") : (regression ? DEFAULT_REGRESSION_TRIES : DEFAULT_TRIES);
+    	int warmup = ns.getInt("warmup") != null ? ns.getInt("warmup") : (regression ? 1 : 0);
+    	double tolerance = ns.getDouble("tolerance");
+    	double alpha = ns.getDouble("alpha");
+    	if(tries < 1 || warmup < 0 || tolerance < 0 || alpha <= 0 || alpha >= 1)
+    	{
+    		System.err.println("Deve essere: tries>=1, warmup>=0, tolerance>=0 e 0<alpha<1");
+    		System.exit(1);
+    	}
+
+    	// Leggo i tempi di riferimento prima dei test, per non scoprire solo alla fine che il file non è valido
+    	RegressionBaseline baseline = null;
+    	if(baseline_file != null)
+    	{
+    		try
+    		{
+    			baseline = RegressionBaseline.load(Paths.get(baseline_file));
+    		}
+    		catch(IOException e)
+    		{
+    			System.err.println("Impossibile leggere i tempi di riferimento: " + e.getMessage());
+    			System.exit(1);
+    		}
+    	}
+
     	// Inizializzo classe test
-    	TestModel tm = new TestModel();
+    	TestModel tm = new TestModel(tries, warmup);
 
     	//Inizio test
 
@@ -362,48 +505,73 @@ public class Tester
         tm.runTest(5000000, SortType.P, false, 200, true);   //59
         tm.runTest(10000000, SortType.P, false, 200, true);  //60
 
+
+        //TESTS SOGLIE INDIPENDENTI
+        //cutoff ; merge cutoff ; insertion cutoff
+
+        tm.runTest(10000, SortType.SP, false, 5000, Thresholds.AUTO, 1, false);    //61
+        tm.runTest(10000, SortType.SP, true, 5000, Thresholds.AUTO, 64, true);     //62
+
+        tm.runTest(200000, SortType.P, false, 20, 1, 32, false);                   //63
+        tm.runTest(200000, SortType.P, false, 2000, 4096, 8, true);                //64
+
+        tm.runTest(1000000, SortType.P, false, 50000, Thresholds.AUTO, 16, false); //65
+        tm.runTest(1000000, SortType.P, true, 50000, 100000, 1, true);             //66
+
+
+        //TESTS DISTRIBUZIONI DELL'INPUT
+        //distribuzione ; cutoff ; merge cutoff ; insertion cutoff
+
+        tm.runTest(200000, SortType.SP, Distribution.NEARLY_SORTED, 2000, Thresholds.AUTO, 32, false); //67
+        tm.runTest(200000, SortType.P, Distribution.FEW_UNIQUE, 2000, 4096, 32, false);                //68
+        tm.runTest(200000, SortType.P, Distribution.ZIPF, 2000, 4096, 32, false);                      //69
+        tm.runTest(200000, SortType.P, Distribution.ORGAN_PIPE, 2000, 4096, 32, false);                //70
+        tm.runTest(200000, SortType.SP, Distribution.SAWTOOTH, 2000, Thresholds.AUTO, 32, false);      //71
+        tm.runTest(200000, SortType.P, Distribution.ALL_EQUAL, 2000, 4096, 32, false);                 //72
+        tm.runTest(1000000, SortType.S, Distribution.SORTED, 1, Thresholds.AUTO, 32, false);           //73
+
     	// Fine test
     	tm.close();
-    }
 
-    /**
-     * Restituisce un array generato casualmente della lunghezza indicata, non ordinato
-     * Asserisce che n sia maggiore di 0
-     *
-     * @param n, numero degli elementi
-     * @return array di int non ordinato
-     */
-	public static int[] genRandomIntArray(int n)
-	{
-	    assert n > 0;
+    	if(save_baseline != null)
+    	{
+    		try
+    		{
+    			tm.getTimings().save(Paths.get(save_baseline));
+    			System.out.println("\nTempi di riferimento salvati in: " + Paths.get(save_baseline).toAbsolutePath());
+    		}
+    		catch(IOException e)
+    		{
+    			System.err.println("Impossibile salvare i tempi di riferimento: " + e.getMessage());
+    			System.exit(1);
+    		}
+    	}
 
-		return new Random().ints(n, -2147483648, 2147483647).toArray();
-	}
+    	boolean slower = false;
+    	if(baseline != null)
+    	{
+    		System.out.println("\n---------------------------------------------\n");
+    		System.out.printf(Locale.ROOT, "CONFRONTO CON %s (tolleranza %.0f%%, alpha %s)%n%n", baseline_file, tolerance * 100, alpha);
+    		if(baseline.getCores() != Runtime.getRuntime().availableProcessors() || !baseline.getJavaVersion().equals(System.getProperty("java.version")))
+    			System.out.println("Attenzione: i tempi di riferimento sono stati misurati con " + baseline.getCores() + " processori e Java "
+    					+ baseline.getJavaVersion() + "\n");
 
-    /**
-     * Restituisce un array generato casualmente della lunghezza indicata, ordinato in ordine decrescente
-     * Asserisce che n sia maggiore di 0
-     *
-     * @param n, numero degli elementi
-     * @return array di int non ordinato
-     */
-	public static int[] genInverseRangeArray(int n)
-	{
-	    assert n > 0;
-
-        int[] rtn_array = new Random().ints(n, -2147483648, 2147483647).toArray();
-        Arrays.parallelSort(rtn_array);
-        int i=0, k=rtn_array.length-1, tmp;
-        while (i < k)
-        {
-            tmp = rtn_array[i];
-            rtn_array[i] = rtn_array[k];
-            rtn_array[k] = tmp;
-            i++;
-            k--;
-        }
-        return rtn_array;
-	}
+    		List<RegressionBaseline.Comparison> comparisons = baseline.compare(tm.getTimings(), tolerance, alpha, (long) (ns.getDouble("min_time") * 1e6));
+    		RegressionBaseline.print(System.out, comparisons);
+
+    		String f = "";
+    		for(RegressionBaseline.Comparison c : comparisons)
+    			if(c.getVerdict() == RegressionBaseline.Verdict.REGRESSION)
+    				f += "- " + c.getCurrent().getId() + ") " + c.getCurrent().getDescription() + "\n";
+    		slower = !f.isEmpty();
+    		System.out.println(slower ? "\nTHESE TESTS ARE SLOWER:\n" + f : "\nNO PERFORMANCE REGRESSIONS!");
+    	}
+
+    	if(!tm.isPassed())
+    		System.exit(1);
+    	if(slower)
+    		System.exit(2);
+    }
 
     /**
      * Ritorna un array di int in formato stringa stampabile
@@ -421,35 +589,4 @@ public class Tester
         rtn_str = rtn_str.substring(0,rtn_str.length()-2);
         return rtn_str+"]";
     }
-
-    /**
-     * Controlla se l'array di interi passato è ordinato in modo crescente, e nel caso lo ordina.
-     *
-     * @param array array da verificare
-     * @return null se l'array è ordinato in modo crescente, l'array ordinato altrimenti
-     */
-    public static int[] checkAndSort(int[] array)
-    {
-    	if(array==null || array.length<2)
-    		return null;
-
-    	boolean sorted = true;
-    	for (int i = 1; i < array.length; i++)
-    	{
-    		if (array[i-1] > array[i])
-    		{
-    			sorted = false;
-    			break;
-    		}
-    	}
-
-    	if(sorted)
-    		return null;
-
-    	// Ritorna array ordinato
-    	int[] s = new int[array.length];
-    	System.arraycopy(array, 0, s, 0, array.length);
-    	Arrays.parallelSort(s);
-    	return s;
-    }
 }
@@ -9,4 +9,11 @@ public interface MergeSort
      * @return
      */
 	public MergeSortStage sort(int[] array, boolean debug_mode);
+	
+	/**
+	 * Ritorna i contatori delle operazioni effettuate dall'ultimo ordinamento (disponibili anche senza debug).
+	 * 
+	 * @return {@link SortStatistics} dell'ultimo ordinamento, null se non è ancora stato effettuato alcun ordinamento
+	 */
+	public SortStatistics getStatistics();
 }
@@ -0,0 +1,227 @@
+package mergesort;
+
+import java.util.Locale;
+
+import mergesort.trace.LiveEventQueue;
+import mergesort.tuning.CostModel;
+import mergesort.tuning.TuningProfile;
+
+/**
+ * MergeSort che sceglie ad ogni ordinamento l'algoritmo (S, SP o P), il cutoff e il numero di worker
+ * in base alla dimensione dell'input, ai processori disponibili e al grado di ordinamento dell'input.
+ *
+ * Il grado di ordinamento è stimato su un campione di coppie di elementi adiacenti, quindi in tempo costante.
+ * La scelta usa i modelli dei tempi ({@link CostModel}) del profilo della macchina ({@link TuningProfile}),
+ * se sono stati misurati su una macchina con lo stesso numero di processori; altrimenti usa l'algoritmo sequenziale
+ * per gli input piccoli e quello parallelo per gli altri.
+ */
+public class MergeSortAuto implements MergeSort
+{
+    /**
+     * Dimensione sotto la quale, senza un modello dei tempi, è usato l'algoritmo sequenziale
+     * (la stessa granularità minima di Arrays.parallelSort).
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 13;
+
+    // Numero massimo di coppie di elementi adiacenti confrontate per stimare il grado di ordinamento
+    private static final int PRESORTEDNESS_SAMPLE = 256;
+
+    private static final String[] ENGINES = {"S", "SP", "P"};
+
+    /**
+     * Algoritmo e parametri scelti per un input.
+     */
+    public static class Choice
+    {
+        private final String engine;
+        private final int cutoff;
+        private final int merge_cutoff;
+        private final int insertion_cutoff;
+        private final int parallelism;
+        private final double presortedness;
+        private final double predicted;
+
+        private Choice(String engine, TuningProfile.Band band, double presortedness, double predicted)
+        {
+            this.engine = engine;
+            this.cutoff = band.getCutoff();
+            this.merge_cutoff = band.getMergeCutoff();
+            this.insertion_cutoff = band.getInsertionCutoff();
+            this.parallelism = band.getParallelism();
+            this.presortedness = presortedness;
+            this.predicted = predicted;
+        }
+
+        /**
+         * @return nome dell'algoritmo scelto (S, SP, P)
+         */
+        public String getEngine()
+        {
+            return engine;
+        }
+
+        public int getCutoff()
+        {
+            return cutoff;
+        }
+
+        public int getMergeCutoff()
+        {
+            return merge_cutoff;
+        }
+
+        public int getInsertionCutoff()
+        {
+            return insertion_cutoff;
+        }
+
+        public int getParallelism()
+        {
+            return parallelism;
+        }
+
+        /**
+         * @return frazione delle coppie di elementi adiacenti campionate già in ordine
+         */
+        public double getPresortedness()
+        {
+            return presortedness;
+        }
+
+        /**
+         * @return tempo stimato dal modello in nanosecondi (NaN se la scelta non usa un modello)
+         */
+        public double getPredictedNanos()
+        {
+            return predicted;
+        }
+
+        @Override
+        public String toString()
+        {
+            String params = engine.equals("S") ? "" : String.format(Locale.ROOT, ", cutoff = %d, parallelismo = %d", cutoff, parallelism);
+            String model = Double.isNaN(predicted) ? "senza modello" : String.format(Locale.ROOT, "stima %.3f ms", predicted / 1e6);
+            return String.format(Locale.ROOT, "%s%s (ordinamento campionato %.0f%%, %s)", engine, params, presortedness * 100, model);
+        }
+    }
+
+    private MergeSort last_sorter;
+    private Choice last_choice;
+    private LiveEventQueue live_queue;
+    private int live_depth;
+
+    @Override
+    public MergeSortStage sort(int[] array, boolean debug_mode)
+    {
+        Choice choice = choose(array);
+        MergeSort sorter;
+        switch(choice.getEngine())
+        {
+            case "SP":
+                MergeSortSemiParallel semi_parallel = new MergeSortSemiParallel(choice.getCutoff(), choice.getInsertionCutoff(), choice.getParallelism());
+                semi_parallel.setLiveQueue(this.live_queue, this.live_depth);
+                sorter = semi_parallel;
+                break;
+            case "P":
+                MergeSortParallel parallel = new MergeSortParallel(choice.getCutoff(), choice.getMergeCutoff(), choice.getInsertionCutoff(), choice.getParallelism());
+                parallel.setLiveQueue(this.live_queue, this.live_depth);
+                sorter = parallel;
+                break;
+            default:
+                sorter = new MergeSortSequential();
+                break;
+        }
+
+        this.last_choice = choice;
+        this.last_sorter = sorter;
+        return sorter.sort(array, debug_mode);
+    }
+
+    /**
+     * Sceglie l'algoritmo e i parametri per ordinare l'array dato.
+     *
+     * @param array array da ordinare
+     * @return {@link Choice}
+     */
+    public static Choice choose(int[] array)
+    {
+        int n = array.length;
+        int cores = Runtime.getRuntime().availableProcessors();
+        double presortedness = presortedness(array);
+
+        TuningProfile profile = TuningProfile.get();
+        if(n > 1 && profile != null && profile.matchesMachine())
+        {
+            Choice best = null;
+            for(String engine : ENGINES)
+            {
+                CostModel model = profile.getModel(engine);
+                if(model == null)
+                    continue;
+
+                TuningProfile.Band band = TuningProfile.settings(engine, n);
+                double predicted = model.predict(n, presortedness);
+                if(best == null || predicted < best.getPredictedNanos())
+                    best = new Choice(engine, band, presortedness, predicted);
+            }
+            if(best != null)
+                return best;
+        }
+
+        if(cores == 1 || n < DEFAULT_PARALLEL_THRESHOLD)
+            return new Choice("S", new TuningProfile.Band(n, 1, 1), presortedness, Double.NaN);
+
+        return new Choice("P", TuningProfile.settings("P", n), presortedness, Double.NaN);
+    }
+
+    /**
+     * Stima il grado di ordinamento dell'array, confrontando al più {@value #PRESORTEDNESS_SAMPLE} coppie
+     * di elementi adiacenti distribuite uniformemente.
+     *
+     * @param array array da esaminare
+     * @return frazione delle coppie campionate già in ordine (1 se l'array ha meno di 2 elementi)
+     */
+    public static double presortedness(int[] array)
+    {
+        int pairs = Math.min(PRESORTEDNESS_SAMPLE, array.length - 1);
+        if(pairs <= 0)
+            return 1;
+
+        int in_order = 0;
+        for(int k = 0; k < pairs; k++)
+        {
+            int i = (int) ((long) k * (array.length - 1) / pairs);
+            if(array[i] <= array[i+1])
+                in_order++;
+        }
+        return (double) in_order / pairs;
+    }
+
+    /**
+     * Ritorna la scelta fatta per l'ultimo ordinamento (null se non è ancora stato eseguito un ordinamento).
+     *
+     * @return {@link Choice}
+     */
+    public Choice getLastChoice()
+    {
+        return this.last_choice;
+    }
+
+    /**
+     * Pubblica l'esecuzione dei prossimi ordinamenti paralleli sulla coda data, per mostrarla mentre è in corso.
+     *
+     * @param queue coda degli eventi (null per disattivare la pubblicazione)
+     * @param max_depth profondità massima degli stage di cui pubblicare gli eventi
+     */
+    public void setLiveQueue(LiveEventQueue queue, int max_depth)
+    {
+        this.live_queue = queue;
+        this.live_depth = max_depth;
+    }
+
+    @Override
+    public SortStatistics getStatistics()
+    {
+        return this.last_sorter != null ? this.last_sorter.getStatistics() : null;
+    }
+}
@@ -1,31 +1,134 @@
 package mergesort;
 
-import mergesort.debug.DebugMergeSortSemiParallel;
-import mergesort.nodebug.NoDebugMergeSortSemiParallel;
+import mergesort.engine.SemiParallelSortEngine;
+import mergesort.engine.Thresholds;
+import mergesort.management.SortEngineMetrics;
+import mergesort.trace.DagSortTracer;
+import mergesort.trace.LiveEventQueue;
+import mergesort.trace.LiveSortTracer;
+import mergesort.trace.SortTracer;
+import mergesort.tuning.TuningProfile;
 
 public class MergeSortSemiParallel implements MergeSort
 {
     int cutoff;
+    private final int insertion_cutoff;
+    private final int parallelism;
+    private final boolean tuned;
+    private SortStatistics stats;
+    private LiveEventQueue live_queue;
+    private int live_depth;
+    
+    /**
+     * Crea l'algoritmo con soglie e numero di worker scelti ad ogni ordinamento, in base alla dimensione dell'input,
+     * dal profilo della macchina ({@link TuningProfile}).
+     */
+    public MergeSortSemiParallel()
+    {
+        this(Thresholds.AUTO, Thresholds.DEFAULT_INSERTION_CUTOFF, Runtime.getRuntime().availableProcessors(), true);
+    }
     
     public MergeSortSemiParallel(int cutoff)
+    {
+        this(cutoff, Runtime.getRuntime().availableProcessors());
+    }
+    
+    /**
+     * @param cutoff cutoff sequenziale
+     * @param parallelism numero di worker del ForkJoinPool usato da ogni ordinamento (>= 1)
+     */
+    public MergeSortSemiParallel(int cutoff, int parallelism)
+    {
+        this(cutoff, Thresholds.DEFAULT_INSERTION_CUTOFF, parallelism, false);
+    }
+    
+    /**
+     * @param cutoff cutoff sequenziale dell'ordinamento
+     * @param insertion_cutoff dimensione fino alla quale le foglie sono ordinate con insertion sort
+     * @param parallelism numero di worker del ForkJoinPool usato da ogni ordinamento (>= 1)
+     */
+    public MergeSortSemiParallel(int cutoff, int insertion_cutoff, int parallelism)
+    {
+        this(cutoff, insertion_cutoff, parallelism, false);
+    }
+    
+    private MergeSortSemiParallel(int cutoff, int insertion_cutoff, int parallelism, boolean tuned)
     {
         this.cutoff = cutoff;
+        this.insertion_cutoff = insertion_cutoff;
+        this.parallelism = parallelism;
+        this.tuned = tuned;
     }
     
     @Override
     public MergeSortStage sort(int[] array, boolean debug_mode) 
     {
         MergeSortStage mss = null;
+        SortEngineMetrics.Measurement measurement = SortEngineMetrics.get().begin();
         
         if(debug_mode)
         {
-            mss = new DebugMergeSortSemiParallel(this.cutoff).sort(array);
+            DagSortTracer tracer = new DagSortTracer();
+            run(LiveSortTracer.wrap(tracer, this.live_queue, this.live_depth), array, measurement);
+            mss = tracer.getEndStage();
         }
         else
         {
-            mss = new MergeSortStage(new NoDebugMergeSortSemiParallel(this.cutoff).sort(array));
+            int[] result = run(LiveSortTracer.wrap(SortTracer.noop(), this.live_queue, this.live_depth), array, measurement);
+            mss = new MergeSortStage(result);
         }
         
         return mss;  
     }
+    
+    /**
+     * Esegue l'ordinamento con il tracer dato, aggiornando statistiche e metriche.
+     */
+    private <T> int[] run(SortTracer<T> tracer, int[] array, SortEngineMetrics.Measurement measurement)
+    {
+        int cutoff = this.cutoff;
+        int insertion_cutoff = this.insertion_cutoff;
+        int parallelism = this.parallelism;
+        if(this.tuned)
+        {
+            TuningProfile.Band band = TuningProfile.settings("SP", array.length);
+            cutoff = band.getCutoff();
+            insertion_cutoff = band.getInsertionCutoff();
+            parallelism = band.getParallelism();
+        }
+        
+        SemiParallelSortEngine<T> engine = new SemiParallelSortEngine<>(cutoff, insertion_cutoff, parallelism, tracer);
+        measurement.attach(engine.getPool());
+        try
+        {
+            int[] result = engine.sort(array);
+            this.stats = engine.getStatistics();
+            measurement.end("SP", array.length);
+            return result;
+        }
+        finally
+        {
+            // Ogni ordinamento usa un nuovo ForkJoinPool: lo chiudo, così i suoi worker terminano subito
+            measurement.detach();
+            engine.getPool().shutdown();
+        }
+    }
+    
+    /**
+     * Pubblica l'esecuzione dei prossimi ordinamenti sulla coda data, per mostrarla mentre è in corso.
+     * 
+     * @param queue coda degli eventi (null per disattivare la pubblicazione)
+     * @param max_depth profondità massima degli stage di cui pubblicare gli eventi
+     */
+    public void setLiveQueue(LiveEventQueue queue, int max_depth)
+    {
+        this.live_queue = queue;
+        this.live_depth = max_depth;
+    }
+    
+    @Override
+    public SortStatistics getStatistics()
+    {
+        return this.stats;
+    }
 }
@@ -1,24 +1,44 @@
 package mergesort;
 
-import mergesort.debug.DebugMergeSortSequential;
-import mergesort.nodebug.NoDebugMergeSortSequential;
+import mergesort.engine.SequentialSortEngine;
+import mergesort.management.SortEngineMetrics;
+import mergesort.trace.DagSortTracer;
+import mergesort.trace.SortTracer;
 
 public class MergeSortSequential implements MergeSort
 {
+    private SortStatistics stats;
+    
     @Override
-    public MergeSortStage sort(int[] array, boolean debug_mode)
+    public MergeSortStage sort(int[] array, boolean debug_mode) 
     {
         MergeSortStage mss = null;
+        SortEngineMetrics.Measurement measurement = SortEngineMetrics.get().begin();
         
         if(debug_mode)
         {
-            mss = new DebugMergeSortSequential().sort(array);
+            DagSortTracer tracer = new DagSortTracer();
+            SequentialSortEngine<MergeSortStage> engine = new SequentialSortEngine<>(tracer);
+            engine.sort(array);
+            this.stats = engine.getStatistics();
+            measurement.end("S", array.length);
+            mss = tracer.getStartStage();
         }
         else
         {
-            mss = new MergeSortStage(new NoDebugMergeSortSequential().sort(array));
+            SequentialSortEngine<Object> engine = new SequentialSortEngine<>(SortTracer.noop());
+            int[] result = engine.sort(array);
+            this.stats = engine.getStatistics();
+            measurement.end("S", array.length);
+            mss = new MergeSortStage(result);
         }
         
-        return mss;            
+        return mss;  
+    }
+    
+    @Override
+    public SortStatistics getStatistics()
+    {
+        return this.stats;
     }
 }
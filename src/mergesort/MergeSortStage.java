@@ -5,6 +5,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
@@ -46,6 +47,22 @@ public class MergeSortStage
 	private int task_index;
 	private int forks;
 	
+	// Tempi di esecuzione dello stage (System.nanoTime) e indice del worker che lo ha elaborato
+	private long created_ns;
+	private long begin_ns;
+	private long end_ns;
+	private long merge_begin_ns;
+	private int worker;
+	
+	// Array caricato in modo pigro (array == null): sorgente, posizione e lunghezza
+	private PayloadSource payload_source;
+	private long payload_offset;
+	private int payload_length;
+	
+	// Collegamenti del nodo mentre è rimosso dal DAG (vedi beginDirectSort)
+	private Set<MergeSortStage> detached_parents;
+	private Set<MergeSortStage> detached_children;
+	
 	//------
     
     // Componenti statiche della classe
@@ -74,50 +91,6 @@ public class MergeSortStage
         }
     }
     
-    /**
-     * Calcola il numero totale di fork effettuate nel DAG.
-     * 
-     * @return il numero totale di fork effettuate nel DAG
-     */
-    public static int getTotalForks()
-    {
-    	if(dag==null || dag.vertexSet().size()<=1)
-    		return 0;
-    	
-    	return computeTotalForks(dag.vertexSet().stream().filter(p -> p.getStageType().equals(StageType.Start)).findFirst().orElse(null));
-    }
-    
-    /**
-     * Ritorna il nemro di fork nel sotto-DAG radicato nel nodo dato.
-     * 
-     * @param v il nodo radice del sotto-DAG
-     * @return il numero di fork nel sotto-DAG
-     */
-    private static int computeTotalForks(MergeSortStage v)
-    {
-    	if(v==null)
-    		return 0;
-    	
-    	// Se il numero di forks è negativo, fallo diventare positivo
-    	int local_forks = v.forks>=0 ? v.forks : 0;
-    	
-    	// Termina se arrivato al nodo finale
-    	if(v.getStageType().equals(StageType.End))
-    		return local_forks;
-    	
-    	// Se c'è un solo arco uscente somma le local fork a quelle del figlio (senza aggiungerne un'altra)
-    	Set<NoLabelDefaultEdge> edges = dag.outgoingEdgesOf(v);
-    	if(edges.size()==1)
-    		return local_forks + computeTotalForks(dag.getEdgeTarget(edges.iterator().next()));
-    	
-    	// Scorre ricorsivamente il DAG (si assume che il nodo attuale faccia una sola fork oltre alle subfork)
-    	int fork_sum = local_forks + 1;
-    	for(NoLabelDefaultEdge e : dag.outgoingEdgesOf(v))
-    		fork_sum += computeTotalForks(dag.getEdgeTarget(e));
-    	
-    	return fork_sum;
-    }
-    
     /**
      * Resetta il contatore dei taskID al valore iniziale
      */
@@ -160,6 +133,7 @@ public class MergeSortStage
     	this.array = array;
         this.time = LocalDateTime.now();
         this.stagetype = StageType.Start;
+        this.initTiming();
         
         // Genero il taskID tramite il contatore
         this.task_index = counterGetAndIncrement();
@@ -233,6 +207,7 @@ public class MergeSortStage
 	        this.array = array;
 	        this.time = time;
 	        this.stagetype = stagetype;
+	        this.initTiming();
 	        
 	        // Genero il taskID tramite il contatore
 	        this.task_index = (task_id<0) ? counterGetAndIncrement() : task_id;
@@ -264,52 +239,173 @@ public class MergeSortStage
      * @param forks numero di forks fatte nella computazione del nodo
      */
     public MergeSortStage(int task_id, String stagetype, int[] array, LocalDateTime time, int forks)
+    {
+        this(task_id, stagetype, array, time, forks, 0, 0, 0, -1);
+    }
+    
+    /**
+     * Costruisce l'oggetto {@link MergeSortStage} con i parametri passati in ingresso, compresi i tempi di esecuzione.
+     * Come il costruttore precedente, non tocca il dag di esecuzione.
+     * 
+     * @param task_id id della task che ha elaborato questo elemento
+     * @param stagetype, deve essere passato in formato stringa, la conversione verrà effettuata dal costruttore
+     * @param array array allo stato attuale
+     * @param time tempo in cui è stato effettuato il calcolo corrente
+     * @param forks numero di forks fatte nella computazione del nodo
+     * @param created_ns istante di creazione dello stage (System.nanoTime)
+     * @param begin_ns istante di inizio dell'elaborazione dello stage (System.nanoTime)
+     * @param end_ns istante di fine dell'elaborazione dello stage (System.nanoTime)
+     * @param worker indice del worker che ha elaborato lo stage (-1 se sconosciuto)
+     */
+    public MergeSortStage(int task_id, String stagetype, int[] array, LocalDateTime time, int forks, long created_ns, long begin_ns, long end_ns, int worker)
     {
         this.task_index = task_id;
         this.stagetype = StageType.valueOf(stagetype);
         this.array = array;
         this.time  = time;
         this.forks = forks;
+        this.created_ns = created_ns;
+        this.begin_ns = begin_ns;
+        this.end_ns = end_ns;
+        this.worker = worker;
+    }
+    
+    /**
+     * Costruisce l'oggetto {@link MergeSortStage} senza il suo array, che verrà letto dalla sorgente data solo quando richiesto.
+     * Come i costruttori precedenti, non tocca il dag di esecuzione.
+     * 
+     * @param task_id id della task che ha elaborato questo elemento
+     * @param stagetype, deve essere passato in formato stringa, la conversione verrà effettuata dal costruttore
+     * @param source sorgente da cui leggere l'array
+     * @param offset posizione dell'array nella sorgente
+     * @param length numero di elementi dell'array
+     * @param time tempo in cui è stato effettuato il calcolo corrente
+     * @param forks numero di forks fatte nella computazione del nodo
+     * @param created_ns istante di creazione dello stage (System.nanoTime)
+     * @param begin_ns istante di inizio dell'elaborazione dello stage (System.nanoTime)
+     * @param end_ns istante di fine dell'elaborazione dello stage (System.nanoTime)
+     * @param worker indice del worker che ha elaborato lo stage (-1 se sconosciuto)
+     */
+    public MergeSortStage(int task_id, String stagetype, PayloadSource source, long offset, int length, LocalDateTime time, int forks, long created_ns, long begin_ns, long end_ns, int worker)
+    {
+        this(task_id, stagetype, (int[]) null, time, forks, created_ns, begin_ns, end_ns, worker);
+        this.payload_source = source;
+        this.payload_offset = offset;
+        this.payload_length = length;
     }
     
     // METODI DI MODIFICA DEL NODO
     
     /**
-     * Ordina direttamente l'array del nodo con insertion sort, e aggiorna il timestamp.
+     * Inizializza i tempi dello stage all'istante attuale, come se fosse stato elaborato istantaneamente dal thread corrente.
+     */
+    private void initTiming()
+    {
+        this.created_ns = System.nanoTime();
+        this.begin_ns = this.created_ns;
+        this.end_ns = this.created_ns;
+        this.worker = currentWorker();
+    }
+    
+    /**
+     * Segna l'inizio dell'elaborazione dello stage da parte del thread corrente.
+     */
+    public void markBegin()
+    {
+        this.begin_ns = System.nanoTime();
+        this.end_ns = this.begin_ns;
+        this.worker = currentWorker();
+    }
+    
+    /**
+     * Segna la fine dell'elaborazione dello stage.
+     */
+    public void markEnd()
+    {
+        this.end_ns = System.nanoTime();
+    }
+    
+    /**
+     * Segna l'inizio del merge dei sotto-stage di questo stage di divisione,
+     * che sarà poi assegnato allo stage di merge tramite {@link #setMergeInterval(MergeSortStage)}.
+     */
+    public void markMergeBegin()
+    {
+        this.merge_begin_ns = System.nanoTime();
+    }
+    
+    /**
+     * Imposta i tempi di questo stage di merge: l'inizio è quello segnato sullo stage di divisione dato, la fine è l'istante attuale.
+     * Uno stage di merge non attende in coda, quindi l'istante di creazione coincide con quello di inizio.
+     * 
+     * @param divide lo stage di divisione del task che ha effettuato il merge
+     */
+    public void setMergeInterval(MergeSortStage divide)
+    {
+        this.created_ns = divide.merge_begin_ns;
+        this.begin_ns = divide.merge_begin_ns;
+        this.end_ns = System.nanoTime();
+    }
+    
+    /**
+     * Ritorna l'indice del worker del ForkJoinPool che esegue il thread corrente, o -1 se il thread non appartiene ad un ForkJoinPool.
+     * 
+     * @return int
      */
-    public void directSort()
+    private static int currentWorker()
+    {
+        Thread t = Thread.currentThread();
+        return (t instanceof ForkJoinWorkerThread) ? ((ForkJoinWorkerThread) t).getPoolIndex() : -1;
+    }
+    
+    /**
+     * Rimuove temporaneamente il nodo dal DAG, prima che il suo array venga ordinato direttamente.
+     * Il nodo deve essere rimosso prima di modificare l'array, perché l'hash del nodo dipende dal suo contenuto.
+     * Deve essere sempre seguito da {@link #endDirectSort()}.
+     */
+    public void beginDirectSort()
     {
         synchronized(dag)
     	{
     		// Salvo tutti i nodi padri del nodo attuale ed i relativi archi entranti
     		Set<NoLabelDefaultEdge> inEdges = dag.incomingEdgesOf(this);
-    		Set<MergeSortStage> parents = inEdges.stream()
+    		this.detached_parents = inEdges.stream()
     				.map(e -> dag.getEdgeSource(e))
     				.collect(Collectors.toSet());
     		
     		// Salvo tutti i nodi figli del nodo attuale ed i relativi archi uscenti
     		Set<NoLabelDefaultEdge> outEdges = dag.outgoingEdgesOf(this);
-    		Set<MergeSortStage> children = outEdges.stream()
+    		this.detached_children = outEdges.stream()
     				.map(e -> dag.getEdgeTarget(e))
     				.collect(Collectors.toSet());
     		
-    		// Rimuovo il nodo finale e tutti gli archi
+    		// Rimuovo il nodo e tutti gli archi
     		dag.removeVertex(this);
     		dag.removeAllEdges(inEdges);
     		dag.removeAllEdges(outEdges);
-    		
-    		// Ordino l'array direttamente
-    		MergeSortUtils.insertionSort(this.array);
-    		
+    	}
+    }
+    
+    /**
+     * Riaggiunge al DAG il nodo rimosso da {@link #beginDirectSort()}, dopo che il suo array è stato ordinato,
+     * e aggiorna il timestamp.
+     */
+    public void endDirectSort()
+    {
+        synchronized(dag)
+    	{
     		// Aggiorno il timestamp
     		this.time = LocalDateTime.now();
     		
         	// Riaggiungo il nodo, con i relativi archi entranti e uscenti
         	dag.addVertex(this);
-        	for(MergeSortStage v : parents)
+        	for(MergeSortStage v : this.detached_parents)
         		dag.addEdge(v, this);
-        	for(MergeSortStage v : children)
+        	for(MergeSortStage v : this.detached_children)
         		dag.addEdge(this, v);
+        	
+        	this.detached_parents = null;
+        	this.detached_children = null;
     	}
     }
     
@@ -362,9 +458,32 @@ public class MergeSortStage
      */
     public int[] getResult()
     {
+        if(array == null)
+            return payload_source.load(payload_offset, payload_length);
+        
         return array;
     }
     
+    /**
+     * Ritorna la lunghezza dell'array, senza caricarlo se il nodo è caricato in modo pigro.
+     * 
+     * @return int
+     */
+    public int getResultLength()
+    {
+        return array == null ? payload_length : array.length;
+    }
+    
+    /**
+     * Indica se l'array del nodo viene letto dalla sua sorgente solo quando richiesto.
+     * 
+     * @return boolean
+     */
+    public boolean isLazy()
+    {
+        return array == null;
+    }
+    
     /**
      * Ritorna l'array allo stato corrente dell'ordinamento in forma di stringa
      * 
@@ -372,7 +491,7 @@ public class MergeSortStage
      */
     public String getResultString()
     {
-        return Arrays.toString(this.array);
+        return Arrays.toString(this.getResult());
     }
     
     /**
@@ -385,6 +504,67 @@ public class MergeSortStage
         return time;
     }
     
+    /**
+     * Ritorna l'istante (System.nanoTime) in cui lo stage è stato creato.
+     * 
+     * @return long
+     */
+    public long getCreatedNanos()
+    {
+        return created_ns;
+    }
+    
+    /**
+     * Ritorna l'istante (System.nanoTime) in cui è iniziata l'elaborazione dello stage.
+     * 
+     * @return long
+     */
+    public long getBeginNanos()
+    {
+        return begin_ns;
+    }
+    
+    /**
+     * Ritorna l'istante (System.nanoTime) in cui è terminata l'elaborazione dello stage.
+     * 
+     * @return long
+     */
+    public long getEndNanos()
+    {
+        return end_ns;
+    }
+    
+    /**
+     * Ritorna il tempo (in nanosecondi) impiegato per elaborare lo stage.
+     * 
+     * @return long
+     */
+    public long getDuration()
+    {
+        return end_ns - begin_ns;
+    }
+    
+    /**
+     * Ritorna il tempo (in nanosecondi) che lo stage ha atteso dalla sua creazione all'inizio della sua elaborazione
+     * (es. il tempo passato nella coda del ForkJoinPool prima di essere eseguito o rubato).
+     * 
+     * @return long
+     */
+    public long getQueueDelay()
+    {
+        return begin_ns - created_ns;
+    }
+    
+    /**
+     * Ritorna l'indice del worker del ForkJoinPool che ha elaborato lo stage, o -1 se sconosciuto.
+     * 
+     * @return int
+     */
+    public int getWorker()
+    {
+        return worker;
+    }
+    
     /**
      * Ritorna il tipo dello stage corrente 
      * 
@@ -430,7 +610,14 @@ public class MergeSortStage
         {
             return false;
         }        
-        if(!(Arrays.equals(this.array, ((MergeSortStage)(o)).array)))
+        // I nodi pigri sono confrontati per posizione, per non caricarne l'array
+        MergeSortStage other = (MergeSortStage)(o);
+        if(this.isLazy() || other.isLazy())
+        {
+            if(this.payload_source != other.payload_source || this.payload_offset != other.payload_offset)
+                return false;
+        }
+        else if(!(Arrays.equals(this.array, other.array)))
             return false;
         if(!(this.time.equals(((MergeSortStage)(o)).time)))
             return false;
@@ -455,7 +642,7 @@ public class MergeSortStage
 	    			+ this.task_index
 	    			+ "<br>" 
 	    			+ subforks
-	    			+ Arrays.toString(this.array)
+	    			+ this.getResultString()
     			+ "</center>" 
     		+ "</html>";
     }
@@ -463,6 +650,9 @@ public class MergeSortStage
     @Override
     public int hashCode() 
     {
+        if(this.isLazy())
+            return Objects.hash(this.task_index, this.stagetype, this.payload_offset, this.forks);
+        
         return Objects.hash(this.task_index, this.stagetype, Arrays.hashCode(this.array), this.forks);
     }
 }
@@ -132,7 +132,7 @@ public class MergeSortUtils
         int[] t = new int[right-left+1];
         
         // Unisco fino a che entrambi gli array non sono vuoti
-        while(i<=center && j<right)
+        while(i<=center && j<=right)
         {
             if(a[i] <= a[j])
             {
@@ -148,10 +148,10 @@ public class MergeSortUtils
         }
         
         // Copio le eventuali parti avanzate (o a sinistra o a destra)
-        if(i<center)
+        if(i<=center)
             System.arraycopy(a, i, t, z, center-i+1);
-        if(j<right)
-            System.arraycopy(a, j, t, z, right-j);
+        if(j<=right)
+            System.arraycopy(a, j, t, z, right-j+1);
         
         // Copio nell'array finale
         System.arraycopy(t, 0, a, left, right-left+1);
@@ -180,6 +180,73 @@ public class MergeSortUtils
         }
    }
     
+    /**
+     * Ordina la parte dell'array dato compresa fra gli indici left e right (inclusivi) utilizzando l'algoritmo Insertion Sort
+     * 
+     * @param array
+     * @param left indice di inizio (inclusivo)
+     * @param right indice di fine (inclusivo)
+     */
+    public static void insertionSort(int[] array, int left, int right) 
+    {
+        for(int i = left + 1; i <= right; i++) 
+        {
+            int tmp = array[i];
+            int j = i - 1;
+            while(j >= left && array[j] > tmp)
+            {
+                array[j + 1] = array[j];
+                j--;
+            }
+            array[j + 1] = tmp; 
+        }
+    }
+    
+    /**
+     * Ordina direttamente l'array di un task che ha raggiunto il cutoff:
+     * con Insertion Sort se ha al più insertion_cutoff elementi, altrimenti con un MergeSort sequenziale
+     * che usa Insertion Sort sulle parti di al più insertion_cutoff elementi.
+     * 
+     * @param array array da ordinare
+     * @param insertion_cutoff cutoff dell'Insertion Sort (con 1 il MergeSort arriva fino ai singoli elementi)
+     */
+    public static void leafSort(int[] array, int insertion_cutoff)
+    {
+        if(array.length <= insertion_cutoff)
+            insertionSort(array);
+        else
+            mergeSort(array, 0, array.length-1, Math.max(1, insertion_cutoff), new int[array.length]);
+    }
+    
+    /**
+     * MergeSort sequenziale in loco della parte left - right, usando il buffer dato per i merge.
+     */
+    private static void mergeSort(int[] a, int left, int right, int insertion_cutoff, int[] buffer)
+    {
+        if(right-left+1 <= insertion_cutoff)
+        {
+            insertionSort(a, left, right);
+            return;
+        }
+        
+        int center = (left+right) >>> 1;
+        mergeSort(a, left, center, insertion_cutoff, buffer);
+        mergeSort(a, center+1, right, insertion_cutoff, buffer);
+        
+        // Se le due parti sono già in ordine non serve il merge
+        if(a[center] <= a[center+1])
+            return;
+        
+        System.arraycopy(a, left, buffer, left, right-left+1);
+        int i = left, j = center+1, k = left;
+        while(i<=center && j<=right)
+            a[k++] = buffer[i] <= buffer[j] ? buffer[i++] : buffer[j++];
+        if(i<=center)
+            System.arraycopy(buffer, i, a, k, center-i+1);
+        if(j<=right)
+            System.arraycopy(buffer, j, a, k, right-j+1);
+    }
+    
     /**
      * Dato un'array ordinato ed un'elemento, ritorna l'indice 'i' tali che:
      * - 0 <= i <= arr.length
@@ -0,0 +1,17 @@
+package mergesort;
+
+/**
+ * Sorgente da cui un {@link MergeSortStage} caricato in modo pigro legge il proprio array,
+ * solo quando viene effettivamente richiesto (es. quando il nodo viene disegnato o ispezionato).
+ */
+public interface PayloadSource
+{
+    /**
+     * Decodifica l'array memorizzato alla posizione indicata.
+     * 
+     * @param offset posizione dell'array nella sorgente
+     * @param length numero di elementi dell'array
+     * @return l'array decodificato (da non modificare, può essere condiviso tramite una cache)
+     */
+    int[] load(long offset, int length);
+}
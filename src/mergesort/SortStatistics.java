@@ -0,0 +1,102 @@
+package mergesort;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contatori delle operazioni effettuate dagli algoritmi di MergeSort.
+ * 
+ * I contatori sono {@link LongAdder}, quindi possono essere incrementati da più thread contemporaneamente
+ * con un costo minimo, e sono sempre attivi (anche senza debug).
+ */
+public class SortStatistics
+{
+    private final LongAdder forks = new LongAdder();
+    private final LongAdder leaf_sorts = new LongAdder();
+    private final LongAdder sequential_merges = new LongAdder();
+    private final LongAdder parallel_merge_splits = new LongAdder();
+    private final LongAdder elements_merged = new LongAdder();
+    
+    // INCREMENTI
+    
+    /**
+     * Segna una fork (di un task di ordinamento o di merge).
+     */
+    public void fork()
+    {
+        forks.increment();
+    }
+    
+    /**
+     * Segna un task che ha raggiunto il cutoff e ha ordinato direttamente il suo array.
+     */
+    public void leafSort()
+    {
+        leaf_sorts.increment();
+    }
+    
+    /**
+     * Segna un merge eseguito sequenzialmente.
+     */
+    public void sequentialMerge()
+    {
+        sequential_merges.increment();
+    }
+    
+    /**
+     * Segna la divisione di un merge parallelo in due sotto-merge.
+     */
+    public void parallelMergeSplit()
+    {
+        parallel_merge_splits.increment();
+    }
+    
+    /**
+     * Segna l'unione di due sotto-array ordinati.
+     * 
+     * @param n numero di elementi dell'array risultante
+     */
+    public void merged(int n)
+    {
+        elements_merged.add(n);
+    }
+    
+    // GETTER
+    
+    public long getForks()
+    {
+        return forks.sum();
+    }
+    
+    public long getLeafSorts()
+    {
+        return leaf_sorts.sum();
+    }
+    
+    public long getSequentialMerges()
+    {
+        return sequential_merges.sum();
+    }
+    
+    public long getParallelMergeSplits()
+    {
+        return parallel_merge_splits.sum();
+    }
+    
+    public long getElementsMerged()
+    {
+        return elements_merged.sum();
+    }
+    
+    /**
+     * Restituisce un resoconto leggibile dei contatori
+     */
+    @Override
+    public String toString()
+    {
+        return "Fork: " + getForks()
+            + System.lineSeparator() + "Ordinamenti diretti (cutoff): " + getLeafSorts()
+            + System.lineSeparator() + "Merge sequenziali: " + getSequentialMerges()
+            + System.lineSeparator() + "Divisioni di merge paralleli: " + getParallelMergeSplits()
+            + System.lineSeparator() + "Elementi uniti: " + getElementsMerged();
+    }
+}
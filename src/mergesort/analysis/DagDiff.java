@@ -0,0 +1,451 @@
+package mergesort.analysis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jgrapht.graph.DefaultDirectedGraph;
+
+import mergesort.MergeSortStage;
+import mergesort.MergeSortStage.StageType;
+import mergesort.NoLabelDefaultEdge;
+
+/**
+ * Confronto fra i DAG di due esecuzioni (es. con cutoff o numero di worker diversi).
+ *
+ * I nodi non sono allineati con equals/hashCode, che dipendono dai tempi, ma in base alla loro posizione logica
+ * nell'albero delle divisioni: ogni coppia divisione/merge è identificata dal percorso di metà sinistre (S)
+ * e destre (D) che porta dalla radice al suo sotto-array ("/" per la radice, "/SD" per la metà destra
+ * della metà sinistra, ecc.). Due esecuzioni sullo stesso numero di elementi hanno quindi gli stessi percorsi
+ * fino al più piccolo dei due cutoff, e i percorsi presenti in una sola esecuzione indicano un cambio di struttura.
+ *
+ * Il confronto riporta per ogni livello e per ogni nodo le differenze dei tempi di elaborazione e del numero
+ * di fork dei merge, e lo spostamento del cammino critico. Tutti i tempi sono in nanosecondi, e ogni differenza
+ * è calcolata come "dopo" - "prima".
+ */
+public class DagDiff
+{
+    // Numero di nodi mostrati nel resoconto, in ordine di differenza
+    private static final int REPORT_NODES = 20;
+
+    /**
+     * Posizione logica presente in almeno una delle due esecuzioni, con gli stage corrispondenti (null se assenti).
+     */
+    public static class NodeDiff
+    {
+        private final String path;
+        private MergeSortStage before_divide, before_merge, after_divide, after_merge;
+
+        private NodeDiff(String path)
+        {
+            this.path = path;
+        }
+
+        /**
+         * @return percorso dalla radice ("/", "/S", "/SD", ...)
+         */
+        public String getPath()
+        {
+            return "/" + path;
+        }
+
+        /**
+         * @return profondità nell'albero delle divisioni (0 per la radice)
+         */
+        public int getDepth()
+        {
+            return path.length();
+        }
+
+        public MergeSortStage getBeforeDivide()
+        {
+            return before_divide;
+        }
+
+        public MergeSortStage getBeforeMerge()
+        {
+            return before_merge;
+        }
+
+        public MergeSortStage getAfterDivide()
+        {
+            return after_divide;
+        }
+
+        public MergeSortStage getAfterMerge()
+        {
+            return after_merge;
+        }
+
+        /**
+         * @return true se la posizione esiste in entrambe le esecuzioni
+         */
+        public boolean isMatched()
+        {
+            return before_divide != null && after_divide != null;
+        }
+
+        /**
+         * @return true se la posizione è stata divisa in una sola delle due esecuzioni (es. per un cutoff diverso)
+         */
+        public boolean isShapeChanged()
+        {
+            return isMatched() && (before_merge == null) != (after_merge == null);
+        }
+
+        /**
+         * @return differenza del tempo di divisione (o di ordinamento diretto per le foglie)
+         */
+        public long getDivideDelta()
+        {
+            return duration(after_divide) - duration(before_divide);
+        }
+
+        /**
+         * @return differenza del tempo di merge
+         */
+        public long getMergeDelta()
+        {
+            return duration(after_merge) - duration(before_merge);
+        }
+
+        /**
+         * @return differenza del tempo complessivo della posizione (divisione e merge)
+         */
+        public long getDelta()
+        {
+            return getDivideDelta() + getMergeDelta();
+        }
+
+        /**
+         * @return differenza del numero di fork effettuate dal merge (0 se il numero non è noto in una delle due esecuzioni)
+         */
+        public int getForksDelta()
+        {
+            int before = forks(before_merge);
+            int after = forks(after_merge);
+            return (before < 0 || after < 0) ? 0 : after - before;
+        }
+    }
+
+    /**
+     * Totali di un livello dell'albero delle divisioni in una esecuzione.
+     */
+    private static class Level
+    {
+        int blocks;
+        long time;
+        long forks;
+    }
+
+    private final Map<String, NodeDiff> nodes = new LinkedHashMap<>();
+    private final Map<MergeSortStage, NodeDiff> by_stage = new IdentityHashMap<>();
+    private final List<Level[]> levels = new ArrayList<>();
+    private final WorkSpanAnalysis before_analysis;
+    private final WorkSpanAnalysis after_analysis;
+    private final List<String> before_critical;
+    private final List<String> after_critical;
+    private final DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> after;
+
+    /**
+     * Confronta i DAG di due esecuzioni.
+     *
+     * @param before DAG dell'esecuzione di riferimento
+     * @param after DAG dell'esecuzione da confrontare
+     */
+    public DagDiff(DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> before, DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> after)
+    {
+        this.after = after;
+
+        Map<MergeSortStage, String> before_paths = align(before, true);
+        Map<MergeSortStage, String> after_paths = align(after, false);
+
+        this.before_analysis = new WorkSpanAnalysis(before);
+        this.after_analysis = new WorkSpanAnalysis(after);
+        this.before_critical = criticalPath(before_analysis, before_paths);
+        this.after_critical = criticalPath(after_analysis, after_paths);
+    }
+
+    /**
+     * Visita l'albero delle divisioni del DAG dato, registrando ogni stage nella posizione corrispondente.
+     *
+     * @return l'etichetta di ogni stage (percorso seguito da ":D" per le divisioni e ":M" per i merge)
+     */
+    private Map<MergeSortStage, String> align(DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag, boolean is_before)
+    {
+        Map<MergeSortStage, String> labels = new IdentityHashMap<>();
+
+        MergeSortStage start = dag.vertexSet().stream()
+                .filter(v -> dag.inDegreeOf(v) == 0)
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Il DAG non ha un nodo iniziale"));
+
+        visit(dag, start, "", is_before, labels);
+        return labels;
+    }
+
+    /**
+     * Registra ricorsivamente il blocco che inizia dalla divisione data.
+     *
+     * @return lo stage che contiene il risultato del blocco (il merge, o la divisione stessa per le foglie)
+     */
+    private MergeSortStage visit(DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag, MergeSortStage divide, String path,
+            boolean is_before, Map<MergeSortStage, String> labels)
+    {
+        NodeDiff node = nodes.computeIfAbsent(path, NodeDiff::new);
+
+        // Il merge del blocco è il successore del risultato dei sotto-blocchi
+        MergeSortStage merge = null;
+        MergeSortStage[] children = halves(dag, divide);
+        if(children != null)
+        {
+            MergeSortStage left = visit(dag, children[0], path + "S", is_before, labels);
+            visit(dag, children[1], path + "D", is_before, labels);
+            for(NoLabelDefaultEdge e : dag.outgoingEdgesOf(left))
+            {
+                MergeSortStage m = dag.getEdgeTarget(e);
+                if(m.getStageType() == StageType.Merge || m.getStageType() == StageType.End)
+                    merge = m;
+            }
+        }
+
+        if(is_before)
+        {
+            node.before_divide = divide;
+            node.before_merge = merge;
+        }
+        else
+        {
+            node.after_divide = divide;
+            node.after_merge = merge;
+            by_stage.put(divide, node);
+            if(merge != null)
+                by_stage.put(merge, node);
+        }
+
+        labels.put(divide, path + ":D");
+        if(merge != null)
+            labels.put(merge, path + ":M");
+
+        // Totali del livello
+        while(levels.size() <= path.length())
+            levels.add(new Level[] {new Level(), new Level()});
+        Level level = levels.get(path.length())[is_before ? 0 : 1];
+        level.blocks++;
+        level.time += duration(divide) + duration(merge);
+        level.forks += Math.max(0, forks(merge));
+
+        return merge != null ? merge : divide;
+    }
+
+    /**
+     * Ritorna le divisioni figlie dello stage dato, nell'ordine metà sinistra, metà destra (null se è una foglia).
+     * La metà sinistra è elaborata dallo stesso task del padre, e non è mai più lunga della destra.
+     */
+    private static MergeSortStage[] halves(DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag, MergeSortStage divide)
+    {
+        List<MergeSortStage> children = new ArrayList<>(2);
+        for(NoLabelDefaultEdge e : dag.outgoingEdgesOf(divide))
+        {
+            MergeSortStage c = dag.getEdgeTarget(e);
+            if(c.getStageType() == StageType.Divide)
+                children.add(c);
+        }
+        if(children.size() != 2)
+            return null;
+
+        MergeSortStage a = children.get(0), b = children.get(1);
+        boolean a_left;
+        if(a.getTaskID() == divide.getTaskID() || b.getTaskID() == divide.getTaskID())
+            a_left = a.getTaskID() == divide.getTaskID();
+        else if(a.getResultLength() != b.getResultLength())
+            a_left = a.getResultLength() < b.getResultLength();
+        else
+            a_left = a.getTaskID() < b.getTaskID();
+
+        return a_left ? new MergeSortStage[] {a, b} : new MergeSortStage[] {b, a};
+    }
+
+    private static List<String> criticalPath(WorkSpanAnalysis analysis, Map<MergeSortStage, String> labels)
+    {
+        List<String> path = new ArrayList<>();
+        for(MergeSortStage v : analysis.getCriticalPath())
+            path.add("/" + labels.getOrDefault(v, "?"));
+        return Collections.unmodifiableList(path);
+    }
+
+    private static long duration(MergeSortStage v)
+    {
+        return v == null ? 0 : Math.max(0, v.getDuration());
+    }
+
+    private static int forks(MergeSortStage v)
+    {
+        return v == null ? -1 : v.getSubForks();
+    }
+
+    /**
+     * @return tutte le posizioni, in ordine di livello
+     */
+    public List<NodeDiff> getNodes()
+    {
+        List<NodeDiff> list = new ArrayList<>(nodes.values());
+        list.sort(Comparator.comparingInt(NodeDiff::getDepth));
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Ritorna la posizione di uno stage del DAG "dopo".
+     *
+     * @param stage stage del DAG da confrontare
+     * @return la posizione, o null se lo stage non fa parte dell'albero delle divisioni
+     */
+    public NodeDiff getNode(MergeSortStage stage)
+    {
+        return by_stage.get(stage);
+    }
+
+    /**
+     * @return il DAG da confrontare ("dopo")
+     */
+    public DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> getAfter()
+    {
+        return after;
+    }
+
+    /**
+     * @return cammino critico dell'esecuzione di riferimento, come etichette delle posizioni ("/SD:M", ...)
+     */
+    public List<String> getBeforeCriticalPath()
+    {
+        return before_critical;
+    }
+
+    /**
+     * @return cammino critico dell'esecuzione da confrontare, come etichette delle posizioni
+     */
+    public List<String> getAfterCriticalPath()
+    {
+        return after_critical;
+    }
+
+    /**
+     * @return analisi lavoro/span dell'esecuzione di riferimento
+     */
+    public WorkSpanAnalysis getBeforeAnalysis()
+    {
+        return before_analysis;
+    }
+
+    /**
+     * @return analisi lavoro/span dell'esecuzione da confrontare
+     */
+    public WorkSpanAnalysis getAfterAnalysis()
+    {
+        return after_analysis;
+    }
+
+    /**
+     * Ritorna un resoconto leggibile del confronto.
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append(String.format("Lavoro (T1): %.3f ms -> %.3f ms (%+.3f ms)%n",
+                before_analysis.getWork() / 1e6, after_analysis.getWork() / 1e6, (after_analysis.getWork() - before_analysis.getWork()) / 1e6));
+        sb.append(String.format("Span (Tinf): %.3f ms -> %.3f ms (%+.3f ms)%n",
+                before_analysis.getSpan() / 1e6, after_analysis.getSpan() / 1e6, (after_analysis.getSpan() - before_analysis.getSpan()) / 1e6));
+        sb.append(String.format("Parallelismo (T1/Tinf): %.2f -> %.2f%n", before_analysis.getParallelism(), after_analysis.getParallelism()));
+
+        // Livelli
+        sb.append(String.format("%nLivello  Blocchi prima/dopo   Tempo prima (ms)  Tempo dopo (ms)  Differenza (ms)  Fork prima/dopo%n"));
+        for(int d = 0; d < levels.size(); d++)
+        {
+            Level b = levels.get(d)[0], a = levels.get(d)[1];
+            sb.append(String.format("%7d  %8d/%-8d  %16.3f  %15.3f  %+15.3f  %7d/%-7d%n",
+                    d, b.blocks, a.blocks, b.time / 1e6, a.time / 1e6, (a.time - b.time) / 1e6, b.forks, a.forks));
+        }
+
+        // Struttura
+        int only_before = 0, only_after = 0, reshaped = 0, fork_changes = 0;
+        List<NodeDiff> matched = new ArrayList<>();
+        for(NodeDiff n : nodes.values())
+        {
+            if(n.after_divide == null)
+                only_before++;
+            else if(n.before_divide == null)
+                only_after++;
+            else
+            {
+                matched.add(n);
+                if(n.isShapeChanged())
+                    reshaped++;
+                if(n.getForksDelta() != 0)
+                    fork_changes++;
+            }
+        }
+        sb.append(String.format("%nPosizioni: %d in comune, %d solo prima, %d solo dopo, %d divise in una sola esecuzione, %d con fork diverse%n",
+                matched.size(), only_before, only_after, reshaped, fork_changes));
+
+        // Nodi con le differenze maggiori
+        matched.sort((x, y) -> Long.compare(Math.abs(y.getDelta()), Math.abs(x.getDelta())));
+        sb.append(String.format("%nPosizioni con le differenze maggiori:%n"));
+        sb.append(String.format("  %-24s %16s %16s %10s%n", "Posizione", "Divisione (ms)", "Merge (ms)", "Fork"));
+        for(NodeDiff n : matched.subList(0, Math.min(REPORT_NODES, matched.size())))
+            sb.append(String.format("  %-24s %+16.3f %+16.3f %+10d%s%n", abbreviate(n.getPath()), n.getDivideDelta() / 1e6, n.getMergeDelta() / 1e6,
+                    n.getForksDelta(), n.isShapeChanged() ? "  (struttura diversa)" : ""));
+
+        // Cammino critico
+        Set<String> before_set = new LinkedHashSet<>(before_critical);
+        Set<String> after_set = new LinkedHashSet<>(after_critical);
+        int common = 0;
+        while(common < Math.min(before_critical.size(), after_critical.size()) && before_critical.get(common).equals(after_critical.get(common)))
+            common++;
+        sb.append(String.format("%nCammino critico: %d nodi -> %d nodi, %d nodi iniziali in comune%n",
+                before_critical.size(), after_critical.size(), common));
+        if(common < Math.max(before_critical.size(), after_critical.size()))
+        {
+            sb.append(String.format("  Diverge dopo: %s%n", common == 0 ? "(inizio)" : abbreviate(before_critical.get(common - 1))));
+            sb.append(String.format("  Prima: %s%n", describePath(before_critical, after_set, common)));
+            sb.append(String.format("  Dopo:  %s%n", describePath(after_critical, before_set, common)));
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Descrive la parte di cammino critico che segue la divergenza, segnando con '*' i nodi assenti dall'altro cammino.
+     */
+    private static String describePath(List<String> path, Set<String> other, int from)
+    {
+        StringBuilder sb = new StringBuilder();
+        Map<String, Integer> shown = new HashMap<>();
+        for(int i = from; i < path.size(); i++)
+        {
+            String label = path.get(i);
+            if(shown.merge(label, 1, Integer::sum) > 1)
+                continue;
+            if(sb.length() > 0)
+                sb.append(" -> ");
+            sb.append(abbreviate(label)).append(other.contains(label) ? "" : "*");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Accorcia i percorsi molto profondi, lasciando visibile la parte finale.
+     */
+    private static String abbreviate(String path)
+    {
+        return path.length() <= 24 ? path : "/..." + path.substring(path.length() - 20);
+    }
+}
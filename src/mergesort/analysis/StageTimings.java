@@ -0,0 +1,123 @@
+package mergesort.analysis;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+import mergesort.MergeSortStage;
+import mergesort.MergeSortStage.StageType;
+
+/**
+ * Riassume i tempi registrati negli stage di una computazione:
+ * tempo di elaborazione per tipo di stage, tempo di attesa in coda dei task e tempo di lavoro di ogni worker.
+ * Tutti i tempi sono in nanosecondi.
+ */
+public class StageTimings
+{
+    private final Map<StageType, Long> duration_by_type = new TreeMap<>();
+    private final Map<StageType, Integer> count_by_type = new TreeMap<>();
+    private final Map<Integer, Long> busy_by_worker = new TreeMap<>();
+    private long total_queue_delay;
+    private long max_queue_delay;
+    private long first_begin = Long.MAX_VALUE;
+    private long last_end = Long.MIN_VALUE;
+    
+    /**
+     * Calcola il riassunto dei tempi degli stage dati.
+     * 
+     * @param stages gli stage della computazione (es. i nodi del DAG)
+     */
+    public StageTimings(Collection<MergeSortStage> stages)
+    {
+        for(MergeSortStage v : stages)
+        {
+            long duration = v.getDuration();
+            
+            duration_by_type.merge(v.getStageType(), duration, Long::sum);
+            count_by_type.merge(v.getStageType(), 1, Integer::sum);
+            busy_by_worker.merge(v.getWorker(), duration, Long::sum);
+            
+            total_queue_delay += v.getQueueDelay();
+            max_queue_delay = Math.max(max_queue_delay, v.getQueueDelay());
+            
+            first_begin = Math.min(first_begin, v.getCreatedNanos());
+            last_end = Math.max(last_end, v.getEndNanos());
+        }
+    }
+    
+    /**
+     * Ritorna il tempo totale di elaborazione degli stage del tipo dato.
+     * 
+     * @param type tipo di stage
+     * @return long
+     */
+    public long getDuration(StageType type)
+    {
+        return duration_by_type.getOrDefault(type, 0L);
+    }
+    
+    /**
+     * Ritorna il tempo di lavoro di ogni worker (l'indice -1 raggruppa gli stage elaborati fuori dal ForkJoinPool).
+     * 
+     * @return mappa indice del worker -> tempo di lavoro
+     */
+    public Map<Integer, Long> getBusyByWorker()
+    {
+        return busy_by_worker;
+    }
+    
+    /**
+     * Ritorna la somma dei tempi di attesa in coda di tutti gli stage.
+     * 
+     * @return long
+     */
+    public long getTotalQueueDelay()
+    {
+        return total_queue_delay;
+    }
+    
+    /**
+     * Ritorna il massimo tempo di attesa in coda di uno stage.
+     * 
+     * @return long
+     */
+    public long getMaxQueueDelay()
+    {
+        return max_queue_delay;
+    }
+    
+    /**
+     * Ritorna il tempo trascorso dalla creazione del primo stage alla fine dell'ultimo.
+     * 
+     * @return long
+     */
+    public long getElapsed()
+    {
+        return (last_end >= first_begin) ? last_end - first_begin : 0;
+    }
+    
+    /**
+     * Ritorna un resoconto leggibile dei tempi.
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        
+        sb.append(String.format("Tempo trascorso: %.3f ms%n", getElapsed() / 1e6));
+        for(Map.Entry<StageType, Long> e : duration_by_type.entrySet())
+            sb.append(String.format("  %-6s : %7d stage, %10.3f ms%n", e.getKey(), count_by_type.get(e.getKey()), e.getValue() / 1e6));
+        
+        sb.append(String.format("Attesa in coda: totale %.3f ms, massima %.3f ms%n", total_queue_delay / 1e6, max_queue_delay / 1e6));
+        
+        sb.append("Tempo di lavoro per worker:").append(System.lineSeparator());
+        for(Map.Entry<Integer, Long> e : busy_by_worker.entrySet())
+        {
+            String name = e.getKey() < 0 ? "esterno" : "worker " + e.getKey();
+            double utilisation = getElapsed() > 0 ? 100.0 * e.getValue() / getElapsed() : 0;
+            sb.append(String.format("  %-10s : %10.3f ms (%.1f%%)%n", name, e.getValue() / 1e6, utilisation));
+        }
+        
+        return sb.toString();
+    }
+}
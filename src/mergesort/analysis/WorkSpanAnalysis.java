@@ -0,0 +1,203 @@
+package mergesort.analysis;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jgrapht.graph.DefaultDirectedGraph;
+
+import mergesort.MergeSortStage;
+import mergesort.NoLabelDefaultEdge;
+
+/**
+ * Analisi lavoro/span del DAG di una computazione, usando come peso di ogni nodo il tempo di elaborazione dello stage.
+ * 
+ * - Lavoro (T1): somma dei tempi di tutti gli stage, cioè il tempo che impiegherebbe un solo processore.
+ * - Span (T∞): peso del cammino più pesante del DAG (cammino critico), cioè il tempo minimo con infiniti processori.
+ * - Parallelismo (T1/T∞): numero massimo di processori che la computazione può sfruttare.
+ * 
+ * Il calcolo è fatto con un'unica visita topologica del DAG (algoritmo di Kahn), memorizzando per ogni nodo 
+ * il peso del cammino più pesante che termina in esso ed il nodo precedente su tale cammino.
+ */
+public class WorkSpanAnalysis
+{
+    private final long work;
+    private final long span;
+    private final long elapsed;
+    private final int workers;
+    private final List<MergeSortStage> critical_path;
+    
+    /**
+     * Esegue l'analisi del DAG dato.
+     * 
+     * @param dag il DAG della computazione
+     */
+    public WorkSpanAnalysis(DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag)
+    {
+        Set<MergeSortStage> vertices = dag.vertexSet();
+        
+        // Le mappe sono per identità, per non ricalcolare l'hash (che dipende dall'array) di ogni nodo
+        Map<MergeSortStage, Integer> in_degree = new IdentityHashMap<>();
+        Map<MergeSortStage, Long> finish = new IdentityHashMap<>();
+        Map<MergeSortStage, MergeSortStage> previous = new IdentityHashMap<>();
+        Deque<MergeSortStage> ready = new ArrayDeque<>();
+        
+        long total = 0, first = Long.MAX_VALUE, last = Long.MIN_VALUE;
+        Set<Integer> seen_workers = new HashSet<>();
+        
+        for(MergeSortStage v : vertices)
+        {
+            int d = dag.inDegreeOf(v);
+            in_degree.put(v, d);
+            if(d == 0)
+                ready.add(v);
+            
+            total += weight(v);
+            first = Math.min(first, v.getCreatedNanos());
+            last = Math.max(last, v.getEndNanos());
+            if(v.getWorker() >= 0)
+                seen_workers.add(v.getWorker());
+        }
+        
+        // Visita topologica: un nodo è visitato solo quando tutti i suoi predecessori lo sono già stati
+        MergeSortStage heaviest = null;
+        long max_finish = 0;
+        while(!ready.isEmpty())
+        {
+            MergeSortStage v = ready.poll();
+            
+            // Il cammino più pesante che termina in 'v' passa per il predecessore con il cammino più pesante
+            long best = 0;
+            for(NoLabelDefaultEdge e : dag.incomingEdgesOf(v))
+            {
+                MergeSortStage p = dag.getEdgeSource(e);
+                long f = finish.get(p);
+                if(f >= best)
+                {
+                    best = f;
+                    previous.put(v, p);
+                }
+            }
+            
+            long f = best + weight(v);
+            finish.put(v, f);
+            if(heaviest == null || f > max_finish)
+            {
+                heaviest = v;
+                max_finish = f;
+            }
+            
+            for(NoLabelDefaultEdge e : dag.outgoingEdgesOf(v))
+            {
+                MergeSortStage c = dag.getEdgeTarget(e);
+                int d = in_degree.get(c) - 1;
+                in_degree.put(c, d);
+                if(d == 0)
+                    ready.add(c);
+            }
+        }
+        
+        // Ricostruisco il cammino critico a ritroso
+        List<MergeSortStage> path = new ArrayList<>();
+        for(MergeSortStage v = heaviest; v != null; v = previous.get(v))
+            path.add(v);
+        Collections.reverse(path);
+        
+        this.work = total;
+        this.span = max_finish;
+        this.elapsed = (last >= first) ? last - first : 0;
+        this.workers = Math.max(1, seen_workers.size());
+        this.critical_path = Collections.unmodifiableList(path);
+    }
+    
+    /**
+     * Peso di un nodo: il tempo di elaborazione del suo stage (mai negativo).
+     */
+    private static long weight(MergeSortStage v)
+    {
+        return Math.max(0, v.getDuration());
+    }
+    
+    /**
+     * Ritorna il lavoro totale T1 (nanosecondi).
+     * 
+     * @return long
+     */
+    public long getWork()
+    {
+        return work;
+    }
+    
+    /**
+     * Ritorna lo span T∞ (nanosecondi).
+     * 
+     * @return long
+     */
+    public long getSpan()
+    {
+        return span;
+    }
+    
+    /**
+     * Ritorna il parallelismo T1/T∞.
+     * 
+     * @return double
+     */
+    public double getParallelism()
+    {
+        return span > 0 ? (double) work / span : 0;
+    }
+    
+    /**
+     * Ritorna il limite inferiore al tempo di esecuzione con i worker usati: max(T1/P, T∞).
+     * 
+     * @return long
+     */
+    public long getLowerBound()
+    {
+        return Math.max(work / workers, span);
+    }
+    
+    /**
+     * Ritorna i nodi del cammino critico, dal primo all'ultimo.
+     * 
+     * @return lista dei nodi
+     */
+    public List<MergeSortStage> getCriticalPath()
+    {
+        return critical_path;
+    }
+    
+    /**
+     * Ritorna un resoconto leggibile dell'analisi.
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        
+        sb.append(String.format("Lavoro (T1): %.3f ms%n", work / 1e6));
+        sb.append(String.format("Span (Tinf): %.3f ms%n", span / 1e6));
+        sb.append(String.format("Parallelismo (T1/Tinf): %.2f%n", getParallelism()));
+        sb.append(String.format("Tempo misurato con %d worker: %.3f ms (limite inferiore %.3f ms)%n", workers, elapsed / 1e6, getLowerBound() / 1e6));
+        
+        // Se il parallelismo è inferiore ai worker, la computazione è limitata dal parallelismo disponibile (cammino critico), 
+        // altrimenti lo scarto fra tempo misurato e limite inferiore è dovuto all'overhead
+        if(getParallelism() < workers)
+            sb.append("Limitato dal parallelismo disponibile (cammino critico)").append(System.lineSeparator());
+        else
+            sb.append("Limitato dal lavoro totale e dall'overhead").append(System.lineSeparator());
+        
+        sb.append("Cammino critico (" + critical_path.size() + " nodi):").append(System.lineSeparator());
+        for(MergeSortStage v : critical_path)
+            sb.append(String.format("  %-6s task %-6d %9.3f ms%n", v.getStageType(), v.getTaskID(), v.getDuration() / 1e6));
+        
+        return sb.toString();
+    }
+}
@@ -0,0 +1,376 @@
+package mergesort.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import mergesort.MergeSortUtils;
+import mergesort.SortStatistics;
+import mergesort.jfr.LeafSortEvent;
+import mergesort.jfr.ParallelMergeSplitEvent;
+import mergesort.jfr.SequentialMergeEvent;
+import mergesort.jfr.SortEvent;
+import mergesort.management.AllocationMeter;
+import mergesort.trace.SortTracer;
+
+/**
+ * MergeSort parallelo, in cui anche l'operazione di Merge è eseguita parallelamente.
+ * L'esecuzione è registrata tramite il {@link SortTracer} fornito.
+ * 
+ * La divisione dell'ordinamento, la divisione dei merge e l'algoritmo delle foglie hanno soglie indipendenti ({@link Thresholds}).
+ * 
+ * @param <T> tipo dello stage registrato dal tracer
+ */
+public class ParallelSortEngine<T>
+{    
+    @SuppressWarnings("serial")
+    private class SortTask extends RecursiveTask<int[]>
+    {
+        private int[] array;
+        private T stage;
+        private final int depth;
+        private final int merge_cutoff;
+        
+        public SortTask(int[] array, T stage, int depth, int merge_cutoff)
+        {
+            this.array = array;
+            this.stage = stage;
+            this.depth = depth;
+            this.merge_cutoff = merge_cutoff;
+        }
+        
+        /**
+         * Ordina parallelamente l'array dato con MergeSort.
+         * Anche l'operazione di Merge è eseguita parallelamente.
+         */
+        @Override
+        protected int[] compute()
+        {
+            tracer.enter(stage);
+            
+            if(array.length <= cutoff)
+            {
+                stats.leafSort();
+                
+                // Ordino direttamente la parte sotto cutoff sequenziale
+                if(cutoff > 1)
+                {
+                    tracer.leafBegin(stage);
+                    LeafSortEvent event = new LeafSortEvent();
+                    event.begin();
+                    MergeSortUtils.leafSort(array, insertion_cutoff);
+                    event.end();
+                    if(event.shouldCommit())
+                    {
+                        event.elements = array.length;
+                        event.cutoff = cutoff;
+                        event.insertionCutoff = insertion_cutoff;
+                        event.depth = depth;
+                        event.commit();
+                    }
+                    tracer.leafEnd(stage);
+                }
+                
+                tracer.leave(stage);
+            }
+            else
+            {   
+                // Merge parte destra (in parallelo)
+                int[] right_array = MergeSortUtils.take_half_right(array);
+                SortTask right_ct = new SortTask(right_array, tracer.divide(stage, right_array, false), depth+1, merge_cutoff);
+                tracer.fork(stage, right_ct.stage);
+                stats.fork();
+                right_ct.fork();
+                
+                // Merge parte sinistra (su questo thread)
+                int[] left_array = MergeSortUtils.take_half_left(array);
+                SortTask left_ct = new SortTask(left_array, tracer.divide(stage, left_array, true), depth+1, merge_cutoff);
+                tracer.leave(stage);
+                
+                // Risultati dei mergesort sui sottoarray
+                int[] sorted_left_array = left_ct.compute();
+                int[] sorted_right_array = right_ct.join();
+                
+                // Unisco i risultati sul thread corrente in parallelo con altri thread
+                tracer.mergeBegin(stage);
+                MergeTask mt = new MergeTask(sorted_left_array, sorted_right_array, 0, merge_cutoff);
+                array = mt.compute();
+                stats.merged(array.length);
+                
+                // Registro lo stage di merge
+                stage = tracer.merge(stage, left_ct.stage, right_ct.stage, array, mt.forks);
+            }
+            
+            return array; 
+        }        
+    }
+    
+    @SuppressWarnings("serial")
+    private class MergeTask extends RecursiveTask<int[]>
+    {
+        private final int[] a;
+        private final int[] b;
+        private int[] sub_a_result;
+        private int[] sub_b_result;
+        private final int depth;
+        private final int merge_cutoff;
+        
+        /**
+         * Numero di fork effettuate da questa task e dalle sue sotto-task (valido dopo compute())
+         */
+        private int forks;
+        
+        public MergeTask (int[] array_left, int[] array_right, int depth, int merge_cutoff)
+        {
+            this.depth = depth;
+            this.merge_cutoff = merge_cutoff;
+            
+            // Seleziona gli array "A" e "B" in base alla lunghezza
+            if( array_left.length >= array_right.length )
+            {
+                this.a = array_left;
+                this.b = array_right;
+            }
+            else
+            {
+                this.a = array_right;
+                this.b = array_left;
+            }
+        }
+        
+        /**
+         * Esegue parallelamente l'operazione di Merge 
+         * di due array ordinati in modo crescente.
+         */
+        @Override
+        protected int[] compute() 
+        {
+            // Se A è vuoto, lo è anche B (A è l'array più grande)
+            if(this.a.length == 0)
+                return new int[] {};
+            
+            // Se B è vuoto ritorna A (sicuro non vuoto)
+            if(this.b.length == 0)
+                return this.a;
+            
+            // Se A ha solo 1 elemento, lo ha anche B (A è l'array più grande, e sò già che B non è vuoto)
+            if(this.a.length == 1)
+                return (this.a[0] <= this.b[0]) ? new int[]{this.a[0], this.b[0]} : new int[]{this.b[0], this.a[0]};
+            
+            // Applico il cutoff al merge (se necessario)
+            if( merge_cutoff != 1 && (this.a.length+this.b.length) <= merge_cutoff )
+            {
+                stats.sequentialMerge();
+                
+                SequentialMergeEvent event = new SequentialMergeEvent();
+                event.begin();
+                int[] merged = MergeSortUtils.merge_two_sorted_array(this.a, this.b);
+                event.end();
+                if(event.shouldCommit())
+                {
+                    event.elements = merged.length;
+                    event.cutoff = merge_cutoff;
+                    event.depth = depth;
+                    event.commit();
+                }
+                
+                return merged;
+            }
+            
+            ParallelMergeSplitEvent event = new ParallelMergeSplitEvent();
+            event.begin();
+            
+            // Trovo l'indice dell'elemento intermedio nell'array A
+            int median = this.a.length / 2;
+            
+            // Cerco nell'array B il primo numero maggiore o uguale di A[median]
+            int d = MergeSortUtils.search_split_point(this.a[median], this.b);
+            stats.parallelMergeSplit();
+            
+            int[] result = split(median, d);
+            
+            event.end();
+            
+            if(event.shouldCommit())
+            {
+                event.elements = result.length;
+                event.splitPoint = d;
+                event.cutoff = merge_cutoff;
+                event.depth = depth;
+                event.forks = this.forks;
+                event.commit();
+            }
+            
+            return result;
+        }
+        
+        /**
+         * Divide il merge in due sotto-merge, in base al punto di divisione trovato.
+         * 
+         * @param median indice dell'elemento intermedio dell'array A
+         * @param d indice del primo elemento dell'array B maggiore o uguale di A[median]
+         * @return l'array risultante dal merge
+         */
+        private int[] split(int median, int d)
+        {
+            // Se la parte sinistra dell'array B è vuota
+            if(d==0)
+            {
+                // Esegue sulle 2 metà destre (in questo thread)
+                MergeTask subB = new MergeTask
+                (
+                    Arrays.copyOfRange(this.a, median, this.a.length), 
+                    Arrays.copyOfRange(this.b, d, this.b.length),
+                    depth+1,
+                    merge_cutoff
+                );
+                
+                sub_b_result = subB.compute();
+                this.forks = subB.forks;
+                
+                // La parte destra è data dalle due parti destre, mentre la parte sinistra è data dalla sola parte sinistra di A
+                return MergeSortUtils.merge_arrays(Arrays.copyOfRange(this.a, 0, median), sub_b_result);
+            }
+            
+            // Se la parte destra dell'array B è vuota
+            if(d==this.b.length)
+            {
+                // Esegue sulle 2 metà siniste (in questo thread)
+                MergeTask subA = new MergeTask
+                (
+                    Arrays.copyOfRange(this.a, 0, median), 
+                    Arrays.copyOfRange(this.b, 0, d),
+                    depth+1,
+                    merge_cutoff
+                );
+                
+                sub_a_result = subA.compute();
+                this.forks = subA.forks;
+                
+                // La parte sinistra è data dalle due parti sinistre, mentre la parte destra è data dalla sola parte destra di A
+                return MergeSortUtils.merge_arrays(sub_a_result, Arrays.copyOfRange(this.a, median, this.a.length));
+            }
+            
+            // Esegue sulle 2 metà siniste (in parallelo)
+            MergeTask subA = new MergeTask
+            (
+                Arrays.copyOfRange(this.a, 0, median), 
+                Arrays.copyOfRange(this.b, 0, d),
+                depth+1,
+                merge_cutoff
+            );
+            stats.fork();
+            subA.fork();
+            
+            // Esegue sulle 2 metà destre (in questo thread)
+            MergeTask subB = new MergeTask
+            (
+                Arrays.copyOfRange(this.a, median, this.a.length), 
+                Arrays.copyOfRange(this.b, d, this.b.length),
+                depth+1,
+                merge_cutoff
+            );
+            
+            // Attende i risultati
+            sub_b_result = subB.compute();
+            sub_a_result = subA.join();
+            this.forks = subA.forks + subB.forks + 1;
+            
+            // Fonde i due array risultanti
+            return MergeSortUtils.merge_arrays(sub_a_result, sub_b_result);
+        }       
+    }
+    
+    private final int cutoff;
+    private final int requested_merge_cutoff;
+    private final int insertion_cutoff;
+    private final int parallelism;
+    private final SortTracer<T> tracer;
+    private final SortStatistics stats;
+    private final ForkJoinPool fj;
+    
+    public ParallelSortEngine(int cutoff, SortTracer<T> tracer)
+    {
+        this(cutoff, Runtime.getRuntime().availableProcessors(), tracer);
+    }
+    
+    /**
+     * Crea l'algoritmo con un ForkJoinPool del parallelismo dato.
+     * 
+     * @param cutoff cutoff sequenziale
+     * @param parallelism numero di worker del ForkJoinPool (>= 1)
+     * @param tracer tracer che registra l'esecuzione
+     */
+    public ParallelSortEngine(int cutoff, int parallelism, SortTracer<T> tracer)
+    {
+        this(cutoff, Thresholds.AUTO, Thresholds.DEFAULT_INSERTION_CUTOFF, parallelism, tracer);
+    }
+    
+    /**
+     * Crea l'algoritmo con soglie indipendenti per l'ordinamento, il merge parallelo e l'insertion sort ({@link Thresholds}).
+     * 
+     * @param cutoff cutoff sequenziale dell'ordinamento
+     * @param merge_cutoff dimensione sotto la quale un merge è eseguito sequenzialmente ({@link Thresholds#AUTO} per il default)
+     * @param insertion_cutoff dimensione fino alla quale le foglie sono ordinate con insertion sort
+     * @param parallelism numero di worker del ForkJoinPool (>= 1)
+     * @param tracer tracer che registra l'esecuzione
+     */
+    public ParallelSortEngine(int cutoff, int merge_cutoff, int insertion_cutoff, int parallelism, SortTracer<T> tracer)
+    {
+        this.cutoff = cutoff;
+        this.requested_merge_cutoff = merge_cutoff;
+        this.insertion_cutoff = insertion_cutoff;
+        this.parallelism = parallelism;
+        this.tracer = tracer;
+        this.stats = new SortStatistics();
+        this.fj = new ForkJoinPool(parallelism, AllocationMeter.workerFactory(), null, false);
+    }
+    
+    /**
+     * Ritorna i contatori delle operazioni effettuate dagli ordinamenti eseguiti con questo oggetto.
+     * 
+     * @return {@link SortStatistics}
+     */
+    public SortStatistics getStatistics()
+    {
+        return stats;
+    }
+    
+    /**
+     * Ritorna il ForkJoinPool usato dagli ordinamenti eseguiti con questo oggetto.
+     * 
+     * @return {@link ForkJoinPool}
+     */
+    public ForkJoinPool getPool()
+    {
+        return fj;
+    }
+    
+    public int[] sort(int[] array)
+    {
+        // Il cutoff del merge dipende dalla dimensione dell'input, quindi è passato ai task di ogni ordinamento
+        int merge_cutoff = Thresholds.mergeCutoff(requested_merge_cutoff, array.length, parallelism);
+        SortTask ct = new SortTask(array, tracer.start(array), 0, merge_cutoff);
+        
+        SortEvent event = new SortEvent();
+        long forks = stats.getForks();
+        event.begin();
+        
+        int[] result = fj.invoke(ct);
+        
+        event.end();
+        
+        if(event.shouldCommit())
+        {
+            event.engine = "P";
+            event.elements = array.length;
+            event.cutoff = cutoff;
+            event.forks = stats.getForks() - forks;
+            event.commit();
+        }
+        
+        tracer.end(ct.stage);
+        
+        return result;
+    }
+}
@@ -0,0 +1,195 @@
+package mergesort.engine;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import mergesort.MergeSortUtils;
+import mergesort.SortStatistics;
+import mergesort.jfr.LeafSortEvent;
+import mergesort.jfr.SequentialMergeEvent;
+import mergesort.jfr.SortEvent;
+import mergesort.management.AllocationMeter;
+import mergesort.trace.SortTracer;
+
+/**
+ * MergeSort semi-parallelo, in cui la divisione è eseguita parallelamente e l'operazione di Merge sequenzialmente.
+ * L'esecuzione è registrata tramite il {@link SortTracer} fornito.
+ * 
+ * La divisione dell'ordinamento e l'algoritmo delle foglie hanno soglie indipendenti ({@link Thresholds}).
+ * 
+ * @param <T> tipo dello stage registrato dal tracer
+ */
+public class SemiParallelSortEngine<T>
+{
+    @SuppressWarnings("serial")
+    class MergeSortThread extends RecursiveTask<int[]>
+    {
+        private int[] array;
+        private T stage;
+        private final int depth;
+        
+        public MergeSortThread(int[] array, T stage, int depth)
+        {
+            this.array = array;
+            this.stage = stage;
+            this.depth = depth;
+        }
+        
+        @Override
+        protected int[] compute()
+        {
+            tracer.enter(stage);
+            
+            if(array.length <= cutoff)
+            {
+                stats.leafSort();
+                
+                // Ordino direttamente la parte sotto cutoff sequenziale
+                if(cutoff > 1)
+                {
+                    tracer.leafBegin(stage);
+                    LeafSortEvent event = new LeafSortEvent();
+                    event.begin();
+                    MergeSortUtils.leafSort(array, insertion_cutoff);
+                    event.end();
+                    if(event.shouldCommit())
+                    {
+                        event.elements = array.length;
+                        event.cutoff = cutoff;
+                        event.insertionCutoff = insertion_cutoff;
+                        event.depth = depth;
+                        event.commit();
+                    }
+                    tracer.leafEnd(stage);
+                }
+                
+                tracer.leave(stage);
+            }
+            else
+            {                            
+                //creo e avvio su un altro thread il merge della parte destra
+                int[] right_array = MergeSortUtils.take_half_right(array);
+                MergeSortThread right_msst = new MergeSortThread(right_array, tracer.divide(stage, right_array, false), depth+1);
+                tracer.fork(stage, right_msst.stage);
+                stats.fork();
+                right_msst.fork();
+                
+                //creo e avvio su questo thread il merge della parte sinistra
+                int[] left_array = MergeSortUtils.take_half_left(array);
+                MergeSortThread left_msst = new MergeSortThread(left_array, tracer.divide(stage, left_array, true), depth+1);
+                tracer.leave(stage);
+                
+                //risultati dei mergesort sui sottoarray
+                int[] sorted_left_array = left_msst.compute();
+                int[] sorted_right_array = right_msst.join();   
+                
+                //unisco i risultati sul thread corrente                    
+                tracer.mergeBegin(stage);
+                SequentialMergeEvent event = new SequentialMergeEvent();
+                event.begin();
+                array = MergeSortUtils.merge_two_sorted_array(sorted_left_array, sorted_right_array);
+                event.end();
+                if(event.shouldCommit())
+                {
+                    event.elements = array.length;
+                    event.cutoff = cutoff;
+                    event.depth = depth;
+                    event.commit();
+                }
+                stats.sequentialMerge();
+                stats.merged(array.length);
+                
+                //registro lo stage di merge (il merge sequenziale non effettua fork)
+                stage = tracer.merge(stage, left_msst.stage, right_msst.stage, array, -1);
+            }   
+            
+            return array;
+        }        
+    }
+    
+    private final int cutoff;
+    private final int insertion_cutoff;
+    private final SortTracer<T> tracer;
+    private final SortStatistics stats;
+    private final ForkJoinPool fj;
+    
+    public SemiParallelSortEngine(int cutoff, SortTracer<T> tracer)
+    {
+        this(cutoff, Runtime.getRuntime().availableProcessors(), tracer);
+    }
+    
+    /**
+     * Crea l'algoritmo con un ForkJoinPool del parallelismo dato.
+     * 
+     * @param cutoff cutoff sequenziale
+     * @param parallelism numero di worker del ForkJoinPool (>= 1)
+     * @param tracer tracer che registra l'esecuzione
+     */
+    public SemiParallelSortEngine(int cutoff, int parallelism, SortTracer<T> tracer)
+    {
+        this(cutoff, Thresholds.DEFAULT_INSERTION_CUTOFF, parallelism, tracer);
+    }
+    
+    /**
+     * Crea l'algoritmo con soglie indipendenti per l'ordinamento e l'insertion sort ({@link Thresholds}).
+     * 
+     * @param cutoff cutoff sequenziale dell'ordinamento
+     * @param insertion_cutoff dimensione fino alla quale le foglie sono ordinate con insertion sort
+     * @param parallelism numero di worker del ForkJoinPool (>= 1)
+     * @param tracer tracer che registra l'esecuzione
+     */
+    public SemiParallelSortEngine(int cutoff, int insertion_cutoff, int parallelism, SortTracer<T> tracer)
+    {
+        this.cutoff = cutoff;
+        this.insertion_cutoff = insertion_cutoff;
+        this.tracer = tracer;
+        this.stats = new SortStatistics();
+        this.fj = new ForkJoinPool(parallelism, AllocationMeter.workerFactory(), null, false);
+    }
+    
+    /**
+     * Ritorna i contatori delle operazioni effettuate dagli ordinamenti eseguiti con questo oggetto.
+     * 
+     * @return {@link SortStatistics}
+     */
+    public SortStatistics getStatistics()
+    {
+        return stats;
+    }
+    
+    /**
+     * Ritorna il ForkJoinPool usato dagli ordinamenti eseguiti con questo oggetto.
+     * 
+     * @return {@link ForkJoinPool}
+     */
+    public ForkJoinPool getPool()
+    {
+        return fj;
+    }
+    
+    public int[] sort(int[] array)
+    {
+        MergeSortThread msst = new MergeSortThread(array, tracer.start(array), 0);
+        
+        SortEvent event = new SortEvent();
+        long forks = stats.getForks();
+        event.begin();
+        
+        int[] result = fj.invoke(msst);
+        
+        event.end();
+        
+        if(event.shouldCommit())
+        {
+            event.engine = "SP";
+            event.elements = array.length;
+            event.cutoff = cutoff;
+            event.forks = stats.getForks() - forks;
+            event.commit();
+        }
+        
+        tracer.end(msst.stage);
+        
+        return result;
+    }
+}
@@ -0,0 +1,91 @@
+package mergesort.engine;
+
+import mergesort.MergeSortUtils;
+import mergesort.SortStatistics;
+import mergesort.jfr.SequentialMergeEvent;
+import mergesort.jfr.SortEvent;
+import mergesort.trace.SortTracer;
+
+/**
+ * MergeSort sequenziale in loco.
+ * Essendo eseguito da un unico task, del tracer viene usato solo lo stage iniziale.
+ * 
+ * @param <T> tipo dello stage registrato dal tracer
+ */
+public class SequentialSortEngine<T>
+{   
+    private final SortTracer<T> tracer;
+    private final SortStatistics stats;
+    
+    public SequentialSortEngine(SortTracer<T> tracer)
+    {
+        this.tracer = tracer;
+        this.stats = new SortStatistics();
+    }
+    
+    /**
+     * Ritorna i contatori delle operazioni effettuate dagli ordinamenti eseguiti con questo oggetto.
+     * 
+     * @return {@link SortStatistics}
+     */
+    public SortStatistics getStatistics()
+    {
+        return stats;
+    }
+    
+    public int[] sort(int[] array)
+    {        
+        tracer.start(array);
+        
+        SortEvent event = new SortEvent();
+        event.begin();
+        
+        mergesort_seq(array, 0, array.length-1, 0);
+        
+        event.end();
+        
+        if(event.shouldCommit())
+        {
+            event.engine = "S";
+            event.elements = array.length;
+            event.cutoff = 1;
+            event.forks = 0;
+            event.commit();
+        }
+        
+        return array;
+    }
+    
+    /**
+     * Ordina sequenzialmente l'array dato con MergeSort.
+     * 
+     * @param a array da ordinare
+     * @param left indice di inizio della parte dell'array da considerare (inclusivo)
+     * @param right indice di fine della parte dell'array da considerare (inclusivo)
+     * @param depth profondità della chiamata ricorsiva
+     */
+    private void mergesort_seq(int[] a, int left, int right, int depth)
+    {
+        if(left < right)
+        {
+            int center = (left+right)/2;
+            mergesort_seq(a, left, center, depth+1);
+            mergesort_seq(a, center+1, right, depth+1);
+            
+            SequentialMergeEvent event = new SequentialMergeEvent();
+            event.begin();
+            MergeSortUtils.merge(a, left, center, right);
+            event.end();
+            if(event.shouldCommit())
+            {
+                event.elements = right-left+1;
+                event.cutoff = 1;
+                event.depth = depth;
+                event.commit();
+            }
+            
+            stats.sequentialMerge();
+            stats.merged(right-left+1);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package mergesort.engine;
+
+/**
+ * Soglie degli algoritmi paralleli e i loro valori di default, che dipendono dalla dimensione dell'input.
+ *
+ * - Cutoff dell'ordinamento: sotto questa dimensione un task non si divide più e ordina direttamente il suo array.
+ * - Cutoff del merge parallelo: sotto questa dimensione (somma dei due array) un merge è eseguito sequenzialmente
+ *   invece di essere diviso in due sotto-merge paralleli (solo per l'algoritmo parallelo).
+ * - Cutoff dell'insertion sort: l'ordinamento diretto di un task usa insertion sort fino a questa dimensione,
+ *   e oltre un MergeSort sequenziale che usa insertion sort sulle parti più piccole.
+ */
+public final class Thresholds
+{
+    /**
+     * Valore di una soglia che indica di usare il default calcolato in base alla dimensione dell'input.
+     */
+    public static final int AUTO = 0;
+
+    /**
+     * Cutoff dell'insertion sort di default.
+     */
+    public static final int DEFAULT_INSERTION_CUTOFF = 32;
+
+    /**
+     * Dimensione minima di un merge diviso in parallelo con il cutoff di default: sotto qualche decina di migliaia
+     * di elementi il costo delle fork è maggiore del guadagno.
+     */
+    public static final int MIN_PARALLEL_MERGE = 1 << 15;
+
+    /**
+     * Cutoff dell'ordinamento minimo con il cutoff di default.
+     */
+    public static final int MIN_SORT_CUTOFF = 1 << 10;
+
+    private Thresholds() {}
+
+    /**
+     * Ritorna il cutoff dell'ordinamento di default: circa 8 task per worker, ma non meno di {@link #MIN_SORT_CUTOFF} elementi.
+     *
+     * @param n dimensione dell'input
+     * @param parallelism numero di worker
+     * @return cutoff fra 1 e n
+     */
+    public static int defaultSortCutoff(int n, int parallelism)
+    {
+        int cutoff = Math.max(MIN_SORT_CUTOFF, n / (8 * Math.max(1, parallelism)));
+        return Math.max(1, Math.min(cutoff, n));
+    }
+
+    /**
+     * Ritorna il cutoff del merge parallelo di default: il merge di tutto l'input è diviso in circa 4 parti per worker,
+     * e non sono divisi i merge di meno di {@link #MIN_PARALLEL_MERGE} elementi.
+     *
+     * @param n dimensione dell'input
+     * @param parallelism numero di worker
+     * @return cutoff >= {@link #MIN_PARALLEL_MERGE}
+     */
+    public static int defaultMergeCutoff(int n, int parallelism)
+    {
+        return Math.max(MIN_PARALLEL_MERGE, n / (4 * Math.max(1, parallelism)));
+    }
+
+    /**
+     * Ritorna il cutoff del merge parallelo da usare per n elementi.
+     *
+     * @param merge_cutoff cutoff richiesto ({@link #AUTO} per il default)
+     * @param n dimensione dell'input
+     * @param parallelism numero di worker
+     * @return cutoff >= 1
+     */
+    public static int mergeCutoff(int merge_cutoff, int n, int parallelism)
+    {
+        return merge_cutoff == AUTO ? defaultMergeCutoff(n, parallelism) : merge_cutoff;
+    }
+}
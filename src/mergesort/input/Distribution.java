@@ -0,0 +1,26 @@
+package mergesort.input;
+
+/**
+ * Distribuzione dei valori di un input generato da {@link InputGenerator}.
+ */
+public enum Distribution
+{
+    /** Valori casuali uniformi su tutto l'intervallo degli int */
+    UNIFORM,
+    /** Valori casuali già ordinati in modo crescente */
+    SORTED,
+    /** Valori casuali ordinati in modo decrescente */
+    REVERSED,
+    /** Valori casuali ordinati, con k coppie di elementi scambiate a caso (per default l'1% degli elementi) */
+    NEARLY_SORTED,
+    /** Valori casuali fra pochi valori distinti (per default 16) */
+    FEW_UNIQUE,
+    /** Valori da 1 a {@value InputGenerator#ZIPF_VALUES} con frequenza proporzionale a 1 / valore^s (legge di Zipf) */
+    ZIPF,
+    /** Prima metà crescente e seconda metà decrescente (0, 1, ..., n/2, ..., 1, 0) */
+    ORGAN_PIPE,
+    /** Sequenze crescenti 0, 1, ..., m-1 ripetute (per default 16 sequenze) */
+    SAWTOOTH,
+    /** Tutti gli elementi uguali */
+    ALL_EQUAL
+}
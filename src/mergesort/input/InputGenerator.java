@@ -0,0 +1,351 @@
+package mergesort.input;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Generatore parallelo degli input degli algoritmi, con le distribuzioni di {@link Distribution}.
+ *
+ * L'array è diviso in blocchi di {@value #CHUNK} elementi, riempiti in parallelo da un ForkJoinPool. Ogni blocco ha il
+ * suo SplittableRandom, ottenuto dal seme con una sequenza fissa di split prima di iniziare: lo stesso seme genera
+ * quindi sempre lo stesso array, qualunque sia il numero di worker e l'ordine in cui sono eseguiti i blocchi.
+ *
+ * Le distribuzioni ordinate non ordinano valori casuali: l'elemento i-esimo è estratto a caso nella i-esima
+ * delle n parti uguali dell'intervallo degli int, quindi è sempre maggiore o uguale al precedente.
+ */
+public class InputGenerator
+{
+    /**
+     * Numero di valori distinti di default di {@link Distribution#FEW_UNIQUE}.
+     */
+    public static final int DEFAULT_UNIQUE_VALUES = 16;
+
+    /**
+     * Esponente di default di {@link Distribution#ZIPF}.
+     */
+    public static final double DEFAULT_ZIPF_EXPONENT = 1.0;
+
+    /**
+     * Numero di valori distinti di {@link Distribution#ZIPF}.
+     */
+    public static final int ZIPF_VALUES = 1 << 16;
+
+    /**
+     * Numero di sequenze crescenti di default di {@link Distribution#SAWTOOTH}.
+     */
+    public static final int DEFAULT_SAWTOOTH_RUNS = 16;
+
+    /**
+     * Numero di scambi di {@link Distribution#NEARLY_SORTED} che indica di usare il default (l'1% degli elementi).
+     */
+    public static final int DEFAULT_SWAPS = -1;
+
+    // Dimensione dei blocchi riempiti da un singolo task (e con lo stesso SplittableRandom)
+    private static final int CHUNK = 1 << 16;
+
+    // Ampiezza dell'intervallo degli int
+    private static final double INT_RANGE = 4294967296.0;
+
+    /**
+     * Riempie gli elementi [from, to) dell'array.
+     */
+    private interface ChunkFiller
+    {
+        void fill(int[] a, int from, int to, SplittableRandom random);
+    }
+
+    private final long seed;
+    private final ForkJoinPool pool;
+    private int swaps = DEFAULT_SWAPS;
+    private int unique_values = DEFAULT_UNIQUE_VALUES;
+    private double zipf_exponent = DEFAULT_ZIPF_EXPONENT;
+    private int sawtooth_runs = DEFAULT_SAWTOOTH_RUNS;
+
+    /**
+     * Crea un generatore che usa il ForkJoinPool comune.
+     *
+     * @param seed seme del generatore
+     */
+    public InputGenerator(long seed)
+    {
+        this(seed, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param seed seme del generatore
+     * @param pool ForkJoinPool in cui riempire l'array
+     */
+    public InputGenerator(long seed, ForkJoinPool pool)
+    {
+        this.seed = seed;
+        this.pool = pool;
+    }
+
+    /**
+     * Genera un array di n elementi della distribuzione data con il ForkJoinPool comune e i parametri di default.
+     *
+     * @param dist distribuzione dei valori
+     * @param n numero di elementi
+     * @param seed seme del generatore
+     * @return array generato
+     */
+    public static int[] generate(Distribution dist, int n, long seed)
+    {
+        return new InputGenerator(seed).generate(dist, n);
+    }
+
+    /**
+     * Genera un array di n elementi della distribuzione data.
+     *
+     * @param dist distribuzione dei valori
+     * @param n numero di elementi (>= 0)
+     * @return array generato
+     */
+    public int[] generate(Distribution dist, int n)
+    {
+        if(n < 0)
+            throw new IllegalArgumentException("Il numero di elementi deve essere >= 0: " + n);
+
+        int[] a = new int[n];
+        switch(dist)
+        {
+            case SORTED:
+                fill(a, (b, from, to, r) -> {
+                    for(int i = from; i < to; i++)
+                        b[i] = sortedValue(i, n, r);
+                });
+                break;
+            case REVERSED:
+                fill(a, (b, from, to, r) -> {
+                    for(int i = from; i < to; i++)
+                        b[i] = sortedValue(n - 1 - i, n, r);
+                });
+                break;
+            case NEARLY_SORTED:
+                fill(a, (b, from, to, r) -> {
+                    for(int i = from; i < to; i++)
+                        b[i] = sortedValue(i, n, r);
+                });
+                // Pochi scambi rispetto a n: sono eseguiti sequenzialmente, con un generatore indipendente da quelli dei blocchi
+                SplittableRandom random = new SplittableRandom(~seed);
+                int k = swaps == DEFAULT_SWAPS ? n / 100 : swaps;
+                for(int s = 0; s < k && n > 1; s++)
+                {
+                    int i = random.nextInt(n), j = random.nextInt(n);
+                    int tmp = a[i];
+                    a[i] = a[j];
+                    a[j] = tmp;
+                }
+                break;
+            case FEW_UNIQUE:
+                int bound = unique_values;
+                fill(a, (b, from, to, r) -> {
+                    for(int i = from; i < to; i++)
+                        b[i] = r.nextInt(bound);
+                });
+                break;
+            case ZIPF:
+                double[] cdf = zipfCdf(zipf_exponent);
+                int[] guide = zipfGuide(cdf);
+                fill(a, (b, from, to, r) -> {
+                    for(int i = from; i < to; i++)
+                        b[i] = zipfValue(cdf, guide, r.nextDouble());
+                });
+                break;
+            case ORGAN_PIPE:
+                int half = (n + 1) / 2;
+                fill(a, (b, from, to, r) -> {
+                    for(int i = from; i < to; i++)
+                        b[i] = i < half ? i : n - 1 - i;
+                });
+                break;
+            case SAWTOOTH:
+                int period = Math.max(1, (int) Math.ceil((double) n / sawtooth_runs));
+                fill(a, (b, from, to, r) -> {
+                    for(int i = from; i < to; i++)
+                        b[i] = i % period;
+                });
+                break;
+            case ALL_EQUAL:
+                // L'array nuovo contiene già solo zeri
+                break;
+            case UNIFORM:
+            default:
+                fill(a, (b, from, to, r) -> {
+                    for(int i = from; i < to; i++)
+                        b[i] = r.nextInt();
+                });
+                break;
+        }
+        return a;
+    }
+
+    /**
+     * Riempie l'array in parallelo, un blocco per task.
+     */
+    private void fill(int[] a, ChunkFiller filler)
+    {
+        int chunks = (int) (((long) a.length + CHUNK - 1) / CHUNK);
+        if(chunks == 0)
+            return;
+
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[chunks];
+        for(int c = 0; c < chunks; c++)
+            randoms[c] = root.split();
+
+        if(chunks == 1)
+            filler.fill(a, 0, a.length, randoms[0]);
+        else
+            pool.invoke(new FillTask(a, filler, randoms, 0, chunks));
+    }
+
+    /**
+     * Task che riempie i blocchi [lo, hi), dividendoli a metà fino ad arrivare a un singolo blocco.
+     */
+    private static class FillTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] a;
+        private final ChunkFiller filler;
+        private final SplittableRandom[] randoms;
+        private final int lo;
+        private final int hi;
+
+        FillTask(int[] a, ChunkFiller filler, SplittableRandom[] randoms, int lo, int hi)
+        {
+            this.a = a;
+            this.filler = filler;
+            this.randoms = randoms;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if(hi - lo == 1)
+            {
+                int from = lo * CHUNK;
+                filler.fill(a, from, (int) Math.min(a.length, (long) from + CHUNK), randoms[lo]);
+                return;
+            }
+
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new FillTask(a, filler, randoms, lo, mid), new FillTask(a, filler, randoms, mid, hi));
+        }
+    }
+
+    /**
+     * Ritorna un valore casuale nella i-esima delle n parti uguali dell'intervallo degli int:
+     * i valori di indici crescenti sono quindi non decrescenti.
+     */
+    private static int sortedValue(int i, int n, SplittableRandom random)
+    {
+        // Per n grandi l'arrotondamento di i + u può arrivare a i + 1: il massimo è limitato all'ultimo int
+        long offset = Math.min((long) Math.floor((i + random.nextDouble()) * (INT_RANGE / n)), 0xFFFFFFFFL);
+        return (int) (Integer.MIN_VALUE + offset);
+    }
+
+    /**
+     * Ritorna la funzione di ripartizione della legge di Zipf con l'esponente dato sui valori da 1 a {@link #ZIPF_VALUES}.
+     */
+    private static double[] zipfCdf(double exponent)
+    {
+        double[] cdf = new double[ZIPF_VALUES];
+        double sum = 0;
+        for(int k = 0; k < ZIPF_VALUES; k++)
+        {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cdf[k] = sum;
+        }
+        for(int k = 0; k < ZIPF_VALUES; k++)
+            cdf[k] /= sum;
+        return cdf;
+    }
+
+    /**
+     * Ritorna la tabella guida della funzione di ripartizione: l'elemento j è il primo valore (da 0) con probabilità
+     * cumulata maggiore o uguale a j / {@link #ZIPF_VALUES}. La ricerca di un valore parte dalla sua posizione nella
+     * tabella, ed esamina in media meno di due elementi invece dei 16 di una ricerca binaria.
+     */
+    private static int[] zipfGuide(double[] cdf)
+    {
+        int[] guide = new int[ZIPF_VALUES];
+        int k = 0;
+        for(int j = 0; j < ZIPF_VALUES; j++)
+        {
+            double u = (double) j / ZIPF_VALUES;
+            while(k < ZIPF_VALUES - 1 && cdf[k] < u)
+                k++;
+            guide[j] = k;
+        }
+        return guide;
+    }
+
+    /**
+     * Ritorna il valore di Zipf corrispondente alla probabilità u in [0, 1) (inversione della funzione di ripartizione).
+     */
+    private static int zipfValue(double[] cdf, int[] guide, double u)
+    {
+        int k = guide[(int) (u * ZIPF_VALUES)];
+        while(k < ZIPF_VALUES - 1 && cdf[k] <= u)
+            k++;
+        return k + 1;
+    }
+
+    /**
+     * Imposta il numero di coppie scambiate di {@link Distribution#NEARLY_SORTED}.
+     *
+     * @param swaps numero di scambi ({@link #DEFAULT_SWAPS} per l'1% degli elementi)
+     */
+    public void setSwaps(int swaps)
+    {
+        if(swaps < 0 && swaps != DEFAULT_SWAPS)
+            throw new IllegalArgumentException("Il numero di scambi deve essere >= 0: " + swaps);
+        this.swaps = swaps;
+    }
+
+    /**
+     * Imposta il numero di valori distinti di {@link Distribution#FEW_UNIQUE}.
+     *
+     * @param unique_values numero di valori (>= 1)
+     */
+    public void setUniqueValues(int unique_values)
+    {
+        if(unique_values < 1)
+            throw new IllegalArgumentException("Il numero di valori distinti deve essere >= 1: " + unique_values);
+        this.unique_values = unique_values;
+    }
+
+    /**
+     * Imposta l'esponente di {@link Distribution#ZIPF}: più è alto, più i valori piccoli sono frequenti.
+     *
+     * @param zipf_exponent esponente (>= 0, 0 per valori uniformi)
+     */
+    public void setZipfExponent(double zipf_exponent)
+    {
+        if(!(zipf_exponent >= 0))
+            throw new IllegalArgumentException("L'esponente deve essere >= 0: " + zipf_exponent);
+        this.zipf_exponent = zipf_exponent;
+    }
+
+    /**
+     * Imposta il numero di sequenze crescenti di {@link Distribution#SAWTOOTH}.
+     *
+     * @param sawtooth_runs numero di sequenze (>= 1)
+     */
+    public void setSawtoothRuns(int sawtooth_runs)
+    {
+        if(sawtooth_runs < 1)
+            throw new IllegalArgumentException("Il numero di sequenze deve essere >= 1: " + sawtooth_runs);
+        this.sawtooth_runs = sawtooth_runs;
+    }
+
+    public long getSeed()
+    {
+        return seed;
+    }
+}
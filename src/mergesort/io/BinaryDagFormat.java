@@ -0,0 +1,44 @@
+package mergesort.io;
+
+/**
+ * Costanti del formato binario dei DAG di esecuzione (estensione ".msdag").
+ * 
+ * Tutti gli interi sono codificati come varint (7 bit per byte, il bit più alto indica che segue un altro byte);
+ * i valori che possono essere negativi sono prima codificati zigzag.
+ * 
+ * Struttura del file:
+ * - intestazione: MAGIC (5 byte), VERSION (1 byte), flag (1 byte, FLAG_ARRAYS se sono presenti gli array)
+ * - numero di nodi
+ * - tabella dei nodi, per ogni nodo:
+ *     task_id, tipo di stage, forks, worker, 
+ *     at_time (nanosecondi epoch UTC), created_ns, begin_ns, end_ns 
+ *     (task_id, at_time e created_ns come differenza dal nodo precedente, begin_ns e end_ns come differenza dal valore precedente del nodo),
+ *     lunghezza dell'array, numero di byte dell'array codificato, array codificato 
+ *     (primo elemento e poi differenze fra elementi consecutivi, assente se non c'è FLAG_ARRAYS)
+ * - numero di archi
+ * - lista degli archi: indice del nodo sorgente (differenza dalla sorgente precedente), indice del nodo destinazione (differenza dalla sorgente)
+ */
+public final class BinaryDagFormat
+{
+    public static final byte[] MAGIC = { 'M', 'S', 'D', 'A', 'G' };
+    public static final byte VERSION = 1;
+    public static final byte FLAG_ARRAYS = 1;
+    
+    private BinaryDagFormat() {}
+    
+    /**
+     * Codifica zigzag: mappa gli interi con segno su interi senza segno, in modo che i valori piccoli in modulo restino piccoli.
+     */
+    static long zigzag(long v)
+    {
+        return (v << 1) ^ (v >> 63);
+    }
+    
+    /**
+     * Decodifica zigzag.
+     */
+    static long unzigzag(long v)
+    {
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
@@ -0,0 +1,211 @@
+package mergesort.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+import org.jgrapht.graph.DefaultDirectedGraph;
+
+import mergesort.MergeSortStage;
+import mergesort.MergeSortStage.StageType;
+import mergesort.NoLabelDefaultEdge;
+
+/**
+ * Legge un DAG di esecuzione salvato nel formato binario descritto in {@link BinaryDagFormat}.
+ * 
+ * Il file è mappato in memoria ({@link FileChannel#map}) e decodificato in un'unica passata,
+ * quindi il tempo di caricamento è proporzionale alla dimensione del file.
+ * Con {@link #readLazy} gli array vengono saltati e decodificati solo quando richiesti,
+ * e il tempo di caricamento dipende solo dal numero di nodi.
+ */
+public class BinaryDagReader
+{
+    private final ByteBuffer in;
+    private final boolean has_arrays;
+    
+    /**
+     * Mappa in memoria il file dato e ne verifica l'intestazione.
+     * 
+     * @param file file da leggere
+     * @throws IOException se il file non può essere letto o non è nel formato binario
+     */
+    public BinaryDagReader(File file) throws IOException
+    {
+        try(FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            if(ch.size() > Integer.MAX_VALUE)
+                throw new IOException("File troppo grande per essere mappato in memoria: " + file);
+            
+            MappedByteBuffer buffer = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            this.in = buffer;
+        }
+        
+        byte[] magic = new byte[BinaryDagFormat.MAGIC.length];
+        in.get(magic);
+        if(!Arrays.equals(magic, BinaryDagFormat.MAGIC))
+            throw new IOException("Il file non è un DAG in formato binario: " + file);
+        
+        byte version = in.get();
+        if(version != BinaryDagFormat.VERSION)
+            throw new IOException("Versione del formato binario non supportata: " + version);
+        
+        this.has_arrays = (in.get() & BinaryDagFormat.FLAG_ARRAYS) != 0;
+    }
+    
+    /**
+     * Controlla se il file dato inizia con l'intestazione del formato binario.
+     * 
+     * @param file file da controllare
+     * @return true se il file è nel formato binario
+     * @throws IOException in caso di errore di lettura
+     */
+    public static boolean isBinaryDag(File file) throws IOException
+    {
+        byte[] magic = new byte[BinaryDagFormat.MAGIC.length];
+        try(InputStream is = Files.newInputStream(file.toPath()))
+        {
+            int n = is.readNBytes(magic, 0, magic.length);
+            return n == magic.length && Arrays.equals(magic, BinaryDagFormat.MAGIC);
+        }
+    }
+    
+    /**
+     * Legge tutti i nodi e gli archi del file, aggiungendoli al DAG dato.
+     * 
+     * @param dag il DAG da riempire
+     * @throws IOException se il file è danneggiato
+     */
+    public void read(DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag) throws IOException
+    {
+        read(dag, null);
+    }
+    
+    /**
+     * Legge tutti i nodi e gli archi del file, aggiungendoli al DAG dato, senza decodificare gli array.
+     * Gli array sono decodificati quando richiesti ({@link MergeSortStage#getResult()}) e mantenuti in una cache LRU.
+     * 
+     * @param dag il DAG da riempire
+     * @param cache_elements numero massimo di elementi degli array mantenuti in cache
+     * @return la cache da cui i nodi leggono i propri array
+     * @throws IOException se il file è danneggiato
+     */
+    public LazyPayloadCache readLazy(DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag, long cache_elements) throws IOException
+    {
+        LazyPayloadCache cache = new LazyPayloadCache(in.duplicate(), has_arrays, cache_elements);
+        read(dag, cache);
+        return cache;
+    }
+    
+    private void read(DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag, LazyPayloadCache cache) throws IOException
+    {
+        try
+        {
+            StageType[] types = StageType.values();
+            
+            int n = (int) readVarLong();
+            MergeSortStage[] nodes = new MergeSortStage[n];
+            
+            long task_id = 0, time = 0, created = 0;
+            for(int i = 0; i < n; i++)
+            {
+                task_id += readSigned();
+                StageType type = types[in.get()];
+                int forks = (int) readSigned();
+                int worker = (int) readSigned();
+                time += readSigned();
+                created += readSigned();
+                long begin = created + readSigned();
+                long end = begin + readSigned();
+                
+                int length = (int) readVarLong();
+                int payload_size = (int) readVarLong();
+                if(cache != null)
+                {
+                    nodes[i] = new MergeSortStage((int) task_id, type.name(), cache, in.position(), length, fromEpochNanos(time), forks, created, begin, end, worker);
+                    in.position(in.position() + payload_size);
+                }
+                else
+                {
+                    int[] array = has_arrays ? decodeArray(in, length) : new int[length];
+                    if(!has_arrays)
+                        in.position(in.position() + payload_size);
+                    
+                    nodes[i] = new MergeSortStage((int) task_id, type.name(), array, fromEpochNanos(time), forks, created, begin, end, worker);
+                }
+                dag.addVertex(nodes[i]);
+            }
+            
+            int m = (int) readVarLong();
+            long source = 0;
+            for(int i = 0; i < m; i++)
+            {
+                source += readSigned();
+                long target = source + readSigned();
+                dag.addEdge(nodes[(int) source], nodes[(int) target]);
+            }
+        }
+        catch(RuntimeException e)
+        {
+            throw new IOException("DAG binario danneggiato", e);
+        }
+    }
+    
+    /**
+     * Decodifica un array codificato a differenze.
+     */
+    static int[] decodeArray(ByteBuffer in, int length)
+    {
+        int[] array = new int[length];
+        long prev = 0;
+        for(int i = 0; i < length; i++)
+        {
+            prev += readSigned(in);
+            array[i] = (int) prev;
+        }
+        return array;
+    }
+    
+    private static LocalDateTime fromEpochNanos(long nanos)
+    {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, 1000000000L), (int) Math.floorMod(nanos, 1000000000L), ZoneOffset.UTC);
+    }
+    
+    private long readSigned()
+    {
+        return readSigned(in);
+    }
+    
+    private long readVarLong()
+    {
+        return readVarLong(in);
+    }
+    
+    private static long readSigned(ByteBuffer in)
+    {
+        return BinaryDagFormat.unzigzag(readVarLong(in));
+    }
+    
+    private static long readVarLong(ByteBuffer in)
+    {
+        long v = 0;
+        int shift = 0;
+        byte b;
+        do
+        {
+            b = in.get();
+            v |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        }
+        while(b < 0);
+        
+        return v;
+    }
+}
@@ -0,0 +1,168 @@
+package mergesort.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.jgrapht.graph.DefaultDirectedGraph;
+
+import mergesort.MergeSortStage;
+import mergesort.NoLabelDefaultEdge;
+
+/**
+ * Scrive un DAG di esecuzione nel formato binario descritto in {@link BinaryDagFormat}.
+ * 
+ * I nodi e gli archi sono scritti uno alla volta sullo stream, senza costruire il file in memoria:
+ * si chiama {@link #writeNodeCount(int)}, poi {@link #writeNode(MergeSortStage)} per ogni nodo,
+ * poi {@link #writeEdgeCount(int)} e {@link #writeEdge(int, int)} per ogni arco (con gli indici dei nodi nell'ordine di scrittura).
+ */
+public class BinaryDagWriter implements Closeable
+{
+    private final OutputStream out;
+    private final boolean include_arrays;
+    
+    // Buffer riutilizzato per codificare l'array di un nodo (serve a conoscerne la dimensione prima di scriverlo)
+    private final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    
+    // Valori del nodo e dell'arco precedente, per la codifica a differenze
+    private long prev_task_id;
+    private long prev_time;
+    private long prev_created;
+    private long prev_source;
+    
+    /**
+     * Crea lo scrittore e scrive l'intestazione del file.
+     * 
+     * @param out stream di destinazione (chiuso da {@link #close()})
+     * @param include_arrays true per salvare anche gli array dei nodi
+     * @throws IOException in caso di errore di scrittura
+     */
+    public BinaryDagWriter(OutputStream out, boolean include_arrays) throws IOException
+    {
+        this.out = out;
+        this.include_arrays = include_arrays;
+        
+        out.write(BinaryDagFormat.MAGIC);
+        out.write(BinaryDagFormat.VERSION);
+        out.write(include_arrays ? BinaryDagFormat.FLAG_ARRAYS : 0);
+    }
+    
+    /**
+     * Salva l'intero DAG nel file dato.
+     * 
+     * @param dag il DAG da salvare
+     * @param file file di destinazione
+     * @param include_arrays true per salvare anche gli array dei nodi
+     * @throws IOException in caso di errore di scrittura
+     */
+    public static void write(DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag, File file, boolean include_arrays) throws IOException
+    {
+        try(BinaryDagWriter w = new BinaryDagWriter(new BufferedOutputStream(new FileOutputStream(file), 1 << 16), include_arrays))
+        {
+            // Indici dei nodi nell'ordine di scrittura (mappa per identità, per non ricalcolare l'hash degli array)
+            Map<MergeSortStage, Integer> index = new IdentityHashMap<>();
+            
+            w.writeNodeCount(dag.vertexSet().size());
+            for(MergeSortStage v : dag.vertexSet())
+            {
+                index.put(v, index.size());
+                w.writeNode(v);
+            }
+            
+            w.writeEdgeCount(dag.edgeSet().size());
+            for(NoLabelDefaultEdge e : dag.edgeSet())
+                w.writeEdge(index.get(dag.getEdgeSource(e)), index.get(dag.getEdgeTarget(e)));
+        }
+    }
+    
+    public void writeNodeCount(int n) throws IOException
+    {
+        writeVarLong(out, n);
+    }
+    
+    public void writeNode(MergeSortStage v) throws IOException
+    {
+        long time = epochNanos(v.getTime());
+        
+        writeSigned(out, v.getTaskID() - prev_task_id);
+        out.write(v.getStageType().ordinal());
+        writeSigned(out, v.getSubForks());
+        writeSigned(out, v.getWorker());
+        writeSigned(out, time - prev_time);
+        writeSigned(out, v.getCreatedNanos() - prev_created);
+        writeSigned(out, v.getBeginNanos() - v.getCreatedNanos());
+        writeSigned(out, v.getEndNanos() - v.getBeginNanos());
+        
+        prev_task_id = v.getTaskID();
+        prev_time = time;
+        prev_created = v.getCreatedNanos();
+        
+        int[] array = v.getResult();
+        writeVarLong(out, array.length);
+        
+        if(include_arrays)
+        {
+            // Codifico l'array a differenze: gli array ordinati hanno differenze piccole e positive
+            payload.reset();
+            long prev = 0;
+            for(int x : array)
+            {
+                writeSigned(payload, x - prev);
+                prev = x;
+            }
+            
+            writeVarLong(out, payload.size());
+            payload.writeTo(out);
+        }
+        else
+        {
+            writeVarLong(out, 0);
+        }
+    }
+    
+    public void writeEdgeCount(int n) throws IOException
+    {
+        writeVarLong(out, n);
+    }
+    
+    public void writeEdge(int source, int target) throws IOException
+    {
+        writeSigned(out, source - prev_source);
+        writeSigned(out, (long) target - source);
+        prev_source = source;
+    }
+    
+    @Override
+    public void close() throws IOException
+    {
+        out.close();
+    }
+    
+    private static long epochNanos(LocalDateTime time)
+    {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1000000000L + time.getNano();
+    }
+    
+    private static void writeSigned(OutputStream out, long v) throws IOException
+    {
+        writeVarLong(out, BinaryDagFormat.zigzag(v));
+    }
+    
+    private static void writeVarLong(OutputStream out, long v) throws IOException
+    {
+        while((v & ~0x7FL) != 0)
+        {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+}
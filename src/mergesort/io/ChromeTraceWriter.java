@@ -0,0 +1,168 @@
+package mergesort.io;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.jgrapht.graph.DefaultDirectedGraph;
+
+import mergesort.MergeSortStage;
+import mergesort.MergeSortStage.StageType;
+import mergesort.NoLabelDefaultEdge;
+
+/**
+ * Esporta il DAG di una computazione nel formato JSON "Trace Event" di Chrome, 
+ * apribile con Perfetto (https://ui.perfetto.dev) o con chrome://tracing.
+ * 
+ * - Ogni worker del ForkJoinPool è una traccia (thread) distinta.
+ * - Ogni stage è un intervallo ("slice") di tipo divide, leaf-sort o merge, posizionato con i suoi tempi di inizio e fine.
+ * - Le fork (divisione verso un task diverso) e le join (merge di un task diverso) sono frecce ("flow") fra gli intervalli.
+ * 
+ * Gli eventi sono scritti uno alla volta su un {@link BufferedWriter}, senza costruire il documento JSON in memoria.
+ */
+public class ChromeTraceWriter
+{
+    private static final int PID = 1;
+    
+    private final DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag;
+    private long origin;
+    private int next_flow_id;
+    private boolean first_event;
+    
+    public ChromeTraceWriter(DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag)
+    {
+        this.dag = dag;
+    }
+    
+    /**
+     * Scrive la traccia sul file dato.
+     * 
+     * @param file file di destinazione
+     * @throws IOException in caso di errore di scrittura
+     */
+    public void write(File file) throws IOException
+    {
+        try(Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))
+        {
+            write(out);
+        }
+    }
+    
+    /**
+     * Scrive la traccia sul writer dato (che non viene chiuso).
+     * 
+     * @param out writer di destinazione
+     * @throws IOException in caso di errore di scrittura
+     */
+    public void write(Writer out) throws IOException
+    {
+        // I tempi sono relativi alla creazione del primo stage
+        origin = Long.MAX_VALUE;
+        Set<Integer> workers = new TreeSet<>();
+        for(MergeSortStage v : dag.vertexSet())
+        {
+            origin = Math.min(origin, v.getCreatedNanos());
+            workers.add(v.getWorker());
+        }
+        
+        next_flow_id = 1;
+        first_event = true;
+        out.write("{\"displayTimeUnit\":\"ns\",\"traceEvents\":[\n");
+        
+        // Nomi delle tracce
+        for(int w : workers)
+        {
+            String name = w < 0 ? "esterno" : "worker " + w;
+            event(out, String.format(Locale.ROOT, 
+                "{\"ph\":\"M\",\"name\":\"thread_name\",\"pid\":%d,\"tid\":%d,\"args\":{\"name\":\"%s\"}}", PID, tid(w), name));
+        }
+        
+        // Intervalli degli stage
+        for(MergeSortStage v : dag.vertexSet())
+        {
+            String slice = sliceName(v);
+            event(out, String.format(Locale.ROOT, 
+                "{\"ph\":\"X\",\"name\":\"%s\",\"cat\":\"%s\",\"pid\":%d,\"tid\":%d,\"ts\":%.3f,\"dur\":%.3f,"
+                + "\"args\":{\"task\":%d,\"stage\":\"%s\",\"n\":%d,\"forks\":%d,\"queue_us\":%.3f}}",
+                slice, slice, PID, tid(v.getWorker()), micros(v.getBeginNanos()), Math.max(0, v.getDuration()) / 1e3,
+                v.getTaskID(), v.getStageType(), v.getResultLength(), v.getSubForks(), v.getQueueDelay() / 1e3));
+        }
+        
+        // Frecce di fork e join
+        for(NoLabelDefaultEdge e : dag.edgeSet())
+        {
+            MergeSortStage from = dag.getEdgeSource(e);
+            MergeSortStage to = dag.getEdgeTarget(e);
+            if(from.getTaskID() == to.getTaskID())
+                continue;
+            
+            String name = isDivide(to) ? "fork" : "join";
+            int id = next_flow_id++;
+            
+            // La fork parte da quando il figlio è stato creato, la join da quando il figlio è terminato
+            long from_ts = isDivide(to) ? to.getCreatedNanos() : from.getEndNanos();
+            from_ts = Math.min(Math.max(from_ts, from.getBeginNanos()), from.getEndNanos());
+            
+            event(out, String.format(Locale.ROOT, 
+                "{\"ph\":\"s\",\"name\":\"%s\",\"cat\":\"flow\",\"id\":%d,\"pid\":%d,\"tid\":%d,\"ts\":%.3f}",
+                name, id, PID, tid(from.getWorker()), micros(from_ts)));
+            event(out, String.format(Locale.ROOT, 
+                "{\"ph\":\"f\",\"bp\":\"e\",\"name\":\"%s\",\"cat\":\"flow\",\"id\":%d,\"pid\":%d,\"tid\":%d,\"ts\":%.3f}",
+                name, id, PID, tid(to.getWorker()), micros(to.getBeginNanos())));
+        }
+        
+        out.write("\n]}\n");
+        out.flush();
+    }
+    
+    /**
+     * Scrive un evento, preceduto dal separatore se non è il primo.
+     */
+    private void event(Writer out, String json) throws IOException
+    {
+        if(!first_event)
+            out.write(",\n");
+        first_event = false;
+        out.write(json);
+    }
+    
+    /**
+     * Nome dell'intervallo di uno stage: "merge" per i merge, "leaf-sort" per le divisioni che non hanno sotto-task di divisione, 
+     * "divide" per le altre divisioni.
+     */
+    private String sliceName(MergeSortStage v)
+    {
+        if(!isDivide(v))
+            return "merge";
+        
+        for(NoLabelDefaultEdge e : dag.outgoingEdgesOf(v))
+            if(isDivide(dag.getEdgeTarget(e)))
+                return "divide";
+        
+        return "leaf-sort";
+    }
+    
+    private static boolean isDivide(MergeSortStage v)
+    {
+        return v.getStageType() == StageType.Start || v.getStageType() == StageType.Divide;
+    }
+    
+    /**
+     * Il thread esterno al pool (-1) è mostrato come traccia 0, i worker a partire da 1.
+     */
+    private static int tid(int worker)
+    {
+        return worker + 1;
+    }
+    
+    private double micros(long nanos)
+    {
+        return (nanos - origin) / 1e3;
+    }
+}
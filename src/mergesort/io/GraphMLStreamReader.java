@@ -0,0 +1,301 @@
+package mergesort.io;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.jgrapht.graph.DefaultDirectedGraph;
+
+import mergesort.MergeSortStage;
+import mergesort.NoLabelDefaultEdge;
+
+/**
+ * Legge un DAG di esecuzione in formato GraphML usando StAX ({@link XMLStreamReader}).
+ * 
+ * I nodi e gli archi sono consegnati uno alla volta ad un {@link Handler}, e gli array dei nodi
+ * sono decodificati direttamente dai blocchi di testo del parser, senza costruire la stringa intera.
+ * Legge sia i file scritti da {@link GraphMLStreamWriter} sia quelli esportati in precedenza con jgrapht
+ * (i tempi in nanosecondi e il worker sono opzionali).
+ */
+public class GraphMLStreamReader implements Closeable
+{
+    /**
+     * Riceve i nodi e gli archi nell'ordine in cui compaiono nel file.
+     */
+    public interface Handler
+    {
+        /**
+         * @param id identificatore GraphML del nodo
+         * @param stage stage ricostruito (non incluso nel dag di esecuzione)
+         */
+        void node(String id, MergeSortStage stage) throws IOException;
+        
+        /**
+         * @param source identificatore GraphML del nodo sorgente
+         * @param target identificatore GraphML del nodo destinazione
+         */
+        void edge(String source, String target) throws IOException;
+    }
+    
+    private final InputStream in;
+    
+    // Associazione id della chiave GraphML -> nome dell'attributo
+    private final Map<String, String> keys = new HashMap<>();
+    
+    // Buffer riutilizzati per il testo degli attributi e per gli elementi dell'array
+    private final StringBuilder text = new StringBuilder();
+    private int[] values = new int[1024];
+    private int values_length;
+    
+    // Stato del numero in corso di lettura (un numero può essere spezzato tra due blocchi di testo)
+    private long number;
+    private boolean negative;
+    private boolean in_number;
+    
+    public GraphMLStreamReader(File file) throws IOException
+    {
+        this(new BufferedInputStream(Files.newInputStream(file.toPath()), 1 << 16));
+    }
+    
+    public GraphMLStreamReader(InputStream in)
+    {
+        this.in = in;
+    }
+    
+    /**
+     * Legge l'intero file aggiungendo nodi e archi al DAG dato.
+     * 
+     * @param dag grafo in cui inserire gli stage letti
+     * @throws IOException in caso di errore di lettura o di file non valido
+     */
+    public void read(DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag) throws IOException
+    {
+        Map<String, MergeSortStage> nodes = new HashMap<>();
+        // Archi che precedono la definizione di uno dei loro nodi (GraphML lo consente)
+        List<String[]> pending = new ArrayList<>();
+        
+        read(new Handler()
+        {
+            @Override
+            public void node(String id, MergeSortStage stage)
+            {
+                nodes.put(id, stage);
+                dag.addVertex(stage);
+            }
+            
+            @Override
+            public void edge(String source, String target)
+            {
+                MergeSortStage s = nodes.get(source);
+                MergeSortStage t = nodes.get(target);
+                if(s == null || t == null)
+                    pending.add(new String[] { source, target });
+                else
+                    dag.addEdge(s, t);
+            }
+        });
+        
+        for(String[] e : pending)
+        {
+            MergeSortStage s = nodes.get(e[0]);
+            MergeSortStage t = nodes.get(e[1]);
+            if(s == null || t == null)
+                throw new IOException("Arco verso un nodo non definito: " + e[0] + " -> " + e[1]);
+            dag.addEdge(s, t);
+        }
+    }
+    
+    /**
+     * Legge l'intero file consegnando nodi e archi all'handler dato.
+     * 
+     * @param handler destinatario di nodi e archi
+     * @throws IOException in caso di errore di lettura o di file non valido
+     */
+    public void read(Handler handler) throws IOException
+    {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        
+        try
+        {
+            XMLStreamReader xml = factory.createXMLStreamReader(in);
+            try
+            {
+                while(xml.hasNext())
+                {
+                    if(xml.next() != XMLStreamConstants.START_ELEMENT)
+                        continue;
+                    
+                    switch(xml.getLocalName())
+                    {
+                        case "key":
+                            keys.put(xml.getAttributeValue(null, "id"), xml.getAttributeValue(null, "attr.name"));
+                            break;
+                        case "node":
+                            readNode(xml, handler);
+                            break;
+                        case "edge":
+                            handler.edge(xml.getAttributeValue(null, "source"), xml.getAttributeValue(null, "target"));
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+            finally
+            {
+                xml.close();
+            }
+        }
+        catch(XMLStreamException e)
+        {
+            throw new IOException("GraphML non valido", e);
+        }
+    }
+    
+    private void readNode(XMLStreamReader xml, Handler handler) throws XMLStreamException, IOException
+    {
+        String id = xml.getAttributeValue(null, "id");
+        
+        Integer task_id = null;
+        String stage_type = null;
+        int[] array = null;
+        LocalDateTime time = null;
+        Integer forks = null;
+        long created_ns = 0, begin_ns = 0, end_ns = 0;
+        int worker = -1;
+        
+        // Scorro i <data> fino alla chiusura del nodo
+        while(xml.nextTag() == XMLStreamConstants.START_ELEMENT)
+        {
+            String name = keys.get(xml.getAttributeValue(null, "key"));
+            if("array".equals(name))
+            {
+                array = readArray(xml);
+                continue;
+            }
+            
+            String value = readText(xml);
+            if(name == null)
+                continue;
+            
+            try
+            {
+                switch(name)
+                {
+                    case "id":          task_id = Integer.valueOf(value); break;
+                    case "stage_type":  stage_type = value; break;
+                    case "at_time":     time = LocalDateTime.parse(value, GraphMLStreamWriter.AT_TIME_FORMATTER); break;
+                    case "n_forks":     forks = Integer.valueOf(value); break;
+                    case "created_ns":  created_ns = Long.parseLong(value); break;
+                    case "begin_ns":    begin_ns = Long.parseLong(value); break;
+                    case "end_ns":      end_ns = Long.parseLong(value); break;
+                    case "worker":      worker = Integer.parseInt(value); break;
+                    default:            break;
+                }
+            }
+            catch(RuntimeException e)
+            {
+                throw new IOException("Valore non valido per l'attributo " + name + " del nodo " + id + ": " + value, e);
+            }
+        }
+        
+        if(task_id == null || stage_type == null || array == null || time == null || forks == null)
+            throw new IOException("Attributi mancanti nel nodo " + id);
+        
+        handler.node(id, new MergeSortStage(task_id, stage_type, array, time, forks, created_ns, begin_ns, end_ns, worker));
+    }
+    
+    /**
+     * Legge il testo di un elemento (posizionato sul suo START_ELEMENT) fino alla sua chiusura.
+     */
+    private String readText(XMLStreamReader xml) throws XMLStreamException
+    {
+        text.setLength(0);
+        int event;
+        while((event = xml.next()) != XMLStreamConstants.END_ELEMENT)
+        {
+            if(event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA)
+                text.append(xml.getTextCharacters(), xml.getTextStart(), xml.getTextLength());
+        }
+        return text.toString().trim();
+    }
+    
+    /**
+     * Legge un array nel formato di Arrays.toString ("[1, 2, 3]") decodificando i numeri blocco per blocco.
+     */
+    private int[] readArray(XMLStreamReader xml) throws XMLStreamException, IOException
+    {
+        values_length = 0;
+        in_number = false;
+        
+        int event;
+        while((event = xml.next()) != XMLStreamConstants.END_ELEMENT)
+        {
+            if(event != XMLStreamConstants.CHARACTERS && event != XMLStreamConstants.CDATA)
+                continue;
+            
+            char[] chars = xml.getTextCharacters();
+            int end = xml.getTextStart() + xml.getTextLength();
+            for(int i = xml.getTextStart(); i < end; i++)
+            {
+                char c = chars[i];
+                if(c >= '0' && c <= '9')
+                {
+                    number = number * 10 + (c - '0');
+                    in_number = true;
+                }
+                else if(c == '-' && !in_number)
+                {
+                    negative = true;
+                }
+                else
+                {
+                    if(c != '[' && c != ']' && c != ',' && !Character.isWhitespace(c))
+                        throw new IOException("Carattere non valido nell'array: '" + c + "'");
+                    flushNumber();
+                }
+            }
+        }
+        flushNumber();
+        
+        return Arrays.copyOf(values, values_length);
+    }
+    
+    private void flushNumber() throws IOException
+    {
+        if(in_number)
+        {
+            long value = negative ? -number : number;
+            if(value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+                throw new IOException("Valore fuori intervallo nell'array: " + value);
+            if(values_length == values.length)
+                values = Arrays.copyOf(values, values.length * 2);
+            values[values_length++] = (int) value;
+        }
+        number = 0;
+        negative = false;
+        in_number = false;
+    }
+    
+    @Override
+    public void close() throws IOException
+    {
+        in.close();
+    }
+}
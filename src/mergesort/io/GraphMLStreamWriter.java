@@ -0,0 +1,168 @@
+package mergesort.io;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.format.DateTimeFormatter;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.jgrapht.graph.DefaultDirectedGraph;
+
+import mergesort.MergeSortStage;
+import mergesort.NoLabelDefaultEdge;
+
+/**
+ * Scrive un DAG di esecuzione in formato GraphML usando StAX ({@link XMLStreamWriter}).
+ * 
+ * I nodi e gli archi sono scritti uno alla volta, e gli array dei nodi elemento per elemento,
+ * quindi non viene costruito in memoria né il documento XML né le stringhe degli array.
+ * Gli attributi dei nodi sono quelli letti da {@link GraphMLStreamReader}:
+ * id, stage_type, array, at_time, n_forks, created_ns, begin_ns, end_ns, worker.
+ */
+public class GraphMLStreamWriter
+{
+    static final String NS = "http://graphml.graphdrawing.org/xmlns";
+    static final DateTimeFormatter AT_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
+    
+    // Attributi dei nodi: nome e tipo GraphML
+    static final String[][] NODE_KEYS = 
+    {
+        { "id", "int" },
+        { "stage_type", "string" },
+        { "array", "string" },
+        { "at_time", "string" },
+        { "n_forks", "int" },
+        { "created_ns", "long" },
+        { "begin_ns", "long" },
+        { "end_ns", "long" },
+        { "worker", "int" }
+    };
+    
+    /**
+     * Salva l'intero DAG nel file dato.
+     * 
+     * @param dag il DAG da salvare
+     * @param file file di destinazione
+     * @throws IOException in caso di errore di scrittura
+     */
+    public static void write(DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag, File file) throws IOException
+    {
+        try(Writer out = new BufferedWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8), 1 << 16))
+        {
+            write(dag, out);
+        }
+    }
+    
+    /**
+     * Scrive l'intero DAG sul writer dato (che non viene chiuso).
+     * 
+     * @param dag il DAG da salvare
+     * @param out writer di destinazione
+     * @throws IOException in caso di errore di scrittura
+     */
+    public static void write(DefaultDirectedGraph<MergeSortStage, NoLabelDefaultEdge> dag, Writer out) throws IOException
+    {
+        try
+        {
+            XMLStreamWriter xml = XMLOutputFactory.newInstance().createXMLStreamWriter(out);
+            
+            xml.writeStartDocument("UTF-8", "1.0");
+            xml.writeCharacters("\n");
+            xml.writeStartElement("graphml");
+            xml.writeDefaultNamespace(NS);
+            xml.writeCharacters("\n");
+            
+            for(int i = 0; i < NODE_KEYS.length; i++)
+            {
+                xml.writeEmptyElement("key");
+                xml.writeAttribute("id", "key" + i);
+                xml.writeAttribute("for", "node");
+                xml.writeAttribute("attr.name", NODE_KEYS[i][0]);
+                xml.writeAttribute("attr.type", NODE_KEYS[i][1]);
+                xml.writeCharacters("\n");
+            }
+            
+            xml.writeStartElement("graph");
+            xml.writeAttribute("edgedefault", "directed");
+            xml.writeCharacters("\n");
+            
+            // L'id GraphML di un nodo è il suo indice di scrittura (mappa per identità, per non ricalcolare l'hash degli array)
+            Map<MergeSortStage, Integer> index = new IdentityHashMap<>();
+            for(MergeSortStage v : dag.vertexSet())
+            {
+                int id = index.size();
+                index.put(v, id);
+                writeNode(xml, "n" + id, v);
+            }
+            
+            int edge_id = 0;
+            for(NoLabelDefaultEdge e : dag.edgeSet())
+            {
+                xml.writeEmptyElement("edge");
+                xml.writeAttribute("id", "e" + (edge_id++));
+                xml.writeAttribute("source", "n" + index.get(dag.getEdgeSource(e)));
+                xml.writeAttribute("target", "n" + index.get(dag.getEdgeTarget(e)));
+                xml.writeCharacters("\n");
+            }
+            
+            xml.writeEndElement();
+            xml.writeCharacters("\n");
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.flush();
+        }
+        catch(XMLStreamException e)
+        {
+            throw new IOException("Errore durante la scrittura del GraphML", e);
+        }
+    }
+    
+    private static void writeNode(XMLStreamWriter xml, String id, MergeSortStage v) throws XMLStreamException
+    {
+        xml.writeStartElement("node");
+        xml.writeAttribute("id", id);
+        
+        writeData(xml, 0, String.valueOf(v.getTaskID()));
+        writeData(xml, 1, v.getStageType().toString());
+        
+        // L'array è scritto un elemento alla volta, nello stesso formato di Arrays.toString
+        xml.writeStartElement("data");
+        xml.writeAttribute("key", "key2");
+        xml.writeCharacters("[");
+        int[] array = v.getResult();
+        for(int i = 0; i < array.length; i++)
+        {
+            if(i > 0)
+                xml.writeCharacters(", ");
+            xml.writeCharacters(Integer.toString(array[i]));
+        }
+        xml.writeCharacters("]");
+        xml.writeEndElement();
+        
+        writeData(xml, 3, AT_TIME_FORMATTER.format(v.getTime()));
+        writeData(xml, 4, String.valueOf(v.getSubForks()));
+        writeData(xml, 5, String.valueOf(v.getCreatedNanos()));
+        writeData(xml, 6, String.valueOf(v.getBeginNanos()));
+        writeData(xml, 7, String.valueOf(v.getEndNanos()));
+        writeData(xml, 8, String.valueOf(v.getWorker()));
+        
+        xml.writeEndElement();
+        xml.writeCharacters("\n");
+    }
+    
+    private static void writeData(XMLStreamWriter xml, int key, String value) throws XMLStreamException
+    {
+        xml.writeStartElement("data");
+        xml.writeAttribute("key", "key" + key);
+        xml.writeCharacters(value);
+        xml.writeEndElement();
+    }
+}
@@ -0,0 +1,96 @@
+package mergesort.io;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import mergesort.PayloadSource;
+
+/**
+ * Decodifica su richiesta gli array di un DAG binario mappato in memoria,
+ * mantenendo gli ultimi array decodificati in una cache LRU.
+ * 
+ * La cache è limitata dal numero totale di elementi memorizzati (non dal numero di array),
+ * così l'occupazione di memoria resta costante qualunque sia la lunghezza degli array del DAG.
+ */
+public class LazyPayloadCache implements PayloadSource
+{
+    private final ByteBuffer buffer;
+    private final boolean has_arrays;
+    private final long max_elements;
+    private long cached_elements;
+    
+    // In ordine di accesso: il primo elemento è il meno usato di recente
+    private final LinkedHashMap<Long, int[]> cache = new LinkedHashMap<>(64, 0.75f, true);
+    
+    private long hits;
+    private long misses;
+    
+    /**
+     * @param buffer contenuto del file (le posizioni degli array sono assolute)
+     * @param has_arrays false se il file è stato salvato senza gli array (vengono restituiti array di zeri)
+     * @param max_elements numero massimo di elementi mantenuti in cache
+     */
+    LazyPayloadCache(ByteBuffer buffer, boolean has_arrays, long max_elements)
+    {
+        this.buffer = buffer;
+        this.has_arrays = has_arrays;
+        this.max_elements = max_elements;
+    }
+    
+    @Override
+    public synchronized int[] load(long offset, int length)
+    {
+        int[] array = cache.get(offset);
+        if(array != null)
+        {
+            hits++;
+            return array;
+        }
+        misses++;
+        
+        if(has_arrays)
+        {
+            ByteBuffer in = buffer.duplicate();
+            in.position((int) offset);
+            array = BinaryDagReader.decodeArray(in, length);
+        }
+        else
+            array = new int[length];
+        
+        // Libero spazio partendo dagli array usati meno di recente (un array più grande della cache non viene memorizzato)
+        if(length <= max_elements)
+        {
+            while(cached_elements + length > max_elements)
+            {
+                Map.Entry<Long, int[]> eldest = cache.entrySet().iterator().next();
+                cached_elements -= eldest.getValue().length;
+                cache.remove(eldest.getKey());
+            }
+            cache.put(offset, array);
+            cached_elements += length;
+        }
+        
+        return array;
+    }
+    
+    /**
+     * Ritorna il numero di richieste servite dalla cache.
+     * 
+     * @return long
+     */
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+    
+    /**
+     * Ritorna il numero di richieste che hanno richiesto la decodifica dell'array.
+     * 
+     * @return long
+     */
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+}
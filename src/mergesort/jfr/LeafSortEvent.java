@@ -0,0 +1,35 @@
+package mergesort.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Evento JFR dell'ordinamento diretto di un sotto-array che ha raggiunto il cutoff.
+ */
+@Name("mergesort.LeafSort")
+@Label("Leaf Sort")
+@Category({"MergeSort"})
+@Description("Ordinamento diretto di un sotto-array sotto il cutoff")
+@Threshold("1 ms")
+@StackTrace(false)
+public class LeafSortEvent extends Event
+{
+    @Label("Elements")
+    public int elements;
+    
+    @Label("Cutoff")
+    public int cutoff;
+    
+    @Label("Insertion Cutoff")
+    @Description("Dimensione massima ordinata con insertion sort")
+    public int insertionCutoff;
+    
+    @Label("Depth")
+    @Description("Profondità del task nell'albero delle divisioni")
+    public int depth;
+}
@@ -0,0 +1,40 @@
+package mergesort.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Evento JFR di un merge parallelo diviso in due sotto-merge (comprende l'esecuzione dei sotto-merge).
+ */
+@Name("mergesort.ParallelMergeSplit")
+@Label("Parallel Merge Split")
+@Category({"MergeSort"})
+@Description("Merge parallelo diviso in due sotto-merge")
+@Threshold("1 ms")
+@StackTrace(false)
+public class ParallelMergeSplitEvent extends Event
+{
+    @Label("Elements")
+    @Description("Numero di elementi dell'array risultante")
+    public int elements;
+    
+    @Label("Split Point")
+    @Description("Indice di divisione trovato nell'array più corto")
+    public int splitPoint;
+    
+    @Label("Cutoff")
+    public int cutoff;
+    
+    @Label("Depth")
+    @Description("Profondità del merge nell'albero delle divisioni del merge")
+    public int depth;
+    
+    @Label("Forks")
+    @Description("Numero di fork effettuate da questo merge e dai suoi sotto-merge")
+    public int forks;
+}
@@ -0,0 +1,32 @@
+package mergesort.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Evento JFR di un merge eseguito sequenzialmente.
+ */
+@Name("mergesort.SequentialMerge")
+@Label("Sequential Merge")
+@Category({"MergeSort"})
+@Description("Unione sequenziale di due sotto-array ordinati")
+@Threshold("1 ms")
+@StackTrace(false)
+public class SequentialMergeEvent extends Event
+{
+    @Label("Elements")
+    @Description("Numero di elementi dell'array risultante")
+    public int elements;
+    
+    @Label("Cutoff")
+    public int cutoff;
+    
+    @Label("Depth")
+    @Description("Profondità del merge nell'albero delle divisioni")
+    public int depth;
+}
@@ -0,0 +1,36 @@
+package mergesort.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Evento JFR di un intero ordinamento.
+ */
+@Name("mergesort.Sort")
+@Label("Sort")
+@Category({"MergeSort"})
+@Description("Ordinamento completo di un array")
+@Threshold("0 ms")
+@StackTrace(false)
+public class SortEvent extends Event
+{
+    @Label("Engine")
+    @Description("Tipo di algoritmo (S, SP, P)")
+    public String engine;
+    
+    @Label("Elements")
+    @Description("Numero di elementi ordinati")
+    public int elements;
+    
+    @Label("Cutoff")
+    public int cutoff;
+    
+    @Label("Forks")
+    @Description("Numero di fork effettuate durante l'ordinamento")
+    public long forks;
+}
@@ -0,0 +1,367 @@
+package mergesort.management;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Misura i byte allocati nell'heap da un ordinamento,
+ * usando l'estensione {@link com.sun.management.ThreadMXBean} (disponibile su HotSpot).
+ * 
+ * Un intervallo si misura con {@link #start()} e {@link Interval#stop()}, e comprende solo i thread dell'ordinamento:
+ * il thread che ha iniziato la misura e i worker del ForkJoinPool indicato con {@link Interval#attach(ForkJoinPool)}.
+ * Le allocazioni degli altri thread della JVM, compresi altri ordinamenti eseguiti in contemporanea, non sono contate,
+ * e il costo della misura dipende solo dal numero di worker del pool.
+ * 
+ * I worker sono noti solo per i ForkJoinPool creati con {@link #workerFactory()}: i suoi worker si registrano quando
+ * iniziano e registrano i propri byte allocati quando terminano, così un ordinamento che chiude il suo pool prima
+ * della fine della misura conta comunque le allocazioni di tutti i suoi worker.
+ * 
+ * Misura anche il numero e la durata delle garbage collection, dai {@link GarbageCollectorMXBean}: sono contati
+ * solo i collector che fermano l'applicazione (non i cicli concorrenti di G1 e ZGC), quindi la durata approssima
+ * il tempo di pausa. Le garbage collection riguardano tutta la JVM, non solo i thread misurati.
+ */
+public class AllocationMeter
+{
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+    private static final List<GarbageCollectorMXBean> COLLECTORS = pauseCollectors();
+    
+    // Numero massimo di worker terminati ricordati per pool (i più vecchi sono dimenticati)
+    private static final int MAX_RETIRED = 4096;
+    
+    // Worker dei pool creati con WORKER_FACTORY (i pool non più raggiungibili sono rimossi)
+    private static final Map<ForkJoinPool, PoolWorkers> POOLS = Collections.synchronizedMap(new WeakHashMap<>());
+    
+    private static final ForkJoinPool.ForkJoinWorkerThreadFactory WORKER_FACTORY = MeteredWorkerThread::new;
+    
+    /**
+     * Worker di un ForkJoinPool: quelli vivi e quelli terminati, con i byte allocati in totale.
+     * Tutti gli accessi sono sincronizzati sull'oggetto.
+     */
+    private static class PoolWorkers
+    {
+        private final Set<Long> live = new HashSet<>();
+        
+        // Worker terminati: id del thread -> {numero di sequenza della terminazione, byte allocati in totale}
+        private final Map<Long, long[]> retired = new LinkedHashMap<Long, long[]>()
+        {
+            private static final long serialVersionUID = 1L;
+            
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest)
+            {
+                return size() > MAX_RETIRED;
+            }
+        };
+        private long sequence;
+    }
+    
+    /**
+     * Worker che si registra fra i worker del suo pool quando inizia, e registra i propri byte allocati quando termina.
+     */
+    private static class MeteredWorkerThread extends ForkJoinWorkerThread
+    {
+        MeteredWorkerThread(ForkJoinPool pool)
+        {
+            super(pool);
+        }
+        
+        @Override
+        protected void onStart()
+        {
+            super.onStart();
+            PoolWorkers workers = workersOf(getPool());
+            synchronized(workers)
+            {
+                workers.live.add(getId());
+            }
+        }
+        
+        @Override
+        protected void onTermination(Throwable exception)
+        {
+            try
+            {
+                PoolWorkers workers = workersOf(getPool());
+                long bytes = THREADS != null ? THREADS.getThreadAllocatedBytes(getId()) : -1;
+                synchronized(workers)
+                {
+                    workers.live.remove(getId());
+                    if(bytes >= 0)
+                        workers.retired.put(getId(), new long[] {++workers.sequence, bytes});
+                }
+            }
+            finally
+            {
+                super.onTermination(exception);
+            }
+        }
+    }
+    
+    /**
+     * Misura di un intervallo, iniziata da {@link AllocationMeter#start()}.
+     */
+    public static class Interval
+    {
+        private final long thread_id = Thread.currentThread().getId();
+        private final long start_gc_count = gcCount();
+        private final long start_gc_millis = gcTimeMillis();
+        private final long start_thread_bytes = threadBytes(thread_id);
+        private PoolWorkers workers;
+        private long start_sequence;
+        private long[] start_worker_ids;
+        private long[] start_worker_bytes;
+        
+        private Interval() {}
+        
+        /**
+         * Comprende nella misura i worker del pool dato (solo se creato con {@link AllocationMeter#workerFactory()}).
+         * Va chiamato prima che il pool esegua i task dell'ordinamento.
+         * 
+         * @param pool il ForkJoinPool dell'ordinamento
+         */
+        public void attach(ForkJoinPool pool)
+        {
+            if(!isSupported())
+                return;
+            
+            workers = workersOf(pool);
+            synchronized(workers)
+            {
+                start_sequence = workers.sequence;
+                start_worker_ids = ids(workers.live, thread_id);
+                start_worker_bytes = THREADS.getThreadAllocatedBytes(start_worker_ids);
+            }
+        }
+        
+        /**
+         * Termina la misura.
+         * 
+         * @return {@link Usage} dell'intervallo
+         */
+        public Usage stop()
+        {
+            long bytes = -1;
+            if(isSupported())
+            {
+                bytes = Math.max(0, threadBytes(thread_id) - start_thread_bytes);
+                if(workers != null)
+                {
+                    synchronized(workers)
+                    {
+                        // Worker vivi (quelli nati durante l'intervallo hanno allocato tutto durante l'intervallo)
+                        long[] ids = ids(workers.live, thread_id);
+                        long[] now = THREADS.getThreadAllocatedBytes(ids);
+                        for(int i = 0; i < ids.length; i++)
+                            if(now[i] > 0)
+                                bytes += Math.max(0, now[i] - startBytes(ids[i]));
+                        
+                        // Worker terminati durante l'intervallo
+                        for(Map.Entry<Long, long[]> entry : workers.retired.entrySet())
+                            if(entry.getValue()[0] > start_sequence && entry.getKey() != thread_id)
+                                bytes += Math.max(0, entry.getValue()[1] - startBytes(entry.getKey()));
+                    }
+                }
+            }
+            return new Usage(bytes, gcCount() - start_gc_count, gcTimeMillis() - start_gc_millis);
+        }
+        
+        /**
+         * Ritorna i byte allocati dal worker dato all'inizio della misura (0 se è nato dopo).
+         */
+        private long startBytes(long id)
+        {
+            for(int i = 0; i < start_worker_ids.length; i++)
+                if(start_worker_ids[i] == id)
+                    return Math.max(0, start_worker_bytes[i]);
+            return 0;
+        }
+    }
+    
+    /**
+     * Byte allocati e garbage collection di un intervallo.
+     */
+    public static class Usage
+    {
+        private final long bytes;
+        private final long gc_count;
+        private final long gc_millis;
+        
+        /**
+         * @param bytes byte allocati (-1 se la misura non è supportata)
+         * @param gc_count numero di garbage collection
+         * @param gc_millis durata delle garbage collection in millisecondi
+         */
+        public Usage(long bytes, long gc_count, long gc_millis)
+        {
+            this.bytes = bytes;
+            this.gc_count = gc_count;
+            this.gc_millis = gc_millis;
+        }
+        
+        /**
+         * @return byte allocati (-1 se la misura non è supportata)
+         */
+        public long getAllocatedBytes()
+        {
+            return bytes;
+        }
+        
+        public long getGcCount()
+        {
+            return gc_count;
+        }
+        
+        public long getGcTimeMillis()
+        {
+            return gc_millis;
+        }
+        
+        /**
+         * @param n numero di elementi ordinati
+         * @return byte allocati per elemento (NaN se la misura non è supportata o n è 0)
+         */
+        public double bytesPerElement(int n)
+        {
+            return bytes >= 0 && n > 0 ? (double) bytes / n : Double.NaN;
+        }
+        
+        /**
+         * @param n numero di elementi ordinati
+         * @return descrizione della misura
+         */
+        public String toString(int n)
+        {
+            String allocated = bytes < 0 ? "allocazione non disponibile"
+                    : String.format(Locale.ROOT, "%.2f MB allocati (%.1f byte per elemento)", bytes / 1048576.0, bytesPerElement(n));
+            return String.format(Locale.ROOT, "%s, %d garbage collection (%d ms)", allocated, gc_count, gc_millis);
+        }
+    }
+    
+    private AllocationMeter() {}
+    
+    private static com.sun.management.ThreadMXBean threadBean()
+    {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if(!(bean instanceof com.sun.management.ThreadMXBean))
+            return null;
+        
+        com.sun.management.ThreadMXBean sun_bean = (com.sun.management.ThreadMXBean) bean;
+        if(!sun_bean.isThreadAllocatedMemorySupported())
+            return null;
+        
+        sun_bean.setThreadAllocatedMemoryEnabled(true);
+        return sun_bean;
+    }
+    
+    private static List<GarbageCollectorMXBean> pauseCollectors()
+    {
+        List<GarbageCollectorMXBean> collectors = new ArrayList<>();
+        for(GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans())
+        {
+            // I cicli concorrenti (es. 'G1 Concurrent GC', 'ZGC Cycles') non fermano l'applicazione
+            String name = bean.getName();
+            if(!name.contains("Concurrent") && !name.contains("Cycles"))
+                collectors.add(bean);
+        }
+        return collectors;
+    }
+    
+    /**
+     * Ritorna la factory dei worker da usare per i ForkJoinPool di cui misurare le allocazioni dei worker, anche dopo la chiusura.
+     * 
+     * @return {@link ForkJoinPool.ForkJoinWorkerThreadFactory}
+     */
+    public static ForkJoinPool.ForkJoinWorkerThreadFactory workerFactory()
+    {
+        return WORKER_FACTORY;
+    }
+    
+    private static PoolWorkers workersOf(ForkJoinPool pool)
+    {
+        synchronized(POOLS)
+        {
+            return POOLS.computeIfAbsent(pool, k -> new PoolWorkers());
+        }
+    }
+    
+    /**
+     * Ritorna gli id dei thread dati, escluso quello indicato.
+     */
+    private static long[] ids(Set<Long> threads, long excluded)
+    {
+        return threads.stream().mapToLong(Long::longValue).filter(id -> id != excluded).toArray();
+    }
+    
+    /**
+     * Ritorna i byte allocati fino ad ora dal thread dato (0 se la misura non è supportata).
+     */
+    private static long threadBytes(long thread_id)
+    {
+        if(THREADS == null)
+            return 0;
+        
+        // Per il thread corrente la lettura è molto più veloce (non deve cercare il thread)
+        long bytes = thread_id == Thread.currentThread().getId() ? THREADS.getCurrentThreadAllocatedBytes() : THREADS.getThreadAllocatedBytes(thread_id);
+        return Math.max(0, bytes);
+    }
+    
+    /**
+     * Inizia la misura dei byte allocati dal thread corrente e delle garbage collection di un intervallo.
+     * 
+     * @return {@link Interval} da terminare con {@link Interval#stop()}, a cui aggiungere il pool dell'ordinamento
+     *         con {@link Interval#attach(ForkJoinPool)}
+     */
+    public static Interval start()
+    {
+        return new Interval();
+    }
+    
+    /**
+     * Ritorna il numero di garbage collection eseguite dall'avvio della JVM.
+     * 
+     * @return long
+     */
+    public static long gcCount()
+    {
+        long total = 0;
+        for(GarbageCollectorMXBean bean : COLLECTORS)
+            total += Math.max(0, bean.getCollectionCount());
+        
+        return total;
+    }
+    
+    /**
+     * Ritorna la durata totale in millisecondi delle garbage collection eseguite dall'avvio della JVM.
+     * 
+     * @return long
+     */
+    public static long gcTimeMillis()
+    {
+        long total = 0;
+        for(GarbageCollectorMXBean bean : COLLECTORS)
+            total += Math.max(0, bean.getCollectionTime());
+        
+        return total;
+    }
+    
+    /**
+     * Ritorna true se la JVM permette di misurare le allocazioni dei thread.
+     * 
+     * @return boolean
+     */
+    public static boolean isSupported()
+    {
+        return THREADS != null;
+    }
+}
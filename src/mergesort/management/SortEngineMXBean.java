@@ -0,0 +1,110 @@
+package mergesort.management;
+
+import java.util.Map;
+
+/**
+ * Interfaccia JMX con le metriche degli algoritmi di MergeSort.
+ * Registrata nel platform MBeanServer con il nome {@value SortEngineMetrics#OBJECT_NAME}.
+ * 
+ * Gli attributi delle allocazioni e delle garbage collection sono aggiornati solo dagli ordinamenti misurati,
+ * cioè quelli eseguiti con {@link #isAllocationMeteringEnabled()} attivo. I byte allocati sono quelli del singolo
+ * ordinamento (il thread che lo esegue e i worker del suo ForkJoinPool), mentre le garbage collection sono quelle
+ * di tutta la JVM avvenute durante l'ordinamento.
+ */
+public interface SortEngineMXBean
+{
+    /**
+     * @return numero di ordinamenti completati
+     */
+    public long getSortsCompleted();
+    
+    /**
+     * @return numero totale di elementi ordinati
+     */
+    public long getElementsSorted();
+    
+    /**
+     * @return numero di ordinamenti completati per algoritmo (S, SP, P)
+     */
+    public Map<String, Long> getSortsCompletedByEngine();
+    
+    /**
+     * Istogrammi delle latenze degli ordinamenti per algoritmo (S, SP, P).
+     * L'elemento i di ogni istogramma conta gli ordinamenti durati fra 2^i e 2^(i+1) microsecondi.
+     * 
+     * @return mappa algoritmo -> istogramma
+     */
+    public Map<String, long[]> getLatencyHistogramsMicros();
+    
+    /**
+     * @return numero di ordinamenti paralleli (SP, P) in corso
+     */
+    public int getParallelSortsInProgress();
+    
+    /**
+     * @return somma del parallelismo dei ForkJoinPool degli ordinamenti paralleli in corso
+     */
+    public int getPoolParallelism();
+    
+    /**
+     * @return numero di thread attivi nei ForkJoinPool degli ordinamenti paralleli in corso
+     */
+    public int getActiveThreadCount();
+    
+    /**
+     * @return numero di task in coda nei ForkJoinPool degli ordinamenti paralleli in corso
+     */
+    public long getQueuedTaskCount();
+    
+    /**
+     * @return numero totale di task rubati (work stealing) negli ordinamenti paralleli completati
+     */
+    public long getStealCount();
+    
+    /**
+     * @return true se sono misurate le allocazioni e le garbage collection degli ordinamenti
+     */
+    public boolean isAllocationMeteringEnabled();
+    
+    /**
+     * Attiva o disattiva la misura delle allocazioni e delle garbage collection degli ordinamenti.
+     * 
+     * @param enabled true per attivare la misura
+     */
+    public void setAllocationMeteringEnabled(boolean enabled);
+    
+    /**
+     * @return byte allocati dall'ultimo ordinamento misurato (thread chiamante e worker del suo pool)
+     */
+    public long getLastSortAllocatedBytes();
+    
+    /**
+     * @return byte allocati in media da ogni ordinamento misurato
+     */
+    public long getAverageAllocatedBytesPerSort();
+    
+    /**
+     * @return byte allocati dall'ultimo ordinamento misurato per elemento ordinato
+     */
+    public double getLastSortBytesPerElement();
+    
+    /**
+     * @return numero di garbage collection della JVM durante l'ultimo ordinamento misurato
+     */
+    public long getLastSortGcCount();
+    
+    /**
+     * @return durata delle garbage collection della JVM durante l'ultimo ordinamento misurato, in millisecondi
+     */
+    public long getLastSortGcTimeMillis();
+    
+    /**
+     * @return numero totale di garbage collection della JVM durante gli ordinamenti misurati
+     */
+    public long getGcCount();
+    
+    /**
+     * @return durata totale delle garbage collection della JVM durante gli ordinamenti misurati, in millisecondi
+     */
+    public long getGcTimeMillis();
+}
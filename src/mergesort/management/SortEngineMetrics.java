@@ -0,0 +1,328 @@
+package mergesort.management;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Implementazione di {@link SortEngineMXBean}, aggiornata dalle implementazioni di {@link mergesort.MergeSort} ad ogni ordinamento.
+ * 
+ * L'oggetto è unico ({@link #get()}), ed è registrato nel platform MBeanServer al primo utilizzo.
+ * 
+ * Gli attributi dei ForkJoinPool (parallelismo, thread attivi, task in coda) sono la somma su tutti i pool
+ * degli ordinamenti paralleli in corso: ogni pool è registrato quando inizia l'ordinamento e rimosso quando termina.
+ * 
+ * La misura delle allocazioni e delle garbage collection ({@link AllocationMeter}) costa meno di un microsecondo
+ * per ordinamento, ma è rilevante per gli ordinamenti piccoli: è quindi disattivata per default, e si attiva con
+ * la proprietà di sistema {@value #ALLOCATION_PROPERTY}=true, con {@link #setAllocationMeteringEnabled(boolean)}
+ * o tramite JMX. Quando è disattivata gli attributi delle allocazioni e delle garbage collection non sono aggiornati.
+ */
+public class SortEngineMetrics implements SortEngineMXBean
+{
+    public static final String OBJECT_NAME = "mergesort:type=SortEngine";
+    
+    /**
+     * Proprietà di sistema che attiva la misura delle allocazioni e delle garbage collection.
+     */
+    public static final String ALLOCATION_PROPERTY = "mergesort.metrics.allocation";
+    
+    // Numero di intervalli degli istogrammi: da 1 microsecondo a 2^32 microsecondi (più di un'ora)
+    private static final int HISTOGRAM_BUCKETS = 32;
+    
+    private static final SortEngineMetrics INSTANCE = register(new SortEngineMetrics());
+    
+    /**
+     * Misura di un singolo ordinamento, creata da {@link SortEngineMetrics#begin()}.
+     */
+    public class Measurement
+    {
+        private final long start_ns = System.nanoTime();
+        private final AllocationMeter.Interval allocation = allocation_metering ? AllocationMeter.start() : null;
+        private ForkJoinPool pool;
+        
+        private Measurement() {}
+        
+        /**
+         * Registra il ForkJoinPool dell'ordinamento fra quelli in uso, fino a {@link #detach()}.
+         * 
+         * @param pool il ForkJoinPool usato dall'ordinamento
+         */
+        public void attach(ForkJoinPool pool)
+        {
+            this.pool = pool;
+            if(allocation != null)
+                allocation.attach(pool);
+            live_pools.add(pool);
+        }
+        
+        /**
+         * Rimuove il ForkJoinPool dell'ordinamento da quelli in uso.
+         * Va chiamato anche se l'ordinamento termina con un'eccezione; le chiamate successive alla prima non hanno effetto.
+         */
+        public void detach()
+        {
+            if(pool != null)
+                live_pools.remove(pool);
+        }
+        
+        /**
+         * Termina la misura e aggiorna le metriche.
+         * 
+         * @param engine nome dell'algoritmo (S, SP, P)
+         * @param elements numero di elementi ordinati
+         */
+        public void end(String engine, int elements)
+        {
+            long nanos = System.nanoTime() - start_ns;
+            detach();
+            record(engine, elements, nanos, allocation != null ? allocation.stop() : null, pool);
+        }
+    }
+    
+    private final LongAdder sorts = new LongAdder();
+    private final LongAdder elements = new LongAdder();
+    private final LongAdder steals = new LongAdder();
+    private final LongAdder metered_sorts = new LongAdder();
+    private final LongAdder allocated = new LongAdder();
+    private final LongAdder gc_count = new LongAdder();
+    private final LongAdder gc_millis = new LongAdder();
+    private final Map<String, LongAdder[]> histograms = new ConcurrentHashMap<>();
+    private volatile AllocationMeter.Usage last_usage = new AllocationMeter.Usage(0, 0, 0);
+    private volatile int last_elements;
+    private volatile boolean allocation_metering = Boolean.getBoolean(ALLOCATION_PROPERTY);
+    private final Set<ForkJoinPool> live_pools = ConcurrentHashMap.newKeySet();
+    
+    private SortEngineMetrics() {}
+    
+    /**
+     * Registra le metriche nel platform MBeanServer.
+     * Se la registrazione fallisce le metriche restano comunque utilizzabili direttamente.
+     */
+    private static SortEngineMetrics register(SortEngineMetrics metrics)
+    {
+        try
+        {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(OBJECT_NAME));
+        }
+        catch(JMException | SecurityException e)
+        {
+            // Metriche non esposte via JMX (es. nome già registrato da un altro class loader)
+        }
+        
+        return metrics;
+    }
+    
+    /**
+     * Ritorna l'oggetto unico delle metriche.
+     * 
+     * @return {@link SortEngineMetrics}
+     */
+    public static SortEngineMetrics get()
+    {
+        return INSTANCE;
+    }
+    
+    /**
+     * Inizia la misura di un ordinamento.
+     * 
+     * @return {@link Measurement} da terminare al termine dell'ordinamento
+     */
+    public Measurement begin()
+    {
+        return new Measurement();
+    }
+    
+    /**
+     * Aggiorna le metriche con un ordinamento completato.
+     * 
+     * @param engine nome dell'algoritmo (S, SP, P)
+     * @param n numero di elementi ordinati
+     * @param nanos durata dell'ordinamento
+     * @param usage byte allocati e garbage collection durante l'ordinamento (null se non misurati)
+     * @param pool il ForkJoinPool usato dall'ordinamento (null se sequenziale)
+     */
+    public void record(String engine, int n, long nanos, AllocationMeter.Usage usage, ForkJoinPool pool)
+    {
+        sorts.increment();
+        elements.add(n);
+        if(usage != null)
+        {
+            metered_sorts.increment();
+            allocated.add(Math.max(0, usage.getAllocatedBytes()));
+            gc_count.add(usage.getGcCount());
+            gc_millis.add(usage.getGcTimeMillis());
+            last_usage = usage;
+            last_elements = n;
+        }
+        
+        // Intervallo dell'istogramma: parte intera del logaritmo in base 2 dei microsecondi
+        long micros = Math.max(1, nanos / 1000);
+        int bucket = Math.min(HISTOGRAM_BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+        histograms.computeIfAbsent(engine, k -> newHistogram())[bucket].increment();
+        
+        if(pool != null)
+            steals.add(pool.getStealCount());
+    }
+    
+    private static LongAdder[] newHistogram()
+    {
+        LongAdder[] h = new LongAdder[HISTOGRAM_BUCKETS];
+        for(int i = 0; i < h.length; i++)
+            h[i] = new LongAdder();
+        return h;
+    }
+    
+    // ATTRIBUTI JMX
+    
+    @Override
+    public long getSortsCompleted()
+    {
+        return sorts.sum();
+    }
+    
+    @Override
+    public long getElementsSorted()
+    {
+        return elements.sum();
+    }
+    
+    @Override
+    public Map<String, Long> getSortsCompletedByEngine()
+    {
+        Map<String, Long> m = new TreeMap<>();
+        for(Map.Entry<String, LongAdder[]> e : histograms.entrySet())
+        {
+            long total = 0;
+            for(LongAdder bucket : e.getValue())
+                total += bucket.sum();
+            m.put(e.getKey(), total);
+        }
+        return m;
+    }
+    
+    @Override
+    public Map<String, long[]> getLatencyHistogramsMicros()
+    {
+        Map<String, long[]> m = new TreeMap<>();
+        for(Map.Entry<String, LongAdder[]> e : histograms.entrySet())
+        {
+            long[] h = new long[HISTOGRAM_BUCKETS];
+            for(int i = 0; i < h.length; i++)
+                h[i] = e.getValue()[i].sum();
+            m.put(e.getKey(), h);
+        }
+        return m;
+    }
+    
+    @Override
+    public int getParallelSortsInProgress()
+    {
+        return live_pools.size();
+    }
+    
+    @Override
+    public int getPoolParallelism()
+    {
+        int total = 0;
+        for(ForkJoinPool pool : live_pools)
+            total += pool.getParallelism();
+        return total;
+    }
+    
+    @Override
+    public int getActiveThreadCount()
+    {
+        int total = 0;
+        for(ForkJoinPool pool : live_pools)
+            total += pool.getActiveThreadCount();
+        return total;
+    }
+    
+    @Override
+    public long getQueuedTaskCount()
+    {
+        long total = 0;
+        for(ForkJoinPool pool : live_pools)
+            total += pool.getQueuedTaskCount();
+        return total;
+    }
+    
+    @Override
+    public long getStealCount()
+    {
+        return steals.sum();
+    }
+    
+    @Override
+    public boolean isAllocationMeteringEnabled()
+    {
+        return allocation_metering;
+    }
+    
+    @Override
+    public void setAllocationMeteringEnabled(boolean enabled)
+    {
+        allocation_metering = enabled;
+    }
+    
+    /**
+     * Ritorna i byte allocati e le garbage collection dell'ultimo ordinamento misurato.
+     * 
+     * @return {@link AllocationMeter.Usage}
+     */
+    public AllocationMeter.Usage getLastSortUsage()
+    {
+        return last_usage;
+    }
+    
+    @Override
+    public long getLastSortAllocatedBytes()
+    {
+        return Math.max(0, last_usage.getAllocatedBytes());
+    }
+    
+    @Override
+    public double getLastSortBytesPerElement()
+    {
+        double bytes = last_usage.bytesPerElement(last_elements);
+        return Double.isNaN(bytes) ? 0 : bytes;
+    }
+    
+    @Override
+    public long getLastSortGcCount()
+    {
+        return last_usage.getGcCount();
+    }
+    
+    @Override
+    public long getLastSortGcTimeMillis()
+    {
+        return last_usage.getGcTimeMillis();
+    }
+    
+    @Override
+    public long getGcCount()
+    {
+        return gc_count.sum();
+    }
+    
+    @Override
+    public long getGcTimeMillis()
+    {
+        return gc_millis.sum();
+    }
+    
+    @Override
+    public long getAverageAllocatedBytesPerSort()
+    {
+        long n = metered_sorts.sum();
+        return n > 0 ? allocated.sum() / n : 0;
+    }
+}
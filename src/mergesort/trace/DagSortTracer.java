@@ -0,0 +1,96 @@
+package mergesort.trace;
+
+import mergesort.MergeSortStage;
+import mergesort.MergeSortStage.StageType;
+
+/**
+ * Tracer che registra l'esecuzione costruendo il DAG della computazione tramite {@link MergeSortStage}.
+ */
+public class DagSortTracer implements SortTracer<MergeSortStage>
+{
+    private MergeSortStage start_stage;
+    private MergeSortStage end_stage;
+    
+    @Override
+    public MergeSortStage start(int[] array)
+    {
+        this.start_stage = new MergeSortStage(array);
+        return this.start_stage;
+    }
+    
+    @Override
+    public MergeSortStage divide(MergeSortStage parent, int[] array, boolean same_task)
+    {
+        return new MergeSortStage(array, StageType.Divide, same_task ? parent.getTaskID() : -1, parent);
+    }
+    
+    @Override
+    public void enter(MergeSortStage stage)
+    {
+        stage.markBegin();
+    }
+    
+    @Override
+    public void leave(MergeSortStage stage)
+    {
+        stage.markEnd();
+    }
+    
+    @Override
+    public void fork(MergeSortStage parent, MergeSortStage child) {}
+    
+    @Override
+    public void leafBegin(MergeSortStage stage)
+    {
+        stage.beginDirectSort();
+    }
+    
+    @Override
+    public void leafEnd(MergeSortStage stage)
+    {
+        stage.endDirectSort();
+    }
+    
+    @Override
+    public void mergeBegin(MergeSortStage divide)
+    {
+        divide.markMergeBegin();
+    }
+    
+    @Override
+    public MergeSortStage merge(MergeSortStage divide, MergeSortStage left, MergeSortStage right, int[] array, int forks)
+    {
+        MergeSortStage merge = new MergeSortStage(array, StageType.Merge, divide.getTaskID(), forks, left, right);
+        merge.setMergeInterval(divide);
+        return merge;
+    }
+    
+    @Override
+    public MergeSortStage end(MergeSortStage last)
+    {
+        last.setEndStage();
+        this.end_stage = last;
+        return last;
+    }
+    
+    /**
+     * Ritorna lo stage iniziale della computazione registrata.
+     * 
+     * @return {@link MergeSortStage}
+     */
+    public MergeSortStage getStartStage()
+    {
+        return start_stage;
+    }
+    
+    /**
+     * Ritorna lo stage finale della computazione registrata.
+     * Se l'algoritmo non ha chiamato {@link #end(MergeSortStage)} (es. sequenziale), ritorna null.
+     * 
+     * @return {@link MergeSortStage}
+     */
+    public MergeSortStage getEndStage()
+    {
+        return end_stage;
+    }
+}
@@ -0,0 +1,59 @@
+package mergesort.trace;
+
+/**
+ * Evento pubblicato da {@link LiveSortTracer} durante l'ordinamento.
+ * 
+ * Ogni evento contiene anche la posizione e la profondità del sotto-array del suo stage,
+ * così chi lo riceve può mostrarlo anche se gli eventi precedenti dello stesso stage sono stati scartati.
+ */
+public final class LiveEvent
+{
+    /**
+     * Tipo dell'evento (corrisponde ai metodi di {@link SortTracer}).
+     */
+    public enum Kind
+    {
+        START, DIVIDE, ENTER, LEAVE, LEAF_BEGIN, LEAF_END, MERGE_BEGIN, MERGE, END
+    }
+    
+    public final Kind kind;
+    
+    /** Identificativo dello stage (i merge hanno lo stesso identificativo della loro divisione) */
+    public final int id;
+    
+    /** Identificativo dello stage padre (-1 se non c'è) */
+    public final int parent;
+    
+    /** Posizione e lunghezza del sotto-array nell'array iniziale */
+    public final int offset;
+    public final int length;
+    
+    /** Profondità dello stage (0 per lo stage iniziale) */
+    public final int depth;
+    
+    /** Indice del worker che ha generato l'evento (-1 se non è un worker di un ForkJoinPool) */
+    public final int worker;
+    
+    /** Istante dell'evento (System.nanoTime) */
+    public final long nanos;
+    
+    /** true se lo stage è eseguito tramite una fork (solo per DIVIDE) */
+    public final boolean forked;
+    
+    /** true se lo stage è stato ordinato direttamente, senza sotto-task (solo per LEAVE) */
+    public final boolean leaf;
+    
+    LiveEvent(Kind kind, int id, int parent, int offset, int length, int depth, int worker, long nanos, boolean forked, boolean leaf)
+    {
+        this.kind = kind;
+        this.id = id;
+        this.parent = parent;
+        this.offset = offset;
+        this.length = length;
+        this.depth = depth;
+        this.worker = worker;
+        this.nanos = nanos;
+        this.forked = forked;
+        this.leaf = leaf;
+    }
+}
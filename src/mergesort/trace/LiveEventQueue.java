@@ -0,0 +1,105 @@
+package mergesort.trace;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coda limitata fra i thread dell'ordinamento e chi visualizza l'esecuzione dal vivo.
+ * 
+ * La pubblicazione non attende mai: se la coda è piena l'evento viene scartato e contato,
+ * così l'ordinamento non rallenta anche se chi consuma gli eventi resta indietro.
+ * 
+ * La coda non usa lock: i thread dell'ordinamento non si contendono un lock fra loro né con chi preleva gli eventi.
+ * La capacità è rispettata riservando un posto (con compare-and-set sul numero di eventi) prima di inserire l'evento.
+ */
+public class LiveEventQueue
+{
+    private final ConcurrentLinkedQueue<LiveEvent> queue = new ConcurrentLinkedQueue<>();
+    private final int capacity;
+    
+    // Posti occupati: gli eventi in coda più quelli per cui è stato riservato un posto ma non ancora inseriti
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    
+    /**
+     * @param capacity numero massimo di eventi in attesa di essere consumati
+     */
+    public LiveEventQueue(int capacity)
+    {
+        if(capacity <= 0)
+            throw new IllegalArgumentException("La capacità deve essere > 0: " + capacity);
+        
+        this.capacity = capacity;
+    }
+    
+    /**
+     * Pubblica l'evento, scartandolo se la coda è piena.
+     * 
+     * @param event evento da pubblicare
+     */
+    void publish(LiveEvent event)
+    {
+        int size;
+        do
+        {
+            size = reserved.get();
+            if(size >= capacity)
+            {
+                dropped.increment();
+                return;
+            }
+        }
+        while(!reserved.compareAndSet(size, size + 1));
+        
+        queue.offer(event);
+        published.increment();
+    }
+    
+    /**
+     * Sposta nella collezione data al più max_events eventi in attesa.
+     * 
+     * @param target collezione di destinazione
+     * @param max_events numero massimo di eventi da spostare
+     * @return numero di eventi spostati
+     */
+    public int drainTo(Collection<? super LiveEvent> target, int max_events)
+    {
+        int moved = 0;
+        LiveEvent event;
+        while(moved < max_events && (event = queue.poll()) != null)
+        {
+            // Il posto si libera solo dopo il prelievo, così la coda non supera mai la capacità
+            reserved.decrementAndGet();
+            target.add(event);
+            moved++;
+        }
+        return moved;
+    }
+    
+    /**
+     * @return numero di eventi in attesa di essere consumati
+     */
+    public int size()
+    {
+        return Math.min(reserved.get(), capacity);
+    }
+    
+    /**
+     * @return numero di eventi pubblicati
+     */
+    public long getPublished()
+    {
+        return published.sum();
+    }
+    
+    /**
+     * @return numero di eventi scartati perché la coda era piena
+     */
+    public long getDropped()
+    {
+        return dropped.sum();
+    }
+}
@@ -0,0 +1,169 @@
+package mergesort.trace;
+
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import mergesort.trace.LiveEvent.Kind;
+
+/**
+ * Tracer che inoltra le chiamate ad un altro tracer e pubblica ogni passo dell'esecuzione su una {@link LiveEventQueue},
+ * permettendo di osservare l'ordinamento mentre è in corso.
+ * 
+ * Per limitare il costo sono pubblicati solo gli eventi degli stage fino alla profondità massima indicata;
+ * gli stage più profondi sono comunque inoltrati al tracer interno.
+ * 
+ * @param <T> tipo dello stage del tracer interno
+ */
+public class LiveSortTracer<T> implements SortTracer<LiveSortTracer.Stage<T>>
+{
+    /**
+     * Stage del tracer interno, con la posizione del suo sotto-array.
+     * 
+     * @param <T> tipo dello stage del tracer interno
+     */
+    public static final class Stage<T>
+    {
+        private final T inner;
+        private final int id;
+        private final int offset;
+        private final int length;
+        private final int depth;
+        
+        // Scritto e letto solo dal task che elabora lo stage
+        private boolean divided;
+        
+        private Stage(T inner, int id, int offset, int length, int depth)
+        {
+            this.inner = inner;
+            this.id = id;
+            this.offset = offset;
+            this.length = length;
+            this.depth = depth;
+        }
+    }
+    
+    private final SortTracer<T> delegate;
+    private final LiveEventQueue queue;
+    private final int max_depth;
+    private final AtomicInteger id_counter = new AtomicInteger();
+    
+    /**
+     * @param delegate tracer a cui inoltrare le chiamate
+     * @param queue coda su cui pubblicare gli eventi
+     * @param max_depth profondità massima degli stage di cui pubblicare gli eventi
+     */
+    public LiveSortTracer(SortTracer<T> delegate, LiveEventQueue queue, int max_depth)
+    {
+        this.delegate = delegate;
+        this.queue = queue;
+        this.max_depth = max_depth;
+    }
+    
+    /**
+     * Ritorna il tracer dato, avvolto in un {@link LiveSortTracer} se la coda non è null.
+     * 
+     * @param delegate tracer da avvolgere
+     * @param queue coda su cui pubblicare gli eventi (null per non pubblicare nulla)
+     * @param max_depth profondità massima degli stage di cui pubblicare gli eventi
+     * @return il tracer da passare all'algoritmo
+     */
+    public static <T> SortTracer<?> wrap(SortTracer<T> delegate, LiveEventQueue queue, int max_depth)
+    {
+        if(queue == null)
+            return delegate;
+        
+        return new LiveSortTracer<>(delegate, queue, max_depth);
+    }
+    
+    private void publish(Kind kind, Stage<T> stage, int parent, boolean forked)
+    {
+        publish(kind, stage, parent, forked, false);
+    }
+    
+    private void publish(Kind kind, Stage<T> stage, int parent, boolean forked, boolean leaf)
+    {
+        if(stage.depth > max_depth)
+            return;
+        
+        Thread t = Thread.currentThread();
+        int worker = t instanceof ForkJoinWorkerThread ? ((ForkJoinWorkerThread) t).getPoolIndex() : -1;
+        queue.publish(new LiveEvent(kind, stage.id, parent, stage.offset, stage.length, stage.depth, worker, System.nanoTime(), forked, leaf));
+    }
+    
+    @Override
+    public Stage<T> start(int[] array)
+    {
+        Stage<T> stage = new Stage<>(delegate.start(array), id_counter.getAndIncrement(), 0, array.length, 0);
+        publish(Kind.START, stage, -1, false);
+        return stage;
+    }
+    
+    @Override
+    public Stage<T> divide(Stage<T> parent, int[] array, boolean same_task)
+    {
+        // Il sotto-task dello stesso task ha la metà sinistra, quello della fork la metà destra
+        int offset = same_task ? parent.offset : parent.offset + parent.length - array.length;
+        parent.divided = true;
+        Stage<T> stage = new Stage<>(delegate.divide(parent.inner, array, same_task), id_counter.getAndIncrement(), offset, array.length, parent.depth + 1);
+        publish(Kind.DIVIDE, stage, parent.id, !same_task);
+        return stage;
+    }
+    
+    @Override
+    public void enter(Stage<T> stage)
+    {
+        delegate.enter(stage.inner);
+        publish(Kind.ENTER, stage, -1, false);
+    }
+    
+    @Override
+    public void leave(Stage<T> stage)
+    {
+        delegate.leave(stage.inner);
+        publish(Kind.LEAVE, stage, -1, false, !stage.divided);
+    }
+    
+    @Override
+    public void fork(Stage<T> parent, Stage<T> child)
+    {
+        delegate.fork(parent.inner, child.inner);
+    }
+    
+    @Override
+    public void leafBegin(Stage<T> stage)
+    {
+        delegate.leafBegin(stage.inner);
+        publish(Kind.LEAF_BEGIN, stage, -1, false);
+    }
+    
+    @Override
+    public void leafEnd(Stage<T> stage)
+    {
+        delegate.leafEnd(stage.inner);
+        publish(Kind.LEAF_END, stage, -1, false);
+    }
+    
+    @Override
+    public void mergeBegin(Stage<T> divide)
+    {
+        delegate.mergeBegin(divide.inner);
+        publish(Kind.MERGE_BEGIN, divide, -1, false);
+    }
+    
+    @Override
+    public Stage<T> merge(Stage<T> divide, Stage<T> left, Stage<T> right, int[] array, int forks)
+    {
+        // Il merge prende l'identificativo della sua divisione, così chi riceve gli eventi vede terminare lo stesso blocco
+        Stage<T> stage = new Stage<>(delegate.merge(divide.inner, left.inner, right.inner, array, forks), divide.id, divide.offset, divide.length, divide.depth);
+        publish(Kind.MERGE, stage, -1, false);
+        return stage;
+    }
+    
+    @Override
+    public Stage<T> end(Stage<T> last)
+    {
+        Stage<T> stage = new Stage<>(delegate.end(last.inner), last.id, last.offset, last.length, last.depth);
+        publish(Kind.END, stage, -1, false);
+        return stage;
+    }
+}
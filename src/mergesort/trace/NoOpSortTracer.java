@@ -0,0 +1,49 @@
+package mergesort.trace;
+
+/**
+ * Tracer che non registra nulla.
+ * 
+ * Tutti i metodi sono vuoti e la classe è final, quindi nei punti di chiamata degli algoritmi
+ * il JIT (C2) effettua l'inlining delle chiamate e le elimina completamente.
+ * Si può verificare eseguendo con:
+ * -XX:+UnlockDiagnosticVMOptions -XX:+PrintInlining
+ * dove le chiamate risultano "inline (hot)" con corpo vuoto.
+ * 
+ * {@link bench.TracerOverhead} esegue questa verifica automaticamente, e confronta i tempi con quelli del tracer del DAG.
+ */
+public final class NoOpSortTracer implements SortTracer<Object>
+{
+    static final NoOpSortTracer INSTANCE = new NoOpSortTracer();
+    
+    private NoOpSortTracer() {}
+    
+    @Override
+    public Object start(int[] array) { return null; }
+    
+    @Override
+    public Object divide(Object parent, int[] array, boolean same_task) { return null; }
+    
+    @Override
+    public void enter(Object stage) {}
+    
+    @Override
+    public void leave(Object stage) {}
+    
+    @Override
+    public void fork(Object parent, Object child) {}
+    
+    @Override
+    public void leafBegin(Object stage) {}
+    
+    @Override
+    public void leafEnd(Object stage) {}
+    
+    @Override
+    public void mergeBegin(Object divide) {}
+    
+    @Override
+    public Object merge(Object divide, Object left, Object right, int[] array, int forks) { return null; }
+    
+    @Override
+    public Object end(Object last) { return null; }
+}
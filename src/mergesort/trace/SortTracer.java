@@ -0,0 +1,107 @@
+package mergesort.trace;
+
+/**
+ * Interfaccia che gli algoritmi di MergeSort chiamano nei punti salienti della computazione
+ * (inizio, divisione, fork, ordinamento delle foglie, merge e fine), 
+ * permettendo di registrare l'esecuzione senza duplicare il codice degli algoritmi.
+ * 
+ * Il tipo T è il "gettone" con cui il tracer identifica uno stage: 
+ * l'algoritmo non lo interpreta, si limita a passarlo alle chiamate successive.
+ * 
+ * @param <T> tipo dello stage registrato dal tracer
+ */
+public interface SortTracer<T>
+{
+    /**
+     * Chiamato una sola volta all'inizio dell'ordinamento.
+     * 
+     * @param array l'array da ordinare
+     * @return lo stage iniziale
+     */
+    public T start(int[] array);
+    
+    /**
+     * Chiamato quando un task di divisione crea un sotto-task.
+     * 
+     * @param parent lo stage del task che effettua la divisione
+     * @param array la metà dell'array assegnata al sotto-task
+     * @param same_task true se il sotto-task sarà eseguito dallo stesso task del padre, false se sarà eseguito da una fork
+     * @return lo stage del sotto-task
+     */
+    public T divide(T parent, int[] array, boolean same_task);
+    
+    /**
+     * Chiamato quando un task inizia ad elaborare il proprio stage.
+     * 
+     * @param stage lo stage elaborato dal task
+     */
+    public void enter(T stage);
+    
+    /**
+     * Chiamato quando un task ha terminato la fase di divisione del proprio stage 
+     * (cioè dopo aver creato i sotto-task, o dopo aver ordinato direttamente l'array sotto il cutoff).
+     * 
+     * @param stage lo stage elaborato dal task
+     */
+    public void leave(T stage);
+    
+    /**
+     * Chiamato subito prima di effettuare la fork di un sotto-task.
+     * 
+     * @param parent lo stage del task che effettua la fork
+     * @param child lo stage del sotto-task di cui si effettua la fork
+     */
+    public void fork(T parent, T child);
+    
+    /**
+     * Chiamato prima di ordinare direttamente (sotto il cutoff) l'array di uno stage.
+     * 
+     * @param stage lo stage di cui sarà ordinato l'array
+     */
+    public void leafBegin(T stage);
+    
+    /**
+     * Chiamato dopo aver ordinato direttamente (sotto il cutoff) l'array di uno stage.
+     * 
+     * @param stage lo stage il cui array è stato ordinato
+     */
+    public void leafEnd(T stage);
+    
+    /**
+     * Chiamato prima di unire i risultati di due sotto-task.
+     * 
+     * @param divide lo stage di divisione del task che effettuerà il merge
+     */
+    public void mergeBegin(T divide);
+    
+    /**
+     * Chiamato al termine dell'unione dei risultati di due sotto-task.
+     * 
+     * @param divide lo stage di divisione del task che ha effettuato il merge
+     * @param left lo stage finale del sotto-task sinistro
+     * @param right lo stage finale del sotto-task destro
+     * @param array l'array risultante dal merge
+     * @param forks il numero di fork effettuate durante il merge
+     * @return lo stage di merge
+     */
+    public T merge(T divide, T left, T right, int[] array, int forks);
+    
+    /**
+     * Chiamato una sola volta al termine dell'ordinamento.
+     * 
+     * @param last l'ultimo stage della computazione
+     * @return lo stage finale
+     */
+    public T end(T last);
+    
+    /**
+     * Ritorna il tracer che non registra nulla.
+     * 
+     * @return {@link NoOpSortTracer}
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> SortTracer<T> noop()
+    {
+        return (SortTracer<T>) NoOpSortTracer.INSTANCE;
+    }
+}
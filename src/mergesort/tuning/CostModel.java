@@ -0,0 +1,196 @@
+package mergesort.tuning;
+
+import java.util.Locale;
+
+/**
+ * Modello del tempo di ordinamento di un algoritmo in funzione della dimensione dell'input,
+ * t(n) = c0 + c1 * n + c2 * n * log2(n), con coefficienti misurati da bench.AutoTuner.
+ *
+ * - c0 è il costo fisso (creazione del ForkJoinPool, avvio dei worker),
+ * - c1 è il costo lineare (copie e merge sequenziali non divisi fra i worker),
+ * - c2 è il costo di ordinamento vero e proprio.
+ *
+ * Il modello ha due serie di coefficienti: una misurata su input casuali e una su input già ordinati.
+ * La stima per un input è l'interpolazione delle due in base al suo grado di ordinamento (vedi {@link #predict(int, double)}).
+ */
+public class CostModel
+{
+    private final double[] random;
+    private final double[] sorted;
+
+    /**
+     * @param random coefficienti (c0, c1, c2) misurati su input casuali, in nanosecondi
+     * @param sorted coefficienti (c0, c1, c2) misurati su input ordinati, in nanosecondi
+     */
+    public CostModel(double[] random, double[] sorted)
+    {
+        this.random = random.clone();
+        this.sorted = sorted.clone();
+    }
+
+    /**
+     * Stima il tempo di ordinamento di n elementi.
+     *
+     * @param n dimensione dell'input
+     * @param presortedness frazione delle coppie di elementi adiacenti già in ordine (circa 0.5 per un input casuale, 1 se ordinato)
+     * @return tempo stimato in nanosecondi
+     */
+    public double predict(int n, double presortedness)
+    {
+        // Un input casuale ha circa metà delle coppie in ordine: conta solo l'ordine in più
+        double s = Math.max(0, Math.min(1, 2 * presortedness - 1));
+        return Math.max(0, (1 - s) * evaluate(random, n) + s * evaluate(sorted, n));
+    }
+
+    private static double evaluate(double[] c, int n)
+    {
+        return c[0] + c[1] * n + c[2] * n * log2(n);
+    }
+
+    private static double log2(int n)
+    {
+        return n > 1 ? Math.log(n) / Math.log(2) : 0;
+    }
+
+    public double[] getRandom()
+    {
+        return random.clone();
+    }
+
+    public double[] getSorted()
+    {
+        return sorted.clone();
+    }
+
+    /**
+     * Calcola i coefficienti (c0, c1, c2) non negativi che approssimano meglio i tempi misurati, con i minimi quadrati
+     * pesati sull'errore relativo (così le dimensioni piccole contano quanto quelle grandi).
+     *
+     * I coefficienti devono essere non negativi, altrimenti il modello potrebbe stimare tempi negativi lontano dalle
+     * dimensioni misurate: sono provati tutti i sottoinsiemi dei tre termini, e scelto quello ammissibile con l'errore minore.
+     *
+     * @param sizes dimensioni misurate (almeno 3 diverse)
+     * @param times tempi misurati in nanosecondi
+     * @return coefficienti (c0, c1, c2)
+     */
+    public static double[] fit(int[] sizes, double[] times)
+    {
+        double[][] rows = new double[sizes.length][];
+        for(int k = 0; k < sizes.length; k++)
+            rows[k] = new double[] {1, sizes[k], sizes[k] * log2(sizes[k])};
+
+        double[] best = null;
+        double best_error = Double.MAX_VALUE;
+        for(int terms = 1; terms < 8; terms++)
+        {
+            double[] c = solve(rows, times, terms);
+            if(c == null)
+                continue;
+
+            double error = 0;
+            for(int k = 0; k < rows.length; k++)
+            {
+                double r = (c[0] * rows[k][0] + c[1] * rows[k][1] + c[2] * rows[k][2] - times[k]) / times[k];
+                error += r * r;
+            }
+            if(error < best_error)
+            {
+                best = c;
+                best_error = error;
+            }
+        }
+
+        if(best == null)
+            throw new IllegalArgumentException("Servono almeno 3 dimensioni diverse per calcolare il modello");
+        return best;
+    }
+
+    /**
+     * Risolve i minimi quadrati pesati usando solo i termini indicati dai bit di 'terms'.
+     *
+     * @return coefficienti (0 per i termini non usati), o null se il sistema è singolare o un coefficiente è negativo
+     */
+    private static double[] solve(double[][] rows, double[] times, int terms)
+    {
+        int[] cols = new int[Integer.bitCount(terms)];
+        for(int j = 0, i = 0; j < 3; j++)
+            if((terms & (1 << j)) != 0)
+                cols[i++] = j;
+
+        // Equazioni normali A^T W A c = A^T W t, con W = 1 / t^2
+        int m = cols.length;
+        double[][] a = new double[m][m + 1];
+        for(int k = 0; k < rows.length; k++)
+        {
+            double w = 1 / (times[k] * times[k]);
+            for(int i = 0; i < m; i++)
+            {
+                for(int j = 0; j < m; j++)
+                    a[i][j] += w * rows[k][cols[i]] * rows[k][cols[j]];
+                a[i][m] += w * rows[k][cols[i]] * times[k];
+            }
+        }
+
+        // Eliminazione di Gauss-Jordan con pivot parziale
+        for(int i = 0; i < m; i++)
+        {
+            int pivot = i;
+            for(int r = i + 1; r < m; r++)
+                if(Math.abs(a[r][i]) > Math.abs(a[pivot][i]))
+                    pivot = r;
+            double[] tmp = a[i];
+            a[i] = a[pivot];
+            a[pivot] = tmp;
+
+            if(Math.abs(a[i][i]) < 1e-300)
+                return null;
+
+            for(int r = 0; r < m; r++)
+            {
+                if(r == i)
+                    continue;
+                double f = a[r][i] / a[i][i];
+                for(int j = i; j <= m; j++)
+                    a[r][j] -= f * a[i][j];
+            }
+        }
+
+        double[] c = new double[3];
+        for(int i = 0; i < m; i++)
+        {
+            c[cols[i]] = a[i][m] / a[i][i];
+            if(c[cols[i]] < 0)
+                return null;
+        }
+        return c;
+    }
+
+    /**
+     * @param c coefficienti
+     * @return coefficienti separati da virgole (il formato del profilo)
+     */
+    static String format(double[] c)
+    {
+        return String.format(Locale.ROOT, "%s,%s,%s", c[0], c[1], c[2]);
+    }
+
+    /**
+     * @param s coefficienti separati da virgole
+     * @return coefficienti
+     * @throws NumberFormatException se il formato non è valido
+     */
+    static double[] parse(String s)
+    {
+        String[] parts = s.split(",");
+        if(parts.length != 3)
+            throw new NumberFormatException("Attesi 3 coefficienti: " + s);
+        return new double[] {Double.parseDouble(parts[0].trim()), Double.parseDouble(parts[1].trim()), Double.parseDouble(parts[2].trim())};
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format(Locale.ROOT, "casuale: %.0f + %.3f n + %.3f n log n ns, ordinato: %.0f + %.3f n + %.3f n log n ns",
+                random[0], random[1], random[2], sorted[0], sorted[1], sorted[2]);
+    }
+}
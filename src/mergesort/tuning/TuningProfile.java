@@ -0,0 +1,397 @@
+package mergesort.tuning;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import mergesort.engine.Thresholds;
+
+/**
+ * Profilo della macchina: soglie ({@link Thresholds}) e numero di worker migliori per ogni algoritmo e fascia di dimensione dell'input,
+ * e il modello dei tempi di ogni algoritmo ({@link CostModel}), misurati da bench.AutoTuner.
+ *
+ * Il profilo è salvato in un file di properties, per default '~/.mergesort/tuning.properties'
+ * (il percorso può essere cambiato con la proprietà di sistema 'mergesort.profile'), ed è letto al primo utilizzo
+ * da {@link #get()}. Gli algoritmi creati senza un cutoff esplicito lo usano ad ogni ordinamento tramite {@link #settings(String, int)}.
+ * Un profilo misurato su una macchina con un numero di processori diverso da quella corrente non è usato.
+ */
+public class TuningProfile
+{
+    /**
+     * Proprietà di sistema con il percorso del profilo.
+     */
+    public static final String PATH_PROPERTY = "mergesort.profile";
+
+    private static volatile TuningProfile loaded;
+    private static volatile boolean load_attempted;
+    private static volatile boolean mismatch_reported;
+
+    /**
+     * Impostazioni per una fascia di dimensioni dell'input.
+     */
+    public static class Band
+    {
+        private final int max_n;
+        private final int cutoff;
+        private final int merge_cutoff;
+        private final int insertion_cutoff;
+        private final int parallelism;
+
+        /**
+         * @param max_n dimensione massima dell'input della fascia (compresa)
+         * @param cutoff cutoff sequenziale
+         * @param parallelism numero di worker del ForkJoinPool
+         */
+        public Band(int max_n, int cutoff, int parallelism)
+        {
+            this(max_n, cutoff, Thresholds.AUTO, Thresholds.DEFAULT_INSERTION_CUTOFF, parallelism);
+        }
+
+        /**
+         * @param max_n dimensione massima dell'input della fascia (compresa)
+         * @param cutoff cutoff sequenziale dell'ordinamento
+         * @param merge_cutoff cutoff del merge parallelo ({@link Thresholds#AUTO} per il default)
+         * @param insertion_cutoff cutoff dell'insertion sort
+         * @param parallelism numero di worker del ForkJoinPool
+         */
+        public Band(int max_n, int cutoff, int merge_cutoff, int insertion_cutoff, int parallelism)
+        {
+            this.max_n = max_n;
+            this.cutoff = cutoff;
+            this.merge_cutoff = merge_cutoff;
+            this.insertion_cutoff = insertion_cutoff;
+            this.parallelism = parallelism;
+        }
+
+        public int getMaxN()
+        {
+            return max_n;
+        }
+
+        public int getCutoff()
+        {
+            return cutoff;
+        }
+
+        public int getMergeCutoff()
+        {
+            return merge_cutoff;
+        }
+
+        public int getInsertionCutoff()
+        {
+            return insertion_cutoff;
+        }
+
+        public int getParallelism()
+        {
+            return parallelism;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "n <= " + max_n + ": cutoff = " + cutoff + ", cutoff merge = " + (merge_cutoff == Thresholds.AUTO ? "auto" : merge_cutoff)
+                    + ", cutoff insertion sort = " + insertion_cutoff + ", parallelismo = " + parallelism;
+        }
+    }
+
+    private final int cores;
+    private final Map<String, List<Band>> bands = new TreeMap<>();
+    private final Map<String, CostModel> models = new TreeMap<>();
+
+    /**
+     * Crea un profilo vuoto.
+     *
+     * @param cores numero di processori della macchina misurata
+     */
+    public TuningProfile(int cores)
+    {
+        this.cores = cores;
+    }
+
+    /**
+     * Aggiunge le fasce di un algoritmo (sostituendo quelle presenti).
+     *
+     * @param engine nome dell'algoritmo (SP, P)
+     * @param engine_bands fasce, ordinate per dimensione massima crescente
+     */
+    public void put(String engine, List<Band> engine_bands)
+    {
+        bands.put(engine, new ArrayList<>(engine_bands));
+    }
+
+    /**
+     * Ritorna la fascia dell'algoritmo dato che comprende la dimensione data
+     * (l'ultima se la dimensione le supera tutte, null se non ci sono fasce per l'algoritmo).
+     *
+     * @param engine nome dell'algoritmo (SP, P)
+     * @param n dimensione dell'input
+     * @return {@link Band}
+     */
+    public Band lookup(String engine, int n)
+    {
+        List<Band> engine_bands = bands.get(engine);
+        if(engine_bands == null || engine_bands.isEmpty())
+            return null;
+
+        for(Band band : engine_bands)
+            if(n <= band.getMaxN())
+                return band;
+
+        return engine_bands.get(engine_bands.size() - 1);
+    }
+
+    /**
+     * Ritorna le fasce dell'algoritmo dato (vuota se non ce ne sono).
+     *
+     * @param engine nome dell'algoritmo (SP, P)
+     * @return List<Band>
+     */
+    public List<Band> getBands(String engine)
+    {
+        List<Band> engine_bands = bands.get(engine);
+        return engine_bands == null ? Collections.emptyList() : Collections.unmodifiableList(engine_bands);
+    }
+
+    /**
+     * Imposta il modello dei tempi di un algoritmo.
+     *
+     * @param engine nome dell'algoritmo (S, SP, P)
+     * @param model modello dei tempi
+     */
+    public void putModel(String engine, CostModel model)
+    {
+        models.put(engine, model);
+    }
+
+    /**
+     * Ritorna il modello dei tempi dell'algoritmo dato (null se non è stato misurato).
+     *
+     * @param engine nome dell'algoritmo (S, SP, P)
+     * @return {@link CostModel}
+     */
+    public CostModel getModel(String engine)
+    {
+        return models.get(engine);
+    }
+
+    /**
+     * @return numero di processori della macchina su cui è stato misurato il profilo
+     */
+    public int getCores()
+    {
+        return cores;
+    }
+
+    /**
+     * @return true se il profilo è stato misurato su una macchina con lo stesso numero di processori di quella corrente
+     */
+    public boolean matchesMachine()
+    {
+        return cores == Runtime.getRuntime().availableProcessors();
+    }
+
+    // FILE
+
+    /**
+     * Ritorna il percorso del profilo: la proprietà di sistema 'mergesort.profile' se presente,
+     * altrimenti '~/.mergesort/tuning.properties'.
+     *
+     * @return Path
+     */
+    public static Path defaultPath()
+    {
+        String path = System.getProperty(PATH_PROPERTY);
+        if(path != null && !path.isEmpty())
+            return Paths.get(path);
+
+        return Paths.get(System.getProperty("user.home"), ".mergesort", "tuning.properties");
+    }
+
+    /**
+     * Legge il profilo dal file dato.
+     *
+     * @param path file del profilo
+     * @return {@link TuningProfile}
+     * @throws IOException se il file non può essere letto o non è un profilo valido
+     */
+    public static TuningProfile load(Path path) throws IOException
+    {
+        Properties props = new Properties();
+        try(Reader in = Files.newBufferedReader(path, StandardCharsets.UTF_8))
+        {
+            props.load(in);
+        }
+
+        try
+        {
+            TuningProfile profile = new TuningProfile(Integer.parseInt(props.getProperty("cores", "0")));
+            for(String key : props.stringPropertyNames())
+            {
+                if(!key.endsWith(".bands"))
+                    continue;
+
+                String engine = key.substring(0, key.length() - ".bands".length());
+                int count = Integer.parseInt(props.getProperty(key));
+                List<Band> engine_bands = new ArrayList<>();
+                for(int i = 0; i < count; i++)
+                {
+                    String prefix = engine + "." + i + ".";
+                    engine_bands.add(new Band(
+                            Integer.parseInt(props.getProperty(prefix + "max_n")),
+                            Integer.parseInt(props.getProperty(prefix + "cutoff")),
+                            Integer.parseInt(props.getProperty(prefix + "merge_cutoff", String.valueOf(Thresholds.AUTO))),
+                            Integer.parseInt(props.getProperty(prefix + "insertion_cutoff", String.valueOf(Thresholds.DEFAULT_INSERTION_CUTOFF))),
+                            Integer.parseInt(props.getProperty(prefix + "parallelism"))));
+                }
+                profile.put(engine, engine_bands);
+            }
+            for(String key : props.stringPropertyNames())
+            {
+                if(!key.endsWith(".model.random"))
+                    continue;
+
+                String engine = key.substring(0, key.length() - ".model.random".length());
+                String sorted = props.getProperty(engine + ".model.sorted", props.getProperty(key));
+                profile.putModel(engine, new CostModel(CostModel.parse(props.getProperty(key)), CostModel.parse(sorted)));
+            }
+            return profile;
+        }
+        catch(NumberFormatException e)
+        {
+            throw new IOException("Profilo non valido: " + path, e);
+        }
+    }
+
+    /**
+     * Salva il profilo nel file dato, creando le cartelle se necessario.
+     *
+     * @param path file del profilo
+     * @throws IOException se il file non può essere scritto
+     */
+    public void save(Path path) throws IOException
+    {
+        Properties props = new Properties();
+        props.setProperty("cores", String.valueOf(cores));
+        for(Map.Entry<String, List<Band>> entry : bands.entrySet())
+        {
+            List<Band> engine_bands = entry.getValue();
+            props.setProperty(entry.getKey() + ".bands", String.valueOf(engine_bands.size()));
+            for(int i = 0; i < engine_bands.size(); i++)
+            {
+                String prefix = entry.getKey() + "." + i + ".";
+                props.setProperty(prefix + "max_n", String.valueOf(engine_bands.get(i).getMaxN()));
+                props.setProperty(prefix + "cutoff", String.valueOf(engine_bands.get(i).getCutoff()));
+                props.setProperty(prefix + "merge_cutoff", String.valueOf(engine_bands.get(i).getMergeCutoff()));
+                props.setProperty(prefix + "insertion_cutoff", String.valueOf(engine_bands.get(i).getInsertionCutoff()));
+                props.setProperty(prefix + "parallelism", String.valueOf(engine_bands.get(i).getParallelism()));
+            }
+        }
+        for(Map.Entry<String, CostModel> entry : models.entrySet())
+        {
+            props.setProperty(entry.getKey() + ".model.random", CostModel.format(entry.getValue().getRandom()));
+            props.setProperty(entry.getKey() + ".model.sorted", CostModel.format(entry.getValue().getSorted()));
+        }
+
+        if(path.toAbsolutePath().getParent() != null)
+            Files.createDirectories(path.toAbsolutePath().getParent());
+        try(Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8))
+        {
+            props.store(out, "Profilo generato da bench.AutoTuner");
+        }
+    }
+
+    /**
+     * Ritorna il profilo della macchina, letto da {@link #defaultPath()} al primo utilizzo
+     * (null se il file non esiste o non è valido).
+     *
+     * @return {@link TuningProfile}
+     */
+    public static TuningProfile get()
+    {
+        if(!load_attempted)
+        {
+            synchronized(TuningProfile.class)
+            {
+                if(!load_attempted)
+                {
+                    Path path = defaultPath();
+                    try
+                    {
+                        loaded = load(path);
+                    }
+                    catch(NoSuchFileException e)
+                    {
+                        loaded = null;
+                    }
+                    catch(IOException e)
+                    {
+                        System.err.println("Impossibile leggere il profilo " + path + ": " + e.getMessage());
+                        loaded = null;
+                    }
+                    load_attempted = true;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Ritorna le impostazioni da usare per ordinare n elementi con l'algoritmo dato: quelle del profilo della macchina
+     * se presente e misurato con lo stesso numero di processori, altrimenti le soglie di default di {@link Thresholds}
+     * e tutti i processori. Il cutoff è sempre compreso fra 1 e n.
+     *
+     * @param engine nome dell'algoritmo (SP, P)
+     * @param n dimensione dell'input
+     * @return {@link Band}
+     */
+    public static Band settings(String engine, int n)
+    {
+        TuningProfile profile = get();
+        if(profile != null && !profile.matchesMachine())
+        {
+            reportMismatch(profile);
+            profile = null;
+        }
+
+        Band band = profile != null ? profile.lookup(engine, n) : null;
+        if(band == null)
+        {
+            int parallelism = Runtime.getRuntime().availableProcessors();
+            return new Band(n, Thresholds.defaultSortCutoff(n, parallelism), Thresholds.AUTO, Thresholds.DEFAULT_INSERTION_CUTOFF, parallelism);
+        }
+
+        return new Band(n, Math.max(1, Math.min(band.getCutoff(), n)), band.getMergeCutoff(), band.getInsertionCutoff(), Math.max(1, band.getParallelism()));
+    }
+
+    /**
+     * Avvisa, una sola volta, che il profilo non è usato perché misurato con un numero di processori diverso.
+     */
+    private static void reportMismatch(TuningProfile profile)
+    {
+        if(mismatch_reported)
+            return;
+
+        synchronized(TuningProfile.class)
+        {
+            if(!mismatch_reported)
+            {
+                System.err.println("Il profilo " + defaultPath() + " è stato misurato con " + profile.getCores() + " processori, ma ne sono disponibili "
+                        + Runtime.getRuntime().availableProcessors() + ": sono usate le soglie di default (eseguire di nuovo bench.AutoTuner)");
+                mismatch_reported = true;
+            }
+        }
+    }
+}
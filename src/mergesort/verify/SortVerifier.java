@@ -0,0 +1,294 @@
+package mergesort.verify;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Verifica parallela del risultato di un ordinamento: controlla che l'array sia ordinato in modo crescente
+ * e che sia una permutazione dell'input, cioè che nessun elemento sia stato perso, duplicato o modificato.
+ *
+ * La permutazione è verificata confrontando le impronte ({@link Fingerprint}) dell'input e del risultato,
+ * che non dipendono dall'ordine degli elementi: così non serve ordinare una copia dell'input per confrontarla.
+ * Entrambe le verifiche sono eseguite in un'unica passata sull'array, divisa in blocchi di {@value #CHUNK} elementi
+ * fra i worker del ForkJoinPool comune; ogni blocco confronta anche il suo primo elemento con l'ultimo del blocco precedente.
+ */
+public final class SortVerifier
+{
+    // Dimensione dei blocchi esaminati da un singolo task
+    private static final int CHUNK = 1 << 16;
+
+    private SortVerifier() {}
+
+    /**
+     * Impronta di un multiinsieme di interi: numero di elementi, somma, xor e somma di un hash a 64 bit di ogni elemento
+     * (tutte modulo 2^64). Array con gli stessi elementi in ordine diverso hanno la stessa impronta, mentre perdere,
+     * duplicare o modificare un elemento cambia l'impronta tranne che con probabilità trascurabile.
+     */
+    public static class Fingerprint
+    {
+        private final int length;
+        private final long sum;
+        private final long xor;
+        private final long hash;
+
+        private Fingerprint(int length, long sum, long xor, long hash)
+        {
+            this.length = length;
+            this.sum = sum;
+            this.xor = xor;
+            this.hash = hash;
+        }
+
+        public int getLength()
+        {
+            return length;
+        }
+
+        public long getSum()
+        {
+            return sum;
+        }
+
+        public long getXor()
+        {
+            return xor;
+        }
+
+        public long getHash()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if(!(obj instanceof Fingerprint))
+                return false;
+            Fingerprint other = (Fingerprint) obj;
+            return length == other.length && sum == other.sum && xor == other.xor && hash == other.hash;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Long.hashCode(hash);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("n = %d, somma = %d, xor = %016x, hash = %016x", length, sum, xor, hash);
+        }
+    }
+
+    /**
+     * Esito di una verifica.
+     */
+    public static class Result
+    {
+        private final int first_inversion;
+        private final Fingerprint expected;
+        private final Fingerprint actual;
+
+        private Result(int first_inversion, Fingerprint expected, Fingerprint actual)
+        {
+            this.first_inversion = first_inversion;
+            this.expected = expected;
+            this.actual = actual;
+        }
+
+        /**
+         * @return true se l'array è ordinato ed è una permutazione dell'input
+         */
+        public boolean isCorrect()
+        {
+            return isSorted() && isPermutation();
+        }
+
+        public boolean isSorted()
+        {
+            return first_inversion < 0;
+        }
+
+        public boolean isPermutation()
+        {
+            return expected.equals(actual);
+        }
+
+        /**
+         * @return primo indice i tale che array[i-1] > array[i], -1 se l'array è ordinato
+         */
+        public int getFirstInversion()
+        {
+            return first_inversion;
+        }
+
+        public Fingerprint getExpected()
+        {
+            return expected;
+        }
+
+        public Fingerprint getActual()
+        {
+            return actual;
+        }
+
+        @Override
+        public String toString()
+        {
+            if(isCorrect())
+                return "array ordinato correttamente";
+
+            String s = "";
+            if(!isSorted())
+                s += "array non ordinato (primo elemento fuori ordine all'indice " + first_inversion + ")";
+            if(!isPermutation())
+                s += (s.isEmpty() ? "" : ", ") + "l'array non è una permutazione dell'input (input: " + expected + "; risultato: " + actual + ")";
+            return s;
+        }
+    }
+
+    /**
+     * Calcola in parallelo l'impronta dell'array.
+     *
+     * @param array array
+     * @return {@link Fingerprint}
+     */
+    public static Fingerprint fingerprint(int[] array)
+    {
+        return scan(array).toFingerprint(array.length);
+    }
+
+    /**
+     * Verifica in parallelo che l'array sia ordinato in modo crescente e che abbia l'impronta dell'input.
+     *
+     * @param input impronta dell'input, calcolata con {@link #fingerprint(int[])} prima dell'ordinamento
+     * @param array risultato dell'ordinamento
+     * @return {@link Result}
+     */
+    public static Result verify(Fingerprint input, int[] array)
+    {
+        Partial partial = scan(array);
+        return new Result(partial.first_inversion, input, partial.toFingerprint(array.length));
+    }
+
+    /**
+     * Verifica in parallelo che il risultato sia ordinato e sia una permutazione dell'input.
+     * L'input deve essere ancora quello originale (gli algoritmi che ordinano sul posto lo modificano):
+     * in quel caso va usato {@link #verify(Fingerprint, int[])} con l'impronta calcolata prima dell'ordinamento.
+     *
+     * @param input array da ordinare
+     * @param array risultato dell'ordinamento
+     * @return {@link Result}
+     */
+    public static Result verify(int[] input, int[] array)
+    {
+        return verify(fingerprint(input), array);
+    }
+
+    private static Partial scan(int[] array)
+    {
+        if(array.length <= CHUNK)
+            return Partial.of(array, 0, array.length);
+
+        return ForkJoinPool.commonPool().invoke(new ScanTask(array, 0, array.length));
+    }
+
+    /**
+     * Risultato parziale della scansione di un intervallo dell'array.
+     */
+    private static class Partial
+    {
+        private int first_inversion = -1;
+        private long sum;
+        private long xor;
+        private long hash;
+
+        /**
+         * Esamina gli elementi [from, to), e le coppie di elementi adiacenti che terminano in [from, to)
+         * (compresa quella a cavallo con l'intervallo precedente).
+         */
+        static Partial of(int[] array, int from, int to)
+        {
+            Partial p = new Partial();
+            long sum = 0, xor = 0, hash = 0;
+            for(int i = from; i < to; i++)
+            {
+                int x = array[i];
+                sum += x;
+                xor ^= x;
+                hash += mix(x);
+                if(p.first_inversion < 0 && i > 0 && array[i-1] > x)
+                    p.first_inversion = i;
+            }
+            p.sum = sum;
+            p.xor = xor;
+            p.hash = hash;
+            return p;
+        }
+
+        /**
+         * Unisce i risultati di due intervalli adiacenti (this a sinistra).
+         */
+        Partial combine(Partial right)
+        {
+            if(first_inversion < 0)
+                first_inversion = right.first_inversion;
+            sum += right.sum;
+            xor ^= right.xor;
+            hash += right.hash;
+            return this;
+        }
+
+        Fingerprint toFingerprint(int length)
+        {
+            return new Fingerprint(length, sum, xor, hash);
+        }
+    }
+
+    /**
+     * Task che esamina l'intervallo [from, to), dividendolo a metà fino ad arrivare a un singolo blocco.
+     */
+    private static class ScanTask extends RecursiveTask<Partial>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] array;
+        private final int from;
+        private final int to;
+
+        ScanTask(int[] array, int from, int to)
+        {
+            this.array = array;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partial compute()
+        {
+            if(to - from <= CHUNK)
+                return Partial.of(array, from, to);
+
+            int mid = (from + to) >>> 1;
+            ScanTask left = new ScanTask(array, from, mid);
+            left.fork();
+            Partial right = new ScanTask(array, mid, to).compute();
+            return left.join().combine(right);
+        }
+    }
+
+    /**
+     * Hash a 64 bit di un elemento (finalizzatore di MurmurHash3, con una costante perché lo 0 non abbia hash 0).
+     */
+    private static long mix(int x)
+    {
+        long h = x ^ 0x9e3779b97f4a7c15L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}